@@ -119,6 +119,12 @@ public interface BuildActionRequest<T> extends BuildRequest<T> {
     @Override
     BuildActionRequest<T> addTypedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildActionRequest<T> priority(RequestPriority priority);
+
     /**
      * {@inheritDoc}
      */
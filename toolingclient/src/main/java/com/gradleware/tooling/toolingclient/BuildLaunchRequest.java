@@ -117,6 +117,12 @@ public interface BuildLaunchRequest extends BuildRequest<Void> {
     @Override
     BuildLaunchRequest addTypedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildLaunchRequest priority(RequestPriority priority);
+
     /**
      * {@inheritDoc}
      */
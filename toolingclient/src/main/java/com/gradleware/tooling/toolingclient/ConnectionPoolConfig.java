@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encapsulates the bounds of the connection pool used by a tooling client with connection strategy {@link ToolingClient.ConnectionStrategy#POOLED}.
+ */
+public final class ConnectionPoolConfig {
+
+    private static final int DEFAULT_MAX_SIZE = 16;
+    private static final long DEFAULT_MAX_IDLE_TIME_MINUTES = 10;
+
+    private final int maxSize;
+    private final long maxIdleTimeNanos;
+
+    private ConnectionPoolConfig(int maxSize, long maxIdleTimeNanos) {
+        Preconditions.checkArgument(maxSize > 0, "Maximum pool size must be positive: %s", maxSize);
+        Preconditions.checkArgument(maxIdleTimeNanos >= 0, "Maximum idle time must not be negative: %s", maxIdleTimeNanos);
+        this.maxSize = maxSize;
+        this.maxIdleTimeNanos = maxIdleTimeNanos;
+    }
+
+    /**
+     * Returns the maximum number of idle connections kept in the pool. Connections that are in use by a request are never closed, thus the pool can temporarily hold more
+     * connections than this number.
+     *
+     * @return the maximum pool size
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the time after which a connection that is not in use by any request is closed.
+     *
+     * @param unit the time unit in which to return the maximum idle time
+     * @return the maximum idle time
+     */
+    public long getMaxIdleTime(TimeUnit unit) {
+        return unit.convert(this.maxIdleTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        ConnectionPoolConfig that = (ConnectionPoolConfig) other;
+        return this.maxSize == that.maxSize && this.maxIdleTimeNanos == that.maxIdleTimeNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.maxSize, this.maxIdleTimeNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Connection pool with max size %d and max idle time %dms", this.maxSize, TimeUnit.NANOSECONDS.toMillis(this.maxIdleTimeNanos));
+    }
+
+    /**
+     * Creates a pool configuration with a maximum size of 16 connections and a maximum idle time of 10 minutes.
+     *
+     * @return a new instance
+     */
+    public static ConnectionPoolConfig defaults() {
+        return of(DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_TIME_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a pool configuration with the given bounds.
+     *
+     * @param maxSize the maximum number of connections kept in the pool, must be positive
+     * @param maxIdleTime the time after which an unused connection is closed, must not be negative
+     * @param unit the time unit of the maximum idle time
+     * @return a new instance
+     */
+    public static ConnectionPoolConfig of(int maxSize, long maxIdleTime, TimeUnit unit) {
+        Preconditions.checkNotNull(unit);
+        return new ConnectionPoolConfig(maxSize, unit.toNanos(maxIdleTime));
+    }
+
+}
@@ -73,6 +73,33 @@ public final class GradleDistribution {
         }
     }
 
+    /**
+     * Returns the local installation directory of this distribution.
+     *
+     * @return the installation directory, null if this distribution is not a local installation
+     */
+    public File getLocalInstallationDir() {
+        return this.localInstallationDir;
+    }
+
+    /**
+     * Returns the URI of this distribution.
+     *
+     * @return the distribution URI, null if this distribution is not a remote distribution
+     */
+    public URI getRemoteDistributionUri() {
+        return this.remoteDistributionUri;
+    }
+
+    /**
+     * Returns the Gradle version of this distribution.
+     *
+     * @return the Gradle version, null if this distribution is not identified by its version
+     */
+    public String getVersion() {
+        return this.version;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) {
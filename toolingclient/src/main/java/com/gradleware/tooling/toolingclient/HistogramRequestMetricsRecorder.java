@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free {@link RequestMetricsRecorder} that aggregates the phase timings of all requests into a {@link LatencyHistogram} per phase and request kind, and that counts the
+ * outcomes per request kind.
+ */
+public final class HistogramRequestMetricsRecorder implements RequestMetricsRecorder {
+
+    private final Map<RequestMetrics.Kind, LatencyHistogram> connectTimes;
+    private final Map<RequestMetrics.Kind, LatencyHistogram> operationTimes;
+    private final Map<RequestMetrics.Kind, LatencyHistogram> timesToFirstProgressEvent;
+    private final Map<RequestMetrics.Kind, AtomicLongArray> outcomes;
+
+    public HistogramRequestMetricsRecorder() {
+        // all maps are fully populated upfront and never modified afterwards, thus they can be read without synchronization
+        this.connectTimes = new EnumMap<RequestMetrics.Kind, LatencyHistogram>(RequestMetrics.Kind.class);
+        this.operationTimes = new EnumMap<RequestMetrics.Kind, LatencyHistogram>(RequestMetrics.Kind.class);
+        this.timesToFirstProgressEvent = new EnumMap<RequestMetrics.Kind, LatencyHistogram>(RequestMetrics.Kind.class);
+        this.outcomes = new EnumMap<RequestMetrics.Kind, AtomicLongArray>(RequestMetrics.Kind.class);
+        for (RequestMetrics.Kind kind : RequestMetrics.Kind.values()) {
+            this.connectTimes.put(kind, new LatencyHistogram());
+            this.operationTimes.put(kind, new LatencyHistogram());
+            this.timesToFirstProgressEvent.put(kind, new LatencyHistogram());
+            this.outcomes.put(kind, new AtomicLongArray(RequestMetrics.Outcome.values().length));
+        }
+    }
+
+    @Override
+    public void record(RequestMetrics metrics) {
+        RequestMetrics.Kind kind = metrics.getKind();
+        this.connectTimes.get(kind).record(metrics.getConnectTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        this.operationTimes.get(kind).record(metrics.getOperationTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        if (metrics.getProgressEventCount() > 0) {
+            this.timesToFirstProgressEvent.get(kind).record(metrics.getTimeToFirstProgressEvent(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+        this.outcomes.get(kind).incrementAndGet(metrics.getOutcome().ordinal());
+    }
+
+    /**
+     * Returns the histogram of the connect times of the requests of the given kind.
+     *
+     * @param kind the request kind
+     * @return the histogram
+     */
+    public LatencyHistogram getConnectTimes(RequestMetrics.Kind kind) {
+        return this.connectTimes.get(Preconditions.checkNotNull(kind));
+    }
+
+    /**
+     * Returns the histogram of the operation times of the requests of the given kind.
+     *
+     * @param kind the request kind
+     * @return the histogram
+     */
+    public LatencyHistogram getOperationTimes(RequestMetrics.Kind kind) {
+        return this.operationTimes.get(Preconditions.checkNotNull(kind));
+    }
+
+    /**
+     * Returns the histogram of the times to the first progress event of the requests of the given kind. Requests without any progress events are not included.
+     *
+     * @param kind the request kind
+     * @return the histogram
+     */
+    public LatencyHistogram getTimesToFirstProgressEvent(RequestMetrics.Kind kind) {
+        return this.timesToFirstProgressEvent.get(Preconditions.checkNotNull(kind));
+    }
+
+    /**
+     * Returns the number of requests of the given kind that completed with the given outcome.
+     *
+     * @param kind the request kind
+     * @param outcome the outcome
+     * @return the number of requests
+     */
+    public long getOutcomeCount(RequestMetrics.Kind kind, RequestMetrics.Outcome outcome) {
+        return this.outcomes.get(Preconditions.checkNotNull(kind)).get(outcome.ordinal());
+    }
+
+}
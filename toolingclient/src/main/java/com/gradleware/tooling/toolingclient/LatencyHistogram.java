@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations. Durations are recorded with microsecond resolution into buckets whose bounds grow by powers of two, thus the percentiles
+ * returned by the histogram are upper bounds that are accurate within a factor of two. Recording a value never blocks and never allocates, reading the histogram is
+ * consistent per bucket but not across buckets.
+ */
+public final class LatencyHistogram {
+
+    // bucket i holds the values in [2^(i-1), 2^i) microseconds, bucket 0 holds 0, the last bucket also holds all larger values
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records the given duration. Negative durations are ignored.
+     *
+     * @param duration the duration
+     * @param unit the time unit of the duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        long micros = unit.toMicros(duration);
+        if (micros < 0) {
+            return;
+        }
+
+        this.buckets.incrementAndGet(bucketOf(micros));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(micros);
+        long currentMax = this.max.get();
+        while (micros > currentMax && !this.max.compareAndSet(currentMax, micros)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     *
+     * @param unit the time unit in which to return the mean
+     * @return the mean, 0 if no duration has been recorded
+     */
+    public long getMean(TimeUnit unit) {
+        long count = this.count.get();
+        return count == 0 ? 0 : unit.convert(this.sum.get() / count, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @param unit the time unit in which to return the maximum
+     * @return the maximum, 0 if no duration has been recorded
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(this.max.get(), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded durations.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @param unit the time unit in which to return the percentile
+     * @return the percentile, 0 if no duration has been recorded
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100: %s", percentile);
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return unit.convert(Math.min(upperBoundOf(i), this.max.get()), TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%dms, p50=%dms, p99=%dms, max=%dms", getCount(), getMean(TimeUnit.MILLISECONDS), getPercentile(50, TimeUnit.MILLISECONDS),
+                getPercentile(99, TimeUnit.MILLISECONDS), getMax(TimeUnit.MILLISECONDS));
+    }
+
+    private static int bucketOf(long micros) {
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+}
@@ -117,6 +117,12 @@ public interface ModelRequest<T> extends BuildRequest<T> {
     @Override
     ModelRequest<T> addTypedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    ModelRequest<T> priority(RequestPriority priority);
+
     /**
      * {@inheritDoc}
      */
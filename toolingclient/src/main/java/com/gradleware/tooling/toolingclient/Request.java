@@ -16,6 +16,7 @@
 
 package com.gradleware.tooling.toolingclient;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ProgressListener;
 
@@ -119,6 +120,15 @@ public interface Request<T> {
      */
     Request<T> addTypedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
+    /**
+     * Specifies the priority with which the request is scheduled if the tooling client limits the number of concurrently executed requests. Defaults to {@link
+     * RequestPriority#INTERACTIVE}.
+     *
+     * @param priority the priority of the request
+     * @return this
+     */
+    Request<T> priority(RequestPriority priority);
+
     /**
      * Specifies the cancellation token to use to cancel the request if required.
      *
@@ -141,4 +151,16 @@ public interface Request<T> {
      */
     LongRunningOperationPromise<T> execute();
 
+    /**
+     * Executes this request asynchronously. Calling this method will return immediately. In contrast to the promise returned by {@link #execute()}, the returned future
+     * supports any number of listeners, each notified through the executor it is registered with, and it can be composed with other futures through the utilities of
+     * {@link com.google.common.util.concurrent.Futures}, e.g. {@code transform} to pipeline several requests or {@code allAsList} to combine the results of several requests.
+     * <p/>
+     * Cancelling the returned future cancels the request. Cancelling the token specified through {@link #cancellationToken(CancellationToken)} cancels the request, too.
+     *
+     * @return the future of the request result
+     * @see RequestFutures#withTimeout(ListenableFuture, long, java.util.concurrent.TimeUnit, java.util.concurrent.ScheduledExecutorService)
+     */
+    ListenableFuture<T> executeAsFuture();
+
 }
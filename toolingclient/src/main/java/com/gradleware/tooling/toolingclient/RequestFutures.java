@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Utilities for the futures returned by {@link Request#executeAsFuture()}.
+ */
+public final class RequestFutures {
+
+    private RequestFutures() {
+    }
+
+    /**
+     * Returns a future that completes like the given future unless the given future has not completed within the given timeout, in which case the returned future fails
+     * with a {@link TimeoutException} and the given future is cancelled. Cancelling the future of a request cancels the request. Cancelling the returned future cancels the
+     * given future, too.
+     *
+     * @param future the future to time out
+     * @param timeout the time to wait for the given future to complete
+     * @param unit the time unit of the timeout
+     * @param scheduler the executor used to schedule the timeout
+     * @param <T> the result type
+     * @return the future that fails if the given future does not complete in time
+     */
+    public static <T> ListenableFuture<T> withTimeout(final ListenableFuture<T> future, long timeout, TimeUnit unit, ScheduledExecutorService scheduler) {
+        Preconditions.checkNotNull(future);
+        Preconditions.checkNotNull(unit);
+        Preconditions.checkNotNull(scheduler);
+
+        final TimeoutFuture<T> timeoutFuture = new TimeoutFuture<T>(future);
+        final ScheduledFuture<?> timer = scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                if (timeoutFuture.timeOut()) {
+                    future.cancel(true);
+                }
+            }
+        }, timeout, unit);
+        Futures.addCallback(future, new FutureCallback<T>() {
+
+            @Override
+            public void onSuccess(T result) {
+                timer.cancel(false);
+                timeoutFuture.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                timer.cancel(false);
+                timeoutFuture.setException(failure);
+            }
+        }, MoreExecutors.directExecutor());
+        return timeoutFuture;
+    }
+
+    /**
+     * Future that either completes like its delegate or fails due to a timeout.
+     *
+     * @param <T> the result type
+     */
+    private static final class TimeoutFuture<T> extends AbstractFuture<T> {
+
+        private final ListenableFuture<T> delegate;
+
+        private TimeoutFuture(ListenableFuture<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        private boolean timeOut() {
+            return setException(new TimeoutException("Request did not complete in time."));
+        }
+
+        @Override
+        protected boolean set(T value) {
+            return super.set(value);
+        }
+
+        @Override
+        protected boolean setException(Throwable throwable) {
+            return super.setException(throwable);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                this.delegate.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+    }
+
+}
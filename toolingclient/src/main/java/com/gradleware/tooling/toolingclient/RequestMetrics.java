@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Optional;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phase timings and the outcome of a single request that has been executed through the Tooling API. The timings of the individual phases are measured as follows:
+ * <ul>
+ * <li>connect time: from the start of the request until a {@code ProjectConnection} has been obtained</li>
+ * <li>operation time: from obtaining the connection until the Tooling API operation has completed</li>
+ * <li>time to first progress event: from obtaining the connection until the first progress event has been received, which includes the startup of the daemon</li>
+ * </ul>
+ * If several identical requests are coalesced into a single invocation, the metrics are reported only once.
+ *
+ * @see RequestMetricsRecorder
+ */
+public interface RequestMetrics {
+
+    /**
+     * Returns the kind of the request.
+     *
+     * @return the request kind
+     */
+    Kind getKind();
+
+    /**
+     * Returns the model type fetched by a model request.
+     *
+     * @return the model type, absent if the request is not a model request
+     */
+    Optional<Class<?>> getModelType();
+
+    /**
+     * Returns the Gradle distribution the request was executed with.
+     *
+     * @return the Gradle distribution
+     */
+    GradleDistribution getGradleDistribution();
+
+    /**
+     * Returns the project directory the request was executed for.
+     *
+     * @return the project directory
+     */
+    File getProjectDir();
+
+    /**
+     * Returns the outcome of the request.
+     *
+     * @return the outcome
+     */
+    Outcome getOutcome();
+
+    /**
+     * Returns the time it took to obtain the connection. If no connection could be obtained, the time until the failure occurred is returned.
+     *
+     * @param unit the time unit in which to return the time
+     * @return the connect time
+     */
+    long getConnectTime(TimeUnit unit);
+
+    /**
+     * Returns the time spent in the Tooling API operation.
+     *
+     * @param unit the time unit in which to return the time
+     * @return the operation time, 0 if no connection could be obtained
+     */
+    long getOperationTime(TimeUnit unit);
+
+    /**
+     * Returns the time from obtaining the connection until the first progress event has been received.
+     *
+     * @param unit the time unit in which to return the time
+     * @return the time to the first progress event, -1 if no progress event has been received
+     */
+    long getTimeToFirstProgressEvent(TimeUnit unit);
+
+    /**
+     * Returns the number of progress events received while the operation was running.
+     *
+     * @return the number of progress events
+     */
+    long getProgressEventCount();
+
+    /**
+     * Returns the number of bytes written to the standard output and the standard error configured on the request. Output is not counted if no stream has been configured.
+     *
+     * @return the number of output bytes
+     */
+    long getOutputBytes();
+
+    /**
+     * Enumerates the kinds of requests.
+     */
+    enum Kind {
+
+        MODEL, BUILD_ACTION, BUILD_LAUNCH, TEST_LAUNCH
+
+    }
+
+    /**
+     * Enumerates the possible outcomes of a request.
+     */
+    enum Outcome {
+
+        SUCCESS, FAILURE, CANCELLED
+
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+/**
+ * Service provider interface to record the metrics of the requests executed by a tooling client. The recorder is invoked on the thread that completes the request, i.e. an
+ * implementation must be thread-safe and should return quickly. Exceptions thrown by the recorder are logged and otherwise ignored.
+ *
+ * @see ToolingClient.Builder#metricsRecorder(RequestMetricsRecorder)
+ * @see HistogramRequestMetricsRecorder
+ */
+public interface RequestMetricsRecorder {
+
+    /**
+     * Invoked once a request has completed, regardless of its outcome.
+     *
+     * @param metrics the metrics of the completed request
+     */
+    void record(RequestMetrics metrics);
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+/**
+ * Enumerates the priorities with which requests are scheduled by a tooling client that limits the number of concurrently executed requests. Queued requests with a higher
+ * priority are always started before queued requests with a lower priority.
+ *
+ * @see ToolingClient.Builder#requestScheduler(RequestSchedulerConfig)
+ */
+public enum RequestPriority {
+
+    /**
+     * Requests a user is actively waiting for, e.g. a model request that is triggered from the IDE.
+     */
+    INTERACTIVE,
+
+    /**
+     * Requests that run in the background on behalf of the user, e.g. a refresh of the project models.
+     */
+    BACKGROUND,
+
+    /**
+     * Long running requests that are not time critical, e.g. a full build.
+     */
+    BATCH
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Encapsulates the limits applied by a tooling client that schedules its requests. Requests that would exceed one of the limits are queued and started by {@link
+ * RequestPriority priority}. Within the same priority, queued requests of different projects are started in a round-robin fashion, such that a project with many queued
+ * requests cannot starve the requests of other projects.
+ *
+ * @see ToolingClient.Builder#requestScheduler(RequestSchedulerConfig)
+ */
+public final class RequestSchedulerConfig {
+
+    private final int maxConcurrentRequests;
+    private final int maxConcurrentRequestsPerProject;
+
+    private RequestSchedulerConfig(int maxConcurrentRequests, int maxConcurrentRequestsPerProject) {
+        Preconditions.checkArgument(maxConcurrentRequests > 0, "Maximum number of concurrent requests must be positive: %s", maxConcurrentRequests);
+        Preconditions.checkArgument(maxConcurrentRequestsPerProject > 0, "Maximum number of concurrent requests per project must be positive: %s", maxConcurrentRequestsPerProject);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxConcurrentRequestsPerProject = maxConcurrentRequestsPerProject;
+    }
+
+    /**
+     * Returns the maximum number of requests that are executed at the same time across all projects.
+     *
+     * @return the global limit
+     */
+    public int getMaxConcurrentRequests() {
+        return this.maxConcurrentRequests;
+    }
+
+    /**
+     * Returns the maximum number of requests that are executed at the same time for the same project directory.
+     *
+     * @return the per-project limit
+     */
+    public int getMaxConcurrentRequestsPerProject() {
+        return this.maxConcurrentRequestsPerProject;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        RequestSchedulerConfig that = (RequestSchedulerConfig) other;
+        return this.maxConcurrentRequests == that.maxConcurrentRequests && this.maxConcurrentRequestsPerProject == that.maxConcurrentRequestsPerProject;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.maxConcurrentRequests, this.maxConcurrentRequestsPerProject);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Request scheduler with at most %d concurrent requests and at most %d concurrent requests per project", this.maxConcurrentRequests,
+                this.maxConcurrentRequestsPerProject);
+    }
+
+    /**
+     * Creates a scheduler configuration with the given limits.
+     *
+     * @param maxConcurrentRequests the maximum number of requests executed at the same time, must be positive
+     * @param maxConcurrentRequestsPerProject the maximum number of requests executed at the same time for the same project, must be positive
+     * @return a new instance
+     */
+    public static RequestSchedulerConfig of(int maxConcurrentRequests, int maxConcurrentRequestsPerProject) {
+        return new RequestSchedulerConfig(maxConcurrentRequests, maxConcurrentRequestsPerProject);
+    }
+
+}
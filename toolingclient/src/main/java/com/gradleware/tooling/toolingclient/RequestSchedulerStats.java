@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the state and the accumulated metrics of the request scheduler of a tooling client.
+ *
+ * @see ToolingClient#getRequestSchedulerStats()
+ */
+public interface RequestSchedulerStats {
+
+    /**
+     * Returns the number of requests that are currently executed.
+     *
+     * @return the number of running requests
+     */
+    int getRunningRequests();
+
+    /**
+     * Returns the number of requests with the given priority that are currently waiting to be started.
+     *
+     * @param priority the priority of the requests
+     * @return the queue depth for the given priority
+     */
+    int getQueuedRequests(RequestPriority priority);
+
+    /**
+     * Returns the number of requests with the given priority that have been started so far.
+     *
+     * @param priority the priority of the requests
+     * @return the number of started requests
+     */
+    long getStartedRequests(RequestPriority priority);
+
+    /**
+     * Returns the average time the started requests with the given priority have been waiting in the queue.
+     *
+     * @param priority the priority of the requests
+     * @param unit the time unit in which to return the wait time
+     * @return the average wait time, 0 if no request has been started yet
+     */
+    long getAverageWaitTime(RequestPriority priority, TimeUnit unit);
+
+    /**
+     * Returns the longest time a started request with the given priority has been waiting in the queue.
+     *
+     * @param priority the priority of the requests
+     * @param unit the time unit in which to return the wait time
+     * @return the maximum wait time, 0 if no request has been started yet
+     */
+    long getMaxWaitTime(RequestPriority priority, TimeUnit unit);
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encapsulates how often and after which delays a tooling client retries a request that failed because its connection to the Gradle daemon broke. Only model requests and build
+ * action requests are retried since they do not change the state of the build. The delay before each retry is twice the delay before the previous retry, bounded by the maximum
+ * backoff.
+ *
+ * @see ToolingClient.Builder#retryPolicy(RetryPolicy)
+ */
+public final class RetryPolicy {
+
+    private static final int DEFAULT_MAX_RETRIES = 2;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 250;
+    private static final long DEFAULT_MAX_BACKOFF_MILLIS = 5000;
+
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private RetryPolicy(int maxRetries, long initialBackoffNanos, long maxBackoffNanos) {
+        Preconditions.checkArgument(maxRetries >= 0, "Maximum number of retries must not be negative: %s", maxRetries);
+        Preconditions.checkArgument(initialBackoffNanos >= 0, "Initial backoff must not be negative: %s", initialBackoffNanos);
+        Preconditions.checkArgument(maxBackoffNanos >= initialBackoffNanos, "Maximum backoff must not be smaller than the initial backoff: %s", maxBackoffNanos);
+        this.maxRetries = maxRetries;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * Returns the maximum number of times a single request is retried.
+     *
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    /**
+     * Returns the delay before the given retry.
+     *
+     * @param retry the retry, starting at 1
+     * @param unit the time unit in which to return the delay
+     * @return the delay before the given retry
+     */
+    public long getBackoff(int retry, TimeUnit unit) {
+        Preconditions.checkArgument(retry > 0, "Retry must be positive: %s", retry);
+        long backoffNanos = this.initialBackoffNanos;
+        for (int i = 1; i < retry && backoffNanos < this.maxBackoffNanos; i++) {
+            backoffNanos *= 2;
+        }
+        return unit.convert(Math.min(backoffNanos, this.maxBackoffNanos), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        RetryPolicy that = (RetryPolicy) other;
+        return this.maxRetries == that.maxRetries && this.initialBackoffNanos == that.initialBackoffNanos && this.maxBackoffNanos == that.maxBackoffNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.maxRetries, this.initialBackoffNanos, this.maxBackoffNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Retry policy with max %d retries and backoff between %dms and %dms", this.maxRetries, TimeUnit.NANOSECONDS.toMillis(this.initialBackoffNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.maxBackoffNanos));
+    }
+
+    /**
+     * Creates a retry policy with a maximum of 2 retries, an initial backoff of 250ms, and a maximum backoff of 5s.
+     *
+     * @return a new instance
+     */
+    public static RetryPolicy defaults() {
+        return of(DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a retry policy with the given bounds.
+     *
+     * @param maxRetries the maximum number of times a single request is retried, must not be negative
+     * @param initialBackoff the delay before the first retry, must not be negative
+     * @param maxBackoff the maximum delay before any retry, must not be smaller than the initial backoff
+     * @param unit the time unit of the backoffs
+     * @return a new instance
+     */
+    public static RetryPolicy of(int maxRetries, long initialBackoff, long maxBackoff, TimeUnit unit) {
+        Preconditions.checkNotNull(unit);
+        return new RetryPolicy(maxRetries, unit.toNanos(initialBackoff), unit.toNanos(maxBackoff));
+    }
+
+}
@@ -118,6 +118,12 @@ public interface TestLaunchRequest extends BuildRequest<Void> {
     @Override
     TestLaunchRequest addTypedProgressListeners(org.gradle.tooling.events.ProgressListener... listeners);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    TestLaunchRequest priority(RequestPriority priority);
+
     /**
      * {@inheritDoc}
      */
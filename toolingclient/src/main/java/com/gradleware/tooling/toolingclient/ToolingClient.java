@@ -16,11 +16,16 @@
 
 package com.gradleware.tooling.toolingclient;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.gradleware.tooling.toolingclient.internal.DefaultToolingClient;
 import org.gradle.internal.Factory;
 import org.gradle.tooling.BuildAction;
 import org.gradle.tooling.GradleConnector;
 
+import java.io.File;
+
 /**
  * Entry class to interact with the Tooling API. All interactions happen by creating and invoking requests of type {@link ModelRequest}. The tooling client takes care of the
  * house-keeping of all issued requests and the long-living resources potentially associated with these requests. Once the interactions with Gradle are over, the tooling client
@@ -65,6 +70,16 @@ public abstract class ToolingClient {
         return new DefaultToolingClient(connectorFactory, connectionStrategy);
     }
 
+    /**
+     * Creates a new builder to configure and create a tooling client instance. The builder is useful when more than the connector factory and the connection strategy need to
+     * be specified.
+     *
+     * @return a new builder instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
     /**
      * Creates a new model request. A model request is used to fetch a given model that is available through the Tooling API.
      *
@@ -101,13 +116,49 @@ public abstract class ToolingClient {
      */
     public abstract TestLaunchRequest newTestLaunchRequest(TestConfig tests);
 
+    /**
+     * Starts a Gradle daemon for the given build in the background, such that the daemon start-up time is not paid by the first request executed for that build. The daemon is
+     * started by fetching the cheap {@link org.gradle.tooling.model.build.BuildEnvironment} model with {@link RequestPriority#BACKGROUND} priority. If the connection strategy
+     * keeps connections around, the connection opened by this call is reused by subsequent requests with the same connection attributes.
+     *
+     * @param projectDir the project directory of the build
+     * @param gradleUserHomeDir the Gradle user home directory, can be null to use the default
+     * @param gradleDistribution the Gradle distribution
+     * @return the future that completes once the daemon is ready
+     */
+    public abstract ListenableFuture<Void> prewarm(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution);
+
+    /**
+     * Starts the given number of Gradle daemons for the given build and Java home in the background. Since a busy daemon is never shared, requests are only served in parallel
+     * if enough compatible daemons are running. The daemons are started by fetching the cheap {@link org.gradle.tooling.model.build.BuildEnvironment} model concurrently, thus
+     * if more than one daemon is requested, the requests bypass request coalescing and request scheduling. Gradle reuses idle daemons, hence fewer daemons are started if compatible daemons are already running.
+     *
+     * @param projectDir the project directory of the build
+     * @param gradleUserHomeDir the Gradle user home directory, can be null to use the default
+     * @param gradleDistribution the Gradle distribution
+     * @param javaHomeDir the Java home directory of the daemons, can be null to use the default
+     * @param daemonCount the number of daemons to start, must be positive
+     * @return the future that completes once all daemons are ready
+     */
+    public abstract ListenableFuture<Void> prewarm(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution, File javaHomeDir, int daemonCount);
+
     /**
      * Stops the tooling client and applies the specified clean-up strategy to any associated resources and processes. May block or may not block, depending on the specified
      * cleanup strategy.
      *
      * @param strategy the clean-up strategy to apply
+     * @return the future that completes once the clean-up has finished
      */
-    public abstract void stop(CleanUpStrategy strategy);
+    public abstract ListenableFuture<Void> stop(CleanUpStrategy strategy);
+
+    /**
+     * Returns a snapshot of the queue depths and wait times of the request scheduler of this tooling client. If no request scheduler has been configured, all values of the
+     * snapshot are 0.
+     *
+     * @return the current scheduler statistics
+     * @see Builder#requestScheduler(RequestSchedulerConfig)
+     */
+    public abstract RequestSchedulerStats getRequestSchedulerStats();
 
     /**
      * Enumerates the different clean-up strategies.
@@ -115,12 +166,13 @@ public abstract class ToolingClient {
     public enum CleanUpStrategy {
 
         /**
-         * Clean up all resources and forcefully shut down any associated running processes.
+         * Clean up all resources and forcefully shut down any associated running processes. Does not block. All running requests are cancelled, all connections are closed in
+         * parallel, and any further requests are rejected. Connections that cannot be closed within a few seconds are abandoned.
          */
         FORCEFULLY,
 
         /**
-         * Clean up all resources and gracefully shut down any associated running processes.
+         * Clean up all resources and gracefully shut down any associated running processes. Blocks until all connections have been closed.
          */
         GRACEFULLY
 
@@ -143,7 +195,138 @@ public abstract class ToolingClient {
          * This allows the Gradle daemon to send updates to the client,
          * but at the cost of not detecting changes to the Gradle wrapper version.
          */
-        REUSE
+        REUSE,
+
+        /**
+         * Reuse connections like {@link #REUSE}, but keep them in a bounded pool.
+         * Connections that have been idle for too long or that exceed the maximum
+         * pool size are closed in least-recently-used order. A connection is never
+         * closed while a request is still using it.
+         *
+         * @see ConnectionPoolConfig
+         */
+        POOLED
+    }
+
+    /**
+     * Builder to configure and create {@link ToolingClient} instances. A builder is not thread-safe.
+     */
+    public static final class Builder {
+
+        private Factory<GradleConnector> connectorFactory;
+        private ConnectionStrategy connectionStrategy;
+        private ConnectionPoolConfig connectionPoolConfig;
+        private boolean coalesceRequests;
+        private Optional<RequestSchedulerConfig> requestSchedulerConfig;
+        private Optional<RequestMetricsRecorder> metricsRecorder;
+        private Optional<RetryPolicy> retryPolicy;
+
+        private Builder() {
+            this.connectorFactory = DefaultToolingClient.DefaultGradleConnectorFactory.INSTANCE;
+            this.connectionStrategy = ConnectionStrategy.PER_REQUEST;
+            this.connectionPoolConfig = ConnectionPoolConfig.defaults();
+            this.coalesceRequests = false;
+            this.requestSchedulerConfig = Optional.absent();
+            this.metricsRecorder = Optional.absent();
+            this.retryPolicy = Optional.absent();
+        }
+
+        /**
+         * Specifies the factory to use whenever a new connector is required by the tooling client. By default, a new connector is created through {@link
+         * GradleConnector#newConnector()}.
+         *
+         * @param connectorFactory the connector factory
+         * @return this
+         */
+        public Builder connectorFactory(Factory<GradleConnector> connectorFactory) {
+            this.connectorFactory = Preconditions.checkNotNull(connectorFactory);
+            return this;
+        }
+
+        /**
+         * Specifies how to obtain connections. Defaults to {@link ConnectionStrategy#PER_REQUEST}.
+         *
+         * @param connectionStrategy how to obtain connections
+         * @return this
+         */
+        public Builder connectionStrategy(ConnectionStrategy connectionStrategy) {
+            this.connectionStrategy = Preconditions.checkNotNull(connectionStrategy);
+            return this;
+        }
+
+        /**
+         * Specifies the bounds of the connection pool. Only taken into account if the connection strategy is {@link ConnectionStrategy#POOLED}. Defaults to {@link
+         * ConnectionPoolConfig#defaults()}.
+         *
+         * @param connectionPoolConfig the connection pool configuration
+         * @return this
+         */
+        public Builder connectionPool(ConnectionPoolConfig connectionPoolConfig) {
+            this.connectionPoolConfig = Preconditions.checkNotNull(connectionPoolConfig);
+            return this;
+        }
+
+        /**
+         * Specifies whether identical model and build action requests that are executed at the same time are served by a single Gradle invocation. Two requests are identical if
+         * they target the same model type or build action, project directory, Gradle user home, Gradle distribution, Java home, JVM arguments, arguments, and tasks. Each caller
+         * receives the progress events and output that occur after it joined the shared invocation, and the shared invocation is only cancelled once all of its callers have
+         * cancelled their requests. Requests with a custom standard input are never coalesced. Disabled by default.
+         *
+         * @param coalesceRequests {@code true} to coalesce identical in-flight requests
+         * @return this
+         */
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Specifies that requests are only executed once the limits of the given configuration allow it. Queued requests are started by their {@link RequestPriority} and,
+         * within the same priority, round-robin across projects. By default, all requests are executed right away.
+         *
+         * @param requestSchedulerConfig the limits of the request scheduler
+         * @return this
+         */
+        public Builder requestScheduler(RequestSchedulerConfig requestSchedulerConfig) {
+            this.requestSchedulerConfig = Optional.of(requestSchedulerConfig);
+            return this;
+        }
+
+        /**
+         * Specifies the recorder to which the metrics of each Gradle invocation are reported once the invocation has finished. The recorder is called from the thread that
+         * finished the invocation and must thus return quickly. By default, no metrics are collected.
+         *
+         * @param metricsRecorder the metrics recorder
+         * @return this
+         * @see HistogramRequestMetricsRecorder
+         */
+        public Builder metricsRecorder(RequestMetricsRecorder metricsRecorder) {
+            this.metricsRecorder = Optional.of(metricsRecorder);
+            return this;
+        }
+
+        /**
+         * Specifies that model requests and build action requests are retried according to the given policy if they fail because the connection to the Gradle daemon broke,
+         * e.g. because the daemon crashed. Independent of this setting, a broken connection is never reused by subsequent requests. By default, requests are not retried.
+         *
+         * @param retryPolicy the retry policy
+         * @return this
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = Optional.of(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Creates a new tooling client instance from the current configuration of this builder.
+         *
+         * @return a new instance
+         */
+        public ToolingClient build() {
+            return new DefaultToolingClient(this.connectorFactory, this.connectionStrategy, this.connectionPoolConfig, this.coalesceRequests, this.requestSchedulerConfig,
+                    this.metricsRecorder, this.retryPolicy);
+        }
+
     }
 
 }
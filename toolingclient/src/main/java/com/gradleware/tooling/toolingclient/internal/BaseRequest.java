@@ -18,7 +18,10 @@ package com.gradleware.tooling.toolingclient.internal;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.gradleware.tooling.toolingclient.RequestPriority;
 import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ProgressListener;
 
@@ -47,6 +50,7 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
     private ImmutableList<ProgressListener> progressListeners;
     private ImmutableList<org.gradle.tooling.events.ProgressListener> typedProgressListeners;
     private CancellationToken cancellationToken;
+    private RequestPriority priority;
 
     BaseRequest(ExecutableToolingClient toolingClient) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
@@ -55,6 +59,7 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
         this.progressListeners = ImmutableList.of();
         this.typedProgressListeners = ImmutableList.of();
         this.cancellationToken = GradleConnector.newCancellationTokenSource().token();
+        this.priority = RequestPriority.INTERACTIVE;
     }
 
     ExecutableToolingClient getToolingClient() {
@@ -184,6 +189,39 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
         return this.cancellationToken;
     }
 
+    @Override
+    public SELF priority(RequestPriority priority) {
+        this.priority = Preconditions.checkNotNull(priority);
+        return getThis();
+    }
+
+    @Override
+    public RequestPriority getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public ListenableFuture<T> executeAsFuture() {
+        // the copy of this request runs with its own token such that cancelling the future cancels the operation,
+        // cancelling the token of this request is forwarded to the token of the copy
+        final CancellationTokenSource cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+        LongRunningOperationFuture<T> future = new LongRunningOperationFuture<T>(cancellationTokenSource);
+        CancellationTokens.onCancellation(getCancellationToken(), new Runnable() {
+
+            @Override
+            public void run() {
+                cancellationTokenSource.cancel();
+            }
+        }, future);
+
+        try {
+            future.completeWith(deriveCopy().cancellationToken(cancellationTokenSource.token()).execute());
+        } catch (RuntimeException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
     <S, S_SELF extends BaseRequest<S, S_SELF>> S_SELF copy(BaseRequest<S, S_SELF> request) {
         return request.
                 colorOutput(isColorOutput()).
@@ -195,9 +233,17 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
                 arguments(getArguments()).
                 progressListeners(getProgressListeners()).
                 typedProgressListeners(getTypedProgressListeners()).
-                cancellationToken(getCancellationToken());
+                cancellationToken(getCancellationToken()).
+                priority(getPriority());
     }
 
+    /**
+     * Creates a copy of this request that is executed by the same tooling client.
+     *
+     * @return the copy
+     */
+    abstract SELF deriveCopy();
+
     abstract SELF getThis();
 
 }
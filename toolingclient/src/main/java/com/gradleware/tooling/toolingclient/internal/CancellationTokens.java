@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.internal.consumer.CancellationTokenInternal;
+
+/**
+ * Utility to observe the cancellation of {@link CancellationToken} instances. The public Tooling API only allows polling a token for its state, thus the internal token
+ * of the Tooling API consumer is used to get notified.
+ */
+final class CancellationTokens {
+
+    private CancellationTokens() {
+    }
+
+    /**
+     * Registers a callback that is invoked when the given token is cancelled, for as long as the given future has not completed. If the token has already been cancelled, the
+     * callback is invoked immediately.
+     *
+     * @param token the token to observe
+     * @param callback the callback to invoke upon cancellation
+     * @param scope the future whose completion ends the observation
+     * @return {@code true} if the token can be observed, {@code false} otherwise
+     */
+    static boolean onCancellation(CancellationToken token, final Runnable callback, ListenableFuture<?> scope) {
+        if (!(token instanceof CancellationTokenInternal)) {
+            return false;
+        }
+
+        final BuildCancellationToken buildCancellationToken = ((CancellationTokenInternal) token).getToken();
+        scope.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                buildCancellationToken.removeCallback(callback);
+            }
+        }, MoreExecutors.directExecutor());
+        if (buildCancellationToken.addCallback(callback)) {
+            callback.run();
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+
+import java.io.File;
+
+/**
+ * Identifies model and build action requests that yield the same result and can thus be served by a single Gradle invocation. Request attributes that only affect how the
+ * result is observed, like progress listeners, output streams, and cancellation tokens, are not part of the key.
+ */
+final class CoalescingKey {
+
+    private final Object operation;
+    private final ImmutableList<String> tasks;
+    private final File projectDir;
+    private final File gradleUserHomeDir;
+    private final GradleDistribution gradleDistribution;
+    private final File javaHomeDir;
+    private final ImmutableList<String> jvmArguments;
+    private final ImmutableList<String> arguments;
+    private final boolean colorOutput;
+
+    private CoalescingKey(Object operation, String[] tasks, InspectableBuildRequest<?> request) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.tasks = ImmutableList.copyOf(tasks);
+        this.projectDir = request.getProjectDir();
+        this.gradleUserHomeDir = request.getGradleUserHomeDir();
+        this.gradleDistribution = request.getGradleDistribution();
+        this.javaHomeDir = request.getJavaHomeDir();
+        this.jvmArguments = ImmutableList.copyOf(request.getJvmArguments());
+        this.arguments = ImmutableList.copyOf(request.getArguments());
+        this.colorOutput = request.isColorOutput();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        CoalescingKey that = (CoalescingKey) other;
+        return Objects.equal(this.operation, that.operation) &&
+                Objects.equal(this.tasks, that.tasks) &&
+                Objects.equal(this.projectDir, that.projectDir) &&
+                Objects.equal(this.gradleUserHomeDir, that.gradleUserHomeDir) &&
+                Objects.equal(this.gradleDistribution, that.gradleDistribution) &&
+                Objects.equal(this.javaHomeDir, that.javaHomeDir) &&
+                Objects.equal(this.jvmArguments, that.jvmArguments) &&
+                Objects.equal(this.arguments, that.arguments) &&
+                this.colorOutput == that.colorOutput;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.operation, this.tasks, this.projectDir, this.gradleUserHomeDir, this.gradleDistribution, this.javaHomeDir, this.jvmArguments,
+                this.arguments, this.colorOutput);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s for %s (%s)", this.operation, this.projectDir, this.gradleDistribution);
+    }
+
+    static CoalescingKey from(InspectableModelRequest<?> modelRequest) {
+        return new CoalescingKey(modelRequest.getModelType(), modelRequest.getTasks(), modelRequest);
+    }
+
+    /**
+     * Creates the key for the given build action request. Build actions are compared by equality, i.e. two requests are only coalesced if they either share the same build action
+     * instance or if the build action implements a value-based equality.
+     *
+     * @param buildActionRequest the build action request
+     * @return the key
+     */
+    static CoalescingKey from(InspectableBuildActionRequest<?> buildActionRequest) {
+        return new CoalescingKey(buildActionRequest.getBuildAction(), new String[0], buildActionRequest);
+    }
+
+}
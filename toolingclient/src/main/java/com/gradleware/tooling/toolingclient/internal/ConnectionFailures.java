@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.tooling.BuildActionFailureException;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.ListenerFailedException;
+import org.gradle.tooling.TestExecutionException;
+import org.gradle.tooling.UnknownModelException;
+import org.gradle.tooling.UnsupportedVersionException;
+import org.gradle.tooling.exceptions.UnsupportedOperationConfigurationException;
+
+import java.util.Set;
+
+/**
+ * Classifies the failures of Tooling API operations into failures caused by a broken connection to the Gradle daemon, which might not happen again on a fresh connection, and
+ * all other failures. The daemon-side exceptions are loaded by the class loader of the Gradle distribution, thus they are recognized by their simple class name.
+ */
+final class ConnectionFailures {
+
+    private static final Set<String> DAEMON_CONNECTION_FAILURES = ImmutableSet.of(
+            "DaemonDisappearedException",
+            "DaemonConnectionException",
+            "DaemonInitialConnectException",
+            "StaleDaemonAddressException",
+            "MessageIOException",
+            "ConnectException");
+
+    private ConnectionFailures() {
+    }
+
+    /**
+     * Returns whether the given failure was caused by a broken connection to the Gradle daemon or by a connection that has been stopped.
+     *
+     * @param failure the failure to classify
+     * @return {@code true} if the operation might succeed when run again on a fresh connection
+     */
+    static boolean isRetryable(Throwable failure) {
+        if (isFatal(failure)) {
+            return false;
+        }
+
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (DAEMON_CONNECTION_FAILURES.contains(cause.getClass().getSimpleName()) || isStoppedConnection(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFatal(Throwable failure) {
+        // the build itself failed, was cancelled, or cannot be run with the target Gradle version
+        return failure instanceof BuildException
+                || failure instanceof BuildCancelledException
+                || failure instanceof BuildActionFailureException
+                || failure instanceof TestExecutionException
+                || failure instanceof ListenerFailedException
+                || failure instanceof UnknownModelException
+                || failure instanceof UnsupportedVersionException
+                || failure instanceof UnsupportedOperationConfigurationException;
+    }
+
+    private static boolean isStoppedConnection(Throwable failure) {
+        // thrown by the Tooling API when an operation is started on a connection that has already been closed
+        String message = failure.getMessage();
+        return failure instanceof IllegalStateException && message != null
+                && (message.equals("This connection has been stopped.") || message.startsWith("Cannot use ") && message.endsWith(" as it has been stopped."));
+    }
+
+}
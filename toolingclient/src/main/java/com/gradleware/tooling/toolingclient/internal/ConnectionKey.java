@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+
+import java.io.File;
+
+/**
+ * Identifies a {@code ProjectConnection} by those request attributes that are applied to the {@code GradleConnector} when the connection is opened.
+ */
+final class ConnectionKey {
+
+    private final File projectDir;
+    private final File gradleUserHomeDir;
+    private final GradleDistribution gradleDistribution;
+
+    private ConnectionKey(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution) {
+        this.projectDir = projectDir;
+        this.gradleUserHomeDir = gradleUserHomeDir;
+        this.gradleDistribution = Preconditions.checkNotNull(gradleDistribution);
+    }
+
+    File getProjectDir() {
+        return this.projectDir;
+    }
+
+    File getGradleUserHomeDir() {
+        return this.gradleUserHomeDir;
+    }
+
+    GradleDistribution getGradleDistribution() {
+        return this.gradleDistribution;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        ConnectionKey that = (ConnectionKey) other;
+        return Objects.equal(this.projectDir, that.projectDir) &&
+                Objects.equal(this.gradleUserHomeDir, that.gradleUserHomeDir) &&
+                Objects.equal(this.gradleDistribution, that.gradleDistribution);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.projectDir, this.gradleUserHomeDir, this.gradleDistribution);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (Gradle user home %s, %s)", this.projectDir, this.gradleUserHomeDir, this.gradleDistribution);
+    }
+
+    static ConnectionKey from(InspectableBuildRequest<?> request) {
+        return new ConnectionKey(request.getProjectDir(), request.getGradleUserHomeDir(), request.getGradleDistribution());
+    }
+
+}
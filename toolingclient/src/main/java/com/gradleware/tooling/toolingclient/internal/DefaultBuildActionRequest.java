@@ -56,6 +56,11 @@ final class DefaultBuildActionRequest<T> extends BaseBuildRequest<T, DefaultBuil
         return getToolingClient().execute(this);
     }
 
+    @Override
+    DefaultBuildActionRequest<T> deriveCopy() {
+        return deriveForBuildAction(this.buildAction);
+    }
+
     @Override
     DefaultBuildActionRequest<T> getThis() {
         return this;
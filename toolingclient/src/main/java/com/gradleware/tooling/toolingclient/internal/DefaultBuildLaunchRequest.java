@@ -54,6 +54,11 @@ final class DefaultBuildLaunchRequest extends BaseBuildRequest<Void, DefaultBuil
         return getToolingClient().execute(this);
     }
 
+    @Override
+    DefaultBuildLaunchRequest deriveCopy() {
+        return deriveForLaunchables(this.launchables);
+    }
+
     @Override
     DefaultBuildLaunchRequest getThis() {
         return this;
@@ -84,6 +84,11 @@ final class DefaultModelRequest<T> extends BaseBuildRequest<T, DefaultModelReque
         return getToolingClient().execute(this);
     }
 
+    @Override
+    DefaultModelRequest<T> deriveCopy() {
+        return copy(new DefaultModelRequest<T>(getToolingClient(), this.modelType)).tasks(getTasks());
+    }
+
     @Override
     DefaultModelRequest<T> getThis() {
         return this;
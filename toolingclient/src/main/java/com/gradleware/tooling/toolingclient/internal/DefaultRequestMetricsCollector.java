@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.RequestMetrics;
+import com.gradleware.tooling.toolingclient.RequestMetricsRecorder;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.LongRunningOperation;
+import org.gradle.tooling.ProgressEvent;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of a single request and hands them to a {@link RequestMetricsRecorder} once the request has completed.
+ */
+final class DefaultRequestMetricsCollector implements RequestMetricsCollector, RequestMetrics, ProgressListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultRequestMetricsCollector.class);
+
+    private final RequestMetricsRecorder recorder;
+    private final Ticker ticker;
+    private final Kind kind;
+    private final Optional<Class<?>> modelType;
+    private final GradleDistribution gradleDistribution;
+    private final File projectDir;
+    private final long started;
+    private final AtomicLong progressEventCount;
+    private final AtomicLong outputBytes;
+    private final AtomicBoolean finished;
+    // the ticker can return any value, including negative ones, thus null marks a phase that has not been reached
+    private volatile Long connected;
+    private volatile Long firstProgressEvent;
+    private volatile long completed;
+    private volatile Outcome outcome;
+
+    DefaultRequestMetricsCollector(RequestMetricsRecorder recorder, Ticker ticker, Kind kind, Optional<Class<?>> modelType, InspectableBuildRequest<?> request) {
+        this.recorder = Preconditions.checkNotNull(recorder);
+        this.ticker = Preconditions.checkNotNull(ticker);
+        this.kind = Preconditions.checkNotNull(kind);
+        this.modelType = Preconditions.checkNotNull(modelType);
+        this.gradleDistribution = request.getGradleDistribution();
+        this.projectDir = request.getProjectDir();
+        this.progressEventCount = new AtomicLong();
+        this.outputBytes = new AtomicLong();
+        this.finished = new AtomicBoolean();
+        this.started = ticker.read();
+    }
+
+    @Override
+    public void connected() {
+        this.connected = this.ticker.read();
+    }
+
+    @Override
+    public OutputStream instrument(OutputStream output) {
+        return output == null ? null : new CountingOutputStream(output, this.outputBytes);
+    }
+
+    @Override
+    public void attachTo(LongRunningOperation operation) {
+        operation.addProgressListener(this);
+    }
+
+    @Override
+    public <T> ResultHandler<T> instrument(final ResultHandler<T> resultHandler) {
+        return new ResultHandler<T>() {
+
+            @Override
+            public void onComplete(T result) {
+                succeeded();
+                resultHandler.onComplete(result);
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException failure) {
+                failed(failure);
+                resultHandler.onFailure(failure);
+            }
+        };
+    }
+
+    @Override
+    public void succeeded() {
+        finish(Outcome.SUCCESS);
+    }
+
+    @Override
+    public void failed(Throwable failure) {
+        finish(failure instanceof BuildCancelledException ? Outcome.CANCELLED : Outcome.FAILURE);
+    }
+
+    private void finish(Outcome outcome) {
+        if (!this.finished.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.completed = this.ticker.read();
+        this.outcome = outcome;
+        try {
+            this.recorder.record(this);
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot record metrics of request.", e);
+        }
+    }
+
+    @Override
+    public void statusChanged(ProgressEvent event) {
+        if (this.progressEventCount.getAndIncrement() == 0) {
+            this.firstProgressEvent = this.ticker.read();
+        }
+    }
+
+    @Override
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    @Override
+    public Optional<Class<?>> getModelType() {
+        return this.modelType;
+    }
+
+    @Override
+    public GradleDistribution getGradleDistribution() {
+        return this.gradleDistribution;
+    }
+
+    @Override
+    public File getProjectDir() {
+        return this.projectDir;
+    }
+
+    @Override
+    public Outcome getOutcome() {
+        return this.outcome;
+    }
+
+    @Override
+    public long getConnectTime(TimeUnit unit) {
+        Long connected = this.connected;
+        return unit.convert((connected != null ? connected : this.completed) - this.started, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getOperationTime(TimeUnit unit) {
+        Long connected = this.connected;
+        return connected != null ? unit.convert(this.completed - connected, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    @Override
+    public long getTimeToFirstProgressEvent(TimeUnit unit) {
+        Long connected = this.connected;
+        Long firstProgressEvent = this.firstProgressEvent;
+        return connected != null && firstProgressEvent != null ? unit.convert(firstProgressEvent - connected, TimeUnit.NANOSECONDS) : -1;
+    }
+
+    @Override
+    public long getProgressEventCount() {
+        return this.progressEventCount.get();
+    }
+
+    @Override
+    public long getOutputBytes() {
+        return this.outputBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s request for %s: %s, connect=%dms, operation=%dms, progress events=%d, output bytes=%d", this.kind, this.projectDir, this.outcome,
+                getConnectTime(TimeUnit.MILLISECONDS), getOperationTime(TimeUnit.MILLISECONDS), getProgressEventCount(), getOutputBytes());
+    }
+
+    /**
+     * Output stream that counts the bytes written to the wrapped stream.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final AtomicLong count;
+
+        private CountingOutputStream(OutputStream out, AtomicLong count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count.addAndGet(len);
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import com.gradleware.tooling.toolingclient.RequestSchedulerStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable implementation of the {@link RequestSchedulerStats} API.
+ */
+final class DefaultRequestSchedulerStats implements RequestSchedulerStats {
+
+    private static final int PRIORITIES = RequestPriority.values().length;
+
+    private final int runningRequests;
+    private final int[] queuedRequests;
+    private final long[] startedRequests;
+    private final long[] totalWaitTimeNanos;
+    private final long[] maxWaitTimeNanos;
+
+    DefaultRequestSchedulerStats(int runningRequests, int[] queuedRequests, long[] startedRequests, long[] totalWaitTimeNanos, long[] maxWaitTimeNanos) {
+        Preconditions.checkArgument(queuedRequests.length == PRIORITIES && startedRequests.length == PRIORITIES && totalWaitTimeNanos.length == PRIORITIES
+                && maxWaitTimeNanos.length == PRIORITIES);
+        this.runningRequests = runningRequests;
+        this.queuedRequests = queuedRequests.clone();
+        this.startedRequests = startedRequests.clone();
+        this.totalWaitTimeNanos = totalWaitTimeNanos.clone();
+        this.maxWaitTimeNanos = maxWaitTimeNanos.clone();
+    }
+
+    @Override
+    public int getRunningRequests() {
+        return this.runningRequests;
+    }
+
+    @Override
+    public int getQueuedRequests(RequestPriority priority) {
+        return this.queuedRequests[priority.ordinal()];
+    }
+
+    @Override
+    public long getStartedRequests(RequestPriority priority) {
+        return this.startedRequests[priority.ordinal()];
+    }
+
+    @Override
+    public long getAverageWaitTime(RequestPriority priority, TimeUnit unit) {
+        long started = this.startedRequests[priority.ordinal()];
+        return started == 0 ? 0 : unit.convert(this.totalWaitTimeNanos[priority.ordinal()] / started, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getMaxWaitTime(RequestPriority priority, TimeUnit unit) {
+        return unit.convert(this.maxWaitTimeNanos[priority.ordinal()], TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format("%d running", this.runningRequests));
+        for (RequestPriority priority : RequestPriority.values()) {
+            result.append(String.format(", %s: %d queued, %d started, %dms max wait", priority, getQueuedRequests(priority), getStartedRequests(priority),
+                    getMaxWaitTime(priority, TimeUnit.MILLISECONDS)));
+        }
+        return result.toString();
+    }
+
+    static DefaultRequestSchedulerStats empty() {
+        return new DefaultRequestSchedulerStats(0, new int[PRIORITIES], new long[PRIORITIES], new long[PRIORITIES], new long[PRIORITIES]);
+    }
+
+}
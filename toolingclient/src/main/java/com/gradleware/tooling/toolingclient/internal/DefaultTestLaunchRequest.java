@@ -55,6 +55,11 @@ final class DefaultTestLaunchRequest extends BaseBuildRequest<Void, DefaultTestL
         return getToolingClient().execute(this);
     }
 
+    @Override
+    DefaultTestLaunchRequest deriveCopy() {
+        return deriveForTests(this.tests);
+    }
+
     @Override
     DefaultTestLaunchRequest getThis() {
         return this;
@@ -16,17 +16,36 @@
 
 package com.gradleware.tooling.toolingclient.internal;
 
-import com.google.common.base.Objects;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gradleware.tooling.toolingclient.*;
 import org.gradle.internal.Factory;
 import org.gradle.tooling.*;
 import org.gradle.tooling.internal.consumer.ConnectorServices;
+import org.gradle.tooling.model.build.BuildEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Internal implementation of the {@link ToolingClient} API.
@@ -36,10 +55,17 @@ import java.util.Map;
 public final class DefaultToolingClient extends ToolingClient implements ExecutableToolingClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultToolingClient.class);
+    private static final long FORCEFUL_STOP_TIMEOUT_SECONDS = 10;
 
     private final Factory<GradleConnector> connectorFactory;
     private final ConnectionStrategy connectionStrategy;
-    private final Map<Integer, ProjectConnection> connections;
+    private final Map<ConnectionKey, ProjectConnection> connections;
+    private final ProjectConnectionPool connectionPool;
+    private final OperationTracker operationTracker;
+    private final Executor connectionCloser;
+    private final Optional<RequestMetricsRecorder> metricsRecorder;
+    private final Optional<SchedulingToolingClient> schedulingClient;
+    private final ExecutableToolingClient requestExecutor;
 
 
     public DefaultToolingClient() {
@@ -51,78 +77,180 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
     }
 
     public DefaultToolingClient(Factory<GradleConnector> connectorFactory, ConnectionStrategy connectionStrategy) {
-        this.connectorFactory = connectorFactory;
-        this.connectionStrategy = connectionStrategy;
+        this(connectorFactory, connectionStrategy, ConnectionPoolConfig.defaults());
+    }
+
+    public DefaultToolingClient(Factory<GradleConnector> connectorFactory, ConnectionStrategy connectionStrategy, ConnectionPoolConfig connectionPoolConfig) {
+        this(connectorFactory, connectionStrategy, connectionPoolConfig, false, Optional.<RequestSchedulerConfig>absent(), Optional.<RequestMetricsRecorder>absent(),
+                Optional.<RetryPolicy>absent());
+    }
+
+    public DefaultToolingClient(Factory<GradleConnector> connectorFactory, ConnectionStrategy connectionStrategy, ConnectionPoolConfig connectionPoolConfig,
+                                boolean coalesceRequests, Optional<RequestSchedulerConfig> requestSchedulerConfig, Optional<RequestMetricsRecorder> metricsRecorder,
+                                Optional<RetryPolicy> retryPolicy) {
+        this.connectorFactory = Preconditions.checkNotNull(connectorFactory);
+        this.connectionStrategy = Preconditions.checkNotNull(connectionStrategy);
         this.connections = Maps.newHashMap();
+        this.operationTracker = new OperationTracker();
+        this.connectionCloser = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("tooling-client-close-%d").setDaemon(true).build());
+        this.metricsRecorder = Preconditions.checkNotNull(metricsRecorder);
+        this.connectionPool = new ProjectConnectionPool(new Function<ConnectionKey, ProjectConnection>() {
+
+            @Override
+            public ProjectConnection apply(ConnectionKey connectionKey) {
+                return openConnection(connectionKey);
+            }
+        }, connectionPoolConfig);
+
+        // identical requests are coalesced before they are scheduled such that they only occupy a single slot, retries happen within the slot of the failed attempt
+        ExecutableToolingClient requestExecutor = this;
+        if (retryPolicy.isPresent()) {
+            requestExecutor = new RetryingToolingClient(requestExecutor, retryPolicy.get());
+        }
+        if (requestSchedulerConfig.isPresent()) {
+            SchedulingToolingClient schedulingClient = new SchedulingToolingClient(requestExecutor, new RequestScheduler(requestSchedulerConfig.get()),
+                    Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("tooling-client-scheduler-%d").setDaemon(true).build()));
+            this.schedulingClient = Optional.of(schedulingClient);
+            requestExecutor = schedulingClient;
+        } else {
+            this.schedulingClient = Optional.absent();
+        }
+        this.requestExecutor = coalesceRequests ? new RequestCoalescer(requestExecutor) : requestExecutor;
     }
 
     @Override
     public <T> ModelRequest<T> newModelRequest(Class<T> modelType) {
         Preconditions.checkNotNull(modelType);
-        return new DefaultModelRequest<T>(this, modelType);
+        return new DefaultModelRequest<T>(this.requestExecutor, modelType);
     }
 
     @Override
     public <T> BuildActionRequest<T> newBuildActionRequest(BuildAction<T> buildAction) {
         Preconditions.checkNotNull(buildAction);
-        return new DefaultBuildActionRequest<T>(this, buildAction);
+        return new DefaultBuildActionRequest<T>(this.requestExecutor, buildAction);
     }
 
     @Override
     public BuildLaunchRequest newBuildLaunchRequest(LaunchableConfig launchables) {
         Preconditions.checkNotNull(launchables);
-        return new DefaultBuildLaunchRequest(this, launchables);
+        return new DefaultBuildLaunchRequest(this.requestExecutor, launchables);
     }
 
     @Override
     public TestLaunchRequest newTestLaunchRequest(TestConfig tests) {
         Preconditions.checkNotNull(tests);
-        return new DefaultTestLaunchRequest(this, tests);
+        return new DefaultTestLaunchRequest(this.requestExecutor, tests);
+    }
+
+    @Override
+    public ListenableFuture<Void> prewarm(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution) {
+        return prewarm(projectDir, gradleUserHomeDir, gradleDistribution, null, 1);
+    }
+
+    @Override
+    public ListenableFuture<Void> prewarm(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution, File javaHomeDir, int daemonCount) {
+        Preconditions.checkNotNull(projectDir);
+        Preconditions.checkNotNull(gradleDistribution);
+        Preconditions.checkArgument(daemonCount > 0, "Daemon count must be positive: %s", daemonCount);
+
+        // a single warm-up request goes through the regular request pipeline, multiple ones must run concurrently to occupy one daemon each
+        ExecutableToolingClient executor = daemonCount == 1 ? this.requestExecutor : this;
+        List<ListenableFuture<BuildEnvironment>> warmUps = Lists.newArrayListWithCapacity(daemonCount);
+        for (int i = 0; i < daemonCount; i++) {
+            ModelRequest<BuildEnvironment> request = new DefaultModelRequest<BuildEnvironment>(executor, BuildEnvironment.class);
+            request.projectDir(projectDir).gradleUserHomeDir(gradleUserHomeDir).gradleDistribution(gradleDistribution).javaHomeDir(javaHomeDir).priority(RequestPriority.BACKGROUND);
+            warmUps.add(request.executeAsFuture());
+        }
+        return Futures.transform(Futures.allAsList(warmUps), Functions.<Void>constant(null));
     }
 
     @Override
     public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
-        ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.MODEL, Optional.<Class<?>>of(modelRequest.getModelType()), modelRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(modelRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(modelRequest, tracked, metrics);
         try {
-            return operation.get();
+            ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection, tracked, metrics);
+            T result = operation.get();
+            metrics.succeeded();
+            return result;
+        } catch (RuntimeException e) {
+            metrics.failed(e);
+            evictConnectionIfBroken(connection, e);
+            throw e;
         } finally {
+            tracked.end();
             closeConnectionIfNecessary(connection);
         }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
-        ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forModelBuilder(operation), connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.MODEL, Optional.<Class<?>>of(modelRequest.getModelType()), modelRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(modelRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(modelRequest, tracked, metrics);
+        try {
+            ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection, tracked, metrics);
+            ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+            operation.get(tracked.endOnCompletion(metrics.instrument(evictConnectionOnFailure(releaseConnectionOnCompletion(promise.getResultHandler(), connection), connection))));
+            return promise;
+        } catch (RuntimeException e) {
+            abandonOperation(connection, tracked, metrics, e);
+            throw e;
+        }
     }
 
     @Override
     public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
-        BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.BUILD_ACTION, Optional.<Class<?>>absent(), buildActionRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(buildActionRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(buildActionRequest, tracked, metrics);
         try {
-            return operation.run();
+            BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection, tracked, metrics);
+            T result = operation.run();
+            metrics.succeeded();
+            return result;
+        } catch (RuntimeException e) {
+            metrics.failed(e);
+            evictConnectionIfBroken(connection, e);
+            throw e;
         } finally {
+            tracked.end();
             closeConnectionIfNecessary(connection);
         }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
-        BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forBuildActionExecuter(operation), connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.BUILD_ACTION, Optional.<Class<?>>absent(), buildActionRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(buildActionRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(buildActionRequest, tracked, metrics);
+        try {
+            BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection, tracked, metrics);
+            ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+            operation.run(tracked.endOnCompletion(metrics.instrument(evictConnectionOnFailure(releaseConnectionOnCompletion(promise.getResultHandler(), connection), connection))));
+            return promise;
+        } catch (RuntimeException e) {
+            abandonOperation(connection, tracked, metrics, e);
+            throw e;
+        }
     }
 
     @Override
     public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
-        BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.BUILD_LAUNCH, Optional.<Class<?>>absent(), buildLaunchRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(buildLaunchRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(buildLaunchRequest, tracked, metrics);
         try {
+            BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection, tracked, metrics);
             operation.run();
+            metrics.succeeded();
+        } catch (RuntimeException e) {
+            metrics.failed(e);
+            evictConnectionIfBroken(connection, e);
+            throw e;
         } finally {
+            tracked.end();
             closeConnectionIfNecessary(connection);
         }
         return null;
@@ -130,18 +258,35 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
-        BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forBuildLauncher(operation), connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.BUILD_LAUNCH, Optional.<Class<?>>absent(), buildLaunchRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(buildLaunchRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(buildLaunchRequest, tracked, metrics);
+        try {
+            BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection, tracked, metrics);
+            ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+            operation.run(tracked.endOnCompletion(metrics.instrument(evictConnectionOnFailure(releaseConnectionOnCompletion(promise.getResultHandler(), connection), connection))));
+            return promise;
+        } catch (RuntimeException e) {
+            abandonOperation(connection, tracked, metrics, e);
+            throw e;
+        }
     }
 
     @Override
     public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
-        TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.TEST_LAUNCH, Optional.<Class<?>>absent(), testLaunchRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(testLaunchRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(testLaunchRequest, tracked, metrics);
         try {
+            TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection, tracked, metrics);
             operation.run();
+            metrics.succeeded();
+        } catch (RuntimeException e) {
+            metrics.failed(e);
+            evictConnectionIfBroken(connection, e);
+            throw e;
         } finally {
+            tracked.end();
             closeConnectionIfNecessary(connection);
         }
         return null;
@@ -149,79 +294,119 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
-        TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
-        return closeConnectionIfNecessary(LongRunningOperationPromise.forTestLauncher(operation), connection);
+        RequestMetricsCollector metrics = newMetricsCollector(RequestMetrics.Kind.TEST_LAUNCH, Optional.<Class<?>>absent(), testLaunchRequest);
+        OperationTracker.TrackedOperation tracked = this.operationTracker.begin(testLaunchRequest.getCancellationToken());
+        ProjectConnection connection = getProjectConnection(testLaunchRequest, tracked, metrics);
+        try {
+            TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection, tracked, metrics);
+            ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+            operation.run(tracked.endOnCompletion(metrics.instrument(evictConnectionOnFailure(releaseConnectionOnCompletion(promise.getResultHandler(), connection), connection))));
+            return promise;
+        } catch (RuntimeException e) {
+            abandonOperation(connection, tracked, metrics, e);
+            throw e;
+        }
     }
 
-    private ProjectConnection getProjectConnection(InspectableBuildRequest<?> request) {
-        return getOrCreateProjectConnection(request);
+    private RequestMetricsCollector newMetricsCollector(RequestMetrics.Kind kind, Optional<Class<?>> modelType, InspectableBuildRequest<?> request) {
+        if (!this.metricsRecorder.isPresent()) {
+            return RequestMetricsCollector.NO_OP;
+        }
+        return new DefaultRequestMetricsCollector(this.metricsRecorder.get(), Ticker.systemTicker(), kind, modelType, request);
     }
 
-    private ProjectConnection getOrCreateProjectConnection(InspectableBuildRequest<?> simpleRequest) {
-        Preconditions.checkNotNull(simpleRequest);
-        if (this.connectionStrategy == ConnectionStrategy.PER_REQUEST) {
-            return openConnection(simpleRequest);
-        }
+    private ProjectConnection getProjectConnection(InspectableBuildRequest<?> request, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         ProjectConnection connection;
-        int connectionKey = calculateConnectionKey(simpleRequest);
-        synchronized (this.connections) {
-            connection = this.connections.get(connectionKey);
-            if (connection == null) {
-                connection = openConnection(simpleRequest);
-                this.connections.put(connectionKey, connection);
-            }
+        try {
+            connection = getOrCreateProjectConnection(request);
+        } catch (RuntimeException e) {
+            tracked.end();
+            metrics.failed(e);
+            throw e;
         }
+        metrics.connected();
         return connection;
     }
 
-    private int calculateConnectionKey(InspectableBuildRequest<?> modelRequest) {
-        return Objects.hashCode(
-                modelRequest.getProjectDir(),
-                modelRequest.getGradleUserHomeDir(),
-                modelRequest.getGradleDistribution());
+    private void abandonOperation(ProjectConnection connection, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics, RuntimeException failure) {
+        // the operation has not been started, thus its result handler, which ends the tracked operation and releases the connection, is never notified
+        tracked.end();
+        metrics.failed(failure);
+        if (this.connectionStrategy == ConnectionStrategy.POOLED) {
+            this.connectionPool.release(connection);
+            if (this.connectionPool.remove(connection)) {
+                closeConnectionInBackground(connection);
+            }
+        } else if (this.connectionStrategy == ConnectionStrategy.PER_REQUEST) {
+            closeConnection(connection);
+        }
+    }
+
+    private ProjectConnection getOrCreateProjectConnection(InspectableBuildRequest<?> simpleRequest) {
+        Preconditions.checkNotNull(simpleRequest);
+        ConnectionKey connectionKey = ConnectionKey.from(simpleRequest);
+        switch (this.connectionStrategy) {
+            case PER_REQUEST:
+                return openConnection(connectionKey);
+            case POOLED:
+                ProjectConnectionPool.Lease lease = this.connectionPool.acquire(connectionKey);
+                for (ProjectConnection evictedConnection : lease.getEvictedConnections()) {
+                    closeConnection(evictedConnection);
+                }
+                return lease.getConnection();
+            default:
+                ProjectConnection connection;
+                synchronized (this.connections) {
+                    connection = this.connections.get(connectionKey);
+                    if (connection == null) {
+                        connection = openConnection(connectionKey);
+                        this.connections.put(connectionKey, connection);
+                    }
+                }
+                return connection;
+        }
     }
 
-    private ProjectConnection openConnection(InspectableBuildRequest<?> modelRequest) {
+    private ProjectConnection openConnection(ConnectionKey connectionKey) {
         GradleConnector connector = this.connectorFactory.create();
-        connector.forProjectDirectory(modelRequest.getProjectDir());
-        connector.useGradleUserHomeDir(modelRequest.getGradleUserHomeDir());
-        modelRequest.getGradleDistribution().apply(connector);
+        connector.forProjectDirectory(connectionKey.getProjectDir());
+        connector.useGradleUserHomeDir(connectionKey.getGradleUserHomeDir());
+        connectionKey.getGradleDistribution().apply(connector);
         return connector.connect();
     }
 
-    private <T> ModelBuilder<T> mapToModelBuilder(InspectableModelRequest<T> modelRequest, ProjectConnection connection) {
+    private <T> ModelBuilder<T> mapToModelBuilder(InspectableModelRequest<T> modelRequest, ProjectConnection connection, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         ModelBuilder<T> modelBuilder = connection.model(modelRequest.getModelType());
         modelBuilder.forTasks(modelRequest.getTasks());
-        return mapToLongRunningOperation(modelRequest, modelBuilder);
+        return mapToLongRunningOperation(modelRequest, modelBuilder, tracked, metrics);
     }
 
-    private <T> BuildActionExecuter<T> mapToBuildActionExecuter(InspectableBuildActionRequest<T> buildActionRequest, ProjectConnection connection) {
+    private <T> BuildActionExecuter<T> mapToBuildActionExecuter(InspectableBuildActionRequest<T> buildActionRequest, ProjectConnection connection, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         BuildActionExecuter<T> buildActionExecuter = connection.action(buildActionRequest.getBuildAction());
-        return mapToLongRunningOperation(buildActionRequest, buildActionExecuter);
+        return mapToLongRunningOperation(buildActionRequest, buildActionExecuter, tracked, metrics);
     }
 
-    private BuildLauncher mapToBuildLauncher(InspectableBuildLaunchRequest buildLaunchRequest, ProjectConnection connection) {
+    private BuildLauncher mapToBuildLauncher(InspectableBuildLaunchRequest buildLaunchRequest, ProjectConnection connection, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         BuildLauncher buildLauncher = connection.newBuild();
         buildLaunchRequest.getLaunchables().apply(buildLauncher);
-        return mapToLongRunningOperation(buildLaunchRequest, buildLauncher);
+        return mapToLongRunningOperation(buildLaunchRequest, buildLauncher, tracked, metrics);
     }
 
-    private TestLauncher mapToTestLauncher(InspectableTestLaunchRequest testLaunchRequest, ProjectConnection connection) {
+    private TestLauncher mapToTestLauncher(InspectableTestLaunchRequest testLaunchRequest, ProjectConnection connection, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         TestLauncher testLauncher = connection.newTestLauncher();
         testLaunchRequest.getTests().apply(testLauncher);
-        return mapToLongRunningOperation(testLaunchRequest, testLauncher);
+        return mapToLongRunningOperation(testLaunchRequest, testLauncher, tracked, metrics);
     }
 
-    private <T extends LongRunningOperation> T mapToLongRunningOperation(InspectableRequest<?> request, T operation) {
+    private <T extends LongRunningOperation> T mapToLongRunningOperation(InspectableRequest<?> request, T operation, OperationTracker.TrackedOperation tracked, RequestMetricsCollector metrics) {
         operation.
             setColorOutput(request.isColorOutput()).
-            setStandardOutput(request.getStandardOutput()).
-            setStandardError(request.getStandardError()).
+            setStandardOutput(metrics.instrument(request.getStandardOutput())).
+            setStandardError(metrics.instrument(request.getStandardError())).
             setJavaHome(request.getJavaHomeDir()).
             setJvmArguments(request.getJvmArguments()).
             withArguments(request.getArguments()).
-            withCancellationToken(request.getCancellationToken());
+            withCancellationToken(tracked.getCancellationToken());
             operation.setStandardInput(request.getStandardInput());
             for (ProgressListener progressListener : request.getProgressListeners()) {
             operation.addProgressListener(progressListener);
@@ -229,29 +414,83 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
         for (org.gradle.tooling.events.ProgressListener progressListener : request.getTypedProgressListeners()) {
             operation.addProgressListener(progressListener);
         }
+        metrics.attachTo(operation);
         return operation;
     }
 
     @Override
-    public void stop(CleanUpStrategy strategy) {
+    public RequestSchedulerStats getRequestSchedulerStats() {
+        return this.schedulingClient.isPresent() ? this.schedulingClient.get().getStats() : DefaultRequestSchedulerStats.empty();
+    }
+
+    @Override
+    public ListenableFuture<Void> stop(CleanUpStrategy strategy) {
         switch (strategy) {
             case FORCEFULLY:
-                // should happen asynchronously
-                throw new UnsupportedOperationException(String.format("Cleanup strategy %s is currently not supported.", CleanUpStrategy.FORCEFULLY));
+                // happens asynchronously
+                return stopForcefully();
             case GRACEFULLY:
                 // happens synchronously
-                closeConnections();
+                for (ProjectConnection connection : removeConnections()) {
+                    closeConnection(connection);
+                }
                 expireDaemons();
+                return Futures.immediateFuture(null);
+            default:
+                throw new IllegalStateException("Unsupported clean-up strategy: " + strategy);
         }
     }
 
-    private void closeConnections() {
-        // todo (etst) do not allow new connections once shutdown is in process
-        synchronized (this.connections) {
-            for (ProjectConnection connection : this.connections.values()) {
-                closeConnection(connection);
+    private ListenableFuture<Void> stopForcefully() {
+        // reject new operations and cancel the running ones before closing their connections
+        this.operationTracker.cancelAll();
+        final List<ProjectConnection> connections = removeConnections();
+
+        final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("tooling-client-stop-%d").setDaemon(true).build()));
+        List<ListenableFuture<?>> closed = Lists.newArrayListWithCapacity(connections.size());
+        for (final ProjectConnection connection : connections) {
+            closed.add(executor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    closeConnection(connection);
+                }
+            }));
+        }
+
+        final ListenableFuture<List<Object>> allClosed = Futures.successfulAsList(closed);
+        ListenableFuture<Void> stopped = executor.submit(new Callable<Void>() {
+
+            @Override
+            public Void call() {
+                try {
+                    allClosed.get(FORCEFUL_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    LOG.warn("Not all of the {} connections have been closed within {}s.", connections.size(), FORCEFUL_STOP_TIMEOUT_SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // cannot happen, failures to close a connection are logged and the combined future succeeds with the failed results set to null
+                    throw new IllegalStateException(e);
+                }
+                expireDaemons();
+                return null;
             }
+        });
+        executor.shutdown();
+        return stopped;
+    }
+
+    private List<ProjectConnection> removeConnections() {
+        // the connections are closed outside of the lock since closing a connection can take a while
+        List<ProjectConnection> removed = Lists.newArrayList();
+        synchronized (this.connections) {
+            removed.addAll(this.connections.values());
+            this.connections.clear();
         }
+        removed.addAll(this.connectionPool.removeAll());
+        return removed;
     }
 
     private void closeConnection(ProjectConnection connection) {
@@ -265,28 +504,107 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
     private <T> void closeConnectionIfNecessary(ProjectConnection connection) {
         if (DefaultToolingClient.this.connectionStrategy == ConnectionStrategy.PER_REQUEST) {
             closeConnection(connection);
+        } else if (DefaultToolingClient.this.connectionStrategy == ConnectionStrategy.POOLED) {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    private void evictConnectionIfBroken(ProjectConnection connection, Throwable failure) {
+        if (this.connectionStrategy == ConnectionStrategy.PER_REQUEST || !ConnectionFailures.isRetryable(failure)) {
+            return;
+        }
+
+        boolean evicted = false;
+        if (this.connectionStrategy == ConnectionStrategy.POOLED) {
+            evicted = this.connectionPool.remove(connection);
+        } else {
+            synchronized (this.connections) {
+                Iterator<ProjectConnection> iterator = this.connections.values().iterator();
+                while (iterator.hasNext() && !evicted) {
+                    if (iterator.next() == connection) {
+                        iterator.remove();
+                        evicted = true;
+                    }
+                }
+            }
+        }
+
+        // the connection might still be in use by other requests or by the current result handler, thus it is closed in the background
+        if (evicted) {
+            LOG.info("Evicting broken connection: {}", failure.getMessage());
+            closeConnectionInBackground(connection);
+        }
+    }
+
+    private void closeConnectionInBackground(final ProjectConnection connection) {
+        this.connectionCloser.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                closeConnection(connection);
+            }
+        });
+    }
+
+    private <T> ResultHandler<T> evictConnectionOnFailure(final ResultHandler<T> delegate, final ProjectConnection connection) {
+        if (this.connectionStrategy == ConnectionStrategy.PER_REQUEST) {
+            return delegate;
         }
+
+        // the connection is evicted before the delegate is notified such that a retry triggered by the delegate opens a new connection
+        return new ResultHandler<T>() {
+
+            @Override
+            public void onComplete(T result) {
+                delegate.onComplete(result);
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException failure) {
+                evictConnectionIfBroken(connection, failure);
+                delegate.onFailure(failure);
+            }
+        };
     }
 
-    private <T> LongRunningOperationPromise<T> closeConnectionIfNecessary(final LongRunningOperationPromise<T> delegate, final ProjectConnection connection) {
-        return new LongRunningOperationPromise<T>() {
+    private <T> ResultHandler<T> releaseConnectionOnCompletion(final ResultHandler<T> delegate, final ProjectConnection connection) {
+        if (this.connectionStrategy == ConnectionStrategy.REUSE) {
+            return delegate;
+        }
+
+        // the connection is released only after the delegate has been notified such that the connection
+        // cannot be evicted (and closed) while the handlers registered on the promise are running
+        return new ResultHandler<T>() {
 
             @Override
-            public LongRunningOperationPromise<T> onComplete(Consumer<? super T> completeHandler) {
-                closeConnectionIfNecessary(connection);
-                delegate.onComplete(completeHandler);
-                return this;
+            public void onComplete(T result) {
+                try {
+                    delegate.onComplete(result);
+                } finally {
+                    releaseConnection(connection);
+                }
             }
 
             @Override
-            public LongRunningOperationPromise<T> onFailure(Consumer<? super GradleConnectionException> failureHandler) {
-                closeConnectionIfNecessary(connection);
-                delegate.onFailure(failureHandler);
-                return this;
+            public void onFailure(GradleConnectionException failure) {
+                try {
+                    delegate.onFailure(failure);
+                } finally {
+                    releaseConnection(connection);
+                }
             }
         };
     }
 
+    private void releaseConnection(ProjectConnection connection) {
+        if (this.connectionStrategy == ConnectionStrategy.POOLED) {
+            this.connectionPool.release(connection);
+        } else {
+            // closing a connection waits until its operation has finished, thus it must not happen on the thread that notifies about the completion of the operation
+            closeConnectionInBackground(connection);
+        }
+    }
+
     private void expireDaemons() {
         // close and re-initialize the services
         ConnectorServices.reset();
@@ -295,7 +613,7 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
     /**
      * Singleton factory to create {@code GradleConnector} instances.
      */
-    private enum DefaultGradleConnectorFactory implements Factory<GradleConnector> {
+    public enum DefaultGradleConnectorFactory implements Factory<GradleConnector> {
 
         INSTANCE;
 
@@ -17,6 +17,7 @@
 package com.gradleware.tooling.toolingclient.internal;
 
 import com.gradleware.tooling.toolingclient.Request;
+import com.gradleware.tooling.toolingclient.RequestPriority;
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ProgressListener;
 
@@ -72,4 +73,10 @@ interface InspectableRequest<T> extends Request<T> {
      */
     CancellationToken getCancellationToken();
 
+    /**
+     * @return never null, defaults to INTERACTIVE, only consulted when the requests are scheduled
+     * @see com.gradleware.tooling.toolingclient.ToolingClient.Builder#requestScheduler(com.gradleware.tooling.toolingclient.RequestSchedulerConfig)
+     */
+    RequestPriority getPriority();
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+
+/**
+ * Future that is completed by a {@link LongRunningOperationPromise}. Cancelling the future cancels the underlying long running operation through the cancellation token source
+ * the operation was executed with.
+ *
+ * @param <T> the result type
+ */
+final class LongRunningOperationFuture<T> extends AbstractFuture<T> {
+
+    private final CancellationTokenSource cancellationTokenSource;
+
+    LongRunningOperationFuture(CancellationTokenSource cancellationTokenSource) {
+        this.cancellationTokenSource = Preconditions.checkNotNull(cancellationTokenSource);
+    }
+
+    void completeWith(LongRunningOperationPromise<T> promise) {
+        promise.onComplete(new Consumer<T>() {
+
+            @Override
+            public void accept(T result) {
+                set(result);
+            }
+        });
+        promise.onFailure(new Consumer<GradleConnectionException>() {
+
+            @Override
+            public void accept(GradleConnectionException failure) {
+                setException(failure);
+            }
+        });
+    }
+
+    void fail(Throwable failure) {
+        setException(failure);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            this.cancellationTokenSource.cancel();
+        }
+        return cancelled;
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ResultHandler;
+
+import java.util.Set;
+
+/**
+ * Keeps track of the operations that are currently run through the Tooling API, such that they can all be cancelled when the tooling client is stopped forcefully. Each
+ * operation runs with its own cancellation token which is cancelled either when the token of the originating request is cancelled or when all operations are cancelled. Once
+ * all operations have been cancelled, no new operations can be started.
+ */
+final class OperationTracker {
+
+    private final Set<TrackedOperation> operations;
+    private volatile boolean closed;
+
+    OperationTracker() {
+        this.operations = Sets.newConcurrentHashSet();
+    }
+
+    /**
+     * Starts tracking a new operation. The returned operation must be ended once it has completed.
+     *
+     * @param requestToken the cancellation token of the request for which the operation is run
+     * @return the tracked operation
+     * @throws IllegalStateException if the operations have already been cancelled through {@link #cancelAll()}
+     */
+    TrackedOperation begin(CancellationToken requestToken) {
+        TrackedOperation operation = new TrackedOperation(requestToken);
+        this.operations.add(operation);
+        // checked after registering the operation such that a concurrent call to cancelAll() either sees the operation or the operation sees the closed flag
+        if (this.closed) {
+            operation.end();
+            throw new IllegalStateException("Tooling client has been stopped.");
+        }
+        return operation;
+    }
+
+    /**
+     * Cancels all tracked operations and rejects any operations that are started afterwards.
+     */
+    void cancelAll() {
+        this.closed = true;
+        for (TrackedOperation operation : this.operations) {
+            operation.tokenSource.cancel();
+        }
+    }
+
+    int size() {
+        return this.operations.size();
+    }
+
+    /**
+     * An operation that is tracked until it is ended.
+     */
+    final class TrackedOperation {
+
+        private final CancellationTokenSource tokenSource;
+        private final CancellationToken token;
+        private final SettableFuture<Void> completion;
+
+        private TrackedOperation(CancellationToken requestToken) {
+            this.tokenSource = GradleConnector.newCancellationTokenSource();
+            this.completion = SettableFuture.create();
+            final CancellationTokenSource tokenSource = this.tokenSource;
+            boolean linked = CancellationTokens.onCancellation(requestToken, new Runnable() {
+
+                @Override
+                public void run() {
+                    tokenSource.cancel();
+                }
+            }, this.completion);
+            // the Tooling API only accepts its own tokens, thus a token that cannot be observed is passed on as is
+            this.token = linked ? tokenSource.token() : requestToken;
+        }
+
+        CancellationToken getCancellationToken() {
+            return this.token;
+        }
+
+        void end() {
+            OperationTracker.this.operations.remove(this);
+            this.completion.set(null);
+        }
+
+        <T> ResultHandler<T> endOnCompletion(final ResultHandler<T> delegate) {
+            return new ResultHandler<T>() {
+
+                @Override
+                public void onComplete(T result) {
+                    end();
+                    delegate.onComplete(result);
+                }
+
+                @Override
+                public void onFailure(GradleConnectionException failure) {
+                    end();
+                    delegate.onFailure(failure);
+                }
+            };
+        }
+
+    }
+
+}
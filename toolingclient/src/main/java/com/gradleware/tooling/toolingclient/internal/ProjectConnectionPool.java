@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingclient.ConnectionPoolConfig;
+import org.gradle.tooling.ProjectConnection;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of {@link ProjectConnection} instances, keyed by {@link ConnectionKey}. Connections are handed out as ref-counted leases: each call to {@link
+ * #acquire(ConnectionKey)} must be balanced by a call to {@link #release(ProjectConnection)}. Connections that are not leased are evicted in least-recently-used order once the
+ * pool exceeds its maximum size or once they have been idle for longer than the maximum idle time. A leased connection is never evicted.
+ * <p/>
+ * Eviction happens lazily when a connection is acquired. Evicted connections are handed back to the caller for closing since a connection must not be closed from within one of
+ * its own result handlers, which is where leases of asynchronous requests are released.
+ */
+final class ProjectConnectionPool {
+
+    private final Function<ConnectionKey, ProjectConnection> connectionFactory;
+    private final int maxSize;
+    private final long maxIdleTimeNanos;
+    private final Ticker ticker;
+    private final LinkedHashMap<ConnectionKey, PooledConnection> connectionsByKey;
+    private final IdentityHashMap<ProjectConnection, PooledConnection> connectionsByInstance;
+
+    ProjectConnectionPool(Function<ConnectionKey, ProjectConnection> connectionFactory, ConnectionPoolConfig config) {
+        this(connectionFactory, config, Ticker.systemTicker());
+    }
+
+    ProjectConnectionPool(Function<ConnectionKey, ProjectConnection> connectionFactory, ConnectionPoolConfig config, Ticker ticker) {
+        this.connectionFactory = Preconditions.checkNotNull(connectionFactory);
+        this.maxSize = config.getMaxSize();
+        this.maxIdleTimeNanos = config.getMaxIdleTime(TimeUnit.NANOSECONDS);
+        this.ticker = Preconditions.checkNotNull(ticker);
+        // access-ordered, i.e. iteration starts with the least recently used connection
+        this.connectionsByKey = new LinkedHashMap<ConnectionKey, PooledConnection>(16, 0.75f, true);
+        this.connectionsByInstance = Maps.newIdentityHashMap();
+    }
+
+    /**
+     * Leases the connection for the given key, opening a new connection if none is pooled yet.
+     *
+     * @param key the key of the connection to lease
+     * @return the leased connection and the connections that were evicted from the pool and must be closed by the caller
+     */
+    Lease acquire(ConnectionKey key) {
+        Preconditions.checkNotNull(key);
+        synchronized (this.connectionsByKey) {
+            PooledConnection pooledConnection = this.connectionsByKey.get(key);
+            if (pooledConnection == null) {
+                pooledConnection = new PooledConnection(this.connectionFactory.apply(key));
+                this.connectionsByKey.put(key, pooledConnection);
+                this.connectionsByInstance.put(pooledConnection.connection, pooledConnection);
+            }
+            pooledConnection.leaseCount++;
+            return new Lease(pooledConnection.connection, evictIdleConnections(this.ticker.read()));
+        }
+    }
+
+    /**
+     * Releases a lease previously obtained through {@link #acquire(ConnectionKey)}. Releasing a connection that is no longer pooled has no effect.
+     *
+     * @param connection the connection to release
+     */
+    void release(ProjectConnection connection) {
+        Preconditions.checkNotNull(connection);
+        synchronized (this.connectionsByKey) {
+            PooledConnection pooledConnection = this.connectionsByInstance.get(connection);
+            if (pooledConnection != null && pooledConnection.leaseCount > 0) {
+                pooledConnection.leaseCount--;
+                pooledConnection.lastReleased = this.ticker.read();
+            }
+        }
+    }
+
+    /**
+     * Removes the given connection from the pool, regardless of whether it is leased or not. Releasing a lease of a removed connection has no effect.
+     *
+     * @param connection the connection to remove
+     * @return {@code true} if the connection was pooled and must be closed by the caller, {@code false} otherwise
+     */
+    boolean remove(ProjectConnection connection) {
+        Preconditions.checkNotNull(connection);
+        synchronized (this.connectionsByKey) {
+            PooledConnection pooledConnection = this.connectionsByInstance.remove(connection);
+            if (pooledConnection == null) {
+                return false;
+            }
+            this.connectionsByKey.values().remove(pooledConnection);
+            return true;
+        }
+    }
+
+    /**
+     * Removes all connections from the pool, regardless of whether they are leased or not.
+     *
+     * @return the removed connections that must be closed by the caller
+     */
+    List<ProjectConnection> removeAll() {
+        synchronized (this.connectionsByKey) {
+            ImmutableList<ProjectConnection> connections = ImmutableList.copyOf(this.connectionsByInstance.keySet());
+            this.connectionsByKey.clear();
+            this.connectionsByInstance.clear();
+            return connections;
+        }
+    }
+
+    int size() {
+        synchronized (this.connectionsByKey) {
+            return this.connectionsByKey.size();
+        }
+    }
+
+    private List<ProjectConnection> evictIdleConnections(long now) {
+        List<ProjectConnection> evicted = Lists.newArrayList();
+        int excess = this.connectionsByKey.size() - this.maxSize;
+        Iterator<PooledConnection> iterator = this.connectionsByKey.values().iterator();
+        while (iterator.hasNext()) {
+            PooledConnection candidate = iterator.next();
+            if (candidate.leaseCount == 0 && (excess > 0 || now - candidate.lastReleased > this.maxIdleTimeNanos)) {
+                iterator.remove();
+                this.connectionsByInstance.remove(candidate.connection);
+                evicted.add(candidate.connection);
+                excess--;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * A leased connection together with the connections that got evicted while acquiring the lease.
+     */
+    static final class Lease {
+
+        private final ProjectConnection connection;
+        private final List<ProjectConnection> evictedConnections;
+
+        private Lease(ProjectConnection connection, List<ProjectConnection> evictedConnections) {
+            this.connection = connection;
+            this.evictedConnections = ImmutableList.copyOf(evictedConnections);
+        }
+
+        ProjectConnection getConnection() {
+            return this.connection;
+        }
+
+        List<ProjectConnection> getEvictedConnections() {
+            return this.evictedConnections;
+        }
+
+    }
+
+    /**
+     * Pool entry that keeps track of the number of leases and the time the connection was last released.
+     */
+    private static final class PooledConnection {
+
+        private final ProjectConnection connection;
+        private int leaseCount;
+        private long lastReleased;
+
+        private PooledConnection(ProjectConnection connection) {
+            this.connection = Preconditions.checkNotNull(connection);
+        }
+
+    }
+
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressEvent;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ResultHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Decorates an {@link ExecutableToolingClient} such that identical model and build action requests that are in flight at the same time are served by a single Gradle
+ * invocation. Requests are identical if they have the same {@link CoalescingKey}. Callers that issue a request while an identical request is running are attached to the
+ * running operation and receive its result, as well as all progress events and output that occur after they got attached.
+ * <p/>
+ * Each caller can cancel its request through its own cancellation token. The shared operation is only cancelled once all attached callers have cancelled their requests.
+ * Requests with a custom standard input are never coalesced since the input cannot be shared. Build launch and test launch requests are always executed individually.
+ */
+final class RequestCoalescer implements ExecutableToolingClient {
+
+    private final ExecutableToolingClient delegate;
+    private final Object LOCK = new Object();
+    private final Map<CoalescingKey, SharedOperation<?>> operations;
+
+    RequestCoalescer(ExecutableToolingClient delegate) {
+        this.delegate = delegate;
+        this.operations = Maps.newHashMap();
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
+        if (!isCoalescable(modelRequest)) {
+            return this.delegate.executeAndWait(modelRequest);
+        }
+        return waitFor(join(CoalescingKey.from(modelRequest), modelRequest, startModelRequest(modelRequest)));
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(InspectableModelRequest<T> modelRequest) {
+        if (!isCoalescable(modelRequest)) {
+            return this.delegate.execute(modelRequest);
+        }
+        return toPromise(join(CoalescingKey.from(modelRequest), modelRequest, startModelRequest(modelRequest)));
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
+        if (!isCoalescable(buildActionRequest)) {
+            return this.delegate.executeAndWait(buildActionRequest);
+        }
+        return waitFor(join(CoalescingKey.from(buildActionRequest), buildActionRequest, startBuildActionRequest(buildActionRequest)));
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
+        if (!isCoalescable(buildActionRequest)) {
+            return this.delegate.execute(buildActionRequest);
+        }
+        return toPromise(join(CoalescingKey.from(buildActionRequest), buildActionRequest, startBuildActionRequest(buildActionRequest)));
+    }
+
+    @Override
+    public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
+        return this.delegate.executeAndWait(buildLaunchRequest);
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
+        return this.delegate.execute(buildLaunchRequest);
+    }
+
+    @Override
+    public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
+        return this.delegate.executeAndWait(testLaunchRequest);
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
+        return this.delegate.execute(testLaunchRequest);
+    }
+
+    private boolean isCoalescable(InspectableBuildRequest<?> request) {
+        return request.getStandardInput() == null;
+    }
+
+    private <T> Function<SharedOperation<T>, LongRunningOperationPromise<T>> startModelRequest(final InspectableModelRequest<T> template) {
+        return new Function<SharedOperation<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(SharedOperation<T> operation) {
+                DefaultModelRequest<T> sharedRequest = new DefaultModelRequest<T>(RequestCoalescer.this.delegate, template.getModelType()).tasks(template.getTasks());
+                return RequestCoalescer.this.delegate.execute(configureSharedRequest(sharedRequest, template, operation));
+            }
+        };
+    }
+
+    private <T> Function<SharedOperation<T>, LongRunningOperationPromise<T>> startBuildActionRequest(final InspectableBuildActionRequest<T> template) {
+        return new Function<SharedOperation<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(SharedOperation<T> operation) {
+                DefaultBuildActionRequest<T> sharedRequest = new DefaultBuildActionRequest<T>(RequestCoalescer.this.delegate, template.getBuildAction());
+                return RequestCoalescer.this.delegate.execute(configureSharedRequest(sharedRequest, template, operation));
+            }
+        };
+    }
+
+    private static <T, SELF extends BaseBuildRequest<T, SELF>> SELF configureSharedRequest(SELF sharedRequest, InspectableBuildRequest<?> template, SharedOperation<?> operation) {
+        return sharedRequest.
+                projectDir(template.getProjectDir()).
+                gradleUserHomeDir(template.getGradleUserHomeDir()).
+                gradleDistribution(template.getGradleDistribution()).
+                colorOutput(template.isColorOutput()).
+                javaHomeDir(template.getJavaHomeDir()).
+                jvmArguments(template.getJvmArguments()).
+                arguments(template.getArguments()).
+                standardOutput(new FanOutOutputStream(operation, false)).
+                standardError(new FanOutOutputStream(operation, true)).
+                progressListeners(new FanOutProgressListener(operation)).
+                typedProgressListeners(new FanOutTypedProgressListener(operation)).
+                cancellationToken(operation.cancellationTokenSource.token()).
+                priority(template.getPriority());
+    }
+
+    private <T> ListenableFuture<T> join(CoalescingKey key, InspectableBuildRequest<T> request, Function<SharedOperation<T>, LongRunningOperationPromise<T>> starter) {
+        Waiter<T> waiter = new Waiter<T>(request);
+        SharedOperation<T> operation;
+        boolean start = false;
+        synchronized (this.LOCK) {
+            @SuppressWarnings("unchecked")
+            SharedOperation<T> running = (SharedOperation<T>) this.operations.get(key);
+            if (running != null) {
+                operation = running;
+            } else {
+                operation = new SharedOperation<T>(key);
+                this.operations.put(key, operation);
+                start = true;
+            }
+            operation.waiters.add(waiter);
+        }
+
+        registerCancellationCallback(operation, waiter);
+        if (start) {
+            start(operation, starter);
+        }
+        return waiter.result;
+    }
+
+    private <T> void start(final SharedOperation<T> operation, Function<SharedOperation<T>, LongRunningOperationPromise<T>> starter) {
+        LongRunningOperationPromise<T> promise;
+        try {
+            promise = starter.apply(operation);
+        } catch (RuntimeException e) {
+            failed(operation, e);
+            return;
+        }
+
+        promise.onComplete(new Consumer<T>() {
+
+            @Override
+            public void accept(T result) {
+                for (Waiter<T> waiter : detach(operation)) {
+                    waiter.result.set(result);
+                }
+            }
+        });
+        promise.onFailure(new Consumer<GradleConnectionException>() {
+
+            @Override
+            public void accept(GradleConnectionException failure) {
+                failed(operation, failure);
+            }
+        });
+    }
+
+    private <T> void failed(SharedOperation<T> operation, Throwable failure) {
+        for (Waiter<T> waiter : detach(operation)) {
+            waiter.result.setException(failure);
+        }
+    }
+
+    private <T> List<Waiter<T>> detach(SharedOperation<T> operation) {
+        synchronized (this.LOCK) {
+            // the operation is removed before the waiters are notified such that subsequent requests trigger a new invocation
+            this.operations.remove(operation.key);
+            operation.finished = true;
+            return ImmutableList.copyOf(operation.waiters);
+        }
+    }
+
+    private <T> void registerCancellationCallback(final SharedOperation<T> operation, final Waiter<T> waiter) {
+        // if the token cannot be observed, the caller can only cancel the shared operation as a whole once all other callers have cancelled
+        CancellationTokens.onCancellation(waiter.request.getCancellationToken(), new Runnable() {
+
+            @Override
+            public void run() {
+                cancel(operation, waiter);
+            }
+        }, waiter.result);
+    }
+
+    private <T> void cancel(SharedOperation<T> operation, Waiter<T> waiter) {
+        boolean cancelSharedOperation;
+        synchronized (this.LOCK) {
+            operation.waiters.remove(waiter);
+            cancelSharedOperation = operation.waiters.isEmpty() && !operation.finished;
+            if (cancelSharedOperation) {
+                this.operations.remove(operation.key);
+                operation.finished = true;
+            }
+        }
+
+        waiter.result.setException(new BuildCancelledException(String.format("Request for %s has been cancelled.", operation.key)));
+        if (cancelSharedOperation) {
+            operation.cancellationTokenSource.cancel();
+        }
+    }
+
+    private static <T> T waitFor(ListenableFuture<T> result) {
+        try {
+            return Uninterruptibles.getUninterruptibly(result);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static <T> LongRunningOperationPromise<T> toPromise(ListenableFuture<T> result) {
+        ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+        final ResultHandler<T> resultHandler = promise.getResultHandler();
+        Futures.addCallback(result, new FutureCallback<T>() {
+
+            @Override
+            public void onSuccess(T value) {
+                resultHandler.onComplete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                resultHandler.onFailure(failure instanceof GradleConnectionException ? (GradleConnectionException) failure : new GradleConnectionException(failure.getMessage(), failure));
+            }
+        }, MoreExecutors.directExecutor());
+        return promise;
+    }
+
+    /**
+     * A Gradle invocation shared by all attached waiters.
+     *
+     * @param <T> the result type
+     */
+    private static final class SharedOperation<T> {
+
+        private final CoalescingKey key;
+        private final CancellationTokenSource cancellationTokenSource;
+        private final List<Waiter<T>> waiters;
+        private boolean finished;
+
+        private SharedOperation(CoalescingKey key) {
+            this.key = key;
+            this.cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+            this.waiters = new CopyOnWriteArrayList<Waiter<T>>();
+        }
+
+    }
+
+    /**
+     * A caller attached to a shared operation.
+     *
+     * @param <T> the result type
+     */
+    private static final class Waiter<T> {
+
+        private final InspectableBuildRequest<T> request;
+        private final SettableFuture<T> result;
+
+        private Waiter(InspectableBuildRequest<T> request) {
+            this.request = request;
+            this.result = SettableFuture.create();
+        }
+
+    }
+
+    /**
+     * Forwards progress events of a shared operation to the progress listeners of all attached waiters.
+     */
+    private static final class FanOutProgressListener implements ProgressListener {
+
+        private final SharedOperation<?> operation;
+
+        private FanOutProgressListener(SharedOperation<?> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void statusChanged(ProgressEvent event) {
+            for (Waiter<?> waiter : this.operation.waiters) {
+                for (ProgressListener listener : waiter.request.getProgressListeners()) {
+                    listener.statusChanged(event);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Forwards typed progress events of a shared operation to the typed progress listeners of all attached waiters.
+     */
+    private static final class FanOutTypedProgressListener implements org.gradle.tooling.events.ProgressListener {
+
+        private final SharedOperation<?> operation;
+
+        private FanOutTypedProgressListener(SharedOperation<?> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void statusChanged(org.gradle.tooling.events.ProgressEvent event) {
+            for (Waiter<?> waiter : this.operation.waiters) {
+                for (org.gradle.tooling.events.ProgressListener listener : waiter.request.getTypedProgressListeners()) {
+                    listener.statusChanged(event);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Forwards the standard output or standard error of a shared operation to the respective streams of all attached waiters.
+     */
+    private static final class FanOutOutputStream extends OutputStream {
+
+        private final SharedOperation<?> operation;
+        private final boolean standardError;
+
+        private FanOutOutputStream(SharedOperation<?> operation, boolean standardError) {
+            this.operation = operation;
+            this.standardError = standardError;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            for (Waiter<?> waiter : this.operation.waiters) {
+                OutputStream target = getTarget(waiter);
+                if (target != null) {
+                    target.write(b);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (Waiter<?> waiter : this.operation.waiters) {
+                OutputStream target = getTarget(waiter);
+                if (target != null) {
+                    target.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            for (Waiter<?> waiter : this.operation.waiters) {
+                OutputStream target = getTarget(waiter);
+                if (target != null) {
+                    target.flush();
+                }
+            }
+        }
+
+        private OutputStream getTarget(Waiter<?> waiter) {
+            return this.standardError ? waiter.request.getStandardError() : waiter.request.getStandardOutput();
+        }
+
+    }
+
+}
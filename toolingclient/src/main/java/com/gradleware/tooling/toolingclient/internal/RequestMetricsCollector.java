@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import org.gradle.tooling.LongRunningOperation;
+import org.gradle.tooling.ResultHandler;
+
+import java.io.OutputStream;
+
+/**
+ * Collects the metrics of a single request while it is executed by the {@link DefaultToolingClient}. If no metrics are recorded, the {@link #NO_OP} collector is used which
+ * neither allocates nor attaches anything to the executed operation.
+ */
+interface RequestMetricsCollector {
+
+    RequestMetricsCollector NO_OP = new RequestMetricsCollector() {
+
+        @Override
+        public void connected() {
+        }
+
+        @Override
+        public OutputStream instrument(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        public void attachTo(LongRunningOperation operation) {
+        }
+
+        @Override
+        public <T> ResultHandler<T> instrument(ResultHandler<T> resultHandler) {
+            return resultHandler;
+        }
+
+        @Override
+        public void succeeded() {
+        }
+
+        @Override
+        public void failed(Throwable failure) {
+        }
+    };
+
+    void connected();
+
+    OutputStream instrument(OutputStream output);
+
+    void attachTo(LongRunningOperation operation);
+
+    <T> ResultHandler<T> instrument(ResultHandler<T> resultHandler);
+
+    void succeeded();
+
+    void failed(Throwable failure);
+
+}
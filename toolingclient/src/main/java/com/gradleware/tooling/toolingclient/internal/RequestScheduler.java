@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import com.gradleware.tooling.toolingclient.RequestSchedulerConfig;
+import com.gradleware.tooling.toolingclient.RequestSchedulerStats;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out permits to execute requests such that the global and the per-project limits of a {@link RequestSchedulerConfig} are never exceeded. Requests that cannot be
+ * started right away are queued by priority. Within a priority, each project has its own queue and the project queues are served in round-robin order. A queued request of a
+ * lower priority is only started if no queued request of a higher priority can be started.
+ */
+final class RequestScheduler {
+
+    private final int maxConcurrentRequests;
+    private final int maxConcurrentRequestsPerProject;
+    private final Ticker ticker;
+    private final Object LOCK = new Object();
+
+    // per priority, the queued requests grouped by project in the order in which the projects are served next
+    private final List<LinkedHashMap<File, Deque<PendingPermit>>> queues;
+    private final Map<File, Integer> runningRequestsPerProject;
+    private int runningRequests;
+    private final int[] queuedRequests;
+    private final long[] startedRequests;
+    private final long[] totalWaitTimeNanos;
+    private final long[] maxWaitTimeNanos;
+
+    RequestScheduler(RequestSchedulerConfig config) {
+        this(config, Ticker.systemTicker());
+    }
+
+    RequestScheduler(RequestSchedulerConfig config, Ticker ticker) {
+        this.maxConcurrentRequests = config.getMaxConcurrentRequests();
+        this.maxConcurrentRequestsPerProject = config.getMaxConcurrentRequestsPerProject();
+        this.ticker = Preconditions.checkNotNull(ticker);
+        int priorities = RequestPriority.values().length;
+        this.queues = Lists.newArrayListWithCapacity(priorities);
+        for (int i = 0; i < priorities; i++) {
+            this.queues.add(new LinkedHashMap<File, Deque<PendingPermit>>());
+        }
+        this.runningRequestsPerProject = Maps.newHashMap();
+        this.queuedRequests = new int[priorities];
+        this.startedRequests = new long[priorities];
+        this.totalWaitTimeNanos = new long[priorities];
+        this.maxWaitTimeNanos = new long[priorities];
+    }
+
+    /**
+     * Requests a permit to execute a request for the given project. The returned future completes once the request can be started. Cancelling the future removes the request
+     * from the queue. The obtained permit must be released once the request has finished.
+     *
+     * @param priority the priority of the request
+     * @param projectDir the project directory of the request, can be null
+     * @return the future permit
+     */
+    ListenableFuture<Permit> acquire(RequestPriority priority, File projectDir) {
+        Preconditions.checkNotNull(priority);
+        final PendingPermit pending = new PendingPermit(priority, projectDir, this.ticker.read());
+        List<PendingPermit> granted;
+        synchronized (this.LOCK) {
+            Deque<PendingPermit> projectQueue = this.queues.get(priority.ordinal()).get(projectDir);
+            if (projectQueue == null) {
+                projectQueue = new ArrayDeque<PendingPermit>();
+                this.queues.get(priority.ordinal()).put(projectDir, projectQueue);
+            }
+            projectQueue.add(pending);
+            this.queuedRequests[priority.ordinal()]++;
+            granted = dispatch();
+        }
+
+        pending.future.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                if (pending.future.isCancelled()) {
+                    dequeue(pending);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        grant(granted);
+        return pending.future;
+    }
+
+    RequestSchedulerStats getStats() {
+        synchronized (this.LOCK) {
+            return new DefaultRequestSchedulerStats(this.runningRequests, this.queuedRequests, this.startedRequests, this.totalWaitTimeNanos, this.maxWaitTimeNanos);
+        }
+    }
+
+    private void release(Permit permit) {
+        List<PendingPermit> granted;
+        synchronized (this.LOCK) {
+            this.runningRequests--;
+            int runningForProject = this.runningRequestsPerProject.get(permit.projectDir) - 1;
+            if (runningForProject == 0) {
+                this.runningRequestsPerProject.remove(permit.projectDir);
+            } else {
+                this.runningRequestsPerProject.put(permit.projectDir, runningForProject);
+            }
+            granted = dispatch();
+        }
+        grant(granted);
+    }
+
+    private void dequeue(PendingPermit pending) {
+        synchronized (this.LOCK) {
+            Map<File, Deque<PendingPermit>> projectQueues = this.queues.get(pending.priority.ordinal());
+            Deque<PendingPermit> projectQueue = projectQueues.get(pending.projectDir);
+            if (projectQueue != null && projectQueue.remove(pending)) {
+                this.queuedRequests[pending.priority.ordinal()]--;
+                if (projectQueue.isEmpty()) {
+                    projectQueues.remove(pending.projectDir);
+                }
+            }
+        }
+    }
+
+    private List<PendingPermit> dispatch() {
+        List<PendingPermit> granted = Lists.newArrayList();
+        for (LinkedHashMap<File, Deque<PendingPermit>> projectQueues : this.queues) {
+            File nextProject = findNextProject(projectQueues);
+            while (nextProject != null) {
+                // the served project moves to the end of the line
+                Deque<PendingPermit> projectQueue = projectQueues.remove(nextProject);
+                PendingPermit pending = projectQueue.poll();
+                if (!projectQueue.isEmpty()) {
+                    projectQueues.put(nextProject, projectQueue);
+                }
+                start(pending);
+                granted.add(pending);
+                nextProject = findNextProject(projectQueues);
+            }
+        }
+        return granted;
+    }
+
+    private File findNextProject(LinkedHashMap<File, Deque<PendingPermit>> projectQueues) {
+        if (this.runningRequests >= this.maxConcurrentRequests) {
+            return null;
+        }
+        for (File projectDir : projectQueues.keySet()) {
+            Integer runningForProject = this.runningRequestsPerProject.get(projectDir);
+            if (runningForProject == null || runningForProject < this.maxConcurrentRequestsPerProject) {
+                return projectDir;
+            }
+        }
+        return null;
+    }
+
+    private void start(PendingPermit pending) {
+        int priority = pending.priority.ordinal();
+        long waitTime = this.ticker.read() - pending.enqueued;
+        this.queuedRequests[priority]--;
+        this.startedRequests[priority]++;
+        this.totalWaitTimeNanos[priority] += waitTime;
+        this.maxWaitTimeNanos[priority] = Math.max(this.maxWaitTimeNanos[priority], waitTime);
+        this.runningRequests++;
+        Integer runningForProject = this.runningRequestsPerProject.get(pending.projectDir);
+        this.runningRequestsPerProject.put(pending.projectDir, runningForProject == null ? 1 : runningForProject + 1);
+    }
+
+    private void grant(List<PendingPermit> granted) {
+        for (PendingPermit pending : granted) {
+            Permit permit = new Permit(pending.projectDir);
+            if (!pending.future.set(permit)) {
+                // the future got cancelled after the permit had been granted
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * A request waiting for its permit.
+     */
+    private static final class PendingPermit {
+
+        private final RequestPriority priority;
+        private final File projectDir;
+        private final long enqueued;
+        private final SettableFuture<Permit> future;
+
+        private PendingPermit(RequestPriority priority, File projectDir, long enqueued) {
+            this.priority = priority;
+            this.projectDir = projectDir;
+            this.enqueued = enqueued;
+            this.future = SettableFuture.create();
+        }
+
+    }
+
+    /**
+     * The permission to execute a request. Releasing a permit more than once has no effect.
+     */
+    final class Permit {
+
+        private final File projectDir;
+        private boolean released;
+
+        private Permit(File projectDir) {
+            this.projectDir = projectDir;
+        }
+
+        void release() {
+            synchronized (this) {
+                if (this.released) {
+                    return;
+                }
+                this.released = true;
+            }
+            RequestScheduler.this.release(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import com.gradleware.tooling.toolingclient.RetryPolicy;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link ExecutableToolingClient} such that model requests and build action requests that fail because of a broken connection to the Gradle daemon are retried
+ * according to a {@link RetryPolicy}. Build launch requests and test launch requests are never retried since they can change the state of the build, neither are requests with a
+ * custom standard input since the input has already been consumed. Progress events and output of failed attempts are passed on to the request like those of the final attempt.
+ */
+final class RetryingToolingClient implements ExecutableToolingClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryingToolingClient.class);
+
+    private final ExecutableToolingClient delegate;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService retryExecutor;
+
+    RetryingToolingClient(ExecutableToolingClient delegate, RetryPolicy retryPolicy) {
+        this(delegate, retryPolicy, newRetryExecutor());
+    }
+
+    RetryingToolingClient(ExecutableToolingClient delegate, RetryPolicy retryPolicy, ScheduledExecutorService retryExecutor) {
+        this.delegate = delegate;
+        this.retryPolicy = retryPolicy;
+        this.retryExecutor = retryExecutor;
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
+        return executeAndWait(modelRequest, new Function<InspectableModelRequest<T>, T>() {
+
+            @Override
+            public T apply(InspectableModelRequest<T> request) {
+                return RetryingToolingClient.this.delegate.executeAndWait(request);
+            }
+        });
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(InspectableModelRequest<T> modelRequest) {
+        return execute(modelRequest, new Function<InspectableModelRequest<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(InspectableModelRequest<T> request) {
+                return RetryingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
+        return executeAndWait(buildActionRequest, new Function<InspectableBuildActionRequest<T>, T>() {
+
+            @Override
+            public T apply(InspectableBuildActionRequest<T> request) {
+                return RetryingToolingClient.this.delegate.executeAndWait(request);
+            }
+        });
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
+        return execute(buildActionRequest, new Function<InspectableBuildActionRequest<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(InspectableBuildActionRequest<T> request) {
+                return RetryingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    @Override
+    public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
+        return this.delegate.executeAndWait(buildLaunchRequest);
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
+        return this.delegate.execute(buildLaunchRequest);
+    }
+
+    @Override
+    public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
+        return this.delegate.executeAndWait(testLaunchRequest);
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
+        return this.delegate.execute(testLaunchRequest);
+    }
+
+    private <T, R extends InspectableBuildRequest<T>> T executeAndWait(R request, Function<R, T> operation) {
+        for (int nextRetry = 1; ; nextRetry++) {
+            try {
+                return operation.apply(request);
+            } catch (RuntimeException e) {
+                if (!shouldRetry(request, e, nextRetry)) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(this.retryPolicy.getBackoff(nextRetry, TimeUnit.NANOSECONDS));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private <T, R extends InspectableBuildRequest<T>> LongRunningOperationPromise<T> execute(R request, Function<R, LongRunningOperationPromise<T>> operation) {
+        ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+        attempt(request, operation, promise.getResultHandler(), 1);
+        return promise;
+    }
+
+    private <T, R extends InspectableBuildRequest<T>> void attempt(final R request, final Function<R, LongRunningOperationPromise<T>> operation, final ResultHandler<T> resultHandler, final int nextRetry) {
+        LongRunningOperationPromise<T> operationPromise;
+        try {
+            operationPromise = operation.apply(request);
+        } catch (RuntimeException e) {
+            if (shouldRetry(request, e, nextRetry)) {
+                scheduleRetry(request, operation, resultHandler, nextRetry);
+            } else if (nextRetry == 1) {
+                // failures of the first attempt are thrown to the caller, like without retries
+                throw e;
+            } else {
+                resultHandler.onFailure(e instanceof GradleConnectionException ? (GradleConnectionException) e : new GradleConnectionException(e.getMessage(), e));
+            }
+            return;
+        }
+
+        operationPromise.onComplete(new Consumer<T>() {
+
+            @Override
+            public void accept(T result) {
+                resultHandler.onComplete(result);
+            }
+        });
+        operationPromise.onFailure(new Consumer<GradleConnectionException>() {
+
+            @Override
+            public void accept(GradleConnectionException failure) {
+                if (shouldRetry(request, failure, nextRetry)) {
+                    scheduleRetry(request, operation, resultHandler, nextRetry);
+                } else {
+                    resultHandler.onFailure(failure);
+                }
+            }
+        });
+    }
+
+    private <T, R extends InspectableBuildRequest<T>> void scheduleRetry(final R request, final Function<R, LongRunningOperationPromise<T>> operation, final ResultHandler<T> resultHandler, final int nextRetry) {
+        this.retryExecutor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                attempt(request, operation, resultHandler, nextRetry + 1);
+            }
+        }, this.retryPolicy.getBackoff(nextRetry, TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean shouldRetry(InspectableBuildRequest<?> request, RuntimeException failure, int nextRetry) {
+        if (nextRetry > this.retryPolicy.getMaxRetries() || request.getStandardInput() != null || request.getCancellationToken().isCancellationRequested()
+                || !ConnectionFailures.isRetryable(failure)) {
+            return false;
+        }
+
+        LOG.info("Retrying request for {} after connection failure (retry {} of {}): {}", request.getProjectDir(), nextRetry, this.retryPolicy.getMaxRetries(), failure.getMessage());
+        return true;
+    }
+
+    private static ScheduledExecutorService newRetryExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("tooling-client-retry-%d").setDaemon(true).build());
+        // the retry thread only lives while retries are pending
+        executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
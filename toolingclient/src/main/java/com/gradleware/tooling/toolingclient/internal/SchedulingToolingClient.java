@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import com.gradleware.tooling.toolingclient.RequestSchedulerStats;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.ResultHandler;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Decorates an {@link ExecutableToolingClient} such that each request is only executed once the {@link RequestScheduler} hands out a permit for it. Synchronous executions
+ * block the calling thread while the request is queued, asynchronous executions return immediately and start the request once the permit has been granted. Cancelling a
+ * queued request removes it from the queue.
+ * <p/>
+ * A queued asynchronous request is started on the given executor once its permit is granted. The permit of a completed request is released from within the result handler
+ * of the Tooling API, thus starting the next request inline would open and evict connections on the thread that notifies the result handler.
+ */
+final class SchedulingToolingClient implements ExecutableToolingClient {
+
+    private final ExecutableToolingClient delegate;
+    private final RequestScheduler scheduler;
+    private final Executor startExecutor;
+
+    SchedulingToolingClient(ExecutableToolingClient delegate, RequestScheduler scheduler, Executor startExecutor) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.startExecutor = startExecutor;
+    }
+
+    RequestSchedulerStats getStats() {
+        return this.scheduler.getStats();
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
+        RequestScheduler.Permit permit = acquireAndWait(modelRequest);
+        try {
+            return this.delegate.executeAndWait(modelRequest);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(final InspectableModelRequest<T> modelRequest) {
+        return executeWhenPermitted(modelRequest, new Function<InspectableModelRequest<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(InspectableModelRequest<T> request) {
+                return SchedulingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    @Override
+    public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
+        RequestScheduler.Permit permit = acquireAndWait(buildActionRequest);
+        try {
+            return this.delegate.executeAndWait(buildActionRequest);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
+        return executeWhenPermitted(buildActionRequest, new Function<InspectableBuildActionRequest<T>, LongRunningOperationPromise<T>>() {
+
+            @Override
+            public LongRunningOperationPromise<T> apply(InspectableBuildActionRequest<T> request) {
+                return SchedulingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    @Override
+    public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
+        RequestScheduler.Permit permit = acquireAndWait(buildLaunchRequest);
+        try {
+            return this.delegate.executeAndWait(buildLaunchRequest);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
+        return executeWhenPermitted(buildLaunchRequest, new Function<InspectableBuildLaunchRequest, LongRunningOperationPromise<Void>>() {
+
+            @Override
+            public LongRunningOperationPromise<Void> apply(InspectableBuildLaunchRequest request) {
+                return SchedulingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    @Override
+    public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
+        RequestScheduler.Permit permit = acquireAndWait(testLaunchRequest);
+        try {
+            return this.delegate.executeAndWait(testLaunchRequest);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
+        return executeWhenPermitted(testLaunchRequest, new Function<InspectableTestLaunchRequest, LongRunningOperationPromise<Void>>() {
+
+            @Override
+            public LongRunningOperationPromise<Void> apply(InspectableTestLaunchRequest request) {
+                return SchedulingToolingClient.this.delegate.execute(request);
+            }
+        });
+    }
+
+    private ListenableFuture<RequestScheduler.Permit> acquire(InspectableBuildRequest<?> request) {
+        final ListenableFuture<RequestScheduler.Permit> permit = this.scheduler.acquire(request.getPriority(), request.getProjectDir());
+        CancellationTokens.onCancellation(request.getCancellationToken(), new Runnable() {
+
+            @Override
+            public void run() {
+                permit.cancel(false);
+            }
+        }, permit);
+        return permit;
+    }
+
+    private RequestScheduler.Permit acquireAndWait(InspectableBuildRequest<?> request) {
+        try {
+            return Uninterruptibles.getUninterruptibly(acquire(request));
+        } catch (CancellationException e) {
+            throw newCancelledException(request);
+        } catch (ExecutionException e) {
+            // permits never fail
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T, R extends InspectableBuildRequest<T>> LongRunningOperationPromise<T> executeWhenPermitted(final R request, final Function<R, LongRunningOperationPromise<T>> operation) {
+        ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+        final ResultHandler<T> resultHandler = promise.getResultHandler();
+        ListenableFuture<RequestScheduler.Permit> permitFuture = acquire(request);
+        // a request that gets its permit right away is started on the calling thread, a queued request is started on the executor
+        Executor executor = permitFuture.isDone() ? MoreExecutors.directExecutor() : this.startExecutor;
+        Futures.addCallback(permitFuture, new FutureCallback<RequestScheduler.Permit>() {
+
+            @Override
+            public void onSuccess(final RequestScheduler.Permit permit) {
+                LongRunningOperationPromise<T> operationPromise;
+                try {
+                    operationPromise = operation.apply(request);
+                } catch (RuntimeException e) {
+                    permit.release();
+                    resultHandler.onFailure(e instanceof GradleConnectionException ? (GradleConnectionException) e : new GradleConnectionException(e.getMessage(), e));
+                    return;
+                }
+
+                operationPromise.onComplete(new Consumer<T>() {
+
+                    @Override
+                    public void accept(T result) {
+                        permit.release();
+                        resultHandler.onComplete(result);
+                    }
+                });
+                operationPromise.onFailure(new Consumer<GradleConnectionException>() {
+
+                    @Override
+                    public void accept(GradleConnectionException failure) {
+                        permit.release();
+                        resultHandler.onFailure(failure);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                resultHandler.onFailure(newCancelledException(request));
+            }
+        }, executor);
+        return promise;
+    }
+
+    private static BuildCancelledException newCancelledException(InspectableBuildRequest<?> request) {
+        return new BuildCancelledException(String.format("Request for %s has been cancelled before it was started.", request.getProjectDir()));
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LatencyHistogramTest extends Specification {
+
+  def "empty histogram reports zero"() {
+    given:
+    def histogram = new LatencyHistogram()
+
+    expect:
+    histogram.count == 0
+    histogram.getMean(TimeUnit.MILLISECONDS) == 0
+    histogram.getMax(TimeUnit.MILLISECONDS) == 0
+    histogram.getPercentile(99, TimeUnit.MILLISECONDS) == 0
+  }
+
+  def "percentiles are bounded by the bucket of the ranked value"() {
+    given:
+    def histogram = new LatencyHistogram()
+    99.times { histogram.record(1, TimeUnit.MILLISECONDS) }
+    histogram.record(100, TimeUnit.MILLISECONDS)
+
+    expect:
+    histogram.count == 100
+    histogram.getPercentile(50, TimeUnit.MICROSECONDS) == 1023
+    histogram.getPercentile(99, TimeUnit.MICROSECONDS) == 1023
+    histogram.getPercentile(100, TimeUnit.MILLISECONDS) == 100
+    histogram.getMax(TimeUnit.MILLISECONDS) == 100
+    histogram.getMean(TimeUnit.MICROSECONDS) == 1990
+  }
+
+  def "negative durations are ignored"() {
+    given:
+    def histogram = new LatencyHistogram()
+
+    when:
+    histogram.record(-1, TimeUnit.MILLISECONDS)
+
+    then:
+    histogram.count == 0
+  }
+
+  def "percentile must be between 0 and 100"() {
+    when:
+    new LatencyHistogram().getPercentile(101, TimeUnit.MILLISECONDS)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+}
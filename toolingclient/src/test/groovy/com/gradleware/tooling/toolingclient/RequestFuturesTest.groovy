@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient
+
+import com.google.common.util.concurrent.SettableFuture
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class RequestFuturesTest extends Specification {
+
+  ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor()
+
+  def cleanup() {
+    scheduler.shutdownNow()
+  }
+
+  def "future completes with result of delegate if the delegate completes in time"() {
+    given:
+    def delegate = SettableFuture.<String> create()
+    def future = RequestFutures.withTimeout(delegate, 1, TimeUnit.MINUTES, scheduler)
+
+    when:
+    delegate.set('result')
+
+    then:
+    future.get() == 'result'
+  }
+
+  def "future fails with timeout and cancels delegate if the delegate does not complete in time"() {
+    given:
+    def delegate = SettableFuture.<String> create()
+    def future = RequestFutures.withTimeout(delegate, 10, TimeUnit.MILLISECONDS, scheduler)
+
+    when:
+    future.get(1, TimeUnit.MINUTES)
+
+    then:
+    def e = thrown(ExecutionException)
+    e.cause instanceof TimeoutException
+    delegate.cancelled
+  }
+
+  def "cancelling the future cancels the delegate"() {
+    given:
+    def delegate = SettableFuture.<String> create()
+    def future = RequestFutures.withTimeout(delegate, 1, TimeUnit.MINUTES, scheduler)
+
+    when:
+    future.cancel(false)
+
+    then:
+    delegate.cancelled
+  }
+
+}
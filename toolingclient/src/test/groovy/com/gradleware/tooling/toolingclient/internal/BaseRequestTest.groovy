@@ -60,6 +60,11 @@ class BaseRequestTest extends Specification {
       super(toolingClient)
     }
 
+    @Override
+    def MyBaseRequest deriveCopy() {
+      return copy(new MyBaseRequest<T>(getToolingClient()))
+    }
+
     @Override
     def MyBaseRequest getThis() {
       return this
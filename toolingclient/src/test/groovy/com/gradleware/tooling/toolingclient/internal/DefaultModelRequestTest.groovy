@@ -16,6 +16,11 @@
 
 package com.gradleware.tooling.toolingclient.internal
 
+import com.google.common.util.concurrent.FutureCallback
+import com.google.common.util.concurrent.Futures
+import com.google.common.util.concurrent.MoreExecutors
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.model.gradle.BuildInvocations
 import org.gradle.tooling.model.gradle.ProjectPublications
 import spock.lang.Specification
@@ -92,4 +97,77 @@ class DefaultModelRequestTest extends Specification {
     1 * toolingClient.executeAndWait(modelRequest)
   }
 
+  def "executeAsFutureExecutesCopyWithOwnCancellationToken"() {
+    setup:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+    DefaultModelRequest<String> modelRequest = new DefaultModelRequest<String>(toolingClient, String.class).tasks('foo').cancellationToken(tokenSource.token())
+    DefaultModelRequest<String> executedRequest = null
+    def promise = new ResultHandlerPromise<String>()
+    FutureCallback<String> first = Mock(FutureCallback)
+    FutureCallback<String> second = Mock(FutureCallback)
+
+    when:
+    def future = modelRequest.executeAsFuture()
+    Futures.addCallback(future, first, MoreExecutors.directExecutor())
+    Futures.addCallback(future, second, MoreExecutors.directExecutor())
+    promise.resultHandler.onComplete('result')
+
+    then:
+    1 * toolingClient.execute(_ as InspectableModelRequest) >> { InspectableModelRequest request ->
+      executedRequest = request
+      promise
+    }
+    !executedRequest.is(modelRequest)
+    executedRequest.tasks == ['foo'] as String[]
+    !executedRequest.cancellationToken.is(modelRequest.cancellationToken)
+    1 * first.onSuccess('result')
+    1 * second.onSuccess('result')
+  }
+
+  def "executeAsFutureFailsWithFailureOfOperation"() {
+    setup:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    def promise = new ResultHandlerPromise<String>()
+    toolingClient.execute(_ as InspectableModelRequest) >> promise
+    DefaultModelRequest<String> modelRequest = new DefaultModelRequest<String>(toolingClient, String.class)
+    def failure = new GradleConnectionException('failure')
+
+    when:
+    def future = modelRequest.executeAsFuture()
+    promise.resultHandler.onFailure(failure)
+    Futures.getUnchecked(future)
+
+    then:
+    def e = thrown(Exception)
+    e.cause.is(failure)
+  }
+
+  def "executeAsFutureCancelsOperationWhenFutureOrTokenIsCancelled"() {
+    setup:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    DefaultModelRequest<String> executedRequest = null
+    toolingClient.execute(_ as InspectableModelRequest) >> { InspectableModelRequest request ->
+      executedRequest = request
+      new ResultHandlerPromise<String>()
+    }
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+    DefaultModelRequest<String> modelRequest = new DefaultModelRequest<String>(toolingClient, String.class).cancellationToken(tokenSource.token())
+
+    when:
+    def future = modelRequest.executeAsFuture()
+    future.cancel(false)
+
+    then:
+    executedRequest.cancellationToken.cancellationRequested
+
+    when:
+    future = modelRequest.executeAsFuture()
+    tokenSource.cancel()
+
+    then:
+    executedRequest.cancellationToken.cancellationRequested
+    !future.done
+  }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.google.common.base.Optional
+import com.google.common.base.Ticker
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.RequestMetrics
+import com.gradleware.tooling.toolingclient.RequestMetricsRecorder
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.LongRunningOperation
+import org.gradle.tooling.ProgressEvent
+import org.gradle.tooling.ResultHandler
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class DefaultRequestMetricsCollectorTest extends Specification {
+
+  FakeTicker ticker = new FakeTicker()
+  List<RequestMetrics> recorded = []
+  RequestMetricsRecorder recorder = { RequestMetrics metrics -> recorded << metrics } as RequestMetricsRecorder
+
+  def "records connect time, operation time and time to first progress event"() {
+    given:
+    def collector = newCollector()
+
+    when:
+    ticker.advance(100)
+    collector.connected()
+    ticker.advance(20)
+    collector.statusChanged(Stub(ProgressEvent))
+    ticker.advance(30)
+    collector.statusChanged(Stub(ProgressEvent))
+    collector.succeeded()
+
+    then:
+    recorded.size() == 1
+    def metrics = recorded[0]
+    metrics.kind == RequestMetrics.Kind.MODEL
+    metrics.modelType == Optional.of(String)
+    metrics.outcome == RequestMetrics.Outcome.SUCCESS
+    metrics.getConnectTime(TimeUnit.MILLISECONDS) == 100
+    metrics.getOperationTime(TimeUnit.MILLISECONDS) == 50
+    metrics.getTimeToFirstProgressEvent(TimeUnit.MILLISECONDS) == 20
+    metrics.progressEventCount == 2
+  }
+
+  def "time to first progress event is unknown if no event was received"() {
+    given:
+    def collector = newCollector()
+
+    when:
+    collector.connected()
+    collector.succeeded()
+
+    then:
+    recorded[0].getTimeToFirstProgressEvent(TimeUnit.MILLISECONDS) == -1
+  }
+
+  def "failure to connect is recorded without operation time"() {
+    given:
+    def collector = newCollector()
+
+    when:
+    ticker.advance(10)
+    collector.failed(new IllegalStateException())
+
+    then:
+    recorded[0].outcome == RequestMetrics.Outcome.FAILURE
+    recorded[0].getConnectTime(TimeUnit.MILLISECONDS) == 10
+    recorded[0].getOperationTime(TimeUnit.MILLISECONDS) == 0
+  }
+
+  def "metrics are recorded once through an instrumented result handler"() {
+    given:
+    def collector = newCollector()
+    def delegate = Mock(ResultHandler)
+    def resultHandler = collector.instrument(delegate)
+    def failure = new BuildCancelledException('cancelled')
+
+    when:
+    collector.connected()
+    resultHandler.onFailure(failure)
+    collector.succeeded()
+
+    then:
+    1 * delegate.onFailure(failure)
+    recorded.size() == 1
+    recorded[0].outcome == RequestMetrics.Outcome.CANCELLED
+  }
+
+  def "output written to instrumented streams is counted"() {
+    given:
+    def collector = newCollector()
+    def output = new ByteArrayOutputStream()
+    def error = new ByteArrayOutputStream()
+
+    when:
+    collector.instrument(output).write('hello'.bytes)
+    collector.instrument(error).write(1)
+    collector.succeeded()
+
+    then:
+    output.toString() == 'hello'
+    recorded[0].outputBytes == 6
+  }
+
+  def "collector registers itself as progress listener"() {
+    given:
+    def collector = newCollector()
+    def operation = Mock(LongRunningOperation)
+
+    when:
+    collector.attachTo(operation)
+
+    then:
+    1 * operation.addProgressListener(collector)
+  }
+
+  def "exceptions thrown by the recorder are not propagated"() {
+    given:
+    def failingRecorder = { RequestMetrics metrics -> throw new IllegalStateException() } as RequestMetricsRecorder
+    def collector = new DefaultRequestMetricsCollector(failingRecorder, ticker, RequestMetrics.Kind.BUILD_LAUNCH, Optional.absent(), request())
+
+    when:
+    collector.failed(new GradleConnectionException('failed'))
+
+    then:
+    noExceptionThrown()
+  }
+
+  private DefaultRequestMetricsCollector newCollector() {
+    new DefaultRequestMetricsCollector(recorder, ticker, RequestMetrics.Kind.MODEL, Optional.of(String), request())
+  }
+
+  private InspectableBuildRequest request() {
+    Stub(InspectableBuildRequest) {
+      getProjectDir() >> new File('project')
+      getGradleDistribution() >> GradleDistribution.fromBuild()
+    }
+  }
+
+  static class FakeTicker extends Ticker {
+
+    long nanos = -1000
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis)
+    }
+
+    @Override
+    long read() {
+      nanos
+    }
+  }
+
+}
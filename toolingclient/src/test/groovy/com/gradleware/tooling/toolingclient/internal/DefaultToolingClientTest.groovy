@@ -17,9 +17,11 @@
 package com.gradleware.tooling.toolingclient.internal
 
 import com.gradleware.tooling.junit.TestDirectoryProvider
+import com.gradleware.tooling.toolingclient.ConnectionPoolConfig
 import com.gradleware.tooling.toolingclient.GradleDistribution
 import com.gradleware.tooling.toolingclient.LaunchableConfig
 import com.gradleware.tooling.toolingclient.ModelRequest;
+import com.gradleware.tooling.toolingclient.RetryPolicy
 import com.gradleware.tooling.toolingclient.TestConfig
 import com.gradleware.tooling.toolingclient.ToolingClient
 import com.gradleware.tooling.toolingclient.ToolingClient.ConnectionStrategy
@@ -27,10 +29,12 @@ import com.gradleware.tooling.toolingclient.ToolingClient.ConnectionStrategy
 import org.gradle.internal.Factory
 import org.gradle.tooling.BuildAction
 import org.gradle.tooling.BuildController
+import org.gradle.tooling.CancellationToken
 import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProgressListener
 import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler
 import org.gradle.tooling.events.ProgressEvent
 import org.gradle.tooling.events.test.JvmTestOperationDescriptor
 import org.gradle.tooling.events.test.TestProgressEvent
@@ -42,6 +46,7 @@ import org.junit.Rule
 import spock.lang.Specification
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -178,6 +183,252 @@ class DefaultToolingClientTest extends Specification {
     toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
   }
 
+  def "if PER_REQUEST strategy is specified, an asynchronous request returns before its operation completes and closes the connection afterwards"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    DefaultToolingClient toolingClient = new DefaultToolingClient(connectorFactory, ConnectionStrategy.PER_REQUEST)
+    def operationCompleted = new CountDownLatch(1)
+    def connectionClosed = new CountDownLatch(1)
+    def resultHandlers = []
+    def connection = Stub(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder) {
+        get(_) >> { ResultHandler handler -> resultHandlers << handler }
+      }
+      // like the Tooling API, closing the connection waits until its operation has finished
+      close() >> {
+        operationCompleted.await(10, TimeUnit.SECONDS)
+        connectionClosed.countDown()
+      }
+    }
+    connectorFactory.create() >> Stub(GradleConnector) { connect() >> connection }
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory).gradleDistribution(GradleDistribution.fromBuild())
+
+    when:
+    def future = modelRequest.executeAsFuture()
+
+    then:
+    operationCompleted.count == 1
+    !future.isDone()
+    connectionClosed.count == 1
+
+    when:
+    def buildEnvironment = Stub(BuildEnvironment)
+    operationCompleted.countDown()
+    resultHandlers[0].onComplete(buildEnvironment)
+
+    then:
+    future.get(1, TimeUnit.SECONDS).is(buildEnvironment)
+    connectionClosed.await(10, TimeUnit.SECONDS)
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "if POOLED strategy is specified, idle connections are closed once the pool exceeds its maximum size"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.POOLED).
+            connectionPool(ConnectionPoolConfig.of(1, 1, TimeUnit.MINUTES)).
+            build()
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+    modelRequest.gradleDistribution(GradleDistribution.fromBuild())
+    def firstConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
+    def secondConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
+
+    when:
+    modelRequest.executeAndWait()
+    modelRequest.executeAndWait()
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> firstConnection
+    }
+    0 * firstConnection.close()
+
+    when:
+    modelRequest.gradleDistribution(GradleDistribution.forVersion("2.1"))
+    modelRequest.executeAndWait()
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> secondConnection
+    }
+    1 * firstConnection.close()
+    0 * secondConnection.close()
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "if POOLED strategy is specified, a connection is not closed while an overlapping asynchronous request still uses it"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.POOLED).
+            connectionPool(ConnectionPoolConfig.of(1, 1, TimeUnit.MINUTES)).
+            build()
+    def resultHandlers = []
+    def connection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder) {
+        get(_) >> { ResultHandler handler -> resultHandlers << handler }
+      }
+    }
+    def otherConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
+    def firstRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    firstRequest.projectDir(directoryProvider.testDirectory).gradleDistribution(GradleDistribution.fromBuild()).arguments('--first')
+    def secondRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    secondRequest.projectDir(directoryProvider.testDirectory).gradleDistribution(GradleDistribution.fromBuild()).arguments('--second')
+    def otherRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    otherRequest.projectDir(directoryProvider.testDirectory).gradleDistribution(GradleDistribution.forVersion("2.1"))
+
+    when:
+    // both requests register a complete and a failure handler on the promise of their operation
+    def firstFuture = firstRequest.executeAsFuture()
+    def secondFuture = secondRequest.executeAsFuture()
+    resultHandlers[0].onComplete(Stub(BuildEnvironment))
+    firstFuture.get(1, TimeUnit.SECONDS)
+    otherRequest.executeAndWait()
+
+    then:
+    2 * connectorFactory.create() >>> [Stub(GradleConnector) { connect() >> connection }, Stub(GradleConnector) { connect() >> otherConnection }]
+    !secondFuture.isDone()
+    0 * connection.close()
+
+    when:
+    resultHandlers[1].onComplete(Stub(BuildEnvironment))
+    secondFuture.get(1, TimeUnit.SECONDS)
+    otherRequest.gradleDistribution(GradleDistribution.forVersion("2.2"))
+    otherRequest.executeAndWait()
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) { connect() >> Stub(ProjectConnection) { model(_) >> Stub(ModelBuilder) } }
+    1 * connection.close()
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "if POOLED strategy is specified, a connection is released and evicted if an asynchronous request cannot be started"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.POOLED).
+            connectionPool(ConnectionPoolConfig.of(1, 1, TimeUnit.MINUTES)).
+            build()
+    def connectionClosed = new CountDownLatch(1)
+    def failingConnection = Stub(ProjectConnection) {
+      model(_) >> { throw new IllegalArgumentException('Unsupported model.') }
+      close() >> { connectionClosed.countDown() }
+    }
+    def freshConnection = Stub(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory).gradleDistribution(GradleDistribution.fromBuild())
+
+    when:
+    modelRequest.execute()
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) { connect() >> failingConnection }
+    thrown(IllegalArgumentException)
+    connectionClosed.await(10, TimeUnit.SECONDS)
+
+    when:
+    modelRequest.execute()
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) { connect() >> freshConnection }
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "broken connection is evicted and the request is retried on a new connection"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.REUSE).
+            retryPolicy(RetryPolicy.of(1, 0, 0, TimeUnit.MILLISECONDS)).
+            build()
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+    modelRequest.gradleDistribution(GradleDistribution.fromBuild())
+    def buildEnvironment = Stub(BuildEnvironment)
+    def brokenConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder) {
+        get() >> { throw new IllegalStateException('Cannot use ProjectConnection as it has been stopped.') }
+      }
+    }
+    def freshConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder) {
+        get() >> buildEnvironment
+      }
+    }
+    def closed = new CountDownLatch(1)
+
+    when:
+    def result = modelRequest.executeAndWait()
+    closed.await(5, TimeUnit.SECONDS)
+
+    then:
+    result == buildEnvironment
+    2 * connectorFactory.create() >>> [Stub(GradleConnector) { connect() >> brokenConnection }, Stub(GradleConnector) { connect() >> freshConnection }]
+    1 * brokenConnection.close() >> { closed.countDown() }
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "prewarming runs the requested number of warm-up requests on a reused connection"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.REUSE).
+            build()
+    def buildEnvironment = Stub(BuildEnvironment)
+    def modelBuilder = Stub(ModelBuilder) {
+      get(_) >> { ResultHandler handler -> handler.onComplete(buildEnvironment) }
+    }
+    def connection = Mock(ProjectConnection)
+
+    when:
+    def future = toolingClient.prewarm(directoryProvider.testDirectory, null, GradleDistribution.fromBuild(), null, 2)
+    future.get(1, TimeUnit.SECONDS)
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> connection
+    }
+    2 * connection.model(BuildEnvironment) >> modelBuilder
+    0 * connection.close()
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
+  def "prewarming requires a positive daemon count"() {
+    when:
+    new DefaultToolingClient().prewarm(directoryProvider.testDirectory, null, GradleDistribution.fromBuild(), null, 0)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
   def "Multiple requests can run in parallel without closing each other."() {
       given:
       Factory<GradleConnector> connectorFactory = { GradleConnector.newConnector() }
@@ -312,15 +563,73 @@ class DefaultToolingClientTest extends Specification {
     toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
   }
 
-  def "stop - forceful stop strategy not implemented yet"() {
+  def "stop - forceful stop cancels running requests, closes all connections, and rejects further requests"() {
     given:
-    DefaultToolingClient toolingClient = new DefaultToolingClient()
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.REUSE).
+            build()
+    def modelBuilder = Stub(ModelBuilder)
+    CancellationToken token = null
+    modelBuilder.withCancellationToken(_) >> { CancellationToken t -> token = t; modelBuilder }
+    modelBuilder./(set|with|for|add).*/(*_) >> modelBuilder
+    def connection = Mock(ProjectConnection) {
+      model(_) >> modelBuilder
+    }
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+    modelRequest.gradleDistribution(GradleDistribution.fromBuild())
+
+    when:
+    modelRequest.execute()
+    toolingClient.stop(ToolingClient.CleanUpStrategy.FORCEFULLY).get(10, TimeUnit.SECONDS)
+
+    then:
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> connection
+    }
+    1 * connection.close()
+    token.cancellationRequested
+
+    when:
+    modelRequest.execute()
+
+    then:
+    thrown(IllegalStateException)
+  }
+
+  def "stop - graceful stop closes all connections and keeps the client usable"() {
+    given:
+    Factory<GradleConnector> connectorFactory = Mock(Factory.class)
+    ToolingClient toolingClient = ToolingClient.newBuilder().
+            connectorFactory(connectorFactory).
+            connectionStrategy(ConnectionStrategy.REUSE).
+            build()
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+    modelRequest.gradleDistribution(GradleDistribution.fromBuild())
+    def firstConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
+    def secondConnection = Mock(ProjectConnection) {
+      model(_) >> Stub(ModelBuilder)
+    }
 
     when:
-    toolingClient.stop(ToolingClient.CleanUpStrategy.FORCEFULLY)
+    modelRequest.executeAndWait()
+    def stopped = toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+    modelRequest.executeAndWait()
 
     then:
-    thrown(UnsupportedOperationException)
+    stopped.done
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> firstConnection
+    }
+    1 * firstConnection.close()
+    1 * connectorFactory.create() >> Stub(GradleConnector) {
+      connect() >> secondConnection
+    }
 
     cleanup:
     toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
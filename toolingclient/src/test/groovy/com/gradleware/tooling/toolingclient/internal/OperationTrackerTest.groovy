@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ResultHandler
+import spock.lang.Specification
+
+class OperationTrackerTest extends Specification {
+
+  def tracker = new OperationTracker()
+
+  def "operation token is cancelled when the request token is cancelled"() {
+    given:
+    def requestTokenSource = GradleConnector.newCancellationTokenSource()
+    def operation = tracker.begin(requestTokenSource.token())
+
+    when:
+    requestTokenSource.cancel()
+
+    then:
+    operation.cancellationToken.cancellationRequested
+  }
+
+  def "ended operations are no longer tracked and not cancelled"() {
+    given:
+    def operation = tracker.begin(GradleConnector.newCancellationTokenSource().token())
+
+    when:
+    operation.end()
+    tracker.cancelAll()
+
+    then:
+    tracker.size() == 0
+    !operation.cancellationToken.cancellationRequested
+  }
+
+  def "cancelling all operations cancels running operations and rejects new ones"() {
+    given:
+    def operation = tracker.begin(GradleConnector.newCancellationTokenSource().token())
+
+    when:
+    tracker.cancelAll()
+
+    then:
+    operation.cancellationToken.cancellationRequested
+
+    when:
+    tracker.begin(GradleConnector.newCancellationTokenSource().token())
+
+    then:
+    thrown(IllegalStateException)
+    tracker.size() == 1
+  }
+
+  def "operation ends before the result is handed to the delegate"() {
+    given:
+    def operation = tracker.begin(GradleConnector.newCancellationTokenSource().token())
+    def delegate = Mock(ResultHandler)
+    def failure = new GradleConnectionException('failed')
+
+    when:
+    operation.endOnCompletion(delegate).onFailure(failure)
+
+    then:
+    1 * delegate.onFailure(failure) >> { assert tracker.size() == 0 }
+  }
+
+}
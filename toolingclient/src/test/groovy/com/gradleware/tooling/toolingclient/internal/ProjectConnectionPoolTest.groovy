@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.google.common.base.Function
+import com.google.common.base.Ticker
+import com.gradleware.tooling.toolingclient.ConnectionPoolConfig
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import org.gradle.tooling.ProjectConnection
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ProjectConnectionPoolTest extends Specification {
+
+  long now = 0
+  Ticker ticker = new Ticker() {
+
+    @Override
+    long read() {
+      now
+    }
+  }
+
+  def "connection is opened once per key and shared between leases"() {
+    given:
+    def connectionFactory = Mock(Function)
+    def pool = new ProjectConnectionPool(connectionFactory, ConnectionPoolConfig.of(2, 1, TimeUnit.MINUTES), ticker)
+    def connectionKey = key('a')
+
+    when:
+    def first = pool.acquire(connectionKey)
+    def second = pool.acquire(key('a'))
+
+    then:
+    1 * connectionFactory.apply(connectionKey) >> Stub(ProjectConnection)
+    first.connection.is(second.connection)
+    pool.size() == 1
+  }
+
+  def "least recently used connections are evicted once the maximum size is exceeded"() {
+    given:
+    def pool = new ProjectConnectionPool(newConnectionFactory(), ConnectionPoolConfig.of(2, 1, TimeUnit.MINUTES), ticker)
+    def a = pool.acquire(key('a')).connection
+    def b = pool.acquire(key('b')).connection
+    pool.release(a)
+    pool.release(b)
+    pool.release(pool.acquire(key('a')).connection)
+
+    when:
+    def lease = pool.acquire(key('c'))
+
+    then:
+    lease.evictedConnections == [b]
+    pool.size() == 2
+  }
+
+  def "leased connections are never evicted"() {
+    given:
+    def pool = new ProjectConnectionPool(newConnectionFactory(), ConnectionPoolConfig.of(1, 1, TimeUnit.MINUTES), ticker)
+    def a = pool.acquire(key('a')).connection
+
+    when:
+    def lease = pool.acquire(key('b'))
+
+    then:
+    lease.evictedConnections.isEmpty()
+    pool.size() == 2
+
+    when:
+    pool.release(a)
+    lease = pool.acquire(key('c'))
+
+    then:
+    lease.evictedConnections == [a]
+    pool.size() == 2
+  }
+
+  def "connections are evicted once they have been idle for longer than the maximum idle time"() {
+    given:
+    def pool = new ProjectConnectionPool(newConnectionFactory(), ConnectionPoolConfig.of(10, 1, TimeUnit.MINUTES), ticker)
+    def a = pool.acquire(key('a')).connection
+    pool.release(a)
+
+    when:
+    now += TimeUnit.SECONDS.toNanos(59)
+    def lease = pool.acquire(key('b'))
+
+    then:
+    lease.evictedConnections.isEmpty()
+
+    when:
+    now += TimeUnit.SECONDS.toNanos(2)
+    lease = pool.acquire(key('c'))
+
+    then:
+    lease.evictedConnections == [a]
+    pool.size() == 2
+  }
+
+  def "removing all connections includes leased connections"() {
+    given:
+    def pool = new ProjectConnectionPool(newConnectionFactory(), ConnectionPoolConfig.of(10, 1, TimeUnit.MINUTES), ticker)
+    def a = pool.acquire(key('a')).connection
+    def b = pool.acquire(key('b')).connection
+    pool.release(b)
+
+    when:
+    def removed = pool.removeAll()
+
+    then:
+    removed as Set == [a, b] as Set
+    pool.size() == 0
+
+    when:
+    pool.release(a)
+
+    then:
+    pool.size() == 0
+  }
+
+  private Function<ConnectionKey, ProjectConnection> newConnectionFactory() {
+    return { ConnectionKey key -> Stub(ProjectConnection) } as Function
+  }
+
+  private ConnectionKey key(String projectDir) {
+    def request = Stub(InspectableBuildRequest) {
+      getProjectDir() >> new File(projectDir)
+      getGradleUserHomeDir() >> null
+      getGradleDistribution() >> GradleDistribution.fromBuild()
+    }
+    ConnectionKey.from(request)
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ProgressEvent
+import org.gradle.tooling.ProgressListener
+import org.gradle.tooling.model.build.BuildEnvironment
+import spock.lang.Specification
+
+class RequestCoalescerTest extends Specification {
+
+  ExecutableToolingClient delegate = Mock(ExecutableToolingClient)
+  RequestCoalescer coalescer = new RequestCoalescer(delegate)
+
+  def "identical in-flight model requests are served by a single invocation"() {
+    given:
+    def sharedPromise = new ResultHandlerPromise<BuildEnvironment>()
+    def result = Stub(BuildEnvironment)
+    Consumer<BuildEnvironment> first = Mock(Consumer)
+    Consumer<BuildEnvironment> second = Mock(Consumer)
+
+    when:
+    coalescer.execute(newModelRequest('a')).onComplete(first)
+    coalescer.execute(newModelRequest('a')).onComplete(second)
+
+    then:
+    1 * delegate.execute(_ as InspectableModelRequest) >> sharedPromise
+
+    when:
+    sharedPromise.resultHandler.onComplete(result)
+
+    then:
+    1 * first.accept(result)
+    1 * second.accept(result)
+  }
+
+  def "requests with different attributes are not coalesced"() {
+    when:
+    coalescer.execute(newModelRequest('a'))
+    coalescer.execute(newModelRequest('b'))
+    coalescer.execute(newModelRequest('a').jvmArguments('-Xmx1g'))
+    coalescer.execute(newModelRequest('a').standardInput(new ByteArrayInputStream(new byte[0])))
+
+    then:
+    4 * delegate.execute(_ as InspectableModelRequest) >> new ResultHandlerPromise<BuildEnvironment>()
+  }
+
+  def "a new invocation is started once the shared invocation has finished"() {
+    given:
+    def sharedPromise = new ResultHandlerPromise<BuildEnvironment>()
+
+    when:
+    coalescer.execute(newModelRequest('a'))
+    sharedPromise.resultHandler.onFailure(new GradleConnectionException('failure'))
+    coalescer.execute(newModelRequest('a'))
+
+    then:
+    2 * delegate.execute(_ as InspectableModelRequest) >> sharedPromise >> new ResultHandlerPromise<BuildEnvironment>()
+  }
+
+  def "progress events of the shared invocation are forwarded to all attached callers"() {
+    given:
+    InspectableModelRequest<BuildEnvironment> sharedRequest = null
+    ProgressListener first = Mock(ProgressListener)
+    ProgressListener second = Mock(ProgressListener)
+    def event = Stub(ProgressEvent)
+
+    when:
+    coalescer.execute(newModelRequest('a').progressListeners(first))
+    coalescer.execute(newModelRequest('a').progressListeners(second))
+    sharedRequest.progressListeners.each { it.statusChanged(event) }
+
+    then:
+    1 * delegate.execute(_ as InspectableModelRequest) >> { InspectableModelRequest request ->
+      sharedRequest = request
+      new ResultHandlerPromise<BuildEnvironment>()
+    }
+    1 * first.statusChanged(event)
+    1 * second.statusChanged(event)
+  }
+
+  def "the shared invocation is only cancelled once all attached callers have cancelled"() {
+    given:
+    InspectableModelRequest<BuildEnvironment> sharedRequest = null
+    def firstTokenSource = GradleConnector.newCancellationTokenSource()
+    def secondTokenSource = GradleConnector.newCancellationTokenSource()
+    Consumer<GradleConnectionException> first = Mock(Consumer)
+    Consumer<GradleConnectionException> second = Mock(Consumer)
+    delegate.execute(_ as InspectableModelRequest) >> { InspectableModelRequest request ->
+      sharedRequest = request
+      new ResultHandlerPromise<BuildEnvironment>()
+    }
+    coalescer.execute(newModelRequest('a').cancellationToken(firstTokenSource.token())).onFailure(first)
+    coalescer.execute(newModelRequest('a').cancellationToken(secondTokenSource.token())).onFailure(second)
+
+    when:
+    firstTokenSource.cancel()
+
+    then:
+    1 * first.accept(_ as BuildCancelledException)
+    0 * second.accept(_)
+    !sharedRequest.cancellationToken.cancellationRequested
+
+    when:
+    secondTokenSource.cancel()
+
+    then:
+    1 * second.accept(_ as BuildCancelledException)
+    sharedRequest.cancellationToken.cancellationRequested
+  }
+
+  private DefaultModelRequest<BuildEnvironment> newModelRequest(String projectDir) {
+    new DefaultModelRequest<BuildEnvironment>(coalescer, BuildEnvironment).projectDir(new File(projectDir)).gradleDistribution(GradleDistribution.fromBuild())
+  }
+
+}
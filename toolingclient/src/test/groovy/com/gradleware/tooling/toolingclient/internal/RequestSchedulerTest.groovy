@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.google.common.base.Ticker
+import com.gradleware.tooling.toolingclient.RequestPriority
+import com.gradleware.tooling.toolingclient.RequestSchedulerConfig
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class RequestSchedulerTest extends Specification {
+
+  long now = 0
+  Ticker ticker = new Ticker() {
+
+    @Override
+    long read() {
+      now
+    }
+  }
+
+  File projectA = new File('a')
+  File projectB = new File('b')
+
+  def "requests are started right away as long as the limits are not exceeded"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(2, 1), ticker)
+
+    when:
+    def first = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def second = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def third = scheduler.acquire(RequestPriority.INTERACTIVE, projectB)
+
+    then:
+    first.done
+    !second.done
+    third.done
+    scheduler.stats.runningRequests == 2
+    scheduler.stats.getQueuedRequests(RequestPriority.INTERACTIVE) == 1
+
+    when:
+    first.get().release()
+
+    then:
+    second.done
+    scheduler.stats.runningRequests == 2
+    scheduler.stats.getQueuedRequests(RequestPriority.INTERACTIVE) == 0
+  }
+
+  def "queued requests with higher priority are started first"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(1, 1), ticker)
+    def running = scheduler.acquire(RequestPriority.BATCH, projectA)
+    def batch = scheduler.acquire(RequestPriority.BATCH, projectA)
+    def background = scheduler.acquire(RequestPriority.BACKGROUND, projectA)
+    def interactive = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+
+    when:
+    running.get().release()
+
+    then:
+    interactive.done
+    !background.done
+    !batch.done
+
+    when:
+    interactive.get().release()
+
+    then:
+    background.done
+    !batch.done
+  }
+
+  def "lower priority requests are started if the queued higher priority requests are blocked by their project limit"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(2, 1), ticker)
+    def runningA = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def runningB = scheduler.acquire(RequestPriority.INTERACTIVE, projectB)
+    def interactiveA = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def batchB = scheduler.acquire(RequestPriority.BATCH, projectB)
+
+    when:
+    runningB.get().release()
+
+    then:
+    !interactiveA.done
+    batchB.done
+  }
+
+  def "queued requests of the same priority are started round-robin across projects"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(1, 1), ticker)
+    def running = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def a1 = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def a2 = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def b1 = scheduler.acquire(RequestPriority.INTERACTIVE, projectB)
+
+    when:
+    running.get().release()
+
+    then:
+    a1.done
+    !b1.done
+
+    when:
+    a1.get().release()
+
+    then:
+    b1.done
+    !a2.done
+  }
+
+  def "cancelled requests are removed from the queue"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(1, 1), ticker)
+    def running = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def cancelled = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def queued = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+
+    when:
+    cancelled.cancel(false)
+
+    then:
+    scheduler.stats.getQueuedRequests(RequestPriority.INTERACTIVE) == 1
+
+    when:
+    running.get().release()
+
+    then:
+    queued.done
+    scheduler.stats.runningRequests == 1
+  }
+
+  def "releasing a permit more than once has no effect"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(1, 1), ticker)
+    def permit = scheduler.acquire(RequestPriority.INTERACTIVE, projectA).get()
+    def queued = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+
+    when:
+    permit.release()
+    permit.release()
+
+    then:
+    queued.done
+    scheduler.stats.runningRequests == 1
+  }
+
+  def "wait times are recorded per priority"() {
+    given:
+    def scheduler = new RequestScheduler(RequestSchedulerConfig.of(1, 1), ticker)
+    def running = scheduler.acquire(RequestPriority.INTERACTIVE, projectA)
+    def queued = scheduler.acquire(RequestPriority.BATCH, projectA)
+
+    when:
+    now += TimeUnit.SECONDS.toNanos(4)
+    running.get().release()
+
+    then:
+    def stats = scheduler.stats
+    stats.getStartedRequests(RequestPriority.INTERACTIVE) == 1
+    stats.getMaxWaitTime(RequestPriority.INTERACTIVE, TimeUnit.SECONDS) == 0
+    stats.getStartedRequests(RequestPriority.BATCH) == 1
+    stats.getAverageWaitTime(RequestPriority.BATCH, TimeUnit.SECONDS) == 4
+    stats.getMaxWaitTime(RequestPriority.BATCH, TimeUnit.SECONDS) == 4
+    stats.getStartedRequests(RequestPriority.BACKGROUND) == 0
+    stats.getAverageWaitTime(RequestPriority.BACKGROUND, TimeUnit.SECONDS) == 0
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.LaunchableConfig
+import com.gradleware.tooling.toolingclient.RetryPolicy
+import org.gradle.tooling.BuildException
+import org.gradle.tooling.GradleConnectionException
+import org.gradle.tooling.model.build.BuildEnvironment
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class RetryingToolingClientTest extends Specification {
+
+  ExecutableToolingClient delegate = Mock(ExecutableToolingClient)
+  ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor()
+  RetryingToolingClient toolingClient = new RetryingToolingClient(delegate, RetryPolicy.of(2, 0, 0, TimeUnit.MILLISECONDS), retryExecutor)
+
+  def cleanup() {
+    retryExecutor.shutdownNow()
+  }
+
+  def "synchronous model request is retried after a broken connection"() {
+    given:
+    def modelRequest = new DefaultModelRequest<String>(toolingClient, String).projectDir(new File('a'))
+
+    when:
+    def result = toolingClient.executeAndWait(modelRequest)
+
+    then:
+    2 * delegate.executeAndWait(modelRequest) >> { throw brokenConnection() }
+    1 * delegate.executeAndWait(modelRequest) >> 'model'
+    result == 'model'
+  }
+
+  def "synchronous model request fails once the retries are exhausted"() {
+    given:
+    def modelRequest = new DefaultModelRequest<String>(toolingClient, String).projectDir(new File('a'))
+
+    when:
+    toolingClient.executeAndWait(modelRequest)
+
+    then:
+    3 * delegate.executeAndWait(modelRequest) >> { throw brokenConnection() }
+    thrown(GradleConnectionException)
+  }
+
+  def "build failures are not retried"() {
+    given:
+    def modelRequest = new DefaultModelRequest<String>(toolingClient, String).projectDir(new File('a'))
+
+    when:
+    toolingClient.executeAndWait(modelRequest)
+
+    then:
+    1 * delegate.executeAndWait(modelRequest) >> { throw new BuildException('build failed', brokenConnection()) }
+    thrown(BuildException)
+  }
+
+  def "requests with standard input are not retried"() {
+    given:
+    def modelRequest = new DefaultModelRequest<String>(toolingClient, String).projectDir(new File('a')).standardInput(new ByteArrayInputStream(new byte[0]))
+
+    when:
+    toolingClient.executeAndWait(modelRequest)
+
+    then:
+    1 * delegate.executeAndWait(modelRequest) >> { throw brokenConnection() }
+    thrown(GradleConnectionException)
+  }
+
+  def "build launch requests are not retried"() {
+    given:
+    def buildLaunchRequest = new DefaultBuildLaunchRequest(toolingClient, LaunchableConfig.forTasks('build')).projectDir(new File('a'))
+
+    when:
+    toolingClient.executeAndWait(buildLaunchRequest)
+
+    then:
+    1 * delegate.executeAndWait(buildLaunchRequest) >> { throw brokenConnection() }
+    thrown(GradleConnectionException)
+  }
+
+  def "asynchronous model request is retried after a broken connection"() {
+    given:
+    def modelRequest = new DefaultModelRequest<String>(toolingClient, String).projectDir(new File('a'))
+    def failedAttempt = new ResultHandlerPromise<String>()
+    def successfulAttempt = new ResultHandlerPromise<String>()
+    def latch = new CountDownLatch(1)
+    def result = null
+    delegate.execute(modelRequest) >>> [failedAttempt, successfulAttempt]
+
+    when:
+    toolingClient.execute(modelRequest).onComplete({ String model -> result = model; latch.countDown() } as Consumer)
+    failedAttempt.resultHandler.onFailure(brokenConnection())
+    successfulAttempt.resultHandler.onComplete('model')
+
+    then:
+    latch.await(5, TimeUnit.SECONDS)
+    result == 'model'
+  }
+
+  def "backoff doubles with every retry up to the maximum backoff"() {
+    given:
+    def retryPolicy = RetryPolicy.of(5, 100, 350, TimeUnit.MILLISECONDS)
+
+    expect:
+    retryPolicy.getBackoff(1, TimeUnit.MILLISECONDS) == 100
+    retryPolicy.getBackoff(2, TimeUnit.MILLISECONDS) == 200
+    retryPolicy.getBackoff(3, TimeUnit.MILLISECONDS) == 350
+    retryPolicy.getBackoff(5, TimeUnit.MILLISECONDS) == 350
+  }
+
+  def "daemon connection failures and stopped connections are retryable"() {
+    expect:
+    ConnectionFailures.isRetryable(brokenConnection())
+    ConnectionFailures.isRetryable(new IllegalStateException('Cannot use ProjectConnection as it has been stopped.'))
+    !ConnectionFailures.isRetryable(new IllegalStateException('Tooling client has been stopped.'))
+    !ConnectionFailures.isRetryable(new GradleConnectionException('Could not fetch model'))
+    !ConnectionFailures.isRetryable(new BuildException('build failed', brokenConnection()))
+  }
+
+  private static GradleConnectionException brokenConnection() {
+    new GradleConnectionException('Could not fetch model', new DaemonDisappearedException())
+  }
+
+  static class DaemonDisappearedException extends RuntimeException {
+  }
+
+}
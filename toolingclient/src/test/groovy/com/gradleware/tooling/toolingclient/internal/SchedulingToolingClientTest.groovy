@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.LaunchableConfig
+import com.gradleware.tooling.toolingclient.RequestPriority
+import com.gradleware.tooling.toolingclient.RequestSchedulerConfig
+import com.google.common.util.concurrent.MoreExecutors
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.model.build.BuildEnvironment
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class SchedulingToolingClientTest extends Specification {
+
+  ExecutableToolingClient delegate = Mock(ExecutableToolingClient)
+  SchedulingToolingClient toolingClient = new SchedulingToolingClient(delegate, new RequestScheduler(RequestSchedulerConfig.of(1, 1)), MoreExecutors.directExecutor())
+
+  def "asynchronous request is started on the executor once the running request has completed"() {
+    given:
+    def startedRequests = []
+    def toolingClient = new SchedulingToolingClient(delegate, new RequestScheduler(RequestSchedulerConfig.of(1, 1)), { Runnable start -> startedRequests << start } as Executor)
+    def buildLaunchPromise = new ResultHandlerPromise<Void>()
+    def buildLaunchRequest = new DefaultBuildLaunchRequest(toolingClient, LaunchableConfig.forTasks('build')).projectDir(new File('a')).priority(RequestPriority.BATCH)
+    def modelRequest = new DefaultModelRequest<BuildEnvironment>(toolingClient, BuildEnvironment).projectDir(new File('a'))
+
+    when:
+    toolingClient.execute(buildLaunchRequest)
+    toolingClient.execute(modelRequest)
+
+    then:
+    1 * delegate.execute(buildLaunchRequest) >> buildLaunchPromise
+    0 * delegate.execute(modelRequest)
+
+    when:
+    buildLaunchPromise.resultHandler.onComplete(null)
+
+    then:
+    0 * delegate.execute(modelRequest)
+    startedRequests.size() == 1
+
+    when:
+    startedRequests[0].run()
+
+    then:
+    1 * delegate.execute(modelRequest) >> new ResultHandlerPromise<BuildEnvironment>()
+    toolingClient.stats.runningRequests == 1
+  }
+
+  def "cancelling a queued request removes it from the queue"() {
+    given:
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+    def running = new DefaultModelRequest<BuildEnvironment>(toolingClient, BuildEnvironment).projectDir(new File('a'))
+    def queued = new DefaultModelRequest<BuildEnvironment>(toolingClient, BuildEnvironment).projectDir(new File('a')).cancellationToken(tokenSource.token())
+    Consumer<Exception> failureHandler = Mock(Consumer)
+    delegate.execute(running) >> new ResultHandlerPromise<BuildEnvironment>()
+
+    when:
+    toolingClient.execute(running)
+    toolingClient.execute(queued).onFailure(failureHandler)
+    tokenSource.cancel()
+
+    then:
+    1 * failureHandler.accept(_ as BuildCancelledException)
+    0 * delegate.execute(queued)
+    toolingClient.stats.getQueuedRequests(RequestPriority.INTERACTIVE) == 0
+  }
+
+  def "synchronous request releases its permit when it has completed"() {
+    given:
+    def modelRequest = new DefaultModelRequest<BuildEnvironment>(toolingClient, BuildEnvironment).projectDir(new File('a'))
+
+    when:
+    toolingClient.executeAndWait(modelRequest)
+    toolingClient.executeAndWait(modelRequest)
+
+    then:
+    2 * delegate.executeAndWait(modelRequest)
+    toolingClient.stats.runningRequests == 0
+  }
+
+}
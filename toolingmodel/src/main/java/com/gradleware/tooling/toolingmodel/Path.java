@@ -20,12 +20,16 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.gradleware.tooling.toolingmodel.repository.internal.PathComparator;
 
+import java.io.Serializable;
+
 /**
  * Represents a path in Gradle. The path can point to a project, task, etc.
  *
  * @author Etienne Studer
  */
-public final class Path implements Comparable<Path> {
+public final class Path implements Comparable<Path>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private static final String PATH_SEPARATOR = ":";
     private static final Path ROOT_PATH = new Path(PATH_SEPARATOR);
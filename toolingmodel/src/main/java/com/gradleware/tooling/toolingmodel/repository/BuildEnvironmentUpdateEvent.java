@@ -27,13 +27,29 @@ import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
 public final class BuildEnvironmentUpdateEvent {
 
     private final OmniBuildEnvironment buildEnvironment;
+    private final long generation;
 
     public BuildEnvironmentUpdateEvent(OmniBuildEnvironment buildEnvironment) {
+        this(buildEnvironment, 0);
+    }
+
+    public BuildEnvironmentUpdateEvent(OmniBuildEnvironment buildEnvironment, long generation) {
         this.buildEnvironment = Preconditions.checkNotNull(buildEnvironment);
+        this.generation = generation;
     }
 
     public OmniBuildEnvironment getBuildEnvironment() {
         return this.buildEnvironment;
     }
 
+    /**
+     * Returns the generation of the model. Each model that is loaded into a model repository gets a higher generation than the models loaded into the same repository
+     * before, thus a listener can tell whether the model it holds is older than the model of this event. The generation is 0 if it is not known.
+     *
+     * @return the generation of the model
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
 }
@@ -29,13 +29,29 @@ import java.util.Set;
 public final class EclipseProjectUpdateEvent {
 
     private final Set<OmniEclipseProject> eclipseGradleBuild;
+    private final long generation;
 
     public EclipseProjectUpdateEvent(Set<OmniEclipseProject> eclipseGradleBuild) {
+        this(eclipseGradleBuild, 0);
+    }
+
+    public EclipseProjectUpdateEvent(Set<OmniEclipseProject> eclipseGradleBuild, long generation) {
         this.eclipseGradleBuild = Preconditions.checkNotNull(eclipseGradleBuild);
+        this.generation = generation;
     }
 
     public Set<OmniEclipseProject> getEclipseGradleBuild() {
         return this.eclipseGradleBuild;
     }
 
+    /**
+     * Returns the generation of the model. Each model that is loaded into a model repository gets a higher generation than the models loaded into the same repository
+     * before, thus a listener can tell whether the model it holds is older than the model of this event. The generation is 0 if it is not known.
+     *
+     * @return the generation of the model
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
 }
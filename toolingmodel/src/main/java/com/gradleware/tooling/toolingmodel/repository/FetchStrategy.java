@@ -36,6 +36,20 @@ public enum FetchStrategy {
     /**
      * Loads the value from the underlying system, regardless of whether the value is currently in the cache or not.
      */
-    FORCE_RELOAD
+    FORCE_RELOAD,
+
+    /**
+     * Looks up the requested value in the cache and, iff the value is present in the cache, returns it immediately and reloads the value from the underlying system in the
+     * background. The reloaded value replaces the cached value and is broadcast like any newly loaded value. Iff the value is not present in the cache, the value is loaded as
+     * with {@link #LOAD_IF_NOT_CACHED}.
+     */
+    CACHED_THEN_REFRESH,
+
+    /**
+     * Looks up the requested value in the cache and, iff the value is present in the cache, returns it as long as the inputs it was loaded from have not changed since
+     * it was loaded. Otherwise, the value is reloaded from the underlying system. Iff the value is not present in the cache, the value is loaded as with
+     * {@link #LOAD_IF_NOT_CACHED}.
+     */
+    RELOAD_IF_INPUTS_CHANGED
 
 }
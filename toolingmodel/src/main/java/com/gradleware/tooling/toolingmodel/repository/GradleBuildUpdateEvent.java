@@ -27,13 +27,29 @@ import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
 public final class GradleBuildUpdateEvent {
 
     private final OmniGradleBuild gradleBuild;
+    private final long generation;
 
     public GradleBuildUpdateEvent(OmniGradleBuild gradleBuildStructure) {
+        this(gradleBuildStructure, 0);
+    }
+
+    public GradleBuildUpdateEvent(OmniGradleBuild gradleBuildStructure, long generation) {
         this.gradleBuild = Preconditions.checkNotNull(gradleBuildStructure);
+        this.generation = generation;
     }
 
     public OmniGradleBuild getGradleBuild() {
         return this.gradleBuild;
     }
 
+    /**
+     * Returns the generation of the model. Each model that is loaded into a model repository gets a higher generation than the models loaded into the same repository
+     * before, thus a listener can tell whether the model it holds is older than the model of this event. The generation is 0 if it is not known.
+     *
+     * @return the generation of the model
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+
+/**
+ * Event that is broadcast along with a {@link GradleProjectUpdateEvent} and describes how the updated {@code OmniGradleProject} models differ from the previously loaded ones. If the
+ * previously loaded models are not known, e.g. because this is the first time they are loaded or because the JVM ran short of memory, all projects are reported as added.
+ */
+public final class GradleProjectDeltaEvent {
+
+    private final ProjectDelta<OmniGradleProject> delta;
+    private final long previousGeneration;
+    private final long generation;
+
+    public GradleProjectDeltaEvent(ProjectDelta<OmniGradleProject> delta, long previousGeneration, long generation) {
+        this.delta = Preconditions.checkNotNull(delta);
+        this.previousGeneration = previousGeneration;
+        this.generation = generation;
+    }
+
+    public ProjectDelta<OmniGradleProject> getDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Returns the generation of the model the delta is computed against. The generation is 0 if the previously loaded model is not known.
+     *
+     * @return the generation of the previously loaded model
+     */
+    public long getPreviousGeneration() {
+        return this.previousGeneration;
+    }
+
+    /**
+     * Returns the generation of the updated model, i.e. the generation of the {@link GradleProjectUpdateEvent} broadcast along with this event.
+     *
+     * @return the generation of the updated model
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+}
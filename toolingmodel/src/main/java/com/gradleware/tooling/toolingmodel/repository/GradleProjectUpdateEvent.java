@@ -29,13 +29,29 @@ import java.util.Set;
 public final class GradleProjectUpdateEvent {
 
     private final Set<OmniGradleProject> gradleProjects;
+    private final long generation;
 
     public GradleProjectUpdateEvent(Set<OmniGradleProject> gradleProjects) {
+        this(gradleProjects, 0);
+    }
+
+    public GradleProjectUpdateEvent(Set<OmniGradleProject> gradleProjects, long generation) {
         this.gradleProjects = Preconditions.checkNotNull(gradleProjects);
+        this.generation = generation;
     }
 
     public Set<OmniGradleProject> getGradleProjects() {
         return this.gradleProjects;
     }
 
+    /**
+     * Returns the generation of the model. Each model that is loaded into a model repository gets a higher generation than the models loaded into the same repository
+     * before, thus a listener can tell whether the model it holds is older than the model of this event. The generation is 0 if it is not known.
+     *
+     * @return the generation of the model
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
 }
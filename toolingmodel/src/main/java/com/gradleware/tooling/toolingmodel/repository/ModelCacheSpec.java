@@ -0,0 +1,315 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encapsulates the bounds of the model cache of a {@link ModelRepository}. By default, the cache is unbounded and keeps each model until it is reloaded.
+ * <p/>
+ * The weight of a cached model is an estimate of its size: the number of projects it contains, plus the number of tasks, task selectors, source folders, and
+ * classpath entries of each project. Evicted models are loaded again on the next request that does not use {@link FetchStrategy#FROM_CACHE_ONLY}.
+ * <p/>
+ * Optionally, the models can additionally be persisted on disk. A persisted model is used instead of running the configuration phase of the build as long as the settings
+ * files, build scripts, {@code gradle.properties} files, and wrapper properties it was loaded from have not changed, e.g. after a restart of the JVM.
+ * <p/>
+ * Optionally, the build inputs of the cached models can be watched. Once a settings file, build script, {@code gradle.properties} file, or wrapper properties file in the
+ * directory of a project contained in a cached model changes, that model is removed from the cache and, if requested, reloaded in the background.
+ * <p/>
+ * Optionally, the cached models can be released once the heap runs short. Once the usage of the old generation exceeds the given fraction of its maximum size after a garbage
+ * collection, the models that have been idle the longest are removed from the caches of all repositories that have opted in, the larger models first. Released models are
+ * loaded again on the next request, from the persistent cache if enabled.
+ *
+ * @see ModelRepositoryProviderFactory#create(com.gradleware.tooling.toolingclient.ToolingClient, org.gradle.internal.Factory, ModelCacheSpec)
+ */
+public final class ModelCacheSpec {
+
+    private final Optional<Long> maximumWeight;
+    private final Optional<Long> expireAfterAccessNanos;
+    private final boolean recordStats;
+    private final boolean persistent;
+    private final Optional<File> persistentCacheDir;
+    private final boolean watchBuildInputs;
+    private final boolean refreshOnBuildInputChange;
+    private final Optional<Double> memoryPressureThreshold;
+
+    private ModelCacheSpec(Optional<Long> maximumWeight, Optional<Long> expireAfterAccessNanos, boolean recordStats, boolean persistent, Optional<File> persistentCacheDir,
+                           boolean watchBuildInputs, boolean refreshOnBuildInputChange, Optional<Double> memoryPressureThreshold) {
+        this.maximumWeight = maximumWeight;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.recordStats = recordStats;
+        this.persistent = persistent;
+        this.persistentCacheDir = persistentCacheDir;
+        this.watchBuildInputs = watchBuildInputs;
+        this.refreshOnBuildInputChange = refreshOnBuildInputChange;
+        this.memoryPressureThreshold = memoryPressureThreshold;
+    }
+
+    /**
+     * Returns the maximum total weight of the models kept in the cache, if any.
+     *
+     * @return the maximum weight
+     */
+    public Optional<Long> getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
+    /**
+     * Returns the time after which a model that has not been accessed is removed from the cache, if any.
+     *
+     * @param unit the time unit in which to return the expiry time
+     * @return the expiry time
+     */
+    public Optional<Long> getExpireAfterAccess(TimeUnit unit) {
+        return this.expireAfterAccessNanos.isPresent() ? Optional.of(unit.convert(this.expireAfterAccessNanos.get(), TimeUnit.NANOSECONDS)) : Optional.<Long>absent();
+    }
+
+    /**
+     * Returns whether hits, misses, loads, and evictions of the cache are counted.
+     *
+     * @return {@code true} if cache statistics are recorded
+     * @see ModelRepository#getCacheStats()
+     */
+    public boolean isRecordStats() {
+        return this.recordStats;
+    }
+
+    /**
+     * Returns whether the models are additionally persisted on disk.
+     *
+     * @return {@code true} if the models are persisted
+     */
+    public boolean isPersistent() {
+        return this.persistent;
+    }
+
+    /**
+     * Returns the directory in which the models are persisted, if any. If absent, the models are persisted below the Gradle user home of the build.
+     *
+     * @return the directory of the persistent cache
+     */
+    public Optional<File> getPersistentCacheDir() {
+        return this.persistentCacheDir;
+    }
+
+    /**
+     * Returns whether the build inputs of the cached models are watched such that a model is removed from the cache once its build inputs change.
+     *
+     * @return {@code true} if the build inputs are watched
+     */
+    public boolean isWatchBuildInputs() {
+        return this.watchBuildInputs;
+    }
+
+    /**
+     * Returns whether a model that is removed from the cache because its build inputs have changed is reloaded in the background.
+     *
+     * @return {@code true} if the model is reloaded once its build inputs change
+     */
+    public boolean isRefreshOnBuildInputChange() {
+        return this.refreshOnBuildInputChange;
+    }
+
+    /**
+     * Returns the fraction of the maximum size of the old generation above which the cached models are released, if any.
+     *
+     * @return the memory pressure threshold
+     */
+    public Optional<Double> getMemoryPressureThreshold() {
+        return this.memoryPressureThreshold;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        ModelCacheSpec that = (ModelCacheSpec) other;
+        return Objects.equal(this.maximumWeight, that.maximumWeight)
+                && Objects.equal(this.expireAfterAccessNanos, that.expireAfterAccessNanos)
+                && this.recordStats == that.recordStats
+                && this.persistent == that.persistent
+                && Objects.equal(this.persistentCacheDir, that.persistentCacheDir)
+                && this.watchBuildInputs == that.watchBuildInputs
+                && this.refreshOnBuildInputChange == that.refreshOnBuildInputChange
+                && Objects.equal(this.memoryPressureThreshold, that.memoryPressureThreshold);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.maximumWeight, this.expireAfterAccessNanos, this.recordStats, this.persistent, this.persistentCacheDir, this.watchBuildInputs,
+                this.refreshOnBuildInputChange, this.memoryPressureThreshold);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Model cache with max weight %s, expiry after access %s, recording stats %s, persisted to %s, watching build inputs %s, refreshing on change %s, "
+                + "releasing above old generation usage %s",
+                this.maximumWeight.orNull(), this.expireAfterAccessNanos.isPresent() ? TimeUnit.NANOSECONDS.toMillis(this.expireAfterAccessNanos.get()) + "ms" : null,
+                this.recordStats, this.persistent ? (this.persistentCacheDir.isPresent() ? this.persistentCacheDir.get() : "Gradle user home") : null, this.watchBuildInputs,
+                this.refreshOnBuildInputChange, this.memoryPressureThreshold.orNull());
+    }
+
+    /**
+     * Creates the specification of an unbounded, non-persistent cache that does not record statistics.
+     *
+     * @return a new instance
+     */
+    public static ModelCacheSpec unbounded() {
+        return newBuilder().build();
+    }
+
+    /**
+     * Creates a new builder to configure a cache specification.
+     *
+     * @return a new builder instance
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to configure and create {@link ModelCacheSpec} instances. A builder is not thread-safe.
+     */
+    public static final class Builder {
+
+        private Optional<Long> maximumWeight;
+        private Optional<Long> expireAfterAccessNanos;
+        private boolean recordStats;
+        private boolean persistent;
+        private Optional<File> persistentCacheDir;
+        private boolean watchBuildInputs;
+        private boolean refreshOnBuildInputChange;
+        private Optional<Double> memoryPressureThreshold;
+
+        private Builder() {
+            this.maximumWeight = Optional.absent();
+            this.expireAfterAccessNanos = Optional.absent();
+            this.recordStats = false;
+            this.persistent = false;
+            this.persistentCacheDir = Optional.absent();
+            this.watchBuildInputs = false;
+            this.refreshOnBuildInputChange = false;
+            this.memoryPressureThreshold = Optional.absent();
+        }
+
+        /**
+         * Specifies the maximum total weight of the models kept in the cache. Once the weight is exceeded, the least recently used models are evicted.
+         *
+         * @param maximumWeight the maximum weight, must not be negative
+         * @return this
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            Preconditions.checkArgument(maximumWeight >= 0, "Maximum weight must not be negative: %s", maximumWeight);
+            this.maximumWeight = Optional.of(maximumWeight);
+            return this;
+        }
+
+        /**
+         * Specifies the time after which a model that has not been accessed is removed from the cache.
+         *
+         * @param duration the expiry time, must not be negative
+         * @param unit the time unit of the expiry time
+         * @return this
+         */
+        public Builder expireAfterAccess(long duration, TimeUnit unit) {
+            Preconditions.checkArgument(duration >= 0, "Expiry time must not be negative: %s", duration);
+            this.expireAfterAccessNanos = Optional.of(unit.toNanos(duration));
+            return this;
+        }
+
+        /**
+         * Specifies that hits, misses, loads, and evictions of the cache are counted.
+         *
+         * @return this
+         */
+        public Builder recordStats() {
+            this.recordStats = true;
+            return this;
+        }
+
+        /**
+         * Specifies that the models are additionally persisted on disk, below the Gradle user home of the build.
+         *
+         * @return this
+         */
+        public Builder persistent() {
+            this.persistent = true;
+            this.persistentCacheDir = Optional.absent();
+            return this;
+        }
+
+        /**
+         * Specifies that the models are additionally persisted on disk, below the given directory.
+         *
+         * @param cacheDir the directory of the persistent cache, must not be null
+         * @return this
+         */
+        public Builder persistent(File cacheDir) {
+            this.persistent = true;
+            this.persistentCacheDir = Optional.of(cacheDir);
+            return this;
+        }
+
+        /**
+         * Specifies that the build inputs of the cached models are watched such that a model is removed from the cache once its build inputs change.
+         *
+         * @param refreshOnChange whether a removed model is reloaded in the background
+         * @return this
+         */
+        public Builder watchBuildInputs(boolean refreshOnChange) {
+            this.watchBuildInputs = true;
+            this.refreshOnBuildInputChange = refreshOnChange;
+            return this;
+        }
+
+        /**
+         * Specifies that the cached models are released once the usage of the old generation exceeds the given fraction of its maximum size after a garbage collection.
+         *
+         * @param threshold the fraction of the maximum size of the old generation, must be greater than 0 and less than 1
+         * @return this
+         */
+        public Builder releaseOnMemoryPressure(double threshold) {
+            Preconditions.checkArgument(threshold > 0 && threshold < 1, "Memory pressure threshold must be between 0 and 1: %s", threshold);
+            this.memoryPressureThreshold = Optional.of(threshold);
+            return this;
+        }
+
+        /**
+         * Creates a new cache specification from the current configuration of this builder.
+         *
+         * @return a new instance
+         */
+        public ModelCacheSpec build() {
+            return new ModelCacheSpec(this.maximumWeight, this.expireAfterAccessNanos, this.recordStats, this.persistent, this.persistentCacheDir,
+                    this.watchBuildInputs, this.refreshOnBuildInputChange, this.memoryPressureThreshold);
+        }
+
+    }
+
+}
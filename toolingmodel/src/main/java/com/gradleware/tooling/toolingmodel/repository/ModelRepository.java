@@ -16,15 +16,28 @@
 
 package com.gradleware.tooling.toolingmodel.repository;
 
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.gradleware.tooling.toolingclient.Consumer;
 import com.gradleware.tooling.toolingmodel.*;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Repository for Gradle build models sourced from a Gradle build.
  * <p/>
  * Listeners can be registered to get notified about model updates. It is left to the implementation through which
- * channel the events are broadcast.
+ * channel the events are broadcast. Events may be delivered on another thread than the one that fetched the model, and an event that is superseded by a newer event of
+ * the same type before it is delivered may be skipped.
+ * <p/>
+ * The {@code fetch*} methods fetch the models synchronously, except for the background reload triggered by {@link FetchStrategy#CACHED_THEN_REFRESH}. The
+ * reloaded model is broadcast through the same event as a model that is fetched synchronously. The {@code fetch*Async} methods fetch and convert the models on
+ * threads of the repository and share in-flight loads with the synchronous methods, i.e. a model that is requested both synchronously and asynchronously is
+ * only loaded once.
+ * <p/>
+ * Each {@link GradleProjectUpdateEvent} and {@link EclipseProjectUpdateEvent} is followed by a {@link GradleProjectDeltaEvent} and {@link EclipseProjectDeltaEvent},
+ * respectively, that describes which projects have been added, removed, or changed compared to the previously loaded model.
  *
  * @author Etienne Studer
  */
@@ -43,6 +56,40 @@ public interface ModelRepository {
      */
     void unregister(Object listener);
 
+    /**
+     * Registers the given {@code listener} to receive the model change events of the given type. Unlike listeners with subscriber methods, the listener is invoked directly.
+     *
+     * @param eventType the type of the events to receive, e.g. {@code EclipseProjectUpdateEvent.class}
+     * @param listener listener to subscribe to receiving events
+     * @param <E> the type of the events
+     */
+    <E> void register(Class<E> eventType, Consumer<? super E> listener);
+
+    /**
+     * Unregisters the given {@code listener} from receiving the model change events of the given type.
+     *
+     * @param eventType the type of the events the listener has been registered for
+     * @param listener listener to unsubscribe from receiving events
+     * @param <E> the type of the events
+     */
+    <E> void unregister(Class<E> eventType, Consumer<? super E> listener);
+
+    /**
+     * Returns the statistics of the model cache of this repository. The statistics are only recorded if requested through {@link ModelCacheSpec.Builder#recordStats()},
+     * otherwise all counts are 0.
+     *
+     * @return the current cache statistics
+     */
+    CacheStats getCacheStats();
+
+    /**
+     * Returns an estimate of the heap retained by each model held in the cache of this repository. The estimate is derived from the number of projects, tasks, task selectors,
+     * source folders, and classpath entries of a model, thus it is only suitable to compare models and repositories with each other.
+     *
+     * @return the approximate retained size in bytes of each cached model, keyed by the model type, e.g. {@code OmniEclipseProject.class}
+     */
+    Map<Class<?>, Long> getRetainedSizeEstimates();
+
     /**
      * Fetches the {@link OmniBuildEnvironment} synchronously and broadcasts it through a {@link BuildEnvironmentUpdateEvent}.
      *
@@ -78,4 +125,58 @@ public interface ModelRepository {
      * @return the eclipse projects, never null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
      */
     Set<OmniEclipseProject> fetchEclipseGradleProjects(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniGradleBuild}, the {@link OmniGradleProject} and the {@link OmniEclipseProject} models at once and broadcasts them through the
+     * same events as the corresponding {@code fetch*} methods. For Gradle versions that support build actions, all models are retrieved from a single invocation
+     * of the build, thus the build is only configured once. The prefetched models are then available through the {@code fetch*} methods.
+     * <p/>
+     * The models are reloaded together unless all of them are already cached and the fetch strategy does not require a reload. Strategy
+     * {@link FetchStrategy#FROM_CACHE_ONLY} prefetches nothing, strategy {@link FetchStrategy#CACHED_THEN_REFRESH} reloads the cached models in the background.
+     *
+     * @param transientRequestAttributes the transient request attributes
+     * @param fetchStrategy              the fetch strategy
+     */
+    void prefetch(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniBuildEnvironment} asynchronously and broadcasts it through a {@link BuildEnvironmentUpdateEvent}.
+     *
+     * @param transientRequestAttributes the transient request attributes, the fetch fails if their cancellation token is cancelled before the fetch starts
+     * @param fetchStrategy              the fetch strategy
+     * @return the future build environment, never holding null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
+     * @see #fetchBuildEnvironment(TransientRequestAttributes, FetchStrategy)
+     */
+    ListenableFuture<OmniBuildEnvironment> fetchBuildEnvironmentAsync(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniGradleBuild} asynchronously and broadcasts it through a {@link GradleBuildUpdateEvent}.
+     *
+     * @param transientRequestAttributes the transient request attributes, the fetch fails if their cancellation token is cancelled before the fetch starts
+     * @param fetchStrategy              the fetch strategy
+     * @return the future gradle build, never holding null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
+     * @see #fetchGradleBuild(TransientRequestAttributes, FetchStrategy)
+     */
+    ListenableFuture<OmniGradleBuild> fetchGradleBuildAsync(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniGradleProject} asynchronously and broadcasts it through a {@link GradleProjectUpdateEvent}.
+     *
+     * @param transientRequestAttributes the transient request attributes, the fetch fails if their cancellation token is cancelled before the fetch starts
+     * @param fetchStrategy              the fetch strategy
+     * @return the future gradle projects, never holding null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
+     * @see #fetchGradleProjects(TransientRequestAttributes, FetchStrategy)
+     */
+    ListenableFuture<Set<OmniGradleProject>> fetchGradleProjectsAsync(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
+    /**
+     * Fetches the {@link OmniEclipseProject} asynchronously and broadcasts it through a {@link EclipseProjectUpdateEvent}.
+     *
+     * @param transientRequestAttributes the transient request attributes, the fetch fails if their cancellation token is cancelled before the fetch starts
+     * @param fetchStrategy              the fetch strategy
+     * @return the future eclipse projects, never holding null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
+     * @see #fetchEclipseGradleProjects(TransientRequestAttributes, FetchStrategy)
+     */
+    ListenableFuture<Set<OmniEclipseProject>> fetchEclipseGradleProjectsAsync(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
 }
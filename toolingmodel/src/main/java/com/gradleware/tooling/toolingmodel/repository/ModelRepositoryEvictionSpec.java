@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encapsulates the bounds of the set of {@link ModelRepository} instances held by a {@link ModelRepositoryProvider}. By default, a provider keeps each repository it has ever
+ * created.
+ * <p/>
+ * An evicted repository releases its cached models, stops watching their build inputs, and unregisters all its listeners. Requesting the repository for the same request
+ * attributes again returns a new instance, thus callers that register listeners should not hold on to a repository for longer than the configured idle time.
+ *
+ * @see ModelRepositoryProviderFactory#create(com.gradleware.tooling.toolingclient.ToolingClient, org.gradle.internal.Factory, ModelCacheSpec, ModelRepositoryEvictionSpec)
+ */
+public final class ModelRepositoryEvictionSpec {
+
+    private final Optional<Integer> maximumRepositories;
+    private final Optional<Long> maxIdleTimeNanos;
+
+    private ModelRepositoryEvictionSpec(Optional<Integer> maximumRepositories, Optional<Long> maxIdleTimeNanos) {
+        this.maximumRepositories = maximumRepositories;
+        this.maxIdleTimeNanos = maxIdleTimeNanos;
+    }
+
+    /**
+     * Returns the maximum number of repositories held by the provider, if any. Once the number is exceeded, the least recently requested repositories are evicted.
+     *
+     * @return the maximum number of repositories
+     */
+    public Optional<Integer> getMaximumRepositories() {
+        return this.maximumRepositories;
+    }
+
+    /**
+     * Returns the time after which a repository that has not been requested from the provider is evicted, if any.
+     *
+     * @param unit the time unit in which to return the maximum idle time
+     * @return the maximum idle time
+     */
+    public Optional<Long> getMaxIdleTime(TimeUnit unit) {
+        return this.maxIdleTimeNanos.isPresent() ? Optional.of(unit.convert(this.maxIdleTimeNanos.get(), TimeUnit.NANOSECONDS)) : Optional.<Long>absent();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        ModelRepositoryEvictionSpec that = (ModelRepositoryEvictionSpec) other;
+        return Objects.equal(this.maximumRepositories, that.maximumRepositories) && Objects.equal(this.maxIdleTimeNanos, that.maxIdleTimeNanos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.maximumRepositories, this.maxIdleTimeNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Repository eviction with maximum repositories %s and max idle time %s", this.maximumRepositories.isPresent() ? this.maximumRepositories.get() : "none",
+                this.maxIdleTimeNanos.isPresent() ? TimeUnit.NANOSECONDS.toMillis(this.maxIdleTimeNanos.get()) + "ms" : "none");
+    }
+
+    /**
+     * Creates a specification that never evicts a repository.
+     *
+     * @return a new instance
+     */
+    public static ModelRepositoryEvictionSpec never() {
+        return new ModelRepositoryEvictionSpec(Optional.<Integer>absent(), Optional.<Long>absent());
+    }
+
+    /**
+     * Creates a specification with the given bounds.
+     *
+     * @param maximumRepositories the maximum number of repositories held by the provider, must be positive
+     * @param maxIdleTime the time after which a repository that has not been requested is evicted, must be positive
+     * @param unit the time unit of the maximum idle time
+     * @return a new instance
+     */
+    public static ModelRepositoryEvictionSpec of(int maximumRepositories, long maxIdleTime, TimeUnit unit) {
+        Preconditions.checkArgument(maximumRepositories > 0, "Maximum number of repositories must be positive: %s", maximumRepositories);
+        Preconditions.checkArgument(maxIdleTime > 0, "Maximum idle time must be positive: %s", maxIdleTime);
+        Preconditions.checkNotNull(unit);
+        return new ModelRepositoryEvictionSpec(Optional.of(maximumRepositories), Optional.of(unit.toNanos(maxIdleTime)));
+    }
+
+}
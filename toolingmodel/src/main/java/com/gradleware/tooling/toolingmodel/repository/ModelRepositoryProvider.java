@@ -16,6 +16,8 @@
 
 package com.gradleware.tooling.toolingmodel.repository;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * Provider of {@code ModelRepository} instances for given sets of {@code FixedRequestAttributes}.
  *
@@ -25,10 +27,19 @@ public interface ModelRepositoryProvider {
 
     /**
      * Returns the {@code ModelRepository} for the given {@code FixedRequestAttributes}. For the
-     * same set of request attributes the same model repository instance is returned each time.
+     * same set of request attributes the same model repository instance is returned each time, unless the repository has been evicted in the meantime.
      *
      * @param fixedRequestAttributes the request attributes for which to get the model repository
      * @return the model repository
      */
     ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes);
+
+    /**
+     * Returns the statistics of the model caches of all repositories created by this provider, including the repositories that have been evicted since. The statistics are
+     * only recorded if requested through {@link ModelCacheSpec.Builder#recordStats()}, otherwise all counts are 0.
+     *
+     * @return the aggregated cache statistics
+     */
+    CacheStats getCacheStats();
+
 }
@@ -49,4 +49,30 @@ public final class ModelRepositoryProviderFactory {
         return new DefaultModelRepositoryProvider(toolingClient, eventBusFactory);
     }
 
+    /**
+     * Creates a new instance.
+     *
+     * @param toolingClient the backing tooling client
+     * @param eventBusFactory the factory for the event bus that is used to send events upon model changes
+     * @param cacheSpec the bounds of the model cache of each repository
+     * @return the new repository provider instance
+     */
+    public static ModelRepositoryProvider create(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, ModelCacheSpec cacheSpec) {
+        return new DefaultModelRepositoryProvider(toolingClient, eventBusFactory, cacheSpec);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param toolingClient the backing tooling client
+     * @param eventBusFactory the factory for the event bus that is used to send events upon model changes
+     * @param cacheSpec the bounds of the model cache of each repository
+     * @param evictionSpec the bounds of the set of repositories held by the provider
+     * @return the new repository provider instance
+     */
+    public static ModelRepositoryProvider create(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, ModelCacheSpec cacheSpec,
+                                                 ModelRepositoryEvictionSpec evictionSpec) {
+        return new DefaultModelRepositoryProvider(toolingClient, eventBusFactory, cacheSpec, evictionSpec);
+    }
+
 }
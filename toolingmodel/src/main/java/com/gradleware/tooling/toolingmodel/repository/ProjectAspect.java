@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+/**
+ * Enumerates the aspects of a project that are compared when a reloaded model is diffed against the previously loaded model.
+ *
+ * @see ProjectDelta
+ */
+public enum ProjectAspect {
+
+    /**
+     * The classpath of the project: its project dependencies, external dependencies, classpath containers, output location, and Java source settings.
+     */
+    CLASSPATH,
+
+    /**
+     * The source directories of the project, including their includes, excludes, and output directories.
+     */
+    SOURCE_DIRECTORIES,
+
+    /**
+     * The tasks and task selectors of the project.
+     */
+    TASKS,
+
+    /**
+     * The remaining attributes of the project, e.g. its name, description, location in the project hierarchy, build script, natures, build commands, and linked resources.
+     */
+    ATTRIBUTES
+
+}
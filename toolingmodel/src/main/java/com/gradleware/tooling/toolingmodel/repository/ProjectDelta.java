@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes how the projects of a reloaded model differ from the projects of the previously loaded model. Projects are matched by their project identifier, i.e. by the
+ * root directory of their build and their path. A project that is contained in both models is considered changed if any of its {@link ProjectAspect aspects} differ.
+ *
+ * @param <T> the type of the projects
+ */
+public final class ProjectDelta<T> {
+
+    private final Set<T> added;
+    private final Set<T> removed;
+    private final Map<T, Set<ProjectAspect>> changed;
+
+    public ProjectDelta(Set<T> added, Set<T> removed, Map<T, Set<ProjectAspect>> changed) {
+        this.added = ImmutableSet.copyOf(Preconditions.checkNotNull(added));
+        this.removed = ImmutableSet.copyOf(Preconditions.checkNotNull(removed));
+        this.changed = ImmutableMap.copyOf(Preconditions.checkNotNull(changed));
+    }
+
+    /**
+     * Returns the projects that are contained in the reloaded model only.
+     *
+     * @return the added projects, as contained in the reloaded model
+     */
+    public Set<T> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * Returns the projects that are contained in the previously loaded model only.
+     *
+     * @return the removed projects, as contained in the previously loaded model
+     */
+    public Set<T> getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Returns the projects that are contained in both models and differ in at least one aspect, together with the aspects in which they differ.
+     *
+     * @return the changed projects, as contained in the reloaded model, mapped to their changed aspects
+     */
+    public Map<T, Set<ProjectAspect>> getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * Returns whether the projects of both models are the same.
+     *
+     * @return {@code true} if no project has been added, removed, or changed
+     */
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+    }
+
+}
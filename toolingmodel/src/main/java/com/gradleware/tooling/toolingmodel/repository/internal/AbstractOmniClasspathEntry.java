@@ -28,6 +28,7 @@ import org.gradle.tooling.model.eclipse.AccessRule;
 import org.gradle.tooling.model.eclipse.ClasspathAttribute;
 import org.gradle.tooling.model.eclipse.EclipseClasspathEntry;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -36,7 +37,9 @@ import java.util.List;
  * @author Stefan Oehme
  *
  */
-abstract class AbstractOmniClasspathEntry implements OmniClasspathEntry {
+abstract class AbstractOmniClasspathEntry implements OmniClasspathEntry, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Optional<List<OmniClasspathAttribute>> classpathAttributes;
     private final Optional<List<OmniAccessRule>> accessRules;
@@ -56,7 +59,11 @@ abstract class AbstractOmniClasspathEntry implements OmniClasspathEntry {
         return this.accessRules;
     }
 
-    protected static Optional<List<OmniClasspathAttribute>> getClasspathAttributes(EclipseClasspathEntry entry) {
+    protected static Optional<List<OmniClasspathAttribute>> getClasspathAttributes(EclipseClasspathEntry entry, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.CLASSPATH_ATTRIBUTES)) {
+            return Optional.absent();
+        }
+
         DomainObjectSet<? extends ClasspathAttribute> attributes;
         try {
             attributes = entry.getClasspathAttributes();
@@ -70,7 +77,11 @@ abstract class AbstractOmniClasspathEntry implements OmniClasspathEntry {
         return Optional.<List<OmniClasspathAttribute>>of(builder.build());
     }
 
-    protected static Optional<List<OmniAccessRule>> getAccessRules(EclipseClasspathEntry entry) {
+    protected static Optional<List<OmniAccessRule>> getAccessRules(EclipseClasspathEntry entry, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ACCESS_RULES)) {
+            return Optional.absent();
+        }
+
         DomainObjectSet<? extends AccessRule> accessRules;
         try {
             accessRules = entry.getAccessRules();
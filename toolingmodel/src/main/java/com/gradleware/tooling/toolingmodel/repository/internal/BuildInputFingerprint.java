@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
+import com.gradleware.tooling.toolingmodel.OmniGradleScript;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.SortedSet;
+
+/**
+ * Computes a fingerprint of the files that determine the outcome of the configuration phase of a build: the settings files, build scripts, and {@code gradle.properties} files in
+ * the directories of the projects, the scripts in their {@code gradle} directories, the wrapper properties, the files in their {@code buildSrc} directories, and the
+ * {@code gradle.properties} file and init scripts in the Gradle user home. The fingerprint changes whenever one of these files is added, removed, or modified.
+ * <p/>
+ * Only the directories of the projects contained in a model and the directories of their build scripts are inspected, thus scripts applied from other locations are not
+ * tracked.
+ */
+final class BuildInputFingerprint {
+
+    private BuildInputFingerprint() {
+    }
+
+    /**
+     * Returns the directories of the projects contained in the given model and of their build scripts, including the given project directory.
+     *
+     * @param projectDir the project directory of the request that loaded the model
+     * @param model the model
+     * @return the directories whose build inputs are fingerprinted
+     */
+    static SortedSet<File> directoriesOf(File projectDir, Object model) {
+        ImmutableSortedSet.Builder<File> directories = ImmutableSortedSet.naturalOrder();
+        directories.add(projectDir);
+        addDirectories(model, directories);
+        return directories.build();
+    }
+
+    private static void addDirectories(Object model, ImmutableSortedSet.Builder<File> directories) {
+        if (model instanceof Collection) {
+            for (Object element : (Collection<?>) model) {
+                addDirectories(element, directories);
+            }
+        } else if (model instanceof OmniEclipseProject) {
+            directories.add(((OmniEclipseProject) model).getProjectDirectory());
+            addDirectories(((OmniEclipseProject) model).getGradleProject(), directories);
+        } else if (model instanceof OmniGradleProject) {
+            addDirectory(((OmniGradleProject) model).getProjectDirectory(), directories);
+            addBuildScriptDirectory(((OmniGradleProject) model).getBuildScript(), directories);
+        } else if (model instanceof OmniGradleProjectStructure) {
+            addDirectory(((OmniGradleProjectStructure) model).getProjectDirectory(), directories);
+        } else if (model instanceof OmniGradleBuild) {
+            addDirectories(((OmniGradleBuild) model).getRootProject().getAll(), directories);
+            addDirectories(((OmniGradleBuild) model).getIncludedBuilds(), directories);
+        }
+    }
+
+    private static void addDirectory(Maybe<File> directory, ImmutableSortedSet.Builder<File> directories) {
+        if (directory.isPresent() && directory.get() != null) {
+            directories.add(directory.get());
+        }
+    }
+
+    private static void addBuildScriptDirectory(Maybe<OmniGradleScript> buildScript, ImmutableSortedSet.Builder<File> directories) {
+        if (buildScript.isPresent() && buildScript.get() != null && buildScript.get().getSourceFile() != null) {
+            directories.add(buildScript.get().getSourceFile().getParentFile());
+        }
+    }
+
+    /**
+     * Returns the Gradle user home used by the build identified by the given request attributes.
+     *
+     * @param fixedRequestAttributes the attributes identifying the build
+     * @return the Gradle user home
+     */
+    static File gradleUserHomeOf(FixedRequestAttributes fixedRequestAttributes) {
+        if (fixedRequestAttributes.getGradleUserHome() != null) {
+            return fixedRequestAttributes.getGradleUserHome();
+        }
+
+        String gradleUserHome = System.getProperty("gradle.user.home");
+        if (gradleUserHome == null) {
+            gradleUserHome = System.getenv("GRADLE_USER_HOME");
+        }
+        return gradleUserHome != null ? new File(gradleUserHome) : new File(System.getProperty("user.home"), ".gradle");
+    }
+
+    /**
+     * Computes the fingerprint of the build inputs located in the given directories and in the given Gradle user home.
+     *
+     * @param directories the project directories
+     * @param gradleUserHome the Gradle user home
+     * @return the fingerprint
+     * @throws IOException thrown if a build input cannot be read
+     */
+    static String compute(Collection<File> directories, File gradleUserHome) throws IOException {
+        return compute(directories, gradleUserHome, new FileContentHashes());
+    }
+
+    /**
+     * Computes the fingerprint of the build inputs located in the given directories and in the given Gradle user home, reusing the hashes of the files that have not
+     * changed since they were last hashed through the given file hashes.
+     *
+     * @param directories the project directories
+     * @param gradleUserHome the Gradle user home
+     * @param fileHashes the hashes of the files hashed previously
+     * @return the fingerprint
+     * @throws IOException thrown if a build input cannot be read
+     */
+    static String compute(Collection<File> directories, File gradleUserHome, FileContentHashes fileHashes) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        for (File directory : directories) {
+            hashScripts(directory, hasher, fileHashes);
+            hashScripts(new File(directory, "gradle"), hasher, fileHashes);
+            hashFile(new File(directory, "gradle/wrapper/gradle-wrapper.properties"), hasher, fileHashes);
+            hashBuildSrc(new File(directory, "buildSrc"), hasher, fileHashes);
+        }
+        hashFile(new File(gradleUserHome, "gradle.properties"), hasher, fileHashes);
+        hashScripts(new File(gradleUserHome, "init.d"), hasher, fileHashes);
+
+        // the hashes of deleted and renamed files are never looked up again
+        fileHashes.removeDeletedFiles();
+        return hasher.hash().toString();
+    }
+
+    private static void hashScripts(File directory, Hasher hasher, FileContentHashes fileHashes) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".gradle") || name.endsWith(".gradle.kts") || name.equals("gradle.properties")) {
+                hashFile(file, hasher, fileHashes);
+            }
+        }
+    }
+
+    private static void hashBuildSrc(File buildSrcDirectory, Hasher hasher, FileContentHashes fileHashes) throws IOException {
+        File[] files = buildSrcDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // the outputs of building buildSrc are not inputs of the build
+        Arrays.sort(files);
+        for (File file : files) {
+            if (!file.getName().equals("build") && !file.getName().equals(".gradle")) {
+                hashTree(file, hasher, fileHashes);
+            }
+        }
+    }
+
+    private static void hashTree(File file, Hasher hasher, FileContentHashes fileHashes) throws IOException {
+        File[] files = file.listFiles();
+        if (files == null) {
+            hashFile(file, hasher, fileHashes);
+            return;
+        }
+
+        Arrays.sort(files);
+        for (File child : files) {
+            hashTree(child, hasher, fileHashes);
+        }
+    }
+
+    private static void hashFile(File file, Hasher hasher, FileContentHashes fileHashes) throws IOException {
+        if (file.isFile()) {
+            hasher.putString(file.getPath(), Charsets.UTF_8).putBytes(fileHashes.hash(file).asBytes());
+        }
+    }
+
+}
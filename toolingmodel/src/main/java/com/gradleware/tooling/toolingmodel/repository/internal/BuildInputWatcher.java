@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the build inputs of the cached models: the settings files, build scripts, and {@code gradle.properties} files in the directories of the projects contained in a
+ * model, the scripts in their {@code gradle} directories, and the wrapper properties. The changes are debounced: once a change is detected, further changes are collected
+ * until no change has been detected for the debounce period. The keys of all models affected by the collected changes are then passed to the change handler at once.
+ * <p/>
+ * Directories that do not exist when a model is watched are not watched, thus e.g. adding a wrapper to a build does not affect the cached models. The watching thread is
+ * started once the first model is watched.
+ */
+final class BuildInputWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildInputWatcher.class);
+
+    private final long debounceMillis;
+    private final Consumer<Set<Class<?>>> changeHandler;
+    private final Map<Class<?>, Set<Path>> directoriesByKey;
+    private final Map<Path, WatchKey> watchKeysByDirectory;
+    private WatchService watchService;
+
+    BuildInputWatcher(long debounce, TimeUnit unit, Consumer<Set<Class<?>>> changeHandler) {
+        this.debounceMillis = unit.toMillis(debounce);
+        this.changeHandler = Preconditions.checkNotNull(changeHandler);
+        this.directoriesByKey = Maps.newHashMap();
+        this.watchKeysByDirectory = Maps.newHashMap();
+    }
+
+    /**
+     * Watches the build inputs in the given project directories on behalf of the model with the given key. Any directories previously watched on behalf of the same model
+     * are replaced.
+     *
+     * @param cacheKey the key of the model
+     * @param projectDirectories the directories of the projects contained in the model
+     */
+    synchronized void watch(Class<?> cacheKey, Collection<File> projectDirectories) {
+        ImmutableSet.Builder<Path> directories = ImmutableSet.builder();
+        for (File projectDirectory : projectDirectories) {
+            Path directory = projectDirectory.toPath().toAbsolutePath().normalize();
+            directories.add(directory, directory.resolve("gradle"), directory.resolve("gradle").resolve("wrapper"));
+        }
+        this.directoriesByKey.put(cacheKey, directories.build());
+
+        try {
+            if (this.watchService == null) {
+                this.watchService = FileSystems.getDefault().newWatchService();
+                startWatching(this.watchService);
+            }
+            for (Path directory : this.directoriesByKey.get(cacheKey)) {
+                if (!this.watchKeysByDirectory.containsKey(directory) && Files.isDirectory(directory)) {
+                    this.watchKeysByDirectory.put(directory, directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+                }
+            }
+        } catch (IOException e) {
+            // the model stays cached until it is reloaded explicitly
+            LOG.debug("Cannot watch build inputs of model " + cacheKey.getName() + ".", e);
+        }
+
+        cancelUnusedWatchKeys();
+    }
+
+    /**
+     * Stops watching the build inputs on behalf of the model with the given key.
+     *
+     * @param cacheKey the key of the model
+     */
+    synchronized void unwatch(Class<?> cacheKey) {
+        this.directoriesByKey.remove(cacheKey);
+        cancelUnusedWatchKeys();
+    }
+
+    /**
+     * Stops watching all build inputs and shuts down the watcher thread. Watching build inputs again starts a new watcher thread.
+     */
+    synchronized void close() {
+        this.directoriesByKey.clear();
+        cancelUnusedWatchKeys();
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                LOG.debug("Cannot close watch service.", e);
+            }
+            this.watchService = null;
+        }
+    }
+
+    private void cancelUnusedWatchKeys() {
+        Set<Path> usedDirectories = Sets.newHashSet();
+        for (Set<Path> directories : this.directoriesByKey.values()) {
+            usedDirectories.addAll(directories);
+        }
+
+        Iterator<Map.Entry<Path, WatchKey>> iterator = this.watchKeysByDirectory.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = iterator.next();
+            if (!usedDirectories.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void startWatching(final WatchService watchService) {
+        Thread thread = new ThreadFactoryBuilder().setNameFormat("model-repository-watcher-%d").setDaemon(true).build().newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        // wait for the first change, then collect changes until no further change happens within the debounce period
+                        Set<Class<?>> changedKeys = Sets.newHashSet();
+                        WatchKey watchKey = watchService.take();
+                        while (watchKey != null) {
+                            collectChangedKeys(watchKey, changedKeys);
+                            watchKey = watchService.poll(BuildInputWatcher.this.debounceMillis, TimeUnit.MILLISECONDS);
+                        }
+
+                        if (!changedKeys.isEmpty()) {
+                            notifyChangeHandler(changedKeys);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ClosedWatchServiceException e) {
+                    // the watcher has been shut down
+                }
+            }
+        });
+        thread.start();
+    }
+
+    private void collectChangedKeys(WatchKey watchKey, Set<Class<?>> changedKeys) {
+        Path directory = (Path) watchKey.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            // if events have been lost, any build input might have changed
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || isBuildInput((Path) event.context());
+        }
+        watchKey.reset();
+
+        if (changed) {
+            synchronized (this) {
+                for (Map.Entry<Class<?>, Set<Path>> entry : this.directoriesByKey.entrySet()) {
+                    if (entry.getValue().contains(directory)) {
+                        changedKeys.add(entry.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    private void notifyChangeHandler(Set<Class<?>> changedKeys) {
+        try {
+            this.changeHandler.accept(ImmutableSet.copyOf(changedKeys));
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot handle changed build inputs of models " + changedKeys + ".", e);
+        }
+    }
+
+    private static boolean isBuildInput(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".gradle") || name.endsWith(".gradle.kts") || name.equals("gradle.properties") || name.equals("gradle-wrapper.properties");
+    }
+
+}
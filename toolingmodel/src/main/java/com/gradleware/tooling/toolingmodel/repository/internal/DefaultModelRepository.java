@@ -16,30 +16,63 @@
 
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.gradleware.tooling.toolingclient.*;
 import com.gradleware.tooling.toolingmodel.*;
 import com.gradleware.tooling.toolingmodel.buildaction.BuildActionFactory;
 import com.gradleware.tooling.toolingmodel.buildaction.RootModelsForCompositeProjectBuildAction;
 import com.gradleware.tooling.toolingmodel.repository.*;
+import com.gradleware.tooling.toolingmodel.util.Triple;
 import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
 import org.gradle.tooling.model.GradleProject;
 import org.gradle.tooling.model.build.BuildEnvironment;
 import org.gradle.tooling.model.eclipse.EclipseProject;
 import org.gradle.tooling.model.gradle.GradleBuild;
 import org.gradle.util.GradleVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Repository for Gradle build models.
@@ -48,16 +81,169 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public final class DefaultModelRepository implements ModelRepository {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultModelRepository.class);
+
+    // key under which the prefetching of all models is refreshed and reloaded
+    private static final String ALL_MODELS = "all models";
+
+    // changes to the build inputs are collected until no further change happens for this long, e.g. while a branch is checked out
+    private static final long BUILD_INPUT_DEBOUNCE_MILLIS = 500;
+
     private final ToolingClient toolingClient;
-    private final EventBus eventBus;
+    private final ModelEventDispatcher eventDispatcher;
     private final Cache<Object, Object> cache;
+    private final Optional<PersistentModelStore> persistentStore;
     private final FixedRequestAttributes fixedRequestAttributes;
+    private final ThreadPoolExecutor refreshExecutor;
+    private final Set<Object> refreshesInProgress;
+    private final AtomicLong generations;
+    private final ReloadEpochs reloadEpochs;
+    private final ListeningExecutorService fetchExecutor;
+    private final GradleVersionProbe gradleVersionProbe;
+    private final Optional<BuildInputWatcher> buildInputWatcher;
+    private final File gradleUserHome;
+    private final FileContentHashes fileHashes;
+    private final ConcurrentMap<Object, Long> lastAccessTimes;
+    private final Map<Class<?>, SoftReference<ModelSnapshot<?>>> deltaBaselines;
+    private final Optional<MemoryPressureMonitor.ReleasableModelCache> releasableCache;
 
     public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus) {
+        this(fixedRequestAttributes, toolingClient, eventBus, ModelCacheSpec.unbounded());
+    }
+
+    public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, ModelCacheSpec cacheSpec) {
+        this(fixedRequestAttributes, toolingClient, eventBus, cacheSpec, createFetchExecutor());
+    }
+
+    public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, ModelCacheSpec cacheSpec,
+                                  ListeningExecutorService fetchExecutor) {
+        this(fixedRequestAttributes, toolingClient, ModelEventDispatcher.synchronous(eventBus), cacheSpec, fetchExecutor);
+    }
+
+    public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, ModelCacheSpec cacheSpec,
+                                  ListeningExecutorService fetchExecutor, Executor eventExecutor) {
+        this(fixedRequestAttributes, toolingClient, new ModelEventDispatcher(eventBus, eventExecutor), cacheSpec, fetchExecutor);
+    }
+
+    private DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, ModelEventDispatcher eventDispatcher, ModelCacheSpec cacheSpec,
+                                   ListeningExecutorService fetchExecutor) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
-        this.eventBus = Preconditions.checkNotNull(eventBus);
-        this.cache = CacheBuilder.newBuilder().build();
+        this.eventDispatcher = eventDispatcher;
+        this.cache = createCache(cacheSpec);
+        this.persistentStore = cacheSpec.isPersistent() ? Optional.of(PersistentModelStore.create(fixedRequestAttributes, cacheSpec.getPersistentCacheDir()))
+                : Optional.<PersistentModelStore>absent();
         this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.refreshExecutor = createRefreshExecutor();
+        this.refreshesInProgress = Sets.newConcurrentHashSet();
+        this.generations = new AtomicLong();
+        this.reloadEpochs = new ReloadEpochs();
+        this.fetchExecutor = Preconditions.checkNotNull(fetchExecutor);
+        this.gradleVersionProbe = new GradleVersionProbe(fixedRequestAttributes.getProjectDir(), fixedRequestAttributes.getGradleDistribution());
+        this.buildInputWatcher = cacheSpec.isWatchBuildInputs() ? Optional.of(createBuildInputWatcher(cacheSpec.isRefreshOnBuildInputChange()))
+                : Optional.<BuildInputWatcher>absent();
+        this.gradleUserHome = BuildInputFingerprint.gradleUserHomeOf(fixedRequestAttributes);
+        this.fileHashes = new FileContentHashes();
+        this.lastAccessTimes = Maps.newConcurrentMap();
+        this.deltaBaselines = Maps.newHashMap();
+        this.releasableCache = cacheSpec.getMemoryPressureThreshold().isPresent() ? Optional.of(createReleasableCache())
+                : Optional.<MemoryPressureMonitor.ReleasableModelCache>absent();
+        if (this.releasableCache.isPresent()) {
+            MemoryPressureMonitor.getInstance().register(this.releasableCache.get(), cacheSpec.getMemoryPressureThreshold().get());
+        }
+    }
+
+    private Cache<Object, Object> createCache(ModelCacheSpec cacheSpec) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().removalListener(new RemovalListener<Object, Object>() {
+
+            @Override
+            public void onRemoval(RemovalNotification<Object, Object> notification) {
+                // a model evicted by the cache is no longer of interest, thus a change of its build inputs must not load it again
+                if (notification.wasEvicted()) {
+                    modelEvicted(notification.getKey());
+                }
+            }
+        });
+        if (cacheSpec.getMaximumWeight().isPresent()) {
+            // the cache only holds a handful of entries, thus a single segment is used such that the maximum weight applies to the cache as a whole
+            cacheBuilder.maximumWeight(cacheSpec.getMaximumWeight().get()).weigher(ModelWeigher.INSTANCE).concurrencyLevel(1);
+        }
+        if (cacheSpec.getExpireAfterAccess(TimeUnit.NANOSECONDS).isPresent()) {
+            cacheBuilder.expireAfterAccess(cacheSpec.getExpireAfterAccess(TimeUnit.NANOSECONDS).get(), TimeUnit.NANOSECONDS);
+        }
+        if (cacheSpec.isRecordStats()) {
+            cacheBuilder.recordStats();
+        }
+        return cacheBuilder.build();
+    }
+
+    private void modelEvicted(Object cacheKey) {
+        // the model might have been loaded again in the meantime
+        if (this.cache.asMap().containsKey(cacheKey)) {
+            return;
+        }
+        this.lastAccessTimes.remove(cacheKey);
+        if (this.buildInputWatcher.isPresent() && cacheKey instanceof Class) {
+            this.buildInputWatcher.get().unwatch((Class<?>) cacheKey);
+        }
+    }
+
+    private static ThreadPoolExecutor createRefreshExecutor() {
+        // background refreshes of the same build are run one after the other, the refresh thread only lives while refreshes are pending
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("model-repository-refresh-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private MemoryPressureMonitor.ReleasableModelCache createReleasableCache() {
+        // the monitor only references the cache weakly, the repository keeps it alive
+        return new MemoryPressureMonitor.ReleasableModelCache() {
+
+            @Override
+            public Collection<MemoryPressureMonitor.CachedModel> getCachedModels() {
+                List<MemoryPressureMonitor.CachedModel> cachedModels = Lists.newArrayList();
+                for (Map.Entry<Object, Object> entry : DefaultModelRepository.this.cache.asMap().entrySet()) {
+                    Long lastAccessTime = DefaultModelRepository.this.lastAccessTimes.get(entry.getKey());
+                    cachedModels.add(new MemoryPressureMonitor.CachedModel(this, entry.getKey(), ModelWeigher.estimateRetainedBytes(entry.getValue()),
+                            lastAccessTime != null ? lastAccessTime : 0));
+                }
+                return cachedModels;
+            }
+
+            @Override
+            public void release(Object cacheKey) {
+                // a released model is loaded again on the next request, its build inputs are watched again once it is loaded
+                DefaultModelRepository.this.cache.invalidate(cacheKey);
+                DefaultModelRepository.this.lastAccessTimes.remove(cacheKey);
+                if (DefaultModelRepository.this.buildInputWatcher.isPresent() && cacheKey instanceof Class) {
+                    DefaultModelRepository.this.buildInputWatcher.get().unwatch((Class<?>) cacheKey);
+                }
+            }
+        };
+    }
+
+    private BuildInputWatcher createBuildInputWatcher(final boolean refreshOnChange) {
+        return new BuildInputWatcher(BUILD_INPUT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, new Consumer<Set<Class<?>>>() {
+
+            @Override
+            public void accept(Set<Class<?>> cacheKeys) {
+                buildInputsChanged(cacheKeys, refreshOnChange);
+            }
+        });
+    }
+
+    /**
+     * Creates the executor on which the asynchronous fetches of one or more repositories are run. The executor is bounded since each fetch blocks a thread for as
+     * long as the model is loaded, its threads only live while fetches are pending.
+     *
+     * @return a new executor
+     */
+    static ListeningExecutorService createFetchExecutor() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("model-repository-fetch-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return MoreExecutors.listeningDecorator(executor);
     }
 
     /**
@@ -69,7 +255,7 @@ public final class DefaultModelRepository implements ModelRepository {
     @Override
     public void register(Object listener) {
         Preconditions.checkNotNull(listener);
-        this.eventBus.register(listener);
+        this.eventDispatcher.register(listener);
     }
 
     /**
@@ -82,7 +268,59 @@ public final class DefaultModelRepository implements ModelRepository {
     @Override
     public void unregister(Object listener) {
         Preconditions.checkNotNull(listener);
-        this.eventBus.unregister(listener);
+        this.eventDispatcher.unregister(listener);
+    }
+
+    @Override
+    public <E> void register(Class<E> eventType, Consumer<? super E> listener) {
+        Preconditions.checkNotNull(eventType);
+        Preconditions.checkNotNull(listener);
+        this.eventDispatcher.register(eventType, listener);
+    }
+
+    @Override
+    public <E> void unregister(Class<E> eventType, Consumer<? super E> listener) {
+        Preconditions.checkNotNull(eventType);
+        Preconditions.checkNotNull(listener);
+        this.eventDispatcher.unregister(eventType, listener);
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return this.cache.stats();
+    }
+
+    @Override
+    public Map<Class<?>, Long> getRetainedSizeEstimates() {
+        ImmutableMap.Builder<Class<?>, Long> estimates = ImmutableMap.builder();
+        for (Map.Entry<Object, Object> entry : this.cache.asMap().entrySet()) {
+            estimates.put(modelTypeOf(entry.getKey()), ModelWeigher.estimateRetainedBytes(entry.getValue()));
+        }
+        return estimates.build();
+    }
+
+    private static Class<?> modelTypeOf(Object cacheKey) {
+        // the Gradle build is cached under the key of the Tooling API model
+        return GradleBuild.class == cacheKey ? OmniGradleBuild.class : (Class<?>) cacheKey;
+    }
+
+    /**
+     * Releases the cached models, stops watching their build inputs, and unregisters all listeners. The repository remains usable, models requested afterwards are loaded
+     * again.
+     */
+    void dispose() {
+        this.cache.invalidateAll();
+        this.lastAccessTimes.clear();
+        synchronized (this.deltaBaselines) {
+            this.deltaBaselines.clear();
+        }
+        if (this.releasableCache.isPresent()) {
+            MemoryPressureMonitor.getInstance().unregister(this.releasableCache.get());
+        }
+        if (this.buildInputWatcher.isPresent()) {
+            this.buildInputWatcher.get().close();
+        }
+        this.eventDispatcher.unregisterAll();
     }
 
     /*
@@ -94,11 +332,11 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(fetchStrategy);
 
         ModelRequest<BuildEnvironment> request = createModelRequestForBuildModel(BuildEnvironment.class, transientRequestAttributes);
-        Consumer<OmniBuildEnvironment> successHandler = new Consumer<OmniBuildEnvironment>() {
+        Consumer<ModelSnapshot<OmniBuildEnvironment>> successHandler = new Consumer<ModelSnapshot<OmniBuildEnvironment>>() {
 
             @Override
-            public void accept(OmniBuildEnvironment result) {
-                DefaultModelRepository.this.eventBus.post(new BuildEnvironmentUpdateEvent(result));
+            public void accept(ModelSnapshot<OmniBuildEnvironment> result) {
+                DefaultModelRepository.this.eventDispatcher.post(new BuildEnvironmentUpdateEvent(result.getModel(), result.getGeneration()));
             }
         };
         Converter<BuildEnvironment, OmniBuildEnvironment> converter = new BaseConverter<BuildEnvironment, OmniBuildEnvironment>() {
@@ -125,10 +363,10 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(fetchStrategy);
 
         ModelRequest<GradleBuild> request = createModelRequestForBuildModel(GradleBuild.class, transientRequestAttributes);
-        Consumer<OmniGradleBuild> successHandler = new Consumer<OmniGradleBuild>() {
+        Consumer<ModelSnapshot<OmniGradleBuild>> successHandler = new Consumer<ModelSnapshot<OmniGradleBuild>>() {
             @Override
-            public void accept(OmniGradleBuild result) {
-                DefaultModelRepository.this.eventBus.post(new GradleBuildUpdateEvent(result));
+            public void accept(ModelSnapshot<OmniGradleBuild> result) {
+                DefaultModelRepository.this.eventDispatcher.post(new GradleBuildUpdateEvent(result.getModel(), result.getGeneration()));
             }
         };
         Converter<GradleBuild, OmniGradleBuild> converter = new BaseConverter<GradleBuild, OmniGradleBuild>() {
@@ -150,40 +388,37 @@ public final class DefaultModelRepository implements ModelRepository {
     public Set<OmniGradleProject> fetchGradleProjects(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
         Preconditions.checkNotNull(transientRequestAttributes);
         Preconditions.checkNotNull(fetchStrategy);
+        final ModelCapabilities capabilities = getModelCapabilities(transientRequestAttributes);
         if (!supportsCompositeBuilds(transientRequestAttributes)) {
             ModelRequest<GradleProject> request = createModelRequestForBuildModel(GradleProject.class, transientRequestAttributes);
-            Consumer<Set<OmniGradleProject>> successHandler = new Consumer<Set<OmniGradleProject>>() {
+            Consumer<ModelSnapshot<Set<OmniGradleProject>>> successHandler = new Consumer<ModelSnapshot<Set<OmniGradleProject>>>() {
                 @Override
-                public void accept(Set<OmniGradleProject> result) {
-                    DefaultModelRepository.this.eventBus.post(new GradleProjectUpdateEvent(result));
+                public void accept(ModelSnapshot<Set<OmniGradleProject>> result) {
+                    DefaultModelRepository.this.eventDispatcher.post(new GradleProjectUpdateEvent(result.getModel(), result.getGeneration()));
                 }
             };
             Converter<GradleProject, Set<OmniGradleProject>> converter = new BaseConverter<GradleProject, Set<OmniGradleProject>>() {
 
                 @Override
                 public Set<OmniGradleProject> apply(GradleProject gradleProject) {
-                    return ImmutableSet.copyOf(DefaultOmniGradleProject.from(gradleProject).getAll());
+                    return ImmutableSet.copyOf(DefaultOmniGradleProject.from(gradleProject, capabilities).getAll());
                 }
 
             };
             return executeRequest(request, successHandler, fetchStrategy, OmniGradleProject.class, converter);
         } else {
             BuildActionRequest<Collection<GradleProject>> request = createBuildActionRequestForCompositeModel(GradleProject.class, transientRequestAttributes);
-            Consumer<Set<OmniGradleProject>> successHandler = new Consumer<Set<OmniGradleProject>>() {
+            Consumer<ModelSnapshot<Set<OmniGradleProject>>> successHandler = new Consumer<ModelSnapshot<Set<OmniGradleProject>>>() {
                 @Override
-                public void accept(Set<OmniGradleProject> result) {
-                    DefaultModelRepository.this.eventBus.post(new GradleProjectUpdateEvent(result));
+                public void accept(ModelSnapshot<Set<OmniGradleProject>> result) {
+                    DefaultModelRepository.this.eventDispatcher.post(new GradleProjectUpdateEvent(result.getModel(), result.getGeneration()));
                 }
             };
             Converter<Collection<GradleProject>, Set<OmniGradleProject>> converter = new BaseConverter<Collection<GradleProject>, Set<OmniGradleProject>>() {
 
                 @Override
                 public Set<OmniGradleProject> apply(Collection<GradleProject> gradleProjects) {
-                    ImmutableSet.Builder<OmniGradleProject> projects = ImmutableSet.builder();
-                    for (GradleProject gradleProject : gradleProjects) {
-                        projects.addAll(DefaultOmniGradleProject.from(gradleProject).getAll());
-                    }
-                    return projects.build();
+                    return toOmniGradleProjects(gradleProjects, capabilities);
                 }
 
             };
@@ -199,39 +434,36 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(transientRequestAttributes);
         Preconditions.checkNotNull(fetchStrategy);
 
+        final ModelCapabilities capabilities = getModelCapabilities(transientRequestAttributes);
         if (!supportsCompositeBuilds(transientRequestAttributes)) {
             ModelRequest<EclipseProject> request = createModelRequestForBuildModel(EclipseProject.class, transientRequestAttributes);
-            Consumer<Set<OmniEclipseProject>> successHandler = new Consumer<Set<OmniEclipseProject>>() {
+            Consumer<ModelSnapshot<Set<OmniEclipseProject>>> successHandler = new Consumer<ModelSnapshot<Set<OmniEclipseProject>>>() {
                 @Override
-                public void accept(Set<OmniEclipseProject> result) {
-                    DefaultModelRepository.this.eventBus.post(new EclipseProjectUpdateEvent(result));
+                public void accept(ModelSnapshot<Set<OmniEclipseProject>> result) {
+                    DefaultModelRepository.this.eventDispatcher.post(new EclipseProjectUpdateEvent(result.getModel(), result.getGeneration()));
                 }
             };
             Converter<EclipseProject, Set<OmniEclipseProject>> converter = new BaseConverter<EclipseProject, Set<OmniEclipseProject>>() {
 
                 @Override
                 public Set<OmniEclipseProject> apply(EclipseProject eclipseProject) {
-                    return ImmutableSet.copyOf(DefaultOmniEclipseProject.from(eclipseProject).getAll());
+                    return ImmutableSet.copyOf(DefaultOmniEclipseProject.from(eclipseProject, capabilities).getAll());
                 }
             };
         return executeRequest(request, successHandler, fetchStrategy, OmniEclipseProject.class, converter);
         } else {
             BuildActionRequest<Collection<EclipseProject>> request = createBuildActionRequestForCompositeModel(EclipseProject.class, transientRequestAttributes);
-            Consumer<Set<OmniEclipseProject>> successHandler = new Consumer<Set<OmniEclipseProject>>() {
+            Consumer<ModelSnapshot<Set<OmniEclipseProject>>> successHandler = new Consumer<ModelSnapshot<Set<OmniEclipseProject>>>() {
                 @Override
-                public void accept(Set<OmniEclipseProject> result) {
-                    DefaultModelRepository.this.eventBus.post(new EclipseProjectUpdateEvent(result));
+                public void accept(ModelSnapshot<Set<OmniEclipseProject>> result) {
+                    DefaultModelRepository.this.eventDispatcher.post(new EclipseProjectUpdateEvent(result.getModel(), result.getGeneration()));
                 }
             };
             Converter<Collection<EclipseProject>, Set<OmniEclipseProject>> converter = new BaseConverter<Collection<EclipseProject>, Set<OmniEclipseProject>>() {
 
                 @Override
                 public Set<OmniEclipseProject> apply(Collection<EclipseProject> eclipseProjects) {
-                    ImmutableSet.Builder<OmniEclipseProject> projects = ImmutableSet.builder();
-                    for (EclipseProject eclipseProject : eclipseProjects) {
-                        projects.addAll(DefaultOmniEclipseProject.from(eclipseProject).getAll());
-                    }
-                    return projects.build();
+                    return toOmniEclipseProjects(eclipseProjects, capabilities);
                 }
 
             };
@@ -239,14 +471,220 @@ public final class DefaultModelRepository implements ModelRepository {
         }
     }
 
+    /*
+     * build actions are supported by all Gradle versions >= 1.8, for older versions each model is fetched through its own request
+     */
+    @Override
+    public void prefetch(final TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        // nothing can be prefetched from the cache
+        if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy) {
+            return;
+        }
+
+        // if all models are cached, they are either kept or reloaded in the background, depending on the fetch strategy
+        boolean allCached = getSnapshotIfPresent(GradleBuild.class) != null && getSnapshotIfPresent(OmniGradleProject.class) != null
+                && getSnapshotIfPresent(OmniEclipseProject.class) != null;
+        if (allCached && FetchStrategy.LOAD_IF_NOT_CACHED == fetchStrategy) {
+            return;
+        }
+        if (allCached && FetchStrategy.RELOAD_IF_INPUTS_CHANGED == fetchStrategy && buildInputsUnchanged(getSnapshotIfPresent(GradleBuild.class))
+                && buildInputsUnchanged(getSnapshotIfPresent(OmniGradleProject.class)) && buildInputsUnchanged(getSnapshotIfPresent(OmniEclipseProject.class))) {
+            return;
+        }
+        if (allCached && FetchStrategy.CACHED_THEN_REFRESH == fetchStrategy) {
+            refreshInBackground(ALL_MODELS, new Runnable() {
+
+                @Override
+                public void run() {
+                    prefetchAll(transientRequestAttributes);
+                }
+            });
+            return;
+        }
+
+        prefetchAll(transientRequestAttributes);
+    }
+
+    private void prefetchAll(final TransientRequestAttributes transientRequestAttributes) {
+        // concurrent prefetches share a single invocation of the build
+        this.reloadEpochs.reload(ALL_MODELS, new Supplier<Void>() {
+
+            @Override
+            public Void get() {
+                GradleVersion gradleVersion = getTargetGradleVersion(transientRequestAttributes);
+                ModelCapabilities capabilities = ModelCapabilities.of(gradleVersion);
+                KnownBuildInputs gradleBuildInputs = fingerprintKnownBuildInputs(GradleBuild.class);
+                KnownBuildInputs gradleProjectsInputs = fingerprintKnownBuildInputs(OmniGradleProject.class);
+                KnownBuildInputs eclipseProjectsInputs = fingerprintKnownBuildInputs(OmniEclipseProject.class);
+                if (gradleVersion.compareTo(GradleVersion.version("1.8")) < 0) {
+                    fetchGradleBuild(transientRequestAttributes, FetchStrategy.FORCE_RELOAD);
+                    fetchGradleProjects(transientRequestAttributes, FetchStrategy.FORCE_RELOAD);
+                    fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FORCE_RELOAD);
+                } else if (gradleVersion.compareTo(GradleVersion.version("3.3")) < 0) {
+                    BuildAction<Triple<GradleBuild, GradleProject, EclipseProject>> buildAction = BuildActionFactory.getTripleResult(
+                            BuildActionFactory.getBuildModel(GradleBuild.class), BuildActionFactory.getBuildModel(GradleProject.class),
+                            BuildActionFactory.getBuildModel(EclipseProject.class));
+                    Triple<GradleBuild, GradleProject, EclipseProject> result = createBuildActionRequestForBuildAction(buildAction, transientRequestAttributes).executeAndWait();
+                    cacheAll(DefaultOmniGradleBuild.from(result.getFirst()), toOmniGradleProjects(ImmutableList.of(result.getSecond()), capabilities),
+                            toOmniEclipseProjects(ImmutableList.of(result.getThird()), capabilities), gradleBuildInputs, gradleProjectsInputs, eclipseProjectsInputs);
+                } else {
+                    BuildAction<Triple<GradleBuild, Collection<GradleProject>, Collection<EclipseProject>>> buildAction = BuildActionFactory.getTripleResult(
+                            BuildActionFactory.getBuildModel(GradleBuild.class), BuildActionFactory.getModelForCompositeProjects(GradleProject.class),
+                            BuildActionFactory.getModelForCompositeProjects(EclipseProject.class));
+                    Triple<GradleBuild, Collection<GradleProject>, Collection<EclipseProject>> result =
+                            createBuildActionRequestForBuildAction(buildAction, transientRequestAttributes).executeAndWait();
+                    cacheAll(DefaultOmniGradleBuild.from(result.getFirst()), toOmniGradleProjects(result.getSecond(), capabilities),
+                            toOmniEclipseProjects(result.getThird(), capabilities), gradleBuildInputs, gradleProjectsInputs, eclipseProjectsInputs);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void cacheAll(OmniGradleBuild gradleBuild, Set<OmniGradleProject> gradleProjects, Set<OmniEclipseProject> eclipseProjects, KnownBuildInputs gradleBuildInputs,
+                          KnownBuildInputs gradleProjectsInputs, KnownBuildInputs eclipseProjectsInputs) {
+        Optional<String> gradleBuildFingerprint = fingerprintLoadedBuildInputs(gradleBuildInputs, gradleBuild);
+        Optional<String> gradleProjectsFingerprint = fingerprintLoadedBuildInputs(gradleProjectsInputs, gradleProjects);
+        Optional<String> eclipseProjectsFingerprint = fingerprintLoadedBuildInputs(eclipseProjectsInputs, eclipseProjects);
+        storeModel(GradleBuild.class, gradleBuild, gradleBuildFingerprint);
+        storeModel(OmniGradleProject.class, gradleProjects, gradleProjectsFingerprint);
+        storeModel(OmniEclipseProject.class, eclipseProjects, eclipseProjectsFingerprint);
+
+        // all models are swapped in together such that no caller sees models of different invocations once the prefetch has finished
+        ModelSnapshot<OmniGradleBuild> gradleBuildSnapshot;
+        ModelSnapshot<Set<OmniGradleProject>> gradleProjectsSnapshot;
+        ModelSnapshot<Set<OmniEclipseProject>> eclipseProjectsSnapshot;
+        synchronized (this.generations) {
+            gradleBuildSnapshot = swapIn(GradleBuild.class, gradleBuild, gradleBuildFingerprint);
+            gradleProjectsSnapshot = swapIn(OmniGradleProject.class, gradleProjects, gradleProjectsFingerprint);
+            eclipseProjectsSnapshot = swapIn(OmniEclipseProject.class, eclipseProjects, eclipseProjectsFingerprint);
+        }
+
+        this.eventDispatcher.post(new GradleBuildUpdateEvent(gradleBuildSnapshot.getModel(), gradleBuildSnapshot.getGeneration()));
+        this.eventDispatcher.post(new GradleProjectUpdateEvent(gradleProjectsSnapshot.getModel(), gradleProjectsSnapshot.getGeneration()));
+        postDelta(OmniGradleProject.class, gradleProjectsSnapshot);
+        this.eventDispatcher.post(new EclipseProjectUpdateEvent(eclipseProjectsSnapshot.getModel(), eclipseProjectsSnapshot.getGeneration()));
+        postDelta(OmniEclipseProject.class, eclipseProjectsSnapshot);
+    }
+
+    private static Set<OmniGradleProject> toOmniGradleProjects(Collection<GradleProject> gradleProjects, ModelCapabilities capabilities) {
+        ImmutableSet.Builder<OmniGradleProject> projects = ImmutableSet.builder();
+        for (GradleProject gradleProject : gradleProjects) {
+            projects.addAll(DefaultOmniGradleProject.from(gradleProject, capabilities).getAll());
+        }
+        return projects.build();
+    }
+
+    private static Set<OmniEclipseProject> toOmniEclipseProjects(Collection<EclipseProject> eclipseProjects, ModelCapabilities capabilities) {
+        ImmutableSet.Builder<OmniEclipseProject> projects = ImmutableSet.builder();
+        for (EclipseProject eclipseProject : eclipseProjects) {
+            projects.addAll(DefaultOmniEclipseProject.from(eclipseProject, capabilities).getAll());
+        }
+        return projects.build();
+    }
+
+    @Override
+    public ListenableFuture<OmniBuildEnvironment> fetchBuildEnvironmentAsync(final TransientRequestAttributes transientRequestAttributes, final FetchStrategy fetchStrategy) {
+        return fetchAsync(transientRequestAttributes, fetchStrategy, new Callable<OmniBuildEnvironment>() {
+
+            @Override
+            public OmniBuildEnvironment call() {
+                return fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<OmniGradleBuild> fetchGradleBuildAsync(final TransientRequestAttributes transientRequestAttributes, final FetchStrategy fetchStrategy) {
+        return fetchAsync(transientRequestAttributes, fetchStrategy, new Callable<OmniGradleBuild>() {
+
+            @Override
+            public OmniGradleBuild call() {
+                return fetchGradleBuild(transientRequestAttributes, fetchStrategy);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<Set<OmniGradleProject>> fetchGradleProjectsAsync(final TransientRequestAttributes transientRequestAttributes, final FetchStrategy fetchStrategy) {
+        return fetchAsync(transientRequestAttributes, fetchStrategy, new Callable<Set<OmniGradleProject>>() {
+
+            @Override
+            public Set<OmniGradleProject> call() {
+                return fetchGradleProjects(transientRequestAttributes, fetchStrategy);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<Set<OmniEclipseProject>> fetchEclipseGradleProjectsAsync(final TransientRequestAttributes transientRequestAttributes,
+                                                                                    final FetchStrategy fetchStrategy) {
+        return fetchAsync(transientRequestAttributes, fetchStrategy, new Callable<Set<OmniEclipseProject>>() {
+
+            @Override
+            public Set<OmniEclipseProject> call() {
+                return fetchEclipseGradleProjects(transientRequestAttributes, fetchStrategy);
+            }
+        });
+    }
+
+    protected <U> ListenableFuture<U> fetchAsync(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy, final Callable<U> fetch) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        // a model that is only accessed from the cache is available immediately, thus no thread needs to be involved
+        if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy) {
+            try {
+                return Futures.immediateFuture(fetch.call());
+            } catch (Exception e) {
+                return Futures.immediateFailedFuture(e);
+            }
+        }
+
+        // the synchronous fetch is run as is such that loads that are already in flight for the same model are shared, a fetch that
+        // is cancelled while it is still queued is never started, a fetch that has started is cancelled through the request itself
+        final CancellationToken cancellationToken = transientRequestAttributes.getCancellationToken();
+        return this.fetchExecutor.submit(new Callable<U>() {
+
+            @Override
+            public U call() throws Exception {
+                if (cancellationToken.isCancellationRequested()) {
+                    throw new BuildCancelledException("Fetching the model of " + DefaultModelRepository.this.fixedRequestAttributes.getProjectDir() + " has been cancelled.");
+                }
+                return fetch.call();
+            }
+        });
+    }
+
     private boolean supportsCompositeBuilds(TransientRequestAttributes transientRequestAttributes) {
         return targetGradleVersionIsEqualOrHigherThan("3.3", transientRequestAttributes);
     }
 
     private boolean targetGradleVersionIsEqualOrHigherThan(String refVersion, TransientRequestAttributes transientRequestAttributes) {
-        OmniBuildEnvironment buildEnvironment = fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
-        GradleVersion gradleVersion = GradleVersion.version(buildEnvironment.getGradle().getGradleVersion());
-        return gradleVersion.getBaseVersion().compareTo(GradleVersion.version(refVersion)) >= 0;
+        return getTargetGradleVersion(transientRequestAttributes).compareTo(GradleVersion.version(refVersion)) >= 0;
+    }
+
+    private ModelCapabilities getModelCapabilities(TransientRequestAttributes transientRequestAttributes) {
+        // the capabilities are derived once per request and shared by the conversion of all projects of the build
+        return ModelCapabilities.of(getTargetGradleVersion(transientRequestAttributes));
+    }
+
+    private GradleVersion getTargetGradleVersion(TransientRequestAttributes transientRequestAttributes) {
+        // the cached build environment is the most accurate source, the probed version spares connecting to
+        // the build just to learn its version, the build environment is only fetched if no version can be probed
+        ModelSnapshot<OmniBuildEnvironment> snapshot = getSnapshotIfPresent(OmniBuildEnvironment.class);
+        if (snapshot == null) {
+            Optional<GradleVersion> probedVersion = this.gradleVersionProbe.probe();
+            if (probedVersion.isPresent()) {
+                return probedVersion.get().getBaseVersion();
+            }
+        }
+
+        OmniBuildEnvironment buildEnvironment = snapshot != null ? snapshot.getModel() : fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        return GradleVersion.version(buildEnvironment.getGradle().getGradleVersion()).getBaseVersion();
     }
 
     private <T> ModelRequest<T> createModelRequestForBuildModel(Class<T> model, TransientRequestAttributes transientRequestAttributes) {
@@ -266,7 +704,6 @@ public final class DefaultModelRepository implements ModelRepository {
         return request;
     }
 
-    @SuppressWarnings({ "UnusedDeclaration", "unused" })
     private <T> BuildActionRequest<T> createBuildActionRequestForBuildAction(BuildAction<T> buildAction, TransientRequestAttributes transientRequestAttributes) {
         // build the request
         BuildActionRequest<T> request = this.toolingClient.newBuildActionRequest(buildAction);
@@ -275,7 +712,7 @@ public final class DefaultModelRepository implements ModelRepository {
         return request;
     }
 
-    protected <T, U> U executeRequest(final Request<T> request, final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<?> cacheKey,
+    protected <T, U> U executeRequest(final Request<T> request, final Consumer<ModelSnapshot<U>> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<?> cacheKey,
                                       final Converter<T, U> resultConverter) {
         return executeRequest(new Supplier<T>() {
 
@@ -289,45 +726,258 @@ public final class DefaultModelRepository implements ModelRepository {
         }, newCacheEntryHandler, fetchStrategy, cacheKey, resultConverter);
     }
 
-    protected <T, U> U executeRequest(final Supplier<T> operation, final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<?> cacheKey,
-                                      final Converter<T, U> resultConverter) {
+    protected <T, U> U executeRequest(final Supplier<T> operation, final Consumer<ModelSnapshot<U>> newCacheEntryHandler, final FetchStrategy fetchStrategy,
+                                      final Class<?> cacheKey, final Converter<T, U> resultConverter) {
         // if model is only accessed from the cache, we can return immediately
         if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy) {
-            @SuppressWarnings("unchecked")
-            U result = (U) this.cache.getIfPresent(cacheKey);
-            return result;
+            ModelSnapshot<U> snapshot = getSnapshotIfPresent(cacheKey);
+            return snapshot != null ? snapshot.getModel() : null;
+        }
+
+        // if the model is cached, it can be returned immediately and then be reloaded in the background,
+        // otherwise we proceed as for FetchStrategy.LOAD_IF_NOT_CACHED
+        if (FetchStrategy.CACHED_THEN_REFRESH == fetchStrategy) {
+            ModelSnapshot<U> snapshot = getSnapshotIfPresent(cacheKey);
+            if (snapshot != null) {
+                refreshInBackground(operation, newCacheEntryHandler, cacheKey, resultConverter);
+                return snapshot.getModel();
+            }
         }
 
-        // if model must be reloaded, we can invalidate the cache entry and then proceed as for
-        // FetchStrategy.LOAD_IF_NOT_CACHED
+        // if the build inputs of the cached model have not changed since it was loaded, it can be returned immediately,
+        // otherwise the model is reloaded, or loaded as for FetchStrategy.LOAD_IF_NOT_CACHED if it is not cached
+        if (FetchStrategy.RELOAD_IF_INPUTS_CHANGED == fetchStrategy) {
+            ModelSnapshot<U> snapshot = getSnapshotIfPresent(cacheKey);
+            if (snapshot != null) {
+                return buildInputsUnchanged(snapshot) ? snapshot.getModel() : reload(operation, newCacheEntryHandler, cacheKey, resultConverter).getModel();
+            }
+        }
+
+        // if model must be reloaded, the cached model remains visible to all other callers until
+        // the reloaded model replaces it, concurrent reloads of the same model share a single reload
         if (FetchStrategy.FORCE_RELOAD == fetchStrategy) {
-            this.cache.invalidate(cacheKey);
+            return reload(operation, newCacheEntryHandler, cacheKey, resultConverter).getModel();
         }
 
         // load the values from the cache iff not already cached
         final AtomicBoolean modelLoaded = new AtomicBoolean(false);
-        U value = getFromCache(cacheKey, new Callable<U>() {
+        ModelSnapshot<U> snapshot = getFromCache(cacheKey, new Callable<ModelSnapshot<U>>() {
 
             @Override
-            public U call() {
-                U model = executeAndWait(operation, resultConverter);
+            public ModelSnapshot<U> call() {
+                LoadedModel<U> loaded = loadModel(operation, resultConverter, cacheKey, true);
+                watchBuildInputs(cacheKey, loaded.model);
                 modelLoaded.set(true);
-                return model;
+                return new ModelSnapshot<U>(loaded.model, DefaultModelRepository.this.generations.incrementAndGet(), loaded.buildInputFingerprint);
             }
         });
 
         // if the model was not in the cache before, notify the callback about the new cache entry
         if (modelLoaded.get()) {
-            newCacheEntryHandler.accept(value);
+            newCacheEntryHandler.accept(snapshot);
+            postDelta(cacheKey, snapshot);
+        }
+
+        return snapshot.getModel();
+    }
+
+    private <T, U> void refreshInBackground(final Supplier<T> operation, final Consumer<ModelSnapshot<U>> newCacheEntryHandler, final Class<?> cacheKey,
+                                            final Converter<T, U> resultConverter) {
+        refreshInBackground(cacheKey, new Runnable() {
+
+            @Override
+            public void run() {
+                reload(operation, newCacheEntryHandler, cacheKey, resultConverter);
+            }
+        });
+    }
+
+    private void refreshInBackground(final Object refreshKey, final Runnable refresh) {
+        // a refresh that is already pending will deliver the latest model, thus no further refresh is needed
+        if (!this.refreshesInProgress.add(refreshKey)) {
+            return;
+        }
+
+        this.refreshExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    refresh.run();
+                } catch (RuntimeException e) {
+                    // the cached model stays in place if it cannot be refreshed
+                    LOG.warn("Cannot refresh " + describe(refreshKey) + " of " + DefaultModelRepository.this.fixedRequestAttributes.getProjectDir() + ".", e);
+                } finally {
+                    DefaultModelRepository.this.refreshesInProgress.remove(refreshKey);
+                }
+            }
+        });
+    }
+
+    private static String describe(Object refreshKey) {
+        return refreshKey instanceof Class ? "model " + ((Class<?>) refreshKey).getName() : refreshKey.toString();
+    }
+
+    private <T, U> ModelSnapshot<U> reload(final Supplier<T> operation, final Consumer<ModelSnapshot<U>> newCacheEntryHandler, final Class<?> cacheKey,
+                                           final Converter<T, U> resultConverter) {
+        return this.reloadEpochs.reload(cacheKey, new Supplier<ModelSnapshot<U>>() {
+
+            @Override
+            public ModelSnapshot<U> get() {
+                LoadedModel<U> loaded = loadModel(operation, resultConverter, cacheKey, false);
+                ModelSnapshot<U> snapshot = swapIn(cacheKey, loaded.model, loaded.buildInputFingerprint);
+                newCacheEntryHandler.accept(snapshot);
+                postDelta(cacheKey, snapshot);
+                return snapshot;
+            }
+        });
+    }
+
+    private <U> ModelSnapshot<U> swapIn(Class<?> cacheKey, U model, Optional<String> buildInputFingerprint) {
+        // the generation is assigned and the snapshot is cached under the same lock such that a
+        // reloaded model never gets replaced by a model of an older generation
+        ModelSnapshot<U> snapshot;
+        synchronized (this.generations) {
+            snapshot = new ModelSnapshot<U>(model, this.generations.incrementAndGet(), buildInputFingerprint);
+            this.cache.put(cacheKey, snapshot);
+        }
+        this.lastAccessTimes.put(cacheKey, System.nanoTime());
+        watchBuildInputs(cacheKey, model);
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void postDelta(Class<?> cacheKey, ModelSnapshot<?> current) {
+        if (OmniEclipseProject.class != cacheKey && OmniGradleProject.class != cacheKey) {
+            return;
+        }
+
+        // the delta is computed outside of any lock, listeners receive it right after the update event of the same generation
+        Optional<ModelSnapshot<?>> previous = advanceDeltaBaseline(cacheKey, current);
+        if (previous == null) {
+            return;
+        }
+        long previousGeneration = previous.isPresent() ? previous.get().getGeneration() : 0;
+        if (OmniEclipseProject.class == cacheKey) {
+            ProjectDelta<OmniEclipseProject> delta = ProjectDeltas.diffEclipseProjects(previous.isPresent() ? (Set<OmniEclipseProject>) previous.get().getModel() : null,
+                    (Set<OmniEclipseProject>) current.getModel());
+            this.eventDispatcher.post(new EclipseProjectDeltaEvent(delta, previousGeneration, current.getGeneration()));
+        } else {
+            ProjectDelta<OmniGradleProject> delta = ProjectDeltas.diffGradleProjects(previous.isPresent() ? (Set<OmniGradleProject>) previous.get().getModel() : null,
+                    (Set<OmniGradleProject>) current.getModel());
+            this.eventDispatcher.post(new GradleProjectDeltaEvent(delta, previousGeneration, current.getGeneration()));
+        }
+    }
+
+    private Optional<ModelSnapshot<?>> advanceDeltaBaseline(Class<?> cacheKey, ModelSnapshot<?> current) {
+        // the delta is computed against the model of the last delta, which is kept outside of the cache such that a model that was evicted, released, or invalidated
+        // since is still known, it is only referenced softly and thus dropped if memory runs out, in which case all projects are reported as added
+        synchronized (this.deltaBaselines) {
+            SoftReference<ModelSnapshot<?>> baseline = this.deltaBaselines.get(cacheKey);
+            ModelSnapshot<?> previous = baseline != null ? baseline.get() : null;
+            if (previous != null && previous.getGeneration() >= current.getGeneration()) {
+                // a delta towards a newer model has already been posted
+                return null;
+            }
+            this.deltaBaselines.put(cacheKey, new SoftReference<ModelSnapshot<?>>(current));
+            return Optional.<ModelSnapshot<?>>fromNullable(previous);
+        }
+    }
+
+    private KnownBuildInputs fingerprintKnownBuildInputs(Class<?> cacheKey) {
+        // the inputs are fingerprinted before the model is loaded such that a change made while loading is noticed on the next fetch,
+        // the inputs of a model that is not cached yet are only known to be located in the project directory, looking up the cached model
+        // is not recorded as a cache hit or miss
+        ModelSnapshot<?> snapshot = (ModelSnapshot<?>) this.cache.asMap().get(cacheKey);
+        SortedSet<File> directories = BuildInputFingerprint.directoriesOf(this.fixedRequestAttributes.getProjectDir(), snapshot != null ? snapshot.getModel() : null);
+        return new KnownBuildInputs(directories, fingerprintBuildInputs(directories));
+    }
+
+    private Optional<String> fingerprintLoadedBuildInputs(KnownBuildInputs knownBuildInputs, Object model) {
+        // the loaded model may reveal inputs in further directories, they are fingerprinted once the model is loaded, provided none
+        // of the known inputs has changed in the meantime, otherwise the model is considered changed on the next fetch
+        SortedSet<File> directories = BuildInputFingerprint.directoriesOf(this.fixedRequestAttributes.getProjectDir(), model);
+        if (!knownBuildInputs.fingerprint.isPresent() || directories.equals(knownBuildInputs.directories)) {
+            return knownBuildInputs.fingerprint;
+        }
+        Optional<String> fingerprint = fingerprintBuildInputs(directories);
+        return knownBuildInputs.fingerprint.equals(fingerprintBuildInputs(knownBuildInputs.directories)) ? fingerprint : Optional.<String>absent();
+    }
+
+    private Optional<String> fingerprintBuildInputs(Collection<File> directories) {
+        // the hashes of unchanged files are reused, thus only the attributes of most build inputs are read
+        try {
+            return Optional.of(BuildInputFingerprint.compute(directories, this.gradleUserHome, this.fileHashes));
+        } catch (IOException e) {
+            LOG.debug("Cannot fingerprint build inputs of " + this.fixedRequestAttributes.getProjectDir() + ".", e);
+            return Optional.absent();
+        }
+    }
+
+    private boolean buildInputsUnchanged(ModelSnapshot<?> snapshot) {
+        // a model that is no longer cached or whose build inputs could not be fingerprinted is considered changed
+        if (snapshot == null || !snapshot.getBuildInputFingerprint().isPresent()) {
+            return false;
+        }
+        return snapshot.getBuildInputFingerprint().equals(fingerprintBuildInputs(BuildInputFingerprint.directoriesOf(this.fixedRequestAttributes.getProjectDir(),
+                snapshot.getModel())));
+    }
+
+    private void watchBuildInputs(Class<?> cacheKey, Object model) {
+        if (this.buildInputWatcher.isPresent()) {
+            this.buildInputWatcher.get().watch(cacheKey, BuildInputFingerprint.directoriesOf(this.fixedRequestAttributes.getProjectDir(), model));
+        }
+    }
+
+    private void buildInputsChanged(Set<Class<?>> cacheKeys, boolean refresh) {
+        // only the models whose build inputs have changed are removed from the cache
+        for (Class<?> cacheKey : cacheKeys) {
+            this.cache.invalidate(cacheKey);
+            this.buildInputWatcher.get().unwatch(cacheKey);
+        }
+
+        if (refresh) {
+            for (final Class<?> cacheKey : cacheKeys) {
+                refreshInBackground(cacheKey, new Runnable() {
+
+                    @Override
+                    public void run() {
+                        reloadChangedModel(cacheKey);
+                    }
+                });
+            }
         }
+    }
 
-        return value;
+    private void reloadChangedModel(Class<?> cacheKey) {
+        // the model is loaded through the cache such that callers that request the model in the meantime share the load
+        TransientRequestAttributes transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.<ProgressListener>of(),
+                ImmutableList.<org.gradle.tooling.events.ProgressListener>of(), GradleConnector.newCancellationTokenSource().token());
+        if (OmniBuildEnvironment.class == cacheKey) {
+            fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        } else if (GradleBuild.class == cacheKey) {
+            fetchGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        } else if (OmniGradleProject.class == cacheKey) {
+            fetchGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        } else if (OmniEclipseProject.class == cacheKey) {
+            fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        }
+    }
+
+    private <U> ModelSnapshot<U> getSnapshotIfPresent(Class<?> cacheKey) {
+        @SuppressWarnings("unchecked")
+        ModelSnapshot<U> snapshot = (ModelSnapshot<U>) this.cache.getIfPresent(cacheKey);
+        if (snapshot != null) {
+            this.lastAccessTimes.put(cacheKey, System.nanoTime());
+        }
+        return snapshot;
     }
 
     private <U> U getFromCache(Class<?> cacheKey, Callable<U> cacheValueLoader) {
         try {
             @SuppressWarnings("unchecked")
             U result = (U) this.cache.get(cacheKey, cacheValueLoader);
+            this.lastAccessTimes.put(cacheKey, System.nanoTime());
             return result;
         } catch (UncheckedExecutionException e) {
             Throwable cause = e.getCause();
@@ -350,9 +1000,68 @@ public final class DefaultModelRepository implements ModelRepository {
         }
     }
 
+    private <T, U> LoadedModel<U> loadModel(Supplier<T> operation, Converter<T, U> resultConverter, Class<?> cacheKey, boolean usePersistedModel) {
+        KnownBuildInputs knownBuildInputs = fingerprintKnownBuildInputs(cacheKey);
+
+        // use the persisted model iff the build inputs it was loaded from have not changed since
+        if (usePersistedModel && this.persistentStore.isPresent()) {
+            Optional<Object> persistedModel = this.persistentStore.get().load(cacheKey);
+            if (persistedModel.isPresent()) {
+                @SuppressWarnings("unchecked")
+                U result = (U) persistedModel.get();
+                return new LoadedModel<U>(result, fingerprintLoadedBuildInputs(knownBuildInputs, result));
+            }
+        }
+
+        U model = executeAndWait(operation, resultConverter);
+        Optional<String> buildInputFingerprint = fingerprintLoadedBuildInputs(knownBuildInputs, model);
+        storeModel(cacheKey, model, buildInputFingerprint);
+        return new LoadedModel<U>(model, buildInputFingerprint);
+    }
+
+    private void storeModel(Class<?> cacheKey, Object model, Optional<String> buildInputFingerprint) {
+        // a model whose build inputs could not be fingerprinted or changed while it was loading is not persisted
+        if (this.persistentStore.isPresent() && buildInputFingerprint.isPresent()) {
+            this.persistentStore.get().store(cacheKey, model, buildInputFingerprint.get());
+        }
+    }
+
     private <T, U> U executeAndWait(Supplier<T> operation, Converter<T, U> resultConverter) {
         // invoke the operation and convert the result
         T result = operation.get();
         return resultConverter.apply(result);
     }
+
+    /**
+     * The directories of the build inputs known before a model is loaded, together with the fingerprint of these inputs taken at that time.
+     */
+    private static final class KnownBuildInputs {
+
+        private final SortedSet<File> directories;
+        private final Optional<String> fingerprint;
+
+        private KnownBuildInputs(SortedSet<File> directories, Optional<String> fingerprint) {
+            this.directories = directories;
+            this.fingerprint = fingerprint;
+        }
+
+    }
+
+    /**
+     * A loaded model, together with the fingerprint of the build inputs it was loaded from.
+     *
+     * @param <U> the type of the model
+     */
+    private static final class LoadedModel<U> {
+
+        private final U model;
+        private final Optional<String> buildInputFingerprint;
+
+        private LoadedModel(U model, Optional<String> buildInputFingerprint) {
+            this.model = model;
+            this.buildInputFingerprint = buildInputFingerprint;
+        }
+
+    }
+
 }
@@ -17,18 +17,30 @@
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.gradleware.tooling.toolingclient.ToolingClient;
 import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheSpec;
 import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryEvictionSpec;
 import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryProvider;
 import org.gradle.internal.Factory;
 
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Internal implementation of the {@code ModelRepositoryProvider} API.
+ * Internal implementation of the {@code ModelRepositoryProvider} API. Repositories are looked up without locking, each repository is created at most once per set of request
+ * attributes until it is evicted.
  *
  * @author Etienne Studer
  */
@@ -36,35 +48,89 @@ public final class DefaultModelRepositoryProvider implements ModelRepositoryProv
 
     private final ToolingClient toolingClient;
     private final Factory<EventBus> eventBusFactory;
-    private final Map<FixedRequestAttributes, ModelRepository> modelRepositories;
+    private final ModelCacheSpec cacheSpec;
+    private final LoadingCache<FixedRequestAttributes, DefaultModelRepository> modelRepositories;
+    private final ListeningExecutorService fetchExecutor;
+    private final Executor eventExecutor;
+    private final AtomicReference<CacheStats> evictedRepositoriesStats;
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient) {
         this(toolingClient, DefaultEventBusFactory.INSTANCE);
     }
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory) {
+        this(toolingClient, eventBusFactory, ModelCacheSpec.unbounded());
+    }
+
+    public DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, ModelCacheSpec cacheSpec) {
+        this(toolingClient, eventBusFactory, cacheSpec, ModelRepositoryEvictionSpec.never());
+    }
+
+    public DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, ModelCacheSpec cacheSpec, ModelRepositoryEvictionSpec evictionSpec) {
+        this(toolingClient, eventBusFactory, cacheSpec, evictionSpec, Ticker.systemTicker());
+    }
+
+    DefaultModelRepositoryProvider(ToolingClient toolingClient, Factory<EventBus> eventBusFactory, ModelCacheSpec cacheSpec, ModelRepositoryEvictionSpec evictionSpec,
+                                   Ticker ticker) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
         this.eventBusFactory = Preconditions.checkNotNull(eventBusFactory);
-        this.modelRepositories = Maps.newHashMap();
+        this.cacheSpec = Preconditions.checkNotNull(cacheSpec);
+        this.modelRepositories = createRepositoryCache(Preconditions.checkNotNull(evictionSpec), Preconditions.checkNotNull(ticker));
+        // all repositories share the threads on which asynchronous fetches are run
+        this.fetchExecutor = DefaultModelRepository.createFetchExecutor();
+        // events are delivered off the fetching threads such that slow listeners do not delay the fetches
+        this.eventExecutor = ModelEventDispatcher.createDispatchExecutor();
+        this.evictedRepositoriesStats = new AtomicReference<CacheStats>(new CacheStats(0, 0, 0, 0, 0, 0));
+    }
+
+    private LoadingCache<FixedRequestAttributes, DefaultModelRepository> createRepositoryCache(ModelRepositoryEvictionSpec evictionSpec, Ticker ticker) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().ticker(ticker);
+        if (evictionSpec.getMaximumRepositories().isPresent()) {
+            cacheBuilder.maximumSize(evictionSpec.getMaximumRepositories().get());
+        }
+        if (evictionSpec.getMaxIdleTime(TimeUnit.NANOSECONDS).isPresent()) {
+            cacheBuilder.expireAfterAccess(evictionSpec.getMaxIdleTime(TimeUnit.NANOSECONDS).get(), TimeUnit.NANOSECONDS);
+        }
+        return cacheBuilder.removalListener(new RemovalListener<FixedRequestAttributes, DefaultModelRepository>() {
+
+            @Override
+            public void onRemoval(RemovalNotification<FixedRequestAttributes, DefaultModelRepository> notification) {
+                repositoryEvicted(notification.getValue());
+            }
+        }).build(new CacheLoader<FixedRequestAttributes, DefaultModelRepository>() {
+
+            @Override
+            public DefaultModelRepository load(FixedRequestAttributes fixedRequestAttributes) {
+                return new DefaultModelRepository(fixedRequestAttributes, DefaultModelRepositoryProvider.this.toolingClient,
+                        DefaultModelRepositoryProvider.this.eventBusFactory.create(), DefaultModelRepositoryProvider.this.cacheSpec,
+                        DefaultModelRepositoryProvider.this.fetchExecutor, DefaultModelRepositoryProvider.this.eventExecutor);
+            }
+        });
     }
 
     @Override
     public ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes) {
         Preconditions.checkNotNull(fixedRequestAttributes);
-        return getOrCreateModelRepository(fixedRequestAttributes);
+        return this.modelRepositories.getUnchecked(fixedRequestAttributes);
     }
 
-    private ModelRepository getOrCreateModelRepository(FixedRequestAttributes fixedRequestAttributes) {
-        ModelRepository modelRepository;
-        synchronized (this.modelRepositories) {
-            if (!this.modelRepositories.containsKey(fixedRequestAttributes)) {
-                modelRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, this.eventBusFactory.create());
-                this.modelRepositories.put(fixedRequestAttributes, modelRepository);
-            } else {
-                modelRepository = this.modelRepositories.get(fixedRequestAttributes);
-            }
+    @Override
+    public CacheStats getCacheStats() {
+        CacheStats stats = this.evictedRepositoriesStats.get();
+        for (DefaultModelRepository modelRepository : this.modelRepositories.asMap().values()) {
+            stats = stats.plus(modelRepository.getCacheStats());
         }
-        return modelRepository;
+        return stats;
+    }
+
+    private void repositoryEvicted(DefaultModelRepository modelRepository) {
+        // the statistics of an evicted repository remain part of the aggregated statistics
+        CacheStats repositoryStats = modelRepository.getCacheStats();
+        CacheStats stats;
+        do {
+            stats = this.evictedRepositoriesStats.get();
+        } while (!this.evictedRepositoriesStats.compareAndSet(stats, stats.plus(repositoryStats)));
+        modelRepository.dispose();
     }
 
     /**
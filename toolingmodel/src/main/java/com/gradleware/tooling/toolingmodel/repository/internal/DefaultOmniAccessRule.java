@@ -20,13 +20,17 @@ import com.google.common.base.Preconditions;
 import com.gradleware.tooling.toolingmodel.OmniAccessRule;
 import org.gradle.tooling.model.eclipse.AccessRule;
 
+import java.io.Serializable;
+
 
 /**
  * Default implementation of {@link OmniAccessRule}.
  *
  * @author Donat Csikos
  */
-final class DefaultOmniAccessRule implements OmniAccessRule {
+final class DefaultOmniAccessRule implements OmniAccessRule, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private int kind;
     private String pattern;
@@ -23,16 +23,23 @@ import com.gradleware.tooling.toolingmodel.OmniJavaEnvironment;
 import org.gradle.tooling.model.BuildIdentifier;
 import org.gradle.tooling.model.build.BuildEnvironment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniBuildEnvironment} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniBuildEnvironment implements OmniBuildEnvironment {
+public final class DefaultOmniBuildEnvironment implements OmniBuildEnvironment, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final OmniGradleEnvironment gradle;
     private final OmniJavaEnvironment java;
-    private final BuildIdentifier buildIdentifier;
+    private transient BuildIdentifier buildIdentifier;
 
     private DefaultOmniBuildEnvironment(OmniGradleEnvironment gradle, OmniJavaEnvironment java, BuildIdentifier buildIdentifier) {
         this.gradle = gradle;
@@ -55,6 +62,17 @@ public final class DefaultOmniBuildEnvironment implements OmniBuildEnvironment {
         return this.buildIdentifier;
     }
 
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        // the identifier provided by the Tooling API is not guaranteed to be serializable
+        stream.defaultWriteObject();
+        stream.writeObject(SerializableBuildIdentifier.from(this.buildIdentifier));
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        this.buildIdentifier = (BuildIdentifier) stream.readObject();
+    }
+
     public static DefaultOmniBuildEnvironment from(BuildEnvironment buildEnvironment) {
         return new DefaultOmniBuildEnvironment(
                 DefaultOmniGradleEnvironment.from(buildEnvironment.getGradle()),
@@ -28,6 +28,7 @@ import org.gradle.tooling.model.Task;
 import org.gradle.tooling.model.TaskSelector;
 import org.gradle.tooling.model.gradle.BuildInvocations;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -35,7 +36,9 @@ import java.util.List;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniBuildInvocations implements OmniBuildInvocations {
+public final class DefaultOmniBuildInvocations implements OmniBuildInvocations, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final ImmutableList<OmniProjectTask> projectTasks;
     private final ImmutableList<OmniTaskSelector> taskSelectors;
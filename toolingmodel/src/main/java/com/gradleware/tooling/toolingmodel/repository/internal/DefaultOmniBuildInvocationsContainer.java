@@ -24,6 +24,7 @@ import com.gradleware.tooling.toolingmodel.OmniGradleProject;
 import com.gradleware.tooling.toolingmodel.Path;
 import org.gradle.tooling.model.gradle.BuildInvocations;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -33,7 +34,9 @@ import java.util.SortedMap;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniBuildInvocationsContainer implements OmniBuildInvocationsContainer {
+public final class DefaultOmniBuildInvocationsContainer implements OmniBuildInvocationsContainer, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final ImmutableSortedMap<Path, OmniBuildInvocations> buildInvocationsPerProject;
 
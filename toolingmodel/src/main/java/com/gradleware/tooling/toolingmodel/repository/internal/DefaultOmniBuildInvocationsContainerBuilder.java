@@ -17,26 +17,21 @@
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
 import java.util.Comparator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
 
 import org.gradle.tooling.model.GradleProject;
 import org.gradle.tooling.model.GradleTask;
 
-import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMultimap;
-import com.google.common.collect.ImmutableMultimap.Builder;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
-import com.google.common.collect.TreeBasedTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniProjectTask;
@@ -45,6 +40,10 @@ import com.gradleware.tooling.toolingmodel.Path;
 
 /**
  * Builds a {@code DefaultOmniBuildInvocationsContainer} from a given Gradle project.
+ * <p/>
+ * The project tasks and task selectors of all projects are computed in a single post-order traversal of the project hierarchy. Each task is converted once and shared by
+ * the project tasks and the task selectors. The tasks of a subtree, grouped by name and path, are merged bottom-up, with the smaller groups of the child projects merged
+ * into the larger ones, such that no subtree is traversed more than once.
  *
  * @author Etienne Studer
  */
@@ -57,66 +56,94 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
      * @return the build invocations container
      */
     public static DefaultOmniBuildInvocationsContainer build(GradleProject project) {
-        ImmutableMultimap<Path, OmniProjectTask> tasks = getAllProjectTasksByProjectPath(project);
-        ImmutableMultimap<Path, OmniTaskSelector> taskSelectors = getAllTaskSelectorsByProjectPath(project);
-        ImmutableSortedMap<Path, OmniBuildInvocations> buildInvocationsPerProject = buildBuildInvocationsMapping(project, tasks, taskSelectors);
-        return DefaultOmniBuildInvocationsContainer.from(buildInvocationsPerProject);
+        return build(project, ModelCapabilities.unknown());
     }
 
-    private static ImmutableSortedMap<Path, OmniBuildInvocations> buildBuildInvocationsMapping(GradleProject project,
-                                                                                               Multimap<Path, OmniProjectTask> projectTasks,
-                                                                                               Multimap<Path, OmniTaskSelector> taskSelectors) {
-        Preconditions.checkState(taskSelectors.keySet().containsAll(projectTasks.keySet()), "Task selectors are always configured for all projects");
-
-        // create mappings for all projects which contain tasks selectors (which covers at least those projects that contain project tasks)
+    /**
+     * Converts a {@link GradleProject} to a {@link DefaultOmniBuildInvocationsContainer}.
+     *
+     * @param project the Gradle project to convert
+     * @param capabilities the capabilities of the target Gradle version
+     * @return the build invocations container
+     */
+    public static DefaultOmniBuildInvocationsContainer build(GradleProject project, ModelCapabilities capabilities) {
         ImmutableSortedMap.Builder<Path, OmniBuildInvocations> mapping = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
-        for (Path projectPath : taskSelectors.keySet()) {
-            ImmutableList<OmniProjectTask> projectTasksOfProject = ImmutableSortedSet.orderedBy(TaskComparator.INSTANCE).addAll(projectTasks.get(projectPath)).build().asList();
-            ImmutableList<OmniTaskSelector> taskSelectorsOfProject = ImmutableSortedSet.orderedBy(TaskSelectorComparator.INSTANCE).addAll(taskSelectors.get(projectPath)).build().asList();
-            mapping.put(projectPath, DefaultOmniBuildInvocations.from(projectTasksOfProject, taskSelectorsOfProject));
+        collectBuildInvocations(project, capabilities, mapping);
+        return DefaultOmniBuildInvocationsContainer.from(mapping.build());
+    }
+
+    /**
+     * Adds the build invocations of the given project and of all its child projects to the given mapping.
+     *
+     * @param project the project to traverse
+     * @param capabilities the capabilities of the target Gradle version
+     * @param mapping the mapping of project paths to build invocations
+     * @return the tasks of the given project and its child projects, grouped by name and ordered by path
+     */
+    private static SortedMap<String, SortedMap<Path, OmniProjectTask>> collectBuildInvocations(GradleProject project, ModelCapabilities capabilities,
+                                                                                              ImmutableSortedMap.Builder<Path, OmniBuildInvocations> mapping) {
+        // merge the tasks of the child projects into the largest set of tasks of any child project
+        SortedMap<String, SortedMap<Path, OmniProjectTask>> tasksByNameAndPath = null;
+        for (GradleProject child : project.getChildren()) {
+            SortedMap<String, SortedMap<Path, OmniProjectTask>> childTasks = collectBuildInvocations(child, capabilities, mapping);
+            if (tasksByNameAndPath == null || tasksByNameAndPath.size() < childTasks.size()) {
+                SortedMap<String, SortedMap<Path, OmniProjectTask>> smaller = tasksByNameAndPath;
+                tasksByNameAndPath = childTasks;
+                childTasks = smaller;
+            }
+            if (childTasks != null) {
+                mergeInto(tasksByNameAndPath, childTasks);
+            }
+        }
+        if (tasksByNameAndPath == null) {
+            tasksByNameAndPath = Maps.newTreeMap();
         }
 
-        // create additional mappings for all those projects which do not contain any task selectors
-        // this is the case if a project does not contain any tasks nor does any of its child projects
-        // these additional mappings ensure the caller never gets back null for any project in the hierarchy
-        Set<Path> projectsWithoutTaskSelectors = Sets.difference(getAllProjectPaths(project), taskSelectors.keySet());
-        for (Path projectPath : projectsWithoutTaskSelectors) {
-            mapping.put(projectPath, DefaultOmniBuildInvocations.from(ImmutableList.<OmniProjectTask>of(), ImmutableList.<OmniTaskSelector>of()));
+        // each task is converted once, the same instance is referenced from the project tasks and the task selectors
+        List<OmniProjectTask> projectTasks = Lists.newArrayList();
+        for (GradleTask task : project.getTasks()) {
+            OmniProjectTask projectTask = DefaultOmniProjectTask.from(task, capabilities);
+            projectTasks.add(projectTask);
+            tasksOfName(tasksByNameAndPath, projectTask.getName()).put(projectTask.getPath(), projectTask);
         }
 
-        return mapping.build();
+        // projects that do not contain any tasks nor does any of their child projects get empty build invocations,
+        // thus the caller never gets back null for any project in the hierarchy
+        Path projectPath = Path.from(project.getPath());
+        ImmutableList<OmniProjectTask> sortedProjectTasks = ImmutableSortedSet.orderedBy(TaskComparator.INSTANCE).addAll(projectTasks).build().asList();
+        ImmutableList<OmniTaskSelector> taskSelectors = createTaskSelectors(projectPath, tasksByNameAndPath);
+        mapping.put(projectPath, DefaultOmniBuildInvocations.from(sortedProjectTasks, taskSelectors));
+        return tasksByNameAndPath;
     }
 
-    private static ImmutableSet<Path> getAllProjectPaths(GradleProject project) {
-        ImmutableSet.Builder<Path> projectPaths = ImmutableSet.builder();
-        projectPaths.add(Path.from(project.getPath()));
-
-        for (GradleProject childProject : project.getChildren()) {
-            projectPaths.addAll(getAllProjectPaths(childProject));
+    private static void mergeInto(SortedMap<String, SortedMap<Path, OmniProjectTask>> target, SortedMap<String, SortedMap<Path, OmniProjectTask>> source) {
+        for (Map.Entry<String, SortedMap<Path, OmniProjectTask>> entry : source.entrySet()) {
+            SortedMap<Path, OmniProjectTask> targetTasks = target.get(entry.getKey());
+            if (targetTasks == null) {
+                target.put(entry.getKey(), entry.getValue());
+            } else if (targetTasks.size() < entry.getValue().size()) {
+                entry.getValue().putAll(targetTasks);
+                target.put(entry.getKey(), entry.getValue());
+            } else {
+                targetTasks.putAll(entry.getValue());
+            }
         }
-        return projectPaths.build();
     }
 
-    private static ImmutableMultimap<Path, OmniProjectTask> getAllProjectTasksByProjectPath(GradleProject project) {
-        Builder<Path, OmniProjectTask> tasks = ImmutableMultimap.builder();
-
-        for (GradleTask task : project.getTasks()) {
-            tasks.put(Path.from(project.getPath()), DefaultOmniProjectTask.from(task));
+    private static SortedMap<Path, OmniProjectTask> tasksOfName(SortedMap<String, SortedMap<Path, OmniProjectTask>> tasksByNameAndPath, String name) {
+        SortedMap<Path, OmniProjectTask> tasks = tasksByNameAndPath.get(name);
+        if (tasks == null) {
+            tasks = Maps.newTreeMap(Path.Comparator.INSTANCE);
+            tasksByNameAndPath.put(name, tasks);
         }
-
-        for (GradleProject child : project.getChildren()) {
-            tasks.putAll(getAllProjectTasksByProjectPath(child));
-        }
-
-        return tasks.build();
+        return tasks;
     }
 
-    private static ImmutableMultimap<Path, OmniTaskSelector> getAllTaskSelectorsByProjectPath(GradleProject project) {
-        Builder<Path, OmniTaskSelector> taskSelectors = ImmutableMultimap.builder();
-        TreeBasedTable<String, Path, OmniProjectTask> tasksByNameAndPath = getAllProjectTasksByNameAndPath(project);
-
-        for (String selectorName : tasksByNameAndPath.rowKeySet()) {
-            SortedMap<Path, OmniProjectTask> tasksByPath = tasksByNameAndPath.row(selectorName);
+    private static ImmutableList<OmniTaskSelector> createTaskSelectors(Path projectPath, SortedMap<String, SortedMap<Path, OmniProjectTask>> tasksByNameAndPath) {
+        // the task names are already sorted, thus the selectors are created in the order of their names
+        ImmutableList.Builder<OmniTaskSelector> taskSelectors = ImmutableList.builder();
+        for (Map.Entry<String, SortedMap<Path, OmniProjectTask>> entry : tasksByNameAndPath.entrySet()) {
+            SortedMap<Path, OmniProjectTask> tasksByPath = entry.getValue();
             OmniProjectTask taskWithShortestPath = tasksByPath.get(tasksByPath.firstKey());
             boolean isPublic = Iterables.any(tasksByPath.values(), new Predicate<OmniProjectTask>() {
 
@@ -125,39 +152,19 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
                     return input.isPublic();
                 }
             });
-            SortedSet<Path> selectedPaths = ImmutableSortedSet.copyOf(tasksByPath.comparator(), tasksByPath.keySet());
+            SortedSet<Path> selectedPaths = ImmutableSortedSet.copyOf(Path.Comparator.INSTANCE, tasksByPath.keySet());
 
-            OmniTaskSelector taskSelector = DefaultOmniTaskSelector.from(
-                    selectorName,
+            taskSelectors.add(DefaultOmniTaskSelector.from(
+                    entry.getKey(),
                     taskWithShortestPath.getDescription(),
-                    Path.from(project.getPath()),
+                    projectPath,
                     isPublic,
                     taskWithShortestPath.getGroup(),
-                    selectedPaths);
-
-            taskSelectors.put(Path.from(project.getPath()), taskSelector);
-        }
-
-        for (GradleProject childProject : project.getChildren()) {
-            taskSelectors.putAll(getAllTaskSelectorsByProjectPath(childProject));
+                    selectedPaths));
         }
-
         return taskSelectors.build();
     }
 
-    private static TreeBasedTable<String, Path, OmniProjectTask> getAllProjectTasksByNameAndPath(GradleProject project) {
-        TreeBasedTable<String, Path, OmniProjectTask> tasks = TreeBasedTable.create(Ordering.natural(), Path.Comparator.INSTANCE);
-        for (GradleTask task : project.getTasks()) {
-            OmniProjectTask projectTask = DefaultOmniProjectTask.from(task);
-            tasks.put(projectTask.getName(), projectTask.getPath(), projectTask);
-        }
-
-        for (GradleProject childProject : project.getChildren()) {
-            tasks.putAll(getAllProjectTasksByNameAndPath(childProject));
-        }
-        return tasks;
-    }
-
     /**
      * Singleton comparator to compare {@code OmniProjectTask} instances by their name.
      */
@@ -172,18 +179,4 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
 
     }
 
-    /**
-     * Singleton comparator to compare {@code OmniTaskSelector} instances by their name.
-     */
-    private enum TaskSelectorComparator implements Comparator<OmniTaskSelector> {
-
-        INSTANCE;
-
-        @Override
-        public int compare(OmniTaskSelector o1, OmniTaskSelector o2) {
-            return o1.getName().compareTo(o2.getName());
-        }
-
-    }
-
 }
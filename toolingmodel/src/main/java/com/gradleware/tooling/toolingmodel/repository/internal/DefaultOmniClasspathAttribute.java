@@ -22,13 +22,17 @@ import com.google.common.base.Preconditions;
 
 import com.gradleware.tooling.toolingmodel.OmniClasspathAttribute;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of {@link OmniClasspathAttribute}.
  *
  * @author Stefan Oehme
  *
  */
-final class DefaultOmniClasspathAttribute implements OmniClasspathAttribute {
+final class DefaultOmniClasspathAttribute implements OmniClasspathAttribute, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String name;
     private String value;
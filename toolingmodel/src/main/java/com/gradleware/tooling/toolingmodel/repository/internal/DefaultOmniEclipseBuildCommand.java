@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableMap;
 import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand;
 import org.gradle.tooling.model.eclipse.EclipseBuildCommand;
 
+import java.io.Serializable;
 import java.util.Map;
 
 /**
@@ -27,7 +28,9 @@ import java.util.Map;
  *
  * @author Donát Csikós
  */
-public final class DefaultOmniEclipseBuildCommand implements OmniEclipseBuildCommand {
+public final class DefaultOmniEclipseBuildCommand implements OmniEclipseBuildCommand, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String name;
     private final Map<String, String> arguments;
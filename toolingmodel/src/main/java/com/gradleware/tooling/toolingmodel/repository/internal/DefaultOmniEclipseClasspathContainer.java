@@ -31,6 +31,8 @@ import java.util.List;
  */
 public class DefaultOmniEclipseClasspathContainer extends AbstractOmniClasspathEntry implements OmniEclipseClasspathContainer {
 
+    private static final long serialVersionUID = 1L;
+
     private final String path;
     private final boolean isExported;
 
@@ -51,11 +53,15 @@ public class DefaultOmniEclipseClasspathContainer extends AbstractOmniClasspathE
     }
 
     public static DefaultOmniEclipseClasspathContainer from(EclipseClasspathContainer container) {
+        return from(container, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniEclipseClasspathContainer from(EclipseClasspathContainer container, ModelCapabilities capabilities) {
         return new DefaultOmniEclipseClasspathContainer(
                 container.getPath(),
                 container.isExported(),
-                getClasspathAttributes(container),
-                getAccessRules(container));
+                getClasspathAttributes(container, capabilities),
+                getAccessRules(container, capabilities));
     }
 
 }
@@ -19,12 +19,16 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
 import org.gradle.tooling.model.eclipse.EclipseLinkedResource;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniEclipseLinkedResource} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniEclipseLinkedResource implements OmniEclipseLinkedResource {
+public final class DefaultOmniEclipseLinkedResource implements OmniEclipseLinkedResource, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String name;
     private final String type;
@@ -19,12 +19,16 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.gradleware.tooling.toolingmodel.OmniEclipseOutputLocation;
 import org.gradle.tooling.model.eclipse.EclipseOutputLocation;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of {@link OmniEclipseOutputLocation}.
  *
  * @author Donat Csikos
  */
-final class DefaultOmniEclipseOutputLocation implements OmniEclipseOutputLocation {
+final class DefaultOmniEclipseOutputLocation implements OmniEclipseOutputLocation, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String path;
 
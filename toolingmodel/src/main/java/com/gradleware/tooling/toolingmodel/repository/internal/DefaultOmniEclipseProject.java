@@ -31,6 +31,10 @@ import org.gradle.tooling.model.eclipse.*;
 import org.gradle.tooling.model.java.InstalledJdk;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -40,7 +44,9 @@ import java.util.Map;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniEclipseProject implements OmniEclipseProject {
+public final class DefaultOmniEclipseProject implements OmniEclipseProject, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final HierarchyHelper<OmniEclipseProject> hierarchyHelper;
     private String name;
@@ -57,7 +63,7 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
     private OmniGradleProject gradleProject;
     private Optional<List<OmniEclipseClasspathContainer>> classpathContainers;
     private Optional<OmniEclipseOutputLocation> outputLocation;
-    private ProjectIdentifier projectIdentifier;
+    private transient ProjectIdentifier projectIdentifier;
 
     private DefaultOmniEclipseProject(Comparator<? super OmniEclipseProject> comparator) {
         this.hierarchyHelper = new HierarchyHelper<OmniEclipseProject>(this, Preconditions.checkNotNull(comparator));
@@ -206,6 +212,17 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         this.projectIdentifier = projectIdentifier;
     }
 
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        // the identifier provided by the Tooling API is not guaranteed to be serializable
+        stream.defaultWriteObject();
+        stream.writeObject(SerializableProjectIdentifier.from(this.projectIdentifier));
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        this.projectIdentifier = (ProjectIdentifier) stream.readObject();
+    }
+
     @Override
     public OmniEclipseProject getRoot() {
         return this.hierarchyHelper.getRoot();
@@ -246,10 +263,21 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
     }
 
     public static DefaultOmniEclipseProject from(EclipseProject project) {
-        return from(project, Maps.<Path, DefaultOmniEclipseProject>newHashMap(), Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap());
+        return from(project, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniEclipseProject from(EclipseProject project, ModelCapabilities capabilities) {
+        Map<Path, DefaultOmniEclipseProject> knownProjects = Maps.newHashMap();
+        Map<ProjectIdentifier, DefaultOmniGradleProject> knownGradleProjects = Maps.newHashMap();
+        return from(project, knownProjects, knownGradleProjects, capabilities);
     }
 
     public static DefaultOmniEclipseProject from(EclipseProject project, Map<Path, DefaultOmniEclipseProject> knownProjects, Map<ProjectIdentifier, DefaultOmniGradleProject> knownGradleProjects) {
+        return from(project, knownProjects, knownGradleProjects, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniEclipseProject from(EclipseProject project, Map<Path, DefaultOmniEclipseProject> knownProjects, Map<ProjectIdentifier, DefaultOmniGradleProject> knownGradleProjects,
+                                                 ModelCapabilities capabilities) {
         Path path = Path.from(project.getGradleProject().getPath());
         if (knownProjects.containsKey(path)) {
             return knownProjects.get(path);
@@ -263,45 +291,47 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         eclipseProject.setDescription(project.getDescription());
         eclipseProject.setPath(Path.from(project.getGradleProject().getPath()));
         eclipseProject.setProjectDirectory(project.getProjectDirectory());
-        eclipseProject.setProjectDependencies(toProjectDependencies(project.getProjectDependencies()));
-        eclipseProject.setExternalDependencies(toExternalDependencies(project.getClasspath()));
+        eclipseProject.setProjectDependencies(toProjectDependencies(project.getProjectDependencies(), capabilities));
+        eclipseProject.setExternalDependencies(toExternalDependencies(project.getClasspath(), capabilities));
         eclipseProject.setLinkedResources(toLinkedResources(project.getLinkedResources()));
-        eclipseProject.setSourceDirectories(toSourceDirectories(project.getSourceDirectories()));
-        eclipseProject.setGradleProject(DefaultOmniGradleProject.from(project.getGradleProject(), knownGradleProjects));
+        eclipseProject.setSourceDirectories(toSourceDirectories(project.getSourceDirectories(), capabilities));
+        eclipseProject.setGradleProject(DefaultOmniGradleProject.from(project.getGradleProject(), knownGradleProjects, capabilities));
         if (project.getParent() != null) {
-            eclipseProject.setParent(from(project.getParent(), knownProjects, knownGradleProjects));
+            eclipseProject.setParent(from(project.getParent(), knownProjects, knownGradleProjects, capabilities));
         }
-        setProjectNatures(eclipseProject, project);
-        setBuildCommands(eclipseProject, project);
-        setJavaSourceSettings(eclipseProject, project);
+        setProjectNatures(eclipseProject, project, capabilities);
+        setBuildCommands(eclipseProject, project, capabilities);
+        setJavaSourceSettings(eclipseProject, project, capabilities);
 
-        setClasspathContainers(eclipseProject, project);
-        setOutputLocation(eclipseProject, project);
+        setClasspathContainers(eclipseProject, project, capabilities);
+        setOutputLocation(eclipseProject, project, capabilities);
 
         for (EclipseProject child : project.getChildren()) {
-            DefaultOmniEclipseProject eclipseChildProject = from(child, knownProjects, knownGradleProjects);
+            DefaultOmniEclipseProject eclipseChildProject = from(child, knownProjects, knownGradleProjects, capabilities);
             eclipseProject.addChild(eclipseChildProject);
         }
 
         return eclipseProject;
     }
 
-    private static ImmutableList<OmniEclipseProjectDependency> toProjectDependencies(DomainObjectSet<? extends EclipseProjectDependency> projectDependencies) {
+    private static ImmutableList<OmniEclipseProjectDependency> toProjectDependencies(DomainObjectSet<? extends EclipseProjectDependency> projectDependencies,
+                                                                                     final ModelCapabilities capabilities) {
         return FluentIterable.from(projectDependencies).transform(new Function<EclipseProjectDependency, OmniEclipseProjectDependency>() {
             @Override
             public OmniEclipseProjectDependency apply(EclipseProjectDependency input) {
-                return DefaultOmniEclipseProjectDependency.from(input);
+                return DefaultOmniEclipseProjectDependency.from(input, capabilities);
             }
         }).toList();
     }
 
-    private static ImmutableList<OmniExternalDependency> toExternalDependencies(DomainObjectSet<? extends EclipseExternalDependency> externalDependencies) {
+    private static ImmutableList<OmniExternalDependency> toExternalDependencies(DomainObjectSet<? extends EclipseExternalDependency> externalDependencies,
+                                                                                final ModelCapabilities capabilities) {
         // filter out invalid external dependencies
         // Gradle versions <= 1.10 return external dependencies from dependent projects that are not valid, i.e. all fields are null except the file with name 'unresolved dependency...'
         return FluentIterable.from(externalDependencies).transform(new Function<EclipseExternalDependency, OmniExternalDependency>() {
             @Override
             public OmniExternalDependency apply(EclipseExternalDependency input) {
-                return DefaultOmniExternalDependency.from(input);
+                return DefaultOmniExternalDependency.from(input, capabilities);
             }
         }).toList();
     }
@@ -315,12 +345,12 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         }).toList();
     }
 
-    private static ImmutableList<OmniEclipseSourceDirectory> toSourceDirectories(DomainObjectSet<? extends EclipseSourceDirectory> sourceDirectories) {
-
+    private static ImmutableList<OmniEclipseSourceDirectory> toSourceDirectories(DomainObjectSet<? extends EclipseSourceDirectory> sourceDirectories,
+                                                                                 final ModelCapabilities capabilities) {
         return FluentIterable.from(sourceDirectories).transform(new Function<EclipseSourceDirectory, OmniEclipseSourceDirectory>() {
             @Override
             public OmniEclipseSourceDirectory apply(EclipseSourceDirectory input) {
-                return DefaultOmniEclipseSourceDirectory.from(input);
+                return DefaultOmniEclipseSourceDirectory.from(input, capabilities);
             }
         }).toList();
     }
@@ -330,8 +360,14 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setProjectNatures(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
+    private static void setProjectNatures(DefaultOmniEclipseProject eclipseProject, EclipseProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ECLIPSE_PROJECT_NATURES)) {
+            eclipseProject.setProjectNatures(Optional.<List<OmniEclipseProjectNature>>absent());
+            return;
+        }
+
         try {
             List<OmniEclipseProjectNature> projectNatures = toProjectNatures(project.getProjectNatures());
             eclipseProject.setProjectNatures(Optional.of(projectNatures));
@@ -355,8 +391,14 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setBuildCommands(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
+    private static void setBuildCommands(DefaultOmniEclipseProject eclipseProject, EclipseProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ECLIPSE_BUILD_COMMANDS)) {
+            eclipseProject.setBuildCommands(Optional.<List<OmniEclipseBuildCommand>>absent());
+            return;
+        }
+
         try {
             List<OmniEclipseBuildCommand> buildCommands = toBuildCommands(project.getBuildCommands());
             eclipseProject.setBuildCommands(Optional.of(buildCommands));
@@ -380,11 +422,18 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setJavaSourceSettings(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
+    private static void setJavaSourceSettings(DefaultOmniEclipseProject eclipseProject, EclipseProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ECLIPSE_JAVA_SOURCE_SETTINGS)) {
+            setCompatibilityJavaSourceSettings(eclipseProject);
+            return;
+        }
+
         try {
             EclipseJavaSourceSettings sourceSettings = project.getJavaSourceSettings();
-            Optional<OmniJavaSourceSettings> javaSourceSettings = sourceSettings != null ? Optional.of(toOmniJavaSourceSettings(sourceSettings)) : Optional.<OmniJavaSourceSettings>absent();
+            Optional<OmniJavaSourceSettings> javaSourceSettings = sourceSettings != null ? Optional.of(toOmniJavaSourceSettings(sourceSettings, capabilities))
+                    : Optional.<OmniJavaSourceSettings>absent();
             eclipseProject.setJavaSourceSettings(javaSourceSettings);
         } catch (Exception ignore) {
             setCompatibilityJavaSourceSettings(eclipseProject);
@@ -395,29 +444,41 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      * EclipseProject#getClasspathContainers() is only available in Gradle versions >= 3.0.
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setClasspathContainers(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
+    private static void setClasspathContainers(DefaultOmniEclipseProject eclipseProject, EclipseProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ECLIPSE_CLASSPATH_CONTAINERS)) {
+            eclipseProject.setClasspathContainers(Optional.<List<OmniEclipseClasspathContainer>>absent());
+            return;
+        }
+
         try {
-            ImmutableList<OmniEclipseClasspathContainer> classpathContainers = toClasspathContainers(project.getClasspathContainers());
+            ImmutableList<OmniEclipseClasspathContainer> classpathContainers = toClasspathContainers(project.getClasspathContainers(), capabilities);
             eclipseProject.setClasspathContainers(Optional.<List<OmniEclipseClasspathContainer>>of(classpathContainers));
         } catch (Exception ignore) {
             eclipseProject.setClasspathContainers(Optional.<List<OmniEclipseClasspathContainer>>absent());
         }
     }
 
-    private static ImmutableList<OmniEclipseClasspathContainer> toClasspathContainers(DomainObjectSet<? extends EclipseClasspathContainer> classpathContainers) {
+    private static ImmutableList<OmniEclipseClasspathContainer> toClasspathContainers(DomainObjectSet<? extends EclipseClasspathContainer> classpathContainers,
+                                                                                      final ModelCapabilities capabilities) {
         return FluentIterable.from(classpathContainers).transform(new Function<EclipseClasspathContainer, OmniEclipseClasspathContainer>() {
             @Override
             public OmniEclipseClasspathContainer apply(EclipseClasspathContainer input) {
-                return DefaultOmniEclipseClasspathContainer.from(input);
+                return DefaultOmniEclipseClasspathContainer.from(input, capabilities);
             }
         }).toList();
     }
 
-    private static OmniJavaSourceSettings toOmniJavaSourceSettings(final EclipseJavaSourceSettings javaSourceSettings) {
+    private static OmniJavaSourceSettings toOmniJavaSourceSettings(final EclipseJavaSourceSettings javaSourceSettings, ModelCapabilities capabilities) {
         // the source language level is always present on the source settings
         OmniJavaVersion sourceLanguageLevel = toOmniJavaVersion(javaSourceSettings.getSourceLanguageLevel());
 
+        // if the target bytecode level and the target runtime are not available, then fall back to the current source language level and the current JVM settings
+        if (!capabilities.isSupported(ModelCapabilities.Capability.JAVA_TARGET_SETTINGS)) {
+            return DefaultOmniJavaSourceSettings.from(sourceLanguageLevel, sourceLanguageLevel, getCompatibilityJavaRuntime());
+        }
+
         OmniJavaVersion targetBytecodeLevel;
         try {
             targetBytecodeLevel = toOmniJavaVersion(javaSourceSettings.getTargetBytecodeVersion());
@@ -468,8 +529,14 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      * EclipseProject#getOutputLocation() is only available in Gradle versions >= 3.0.
      * @param eclipseProject the project to populate
      * @param project
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setOutputLocation(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
+    private static void setOutputLocation(DefaultOmniEclipseProject eclipseProject, EclipseProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.ECLIPSE_OUTPUT_LOCATION)) {
+            eclipseProject.setOutputLocation(Optional.<OmniEclipseOutputLocation>absent());
+            return;
+        }
+
         try {
             eclipseProject.setOutputLocation(Optional.<OmniEclipseOutputLocation>of(new DefaultOmniEclipseOutputLocation(project.getOutputLocation().getPath())));
         } catch (Exception ignore) {
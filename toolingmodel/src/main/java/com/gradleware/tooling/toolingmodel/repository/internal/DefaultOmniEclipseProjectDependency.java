@@ -31,6 +31,8 @@ import java.util.List;
  */
 public final class DefaultOmniEclipseProjectDependency extends AbstractOmniClasspathEntry implements OmniEclipseProjectDependency {
 
+    private static final long serialVersionUID = 1L;
+
     private final String path;
     private final boolean exported;
 
@@ -50,21 +52,30 @@ public final class DefaultOmniEclipseProjectDependency extends AbstractOmniClass
         return this.exported;
     }
 
-    @SuppressWarnings("deprecation")
     public static DefaultOmniEclipseProjectDependency from(EclipseProjectDependency projectDependency) {
+        return from(projectDependency, ModelCapabilities.unknown());
+    }
+
+    @SuppressWarnings("deprecation")
+    public static DefaultOmniEclipseProjectDependency from(EclipseProjectDependency projectDependency, ModelCapabilities capabilities) {
         return new DefaultOmniEclipseProjectDependency(
                 projectDependency.getPath(),
-                getIsExported(projectDependency),
-                getClasspathAttributes(projectDependency),
-                getAccessRules(projectDependency));
+                getIsExported(projectDependency, capabilities),
+                getClasspathAttributes(projectDependency, capabilities),
+                getAccessRules(projectDependency, capabilities));
     }
 
     /**
      * EclipseProjectDependency#isExported is only available in Gradle versions >= 2.5.
      *
      * @param projectDependency the project dependency model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static boolean getIsExported(EclipseProjectDependency projectDependency) {
+    private static boolean getIsExported(EclipseProjectDependency projectDependency, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.DEPENDENCY_EXPORTED)) {
+            return true;
+        }
+
         try {
             return projectDependency.isExported();
         } catch (Exception ignore) {
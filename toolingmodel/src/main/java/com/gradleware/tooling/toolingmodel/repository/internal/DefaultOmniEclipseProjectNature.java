@@ -19,12 +19,16 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature;
 import org.gradle.tooling.model.eclipse.EclipseProjectNature;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniEclipseProjectNature} interface.
  *
  * @author Donát Csikós
  */
-public final class DefaultOmniEclipseProjectNature implements OmniEclipseProjectNature {
+public final class DefaultOmniEclipseProjectNature implements OmniEclipseProjectNature, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String id;
 
@@ -33,6 +33,8 @@ import java.util.List;
  */
 public final class DefaultOmniEclipseSourceDirectory extends AbstractOmniClasspathEntry implements OmniEclipseSourceDirectory {
 
+    private static final long serialVersionUID = 1L;
+
     private final File directory;
     private final String path;
     private final Optional<List<String>> excludes;
@@ -77,17 +79,25 @@ public final class DefaultOmniEclipseSourceDirectory extends AbstractOmniClasspa
     }
 
     public static DefaultOmniEclipseSourceDirectory from(EclipseSourceDirectory sourceDirectory) {
+        return from(sourceDirectory, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniEclipseSourceDirectory from(EclipseSourceDirectory sourceDirectory, ModelCapabilities capabilities) {
         return new DefaultOmniEclipseSourceDirectory(
                 sourceDirectory.getDirectory(),
                 sourceDirectory.getPath(),
-                getExcludes(sourceDirectory),
-                getIncludes(sourceDirectory),
-                getOutput(sourceDirectory),
-                getClasspathAttributes(sourceDirectory),
-                getAccessRules(sourceDirectory));
+                getExcludes(sourceDirectory, capabilities),
+                getIncludes(sourceDirectory, capabilities),
+                getOutput(sourceDirectory, capabilities),
+                getClasspathAttributes(sourceDirectory, capabilities),
+                getAccessRules(sourceDirectory, capabilities));
     }
 
-    private static Optional<List<String>> getExcludes(EclipseSourceDirectory sourceDirectory) {
+    private static Optional<List<String>> getExcludes(EclipseSourceDirectory sourceDirectory, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.SOURCE_DIRECTORY_FILTERS)) {
+            return Optional.absent();
+        }
+
         try {
             return Optional.of(sourceDirectory.getExcludes());
         } catch(Exception ignore) {
@@ -95,7 +105,11 @@ public final class DefaultOmniEclipseSourceDirectory extends AbstractOmniClasspa
         }
     }
 
-    private static Optional<List<String>> getIncludes(EclipseSourceDirectory sourceDirectory) {
+    private static Optional<List<String>> getIncludes(EclipseSourceDirectory sourceDirectory, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.SOURCE_DIRECTORY_FILTERS)) {
+            return Optional.absent();
+        }
+
         try {
             return Optional.of(sourceDirectory.getIncludes());
         } catch(Exception ignore) {
@@ -103,7 +117,11 @@ public final class DefaultOmniEclipseSourceDirectory extends AbstractOmniClasspa
         }
     }
 
-    private static Maybe<String> getOutput(EclipseSourceDirectory sourceDirectory) {
+    private static Maybe<String> getOutput(EclipseSourceDirectory sourceDirectory, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.SOURCE_DIRECTORY_OUTPUT)) {
+            return Maybe.absent();
+        }
+
         try {
             return Maybe.of(sourceDirectory.getOutput());
         } catch (Exception ignore) {
@@ -36,6 +36,8 @@ import java.util.List;
  */
 public final class DefaultOmniExternalDependency extends AbstractOmniClasspathEntry implements OmniExternalDependency {
 
+    private static final long serialVersionUID = 1L;
+
     private final File file;
     private final File source;
     private final File javadoc;
@@ -77,22 +79,31 @@ public final class DefaultOmniExternalDependency extends AbstractOmniClasspathEn
     }
 
     public static DefaultOmniExternalDependency from(EclipseExternalDependency externalDependency) {
+        return from(externalDependency, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniExternalDependency from(EclipseExternalDependency externalDependency, ModelCapabilities capabilities) {
         return new DefaultOmniExternalDependency(
                 externalDependency.getFile(),
                 externalDependency.getSource(),
                 externalDependency.getJavadoc(),
-                getGradleModuleVersion(externalDependency),
-                getIsExported(externalDependency),
-                getClasspathAttributes(externalDependency),
-                getAccessRules(externalDependency));
+                getGradleModuleVersion(externalDependency, capabilities),
+                getIsExported(externalDependency, capabilities),
+                getClasspathAttributes(externalDependency, capabilities),
+                getAccessRules(externalDependency, capabilities));
     }
 
     /**
      * ExternalDependency#getGradleModuleVersion is only available in Gradle versions >= 1.1.
      *
      * @param externalDependency the external dependency model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static Maybe<OmniGradleModuleVersion> getGradleModuleVersion(ExternalDependency externalDependency) {
+    private static Maybe<OmniGradleModuleVersion> getGradleModuleVersion(ExternalDependency externalDependency, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.EXTERNAL_DEPENDENCY_MODULE_VERSION)) {
+            return Maybe.absent();
+        }
+
         try {
             GradleModuleVersion gav = externalDependency.getGradleModuleVersion();
             return Maybe.of((OmniGradleModuleVersion) DefaultOmniGradleModuleVersion.from(gav));
@@ -105,8 +116,13 @@ public final class DefaultOmniExternalDependency extends AbstractOmniClasspathEn
      * ExternalDependency#isExported is only available in Gradle versions >= 2.5.
      *
      * @param externalDependency the external dependency model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static boolean getIsExported(ExternalDependency externalDependency) {
+    private static boolean getIsExported(ExternalDependency externalDependency, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.DEPENDENCY_EXPORTED)) {
+            return true;
+        }
+
         try {
             return externalDependency.isExported();
         } catch (Exception ignore) {
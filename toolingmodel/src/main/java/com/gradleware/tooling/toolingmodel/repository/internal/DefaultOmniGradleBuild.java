@@ -22,6 +22,7 @@ import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
 import org.gradle.tooling.model.gradle.GradleBuild;
 
+import java.io.Serializable;
 import java.util.Set;
 
 /**
@@ -29,7 +30,9 @@ import java.util.Set;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleBuild implements OmniGradleBuild {
+public final class DefaultOmniGradleBuild implements OmniGradleBuild, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final OmniGradleProjectStructure rootProject;
     private final ImmutableSet<OmniGradleBuild> includedBuilds;
@@ -21,13 +21,16 @@ import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.tooling.model.build.GradleEnvironment;
 
 import java.io.File;
+import java.io.Serializable;
 
 /**
  * Default implementation of the {@link OmniGradleEnvironment} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleEnvironment implements OmniGradleEnvironment {
+public final class DefaultOmniGradleEnvironment implements OmniGradleEnvironment, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Maybe<File> gradleUserHome;
     private final String gradleVersion;
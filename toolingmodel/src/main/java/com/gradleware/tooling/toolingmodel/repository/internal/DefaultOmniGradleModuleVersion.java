@@ -19,12 +19,16 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
 import org.gradle.tooling.model.GradleModuleVersion;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniGradleModuleVersion} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleModuleVersion implements OmniGradleModuleVersion {
+public final class DefaultOmniGradleModuleVersion implements OmniGradleModuleVersion, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String group;
     private final String name;
@@ -28,6 +28,10 @@ import org.gradle.tooling.model.ProjectIdentifier;
 import org.gradle.tooling.model.gradle.GradleScript;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -37,14 +41,16 @@ import java.util.Map;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleProject implements OmniGradleProject {
+public final class DefaultOmniGradleProject implements OmniGradleProject, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final HierarchyHelper<OmniGradleProject> hierarchyHelper;
     private String name;
     private String description;
     private Path path;
     private Maybe<File> projectDirectory;
-    private ProjectIdentifier projectIdentifier;
+    private transient ProjectIdentifier projectIdentifier;
     private Maybe<File> buildDirectory;
     private Maybe<OmniGradleScript> buildScript;
     private ImmutableList<OmniProjectTask> projectTasks;
@@ -100,6 +106,17 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
         this.projectIdentifier = projectIdentifier;
     }
 
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        // the identifier provided by the Tooling API is not guaranteed to be serializable
+        stream.defaultWriteObject();
+        stream.writeObject(SerializableProjectIdentifier.from(this.projectIdentifier));
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        this.projectIdentifier = (ProjectIdentifier) stream.readObject();
+    }
+
     @Override
     public Maybe<File> getBuildDirectory() {
         return this.buildDirectory;
@@ -176,15 +193,41 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
     }
 
     public static DefaultOmniGradleProject from(GradleProject project) {
-        return from(project, Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap());
+        return from(project, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniGradleProject from(GradleProject project, ModelCapabilities capabilities) {
+        return from(project, Maps.<ProjectIdentifier, DefaultOmniGradleProject>newHashMap(), capabilities);
     }
 
     public static DefaultOmniGradleProject from(GradleProject project, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects) {
-        OmniBuildInvocationsContainer buildInvocationsContainer = DefaultOmniBuildInvocationsContainerBuilder.build(project);
-        return convert(project, buildInvocationsContainer, knownProjects);
+        return from(project, knownProjects, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniGradleProject from(GradleProject project, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects, ModelCapabilities capabilities) {
+        // the projects of a build are converted all at once, thus a known project is returned without computing the build invocations again
+        DefaultOmniGradleProject knownProject = knownProjects.get(project.getProjectIdentifier());
+        if (knownProject != null) {
+            return knownProject;
+        }
+
+        // the build invocations are computed once for the whole build and shared by all its projects
+        GradleProject rootProject = rootOf(project);
+        OmniBuildInvocationsContainer buildInvocationsContainer = DefaultOmniBuildInvocationsContainerBuilder.build(rootProject, capabilities);
+        convert(rootProject, buildInvocationsContainer, knownProjects, capabilities);
+        return knownProjects.get(project.getProjectIdentifier());
     }
 
-    private static DefaultOmniGradleProject convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer, Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects) {
+    private static GradleProject rootOf(GradleProject project) {
+        GradleProject rootProject = project;
+        while (rootProject.getParent() != null) {
+            rootProject = rootProject.getParent();
+        }
+        return rootProject;
+    }
+
+    private static DefaultOmniGradleProject convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer,
+                                                    Map<ProjectIdentifier, DefaultOmniGradleProject> knownProjects, ModelCapabilities capabilities) {
         ProjectIdentifier id = project.getProjectIdentifier();
         if (knownProjects.containsKey(id)) {
             return knownProjects.get(id);
@@ -195,15 +238,15 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
         gradleProject.setDescription(project.getDescription());
         gradleProject.setPath(Path.from(project.getPath()));
         gradleProject.setProjectIdentifier(project.getProjectIdentifier());
-        setProjectDirectory(gradleProject, project);
-        setBuildDirectory(gradleProject, project);
-        setBuildScript(gradleProject, project);
+        setProjectDirectory(gradleProject, project, capabilities);
+        setBuildDirectory(gradleProject, project, capabilities);
+        setBuildScript(gradleProject, project, capabilities);
         OmniBuildInvocations buildInvocations = buildInvocationsContainer.asMap().get(Path.from(project.getPath()));
         gradleProject.setProjectTasks(buildInvocations.getProjectTasks());
         gradleProject.setTaskSelectors(buildInvocations.getTaskSelectors());
 
         for (GradleProject child : project.getChildren()) {
-            DefaultOmniGradleProject gradleProjectChild = convert(child, buildInvocationsContainer, knownProjects);
+            DefaultOmniGradleProject gradleProjectChild = convert(child, buildInvocationsContainer, knownProjects, capabilities);
             gradleProject.addChild(gradleProjectChild);
         }
 
@@ -215,8 +258,14 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setProjectDirectory(DefaultOmniGradleProject gradleProject, GradleProject project) {
+    private static void setProjectDirectory(DefaultOmniGradleProject gradleProject, GradleProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.GRADLE_PROJECT_PROJECT_DIRECTORY)) {
+            gradleProject.setProjectDirectory(Maybe.<File>absent());
+            return;
+        }
+
         try {
             File projectDirectory = project.getProjectDirectory();
             gradleProject.setProjectDirectory(Maybe.of(projectDirectory));
@@ -230,8 +279,14 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setBuildDirectory(DefaultOmniGradleProject gradleProject, GradleProject project) {
+    private static void setBuildDirectory(DefaultOmniGradleProject gradleProject, GradleProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.GRADLE_PROJECT_BUILD_DIRECTORY)) {
+            gradleProject.setBuildDirectory(Maybe.<File>absent());
+            return;
+        }
+
         try {
             File buildDirectory = project.getBuildDirectory();
             gradleProject.setBuildDirectory(Maybe.of(buildDirectory));
@@ -245,8 +300,14 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setBuildScript(DefaultOmniGradleProject gradleProject, GradleProject project) {
+    private static void setBuildScript(DefaultOmniGradleProject gradleProject, GradleProject project, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.GRADLE_PROJECT_BUILD_SCRIPT)) {
+            gradleProject.setBuildScript(Maybe.<OmniGradleScript>absent());
+            return;
+        }
+
         try {
             GradleScript buildScript = project.getBuildScript();
             gradleProject.setBuildScript(Maybe.<OmniGradleScript>of(DefaultOmniGradleScript.from(buildScript)));
@@ -26,6 +26,7 @@ import org.gradle.api.specs.Spec;
 import org.gradle.tooling.model.gradle.BasicGradleProject;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.Comparator;
 
 /**
@@ -33,7 +34,9 @@ import java.util.Comparator;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleProjectStructure implements OmniGradleProjectStructure {
+public final class DefaultOmniGradleProjectStructure implements OmniGradleProjectStructure, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final HierarchyHelper<OmniGradleProjectStructure> hierarchyHelper;
     private String name;
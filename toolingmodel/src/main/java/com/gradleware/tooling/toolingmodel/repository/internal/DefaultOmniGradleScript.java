@@ -20,13 +20,16 @@ import com.gradleware.tooling.toolingmodel.OmniGradleScript;
 import org.gradle.tooling.model.gradle.GradleScript;
 
 import java.io.File;
+import java.io.Serializable;
 
 /**
  * Default implementation of the {@link OmniGradleScript} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniGradleScript implements OmniGradleScript {
+public final class DefaultOmniGradleScript implements OmniGradleScript, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final File sourceFile;
 
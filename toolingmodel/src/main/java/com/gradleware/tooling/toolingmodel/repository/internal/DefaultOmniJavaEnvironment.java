@@ -21,6 +21,7 @@ import com.gradleware.tooling.toolingmodel.OmniJavaEnvironment;
 import org.gradle.tooling.model.build.JavaEnvironment;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -28,7 +29,9 @@ import java.util.List;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniJavaEnvironment implements OmniJavaEnvironment {
+public final class DefaultOmniJavaEnvironment implements OmniJavaEnvironment, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final File javaHome;
     private final ImmutableList<String> jvmArguments;
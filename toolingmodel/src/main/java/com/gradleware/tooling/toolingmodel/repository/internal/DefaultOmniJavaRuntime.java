@@ -21,13 +21,16 @@ import com.gradleware.tooling.toolingmodel.OmniJavaVersion;
 import org.gradle.api.JavaVersion;
 
 import java.io.File;
+import java.io.Serializable;
 
 /**
  * Default implementation of the {@link OmniJavaRuntime} interface.
  *
  * @author Donát Csikós
  */
-public final class DefaultOmniJavaRuntime implements OmniJavaRuntime {
+public final class DefaultOmniJavaRuntime implements OmniJavaRuntime, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final OmniJavaVersion javaVersion;
     private final File homeDirectory;
@@ -20,12 +20,16 @@ import com.gradleware.tooling.toolingmodel.OmniJavaRuntime;
 import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings;
 import com.gradleware.tooling.toolingmodel.OmniJavaVersion;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniJavaSourceSettings} interface.
  *
  * @author Donát Csikós
  */
-public final class DefaultOmniJavaSourceSettings implements OmniJavaSourceSettings {
+public final class DefaultOmniJavaSourceSettings implements OmniJavaSourceSettings, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final OmniJavaVersion sourceLanguageLevel;
     private final OmniJavaVersion targetBytecodeLevel;
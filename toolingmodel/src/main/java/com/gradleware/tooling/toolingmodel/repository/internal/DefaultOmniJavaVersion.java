@@ -19,12 +19,16 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.gradleware.tooling.toolingmodel.OmniJavaVersion;
 import org.gradle.api.JavaVersion;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniJavaVersion} interface.
  *
  * @author Donát Csikós
  */
-public final class DefaultOmniJavaVersion implements OmniJavaVersion {
+public final class DefaultOmniJavaVersion implements OmniJavaVersion, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final String name;
 
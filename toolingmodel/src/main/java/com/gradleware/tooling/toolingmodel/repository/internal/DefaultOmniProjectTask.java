@@ -22,12 +22,16 @@ import com.gradleware.tooling.toolingmodel.OmniProjectTask;
 import com.gradleware.tooling.toolingmodel.Path;
 import com.gradleware.tooling.toolingmodel.util.Maybe;
 
+import java.io.Serializable;
+
 /**
  * Default implementation of the {@link OmniProjectTask} interface.
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniProjectTask implements OmniProjectTask {
+public final class DefaultOmniProjectTask implements OmniProjectTask, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String name;
     private String description;
@@ -81,12 +85,16 @@ public final class DefaultOmniProjectTask implements OmniProjectTask {
     }
 
     public static DefaultOmniProjectTask from(Task task) {
+        return from(task, ModelCapabilities.unknown());
+    }
+
+    public static DefaultOmniProjectTask from(Task task, ModelCapabilities capabilities) {
         DefaultOmniProjectTask projectTask = new DefaultOmniProjectTask();
         projectTask.setName(task.getName());
         projectTask.setDescription(task.getDescription());
         projectTask.setPath(Path.from(task.getPath()));
-        setIsPublic(projectTask, task);
-        setGroup(projectTask, task);
+        setIsPublic(projectTask, task, capabilities);
+        setGroup(projectTask, task, capabilities);
         return projectTask;
     }
 
@@ -96,8 +104,14 @@ public final class DefaultOmniProjectTask implements OmniProjectTask {
      *
      * @param projectTask the task to populate
      * @param task the task model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setIsPublic(DefaultOmniProjectTask projectTask, Task task) {
+    private static void setIsPublic(DefaultOmniProjectTask projectTask, Task task, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.TASK_PUBLIC)) {
+            projectTask.setPublic(true);
+            return;
+        }
+
         try {
             boolean isPublic = task.isPublic();
             projectTask.setPublic(isPublic);
@@ -111,8 +125,14 @@ public final class DefaultOmniProjectTask implements OmniProjectTask {
      *
      * @param projectTask the task to populate
      * @param task the task model
+     * @param capabilities the capabilities of the target Gradle version
      */
-    private static void setGroup(DefaultOmniProjectTask projectTask, Task task) {
+    private static void setGroup(DefaultOmniProjectTask projectTask, Task task, ModelCapabilities capabilities) {
+        if (!capabilities.isSupported(ModelCapabilities.Capability.TASK_GROUP)) {
+            projectTask.setGroup(Maybe.<String>absent());
+            return;
+        }
+
         try {
             String group = task.getGroup();
             projectTask.setGroup(Maybe.of(group));
@@ -16,6 +16,7 @@
 
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
+import java.io.Serializable;
 import java.util.SortedSet;
 
 import org.gradle.tooling.model.TaskSelector;
@@ -31,7 +32,9 @@ import com.gradleware.tooling.toolingmodel.util.Maybe;
  *
  * @author Etienne Studer
  */
-public final class DefaultOmniTaskSelector implements OmniTaskSelector {
+public final class DefaultOmniTaskSelector implements OmniTaskSelector, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String name;
     private String description;
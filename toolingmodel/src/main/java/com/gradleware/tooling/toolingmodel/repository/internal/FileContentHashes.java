@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hashes the content of files, reusing the hash of a file as long as its modification time and its length have not changed since it was last hashed. Thus, rehashing a set
+ * of unchanged files only requires reading their attributes. A modification that changes neither the modification time nor the length of a file goes unnoticed. The
+ * hashes of files that no longer exist are kept until {@link #removeDeletedFiles()} is invoked.
+ */
+final class FileContentHashes {
+
+    private final ConcurrentMap<File, FileHash> hashesByFile;
+
+    FileContentHashes() {
+        this.hashesByFile = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Returns the hash of the content of the given file.
+     *
+     * @param file the file to hash
+     * @return the hash of the file content
+     * @throws IOException thrown if the file cannot be read
+     */
+    HashCode hash(File file) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        FileHash fileHash = this.hashesByFile.get(file);
+        if (fileHash == null || fileHash.lastModified != lastModified || fileHash.length != length) {
+            fileHash = new FileHash(lastModified, length, Files.hash(file, Hashing.sha1()));
+            this.hashesByFile.put(file, fileHash);
+        }
+        return fileHash.hash;
+    }
+
+    /**
+     * Forgets the hashes of the files that no longer exist, such as deleted or renamed build scripts.
+     */
+    void removeDeletedFiles() {
+        Iterator<File> files = this.hashesByFile.keySet().iterator();
+        while (files.hasNext()) {
+            if (!files.next().isFile()) {
+                files.remove();
+            }
+        }
+    }
+
+    /**
+     * The hash of a file together with the file attributes at the time it was hashed.
+     */
+    private static final class FileHash {
+
+        private final long lastModified;
+        private final long length;
+        private final HashCode hash;
+
+        private FileHash(long lastModified, long length, HashCode hash) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import org.gradle.util.GradleVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines the Gradle version of a build from its {@link GradleDistribution} without connecting to the build. The version is taken from the distribution itself if it is
+ * identified by its version, from the name of the core library if it is a local installation, and from the name of the distribution archive if it is a remote
+ * distribution or the wrapper distribution of the build. If the version cannot be determined this way, the caller needs to fall back to the {@code BuildEnvironment}.
+ * <p/>
+ * The probed version is cached. For the wrapper distribution, the version is probed again once the wrapper properties file has changed.
+ */
+final class GradleVersionProbe {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GradleVersionProbe.class);
+
+    private static final Pattern DISTRIBUTION_ARCHIVE_NAME = Pattern.compile("gradle-(\\d[^/]*)-(bin|all)\\.zip");
+    private static final Pattern CORE_LIBRARY_NAME = Pattern.compile("gradle-core-(\\d.*)\\.jar");
+
+    private final File projectDir;
+    private final GradleDistribution distribution;
+    private Optional<GradleVersion> version;
+    private long wrapperPropertiesLastModified;
+
+    GradleVersionProbe(File projectDir, GradleDistribution distribution) {
+        this.projectDir = Preconditions.checkNotNull(projectDir);
+        this.distribution = Preconditions.checkNotNull(distribution);
+    }
+
+    /**
+     * Probes the Gradle version of the build.
+     *
+     * @return the Gradle version, absent if it cannot be determined without connecting to the build
+     */
+    synchronized Optional<GradleVersion> probe() {
+        if (this.distribution.getVersion() != null) {
+            if (this.version == null) {
+                this.version = parseVersion(this.distribution.getVersion());
+            }
+        } else if (this.distribution.getLocalInstallationDir() != null) {
+            if (this.version == null) {
+                this.version = probeLocalInstallation(this.distribution.getLocalInstallationDir());
+            }
+        } else if (this.distribution.getRemoteDistributionUri() != null) {
+            if (this.version == null) {
+                this.version = probeDistributionUri(this.distribution.getRemoteDistributionUri().toString());
+            }
+        } else {
+            File wrapperProperties = new File(this.projectDir, "gradle/wrapper/gradle-wrapper.properties");
+            long lastModified = wrapperProperties.lastModified();
+            if (this.version == null || this.wrapperPropertiesLastModified != lastModified) {
+                this.version = probeWrapperProperties(wrapperProperties);
+                this.wrapperPropertiesLastModified = lastModified;
+            }
+        }
+        return this.version;
+    }
+
+    private static Optional<GradleVersion> probeLocalInstallation(File installationDir) {
+        File[] libraries = new File(installationDir, "lib").listFiles();
+        if (libraries != null) {
+            for (File library : libraries) {
+                Matcher matcher = CORE_LIBRARY_NAME.matcher(library.getName());
+                if (matcher.matches()) {
+                    return parseVersion(matcher.group(1));
+                }
+            }
+        }
+        return Optional.absent();
+    }
+
+    private static Optional<GradleVersion> probeWrapperProperties(File wrapperProperties) {
+        if (!wrapperProperties.isFile()) {
+            return Optional.absent();
+        }
+
+        Properties properties = new Properties();
+        try {
+            InputStream input = new FileInputStream(wrapperProperties);
+            try {
+                properties.load(input);
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            LOG.debug("Cannot read wrapper properties " + wrapperProperties + ".", e);
+            return Optional.absent();
+        }
+
+        String distributionUrl = properties.getProperty("distributionUrl");
+        return distributionUrl != null ? probeDistributionUri(distributionUrl) : Optional.<GradleVersion>absent();
+    }
+
+    private static Optional<GradleVersion> probeDistributionUri(String distributionUri) {
+        String path;
+        try {
+            path = URI.create(distributionUri.trim().replace(" ", "%20")).getPath();
+        } catch (IllegalArgumentException e) {
+            return Optional.absent();
+        }
+        String archiveName = path != null ? path.substring(path.lastIndexOf('/') + 1) : "";
+        Matcher matcher = DISTRIBUTION_ARCHIVE_NAME.matcher(archiveName);
+        return matcher.matches() ? parseVersion(matcher.group(1)) : Optional.<GradleVersion>absent();
+    }
+
+    private static Optional<GradleVersion> parseVersion(String version) {
+        try {
+            return Optional.of(GradleVersion.version(version));
+        } catch (IllegalArgumentException e) {
+            return Optional.absent();
+        }
+    }
+
+}
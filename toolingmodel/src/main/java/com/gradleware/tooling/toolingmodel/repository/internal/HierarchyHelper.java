@@ -27,6 +27,7 @@ import com.google.common.collect.Ordering;
 import com.gradleware.tooling.toolingmodel.HierarchicalModel;
 import org.gradle.api.specs.Spec;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.List;
 
@@ -36,7 +37,9 @@ import java.util.List;
  * @param <T> the model type
  * @author Etienne Studer
  */
-final class HierarchyHelper<T extends HierarchicalModel<T>> {
+final class HierarchyHelper<T extends HierarchicalModel<T>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final T current;
     private T parent;
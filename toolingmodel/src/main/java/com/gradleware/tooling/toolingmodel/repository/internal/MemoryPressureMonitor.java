@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Ordering;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Releases cached models of the registered repositories once the old generation of the heap runs short. The monitor listens for the collection usage threshold notifications
+ * of the heap memory pool that supports usage thresholds, i.e. the old generation, and sets the threshold to the lowest threshold of all registered repositories.
+ * <p/>
+ * Upon a notification, the cached models of all registered repositories are ranked by their idle time multiplied by their estimated size, and released in that order until
+ * half of the estimated size of all cached models is released. Repositories are referenced weakly, thus a repository that is no longer used does not need to unregister.
+ */
+final class MemoryPressureMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryPressureMonitor.class);
+
+    private static final MemoryPressureMonitor INSTANCE = new MemoryPressureMonitor();
+
+    private final Map<ReleasableModelCache, Double> caches;
+    private MemoryPoolMXBean oldGeneration;
+    private boolean listening;
+
+    MemoryPressureMonitor() {
+        this.caches = new MapMaker().weakKeys().makeMap();
+    }
+
+    /**
+     * Returns the monitor that is shared by all repositories of this JVM.
+     *
+     * @return the shared instance
+     */
+    static MemoryPressureMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the given cache to be released once the usage of the old generation exceeds the given fraction of its maximum size.
+     *
+     * @param cache the cache to register
+     * @param threshold the fraction of the maximum size of the old generation
+     */
+    synchronized void register(ReleasableModelCache cache, double threshold) {
+        this.caches.put(Preconditions.checkNotNull(cache), threshold);
+        updateThreshold();
+    }
+
+    synchronized void unregister(ReleasableModelCache cache) {
+        this.caches.remove(cache);
+    }
+
+    private void updateThreshold() {
+        if (this.oldGeneration == null) {
+            this.oldGeneration = findOldGeneration();
+            if (this.oldGeneration == null) {
+                LOG.debug("Cannot monitor memory pressure, no heap memory pool supports collection usage thresholds.");
+                return;
+            }
+        }
+        long maximum = this.oldGeneration.getUsage().getMax();
+        if (maximum <= 0) {
+            return;
+        }
+
+        double threshold = Ordering.natural().min(this.caches.values());
+        this.oldGeneration.setCollectionUsageThreshold((long) (maximum * threshold));
+        if (!this.listening) {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(new NotificationListener() {
+
+                @Override
+                public void handleNotification(Notification notification, Object handback) {
+                    if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                        releaseModels();
+                    }
+                }
+            }, null, null);
+            this.listening = true;
+        }
+    }
+
+    private static MemoryPoolMXBean findOldGeneration() {
+        // of the heap pools, only the old generation supports usage thresholds
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases the cached models that have been idle the longest, the larger ones first, until half of the estimated size of all cached models is released.
+     *
+     * @return the number of released models
+     */
+    int releaseModels() {
+        List<ReleasableModelCache> caches;
+        synchronized (this) {
+            caches = Lists.newArrayList(this.caches.keySet());
+        }
+
+        final long now = System.nanoTime();
+        List<CachedModel> cachedModels = Lists.newArrayList();
+        long totalSize = 0;
+        for (ReleasableModelCache cache : caches) {
+            for (CachedModel cachedModel : cache.getCachedModels()) {
+                cachedModels.add(cachedModel);
+                totalSize += cachedModel.retainedSize;
+            }
+        }
+
+        List<CachedModel> ranked = new Ordering<CachedModel>() {
+
+            @Override
+            public int compare(CachedModel left, CachedModel right) {
+                return Double.compare(rank(right, now), rank(left, now));
+            }
+        }.sortedCopy(cachedModels);
+
+        int released = 0;
+        long releasedSize = 0;
+        for (CachedModel cachedModel : ranked) {
+            if (releasedSize * 2 >= totalSize) {
+                break;
+            }
+            cachedModel.cache.release(cachedModel.cacheKey);
+            releasedSize += cachedModel.retainedSize;
+            released++;
+        }
+        LOG.info("Released " + released + " cached models with an estimated size of " + releasedSize / 1024 + "KB due to memory pressure.");
+        return released;
+    }
+
+    private static double rank(CachedModel cachedModel, long now) {
+        return (double) cachedModel.retainedSize * Math.max(1, now - cachedModel.lastAccessNanos);
+    }
+
+    /**
+     * A model cache whose entries can be released on memory pressure.
+     */
+    interface ReleasableModelCache {
+
+        Collection<CachedModel> getCachedModels();
+
+        void release(Object cacheKey);
+
+    }
+
+    /**
+     * A model held in a {@link ReleasableModelCache}, together with its estimated size and the time it was last accessed.
+     */
+    static final class CachedModel {
+
+        private final ReleasableModelCache cache;
+        private final Object cacheKey;
+        private final long retainedSize;
+        private final long lastAccessNanos;
+
+        CachedModel(ReleasableModelCache cache, Object cacheKey, long retainedSize, long lastAccessNanos) {
+            this.cache = Preconditions.checkNotNull(cache);
+            this.cacheKey = Preconditions.checkNotNull(cacheKey);
+            this.retainedSize = retainedSize;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+
+    }
+
+}
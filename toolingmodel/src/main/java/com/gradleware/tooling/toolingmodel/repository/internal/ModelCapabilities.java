@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+import org.gradle.util.GradleVersion;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Describes which optional accessors of the Tooling API models are supported by the target Gradle version. The converters consult the capabilities to skip accessors that
+ * are known to be unsupported instead of calling them and catching the exception they throw, which happens for each project, task, and classpath entry of a build.
+ * <p/>
+ * If the target Gradle version is not known, all accessors are considered supported and the converters fall back to calling them and catching the exception.
+ */
+public final class ModelCapabilities {
+
+    private static final ModelCapabilities UNKNOWN = new ModelCapabilities(EnumSet.allOf(Capability.class));
+
+    private final Set<Capability> supportedCapabilities;
+
+    private ModelCapabilities(Set<Capability> supportedCapabilities) {
+        this.supportedCapabilities = Sets.immutableEnumSet(supportedCapabilities);
+    }
+
+    /**
+     * Returns whether the given optional accessor may be called on the models of the target Gradle version.
+     *
+     * @param capability the capability to check
+     * @return {@code true} if the capability is supported or if the target Gradle version is not known, {@code false} otherwise
+     */
+    public boolean isSupported(Capability capability) {
+        return this.supportedCapabilities.contains(capability);
+    }
+
+    @Override
+    public String toString() {
+        return "Model capabilities " + this.supportedCapabilities;
+    }
+
+    /**
+     * Derives the capabilities from the given target Gradle version.
+     *
+     * @param gradleVersion the target Gradle version
+     * @return the capabilities of the target Gradle version
+     */
+    public static ModelCapabilities of(GradleVersion gradleVersion) {
+        Preconditions.checkNotNull(gradleVersion);
+        GradleVersion baseVersion = gradleVersion.getBaseVersion();
+        EnumSet<Capability> supportedCapabilities = EnumSet.noneOf(Capability.class);
+        for (Capability capability : Capability.values()) {
+            if (baseVersion.compareTo(capability.minimumVersion) >= 0) {
+                supportedCapabilities.add(capability);
+            }
+        }
+        return new ModelCapabilities(supportedCapabilities);
+    }
+
+    /**
+     * Returns the capabilities to apply if the target Gradle version is not known.
+     *
+     * @return the capabilities under which all accessors are called
+     */
+    public static ModelCapabilities unknown() {
+        return UNKNOWN;
+    }
+
+    /**
+     * Enumerates the accessors of the Tooling API models that are only available from a given Gradle version on.
+     */
+    public enum Capability {
+
+        /**
+         * GradleProject#getBuildScript is only available in Gradle versions >= 1.8.
+         */
+        GRADLE_PROJECT_BUILD_SCRIPT("1.8"),
+
+        /**
+         * GradleProject#getBuildDirectory is only available in Gradle versions >= 2.0.
+         */
+        GRADLE_PROJECT_BUILD_DIRECTORY("2.0"),
+
+        /**
+         * GradleProject#getProjectDirectory is only available in Gradle versions >= 2.4.
+         */
+        GRADLE_PROJECT_PROJECT_DIRECTORY("2.4"),
+
+        /**
+         * GradleTask#isPublic is only available in Gradle versions >= 2.1.
+         */
+        TASK_PUBLIC("2.1"),
+
+        /**
+         * GradleTask#getGroup is only available in Gradle versions >= 2.5.
+         */
+        TASK_GROUP("2.5"),
+
+        /**
+         * ExternalDependency#getGradleModuleVersion is only available in Gradle versions >= 1.1.
+         */
+        EXTERNAL_DEPENDENCY_MODULE_VERSION("1.1"),
+
+        /**
+         * ExternalDependency#isExported and EclipseProjectDependency#isExported are only available in Gradle versions >= 2.5.
+         */
+        DEPENDENCY_EXPORTED("2.5"),
+
+        /**
+         * EclipseClasspathEntry#getClasspathAttributes is only available in Gradle versions >= 2.14.
+         */
+        CLASSPATH_ATTRIBUTES("2.14"),
+
+        /**
+         * EclipseClasspathEntry#getAccessRules is only available in Gradle versions >= 3.0.
+         */
+        ACCESS_RULES("3.0"),
+
+        /**
+         * EclipseSourceDirectory#getExcludes and EclipseSourceDirectory#getIncludes are only available in Gradle versions >= 3.0.
+         */
+        SOURCE_DIRECTORY_FILTERS("3.0"),
+
+        /**
+         * EclipseSourceDirectory#getOutput is only available in Gradle versions >= 3.0.
+         */
+        SOURCE_DIRECTORY_OUTPUT("3.0"),
+
+        /**
+         * EclipseProject#getProjectNatures is only available in Gradle versions >= 2.9.
+         */
+        ECLIPSE_PROJECT_NATURES("2.9"),
+
+        /**
+         * EclipseProject#getBuildCommands is only available in Gradle versions >= 2.9.
+         */
+        ECLIPSE_BUILD_COMMANDS("2.9"),
+
+        /**
+         * EclipseProject#getJavaSourceSettings is only available in Gradle versions >= 2.10.
+         */
+        ECLIPSE_JAVA_SOURCE_SETTINGS("2.10"),
+
+        /**
+         * JavaSourceSettings#getTargetBytecodeVersion and JavaSourceSettings#getJdk are only available in Gradle versions >= 2.11.
+         */
+        JAVA_TARGET_SETTINGS("2.11"),
+
+        /**
+         * EclipseProject#getClasspathContainers is only available in Gradle versions >= 3.0.
+         */
+        ECLIPSE_CLASSPATH_CONTAINERS("3.0"),
+
+        /**
+         * EclipseProject#getOutputLocation is only available in Gradle versions >= 3.0.
+         */
+        ECLIPSE_OUTPUT_LOCATION("3.0");
+
+        private final GradleVersion minimumVersion;
+
+        Capability(String minimumVersion) {
+            this.minimumVersion = GradleVersion.version(minimumVersion);
+        }
+
+    }
+
+}
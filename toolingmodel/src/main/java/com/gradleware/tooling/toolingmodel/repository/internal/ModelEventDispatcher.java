@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingmodel.repository.BuildEnvironmentUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.EclipseProjectUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectUpdateEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches the events of a model repository to its listeners on the given executor. Update events that have not been delivered yet are coalesced by their type, i.e.
+ * once a listener gets to see an update event, it only sees the update event of that type with the highest generation, and an update event older than one already
+ * delivered is skipped. Since each update event carries a complete model, no information gets lost by skipping the older update events. All other events, such as the
+ * delta events, which only describe the changes between two generations, are delivered one by one in the order in which they were posted.
+ * <p/>
+ * Listeners registered for a specific event type are invoked directly, listeners with subscriber methods are invoked through the given {@code EventBus}. Events of the same
+ * type are never delivered concurrently. A synchronous dispatcher delivers every event on the thread that posts it, without coalescing.
+ */
+final class ModelEventDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelEventDispatcher.class);
+    private static final ImmutableSet<Class<?>> UPDATE_EVENT_TYPES = ImmutableSet.<Class<?>>of(BuildEnvironmentUpdateEvent.class, BuildInvocationsUpdateEvent.class,
+            GradleBuildUpdateEvent.class, GradleProjectUpdateEvent.class, EclipseProjectUpdateEvent.class);
+
+    private final EventBus eventBus;
+    private final Executor executor;
+    private final boolean synchronous;
+    private final Set<Object> subscribers;
+    private final ConcurrentMap<Class<?>, List<Consumer<Object>>> listeners;
+    private final ConcurrentMap<Class<?>, Object> pendingUpdateEvents;
+    private final ConcurrentMap<Class<?>, Queue<Object>> pendingEvents;
+    private final ConcurrentMap<Class<?>, Long> deliveredGenerations;
+    private final Set<Class<?>> scheduledEventTypes;
+
+    ModelEventDispatcher(EventBus eventBus, Executor executor) {
+        this(eventBus, executor, false);
+    }
+
+    private ModelEventDispatcher(EventBus eventBus, Executor executor, boolean synchronous) {
+        this.eventBus = Preconditions.checkNotNull(eventBus);
+        this.executor = Preconditions.checkNotNull(executor);
+        this.synchronous = synchronous;
+        this.subscribers = Sets.newConcurrentHashSet();
+        this.listeners = Maps.newConcurrentMap();
+        this.pendingUpdateEvents = Maps.newConcurrentMap();
+        this.pendingEvents = Maps.newConcurrentMap();
+        this.deliveredGenerations = Maps.newConcurrentMap();
+        this.scheduledEventTypes = Sets.newConcurrentHashSet();
+    }
+
+    /**
+     * Creates a dispatcher that delivers each event on the thread that posts it, before {@link #post(Object)} returns. Events posted concurrently are delivered concurrently.
+     *
+     * @param eventBus the event bus through which the subscriber methods are invoked
+     * @return a new instance
+     */
+    static ModelEventDispatcher synchronous(EventBus eventBus) {
+        return new ModelEventDispatcher(eventBus, MoreExecutors.directExecutor(), true);
+    }
+
+    /**
+     * Creates the executor on which the events of one or more repositories are delivered. A single thread suffices since undelivered update events are coalesced, the thread
+     * only lives while events are pending.
+     *
+     * @return a new executor
+     */
+    static Executor createDispatchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("model-repository-events-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    void register(Object listener) {
+        this.eventBus.register(listener);
+        this.subscribers.add(listener);
+    }
+
+    void unregister(Object listener) {
+        this.eventBus.unregister(listener);
+        this.subscribers.remove(listener);
+    }
+
+    /**
+     * Unregisters all listeners and discards the events that have not been delivered yet.
+     */
+    void unregisterAll() {
+        for (Object subscriber : this.subscribers) {
+            unregister(subscriber);
+        }
+        this.listeners.clear();
+        this.pendingUpdateEvents.clear();
+        this.pendingEvents.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    <E> void register(Class<E> eventType, Consumer<? super E> listener) {
+        List<Consumer<Object>> listenersOfType = this.listeners.get(eventType);
+        if (listenersOfType == null) {
+            List<Consumer<Object>> newListenersOfType = new CopyOnWriteArrayList<Consumer<Object>>();
+            listenersOfType = this.listeners.putIfAbsent(eventType, newListenersOfType);
+            if (listenersOfType == null) {
+                listenersOfType = newListenersOfType;
+            }
+        }
+        listenersOfType.add((Consumer<Object>) listener);
+    }
+
+    <E> void unregister(Class<E> eventType, Consumer<? super E> listener) {
+        List<Consumer<Object>> listenersOfType = this.listeners.get(eventType);
+        if (listenersOfType != null) {
+            listenersOfType.remove(listener);
+        }
+    }
+
+    /**
+     * Schedules the delivery of the given event. An update event replaces any update event of the same type and a lower or equal generation that has not been delivered yet,
+     * all other events are queued behind the undelivered events of the same type.
+     *
+     * @param event the event to deliver
+     */
+    void post(Object event) {
+        if (this.synchronous) {
+            deliver(event);
+            return;
+        }
+
+        final Class<?> eventType = event.getClass();
+        if (UPDATE_EVENT_TYPES.contains(eventType)) {
+            offerUpdateEvent(eventType, event);
+        } else {
+            pendingEventsOf(eventType).add(event);
+        }
+        if (this.scheduledEventTypes.add(eventType)) {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    deliverPendingEvents(eventType);
+                }
+            });
+        }
+    }
+
+    private void offerUpdateEvent(Class<?> eventType, Object event) {
+        // the pending update event is only replaced by an update event of a higher or equal generation
+        long generation = generationOf(event);
+        while (true) {
+            Object pendingEvent = this.pendingUpdateEvents.putIfAbsent(eventType, event);
+            if (pendingEvent == null || generationOf(pendingEvent) > generation || this.pendingUpdateEvents.replace(eventType, pendingEvent, event)) {
+                return;
+            }
+        }
+    }
+
+    private Queue<Object> pendingEventsOf(Class<?> eventType) {
+        Queue<Object> pendingEventsOfType = this.pendingEvents.get(eventType);
+        if (pendingEventsOfType == null) {
+            Queue<Object> newPendingEventsOfType = new ConcurrentLinkedQueue<Object>();
+            pendingEventsOfType = this.pendingEvents.putIfAbsent(eventType, newPendingEventsOfType);
+            if (pendingEventsOfType == null) {
+                pendingEventsOfType = newPendingEventsOfType;
+            }
+        }
+        return pendingEventsOfType;
+    }
+
+    private void deliverPendingEvents(Class<?> eventType) {
+        boolean updateEventType = UPDATE_EVENT_TYPES.contains(eventType);
+        while (true) {
+            Object event = updateEventType ? this.pendingUpdateEvents.remove(eventType) : pendingEventsOf(eventType).poll();
+            if (event != null) {
+                if (!updateEventType || isNewerThanDelivered(eventType, event)) {
+                    deliver(event);
+                }
+                continue;
+            }
+
+            // an event that is posted after the delivery has been unscheduled either schedules a new delivery or is picked up here
+            this.scheduledEventTypes.remove(eventType);
+            boolean pending = updateEventType ? this.pendingUpdateEvents.containsKey(eventType) : !pendingEventsOf(eventType).isEmpty();
+            if (!pending || !this.scheduledEventTypes.add(eventType)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isNewerThanDelivered(Class<?> eventType, Object event) {
+        // the events of a given type are delivered by one thread at a time, thus the delivered generation is not updated concurrently
+        long generation = generationOf(event);
+        Long deliveredGeneration = this.deliveredGenerations.get(eventType);
+        if (deliveredGeneration != null && deliveredGeneration > generation) {
+            return false;
+        }
+        this.deliveredGenerations.put(eventType, generation);
+        return true;
+    }
+
+    private static long generationOf(Object event) {
+        if (event instanceof BuildEnvironmentUpdateEvent) {
+            return ((BuildEnvironmentUpdateEvent) event).getGeneration();
+        } else if (event instanceof GradleBuildUpdateEvent) {
+            return ((GradleBuildUpdateEvent) event).getGeneration();
+        } else if (event instanceof GradleProjectUpdateEvent) {
+            return ((GradleProjectUpdateEvent) event).getGeneration();
+        } else if (event instanceof EclipseProjectUpdateEvent) {
+            return ((EclipseProjectUpdateEvent) event).getGeneration();
+        } else {
+            // the generation of a model is not known, thus the update event posted last is considered the latest
+            return 0;
+        }
+    }
+
+    private void deliver(Object event) {
+        List<Consumer<Object>> listenersOfType = this.listeners.get(event.getClass());
+        if (listenersOfType != null) {
+            for (Consumer<Object> listener : listenersOfType) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    // a failing listener must neither affect the other listeners nor the repository
+                    LOG.error("Listener " + listener + " failed to handle event " + event + ".", e);
+                }
+            }
+        }
+        this.eventBus.post(event);
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * A model held in the model cache, together with the generation in which it was loaded and the fingerprint of the build inputs it was loaded from. A cached snapshot is never
+ * modified, a reloaded model replaces the snapshot as a whole.
+ *
+ * @param <T> the type of the model
+ */
+final class ModelSnapshot<T> {
+
+    private final T model;
+    private final long generation;
+    private final Optional<String> buildInputFingerprint;
+
+    ModelSnapshot(T model, long generation, Optional<String> buildInputFingerprint) {
+        this.model = Preconditions.checkNotNull(model);
+        this.generation = generation;
+        this.buildInputFingerprint = Preconditions.checkNotNull(buildInputFingerprint);
+    }
+
+    T getModel() {
+        return this.model;
+    }
+
+    long getGeneration() {
+        return this.generation;
+    }
+
+    Optional<String> getBuildInputFingerprint() {
+        return this.buildInputFingerprint;
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.cache.Weigher;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
+
+import java.util.Collection;
+
+/**
+ * Estimates the size of the models kept in the model cache. A model weighs 1 plus, for each contained project, 1 plus the number of its tasks, task selectors, source folders,
+ * and classpath entries. The estimate is cheap to compute since it only counts elements that are already held in memory.
+ */
+enum ModelWeigher implements Weigher<Object, Object> {
+
+    INSTANCE;
+
+    // rough average of the heap retained by a project, task, task selector, source folder, or classpath entry, including its strings and collections
+    private static final long ESTIMATED_BYTES_PER_WEIGHT = 512;
+
+    @Override
+    public int weigh(Object key, Object model) {
+        long weight = 1 + weightOf(model);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimates the number of bytes retained by the given model, based on its weight.
+     *
+     * @param model the model
+     * @return the approximate retained size in bytes
+     */
+    static long estimateRetainedBytes(Object model) {
+        return (1 + weightOf(model)) * ESTIMATED_BYTES_PER_WEIGHT;
+    }
+
+    private static long weightOf(Object model) {
+        if (model instanceof Collection) {
+            long weight = 0;
+            for (Object element : (Collection<?>) model) {
+                weight += weightOf(element);
+            }
+            return weight;
+        } else if (model instanceof OmniEclipseProject) {
+            OmniEclipseProject project = (OmniEclipseProject) model;
+            return 1 + project.getSourceDirectories().size() + project.getProjectDependencies().size() + project.getExternalDependencies().size();
+        } else if (model instanceof OmniGradleProject) {
+            OmniGradleProject project = (OmniGradleProject) model;
+            return 1 + project.getProjectTasks().size() + project.getTaskSelectors().size();
+        } else if (model instanceof OmniGradleBuild) {
+            long weight = weightOf(((OmniGradleBuild) model).getRootProject().getAll());
+            for (OmniGradleBuild includedBuild : ((OmniGradleBuild) model).getIncludedBuilds()) {
+                weight += weightOf(includedBuild);
+            }
+            return weight;
+        } else if (model instanceof ModelSnapshot) {
+            return weightOf(((ModelSnapshot<?>) model).getModel());
+        } else if (model instanceof OmniGradleProjectStructure) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the models of a single build on disk such that they survive a restart of the JVM. Each model is stored in its own file, together with the fingerprint of the build
+ * inputs that were in place when the model was stored. A stored model is only returned as long as the fingerprint of the current build inputs matches the stored fingerprint.
+ * <p/>
+ * The store is a pure optimization: a model that cannot be read or written is treated as not being stored, and the model is loaded through the Tooling API instead.
+ * <p/>
+ * The models are written with Java serialization, thus the serialized form of the model classes is the format of the stored files. Any change to the fields of a stored
+ * class requires the {@link #FORMAT_VERSION} to be increased, which is enforced by a test. When reading, only the model classes and the Guava and JDK types that make up
+ * the models are resolved, any other class in a stored file causes the file to be ignored.
+ *
+ * @see BuildInputFingerprint
+ */
+final class PersistentModelStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentModelStore.class);
+
+    static final int FORMAT_VERSION = 1;
+
+    static final ImmutableSet<String> MODEL_PACKAGES = ImmutableSet.of(
+            "com.gradleware.tooling.toolingmodel",
+            "com.gradleware.tooling.toolingmodel.repository.internal",
+            "com.gradleware.tooling.toolingmodel.util");
+
+    private static final ImmutableSet<String> LIBRARY_PACKAGES = ImmutableSet.of(
+            "com.google.common.base",
+            "com.google.common.collect");
+
+    private static final ImmutableSet<String> JDK_CLASSES = ImmutableSet.of(
+            "java.io.File",
+            "java.lang.Boolean",
+            "java.lang.Enum",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Number",
+            "java.lang.Object",
+            "java.lang.String",
+            "java.util.ArrayList",
+            "java.util.Collections$EmptyList",
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$EmptySet",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet",
+            "java.util.TreeMap",
+            "java.util.TreeSet");
+    private static final String FILE_EXTENSION = ".bin";
+
+    private final File storeDir;
+    private final File projectDir;
+    private final File gradleUserHome;
+    private final FileContentHashes fileHashes;
+
+    PersistentModelStore(File storeDir, File projectDir, File gradleUserHome) {
+        this.storeDir = Preconditions.checkNotNull(storeDir);
+        this.projectDir = Preconditions.checkNotNull(projectDir);
+        this.gradleUserHome = Preconditions.checkNotNull(gradleUserHome);
+        this.fileHashes = new FileContentHashes();
+    }
+
+    File getStoreDir() {
+        return this.storeDir;
+    }
+
+    /**
+     * Returns the model stored under the given key, provided the build inputs have not changed since the model was stored.
+     *
+     * @param cacheKey the key of the model
+     * @return the stored model, absent if no model is stored or if the build inputs have changed
+     */
+    Optional<Object> load(Class<?> cacheKey) {
+        File file = fileFor(cacheKey);
+        if (!file.isFile()) {
+            return Optional.absent();
+        }
+
+        try {
+            ObjectInputStream input = new ModelInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+            try {
+                if (input.readInt() != FORMAT_VERSION) {
+                    return Optional.absent();
+                }
+                List<File> directories = readDirectories(input);
+                String fingerprint = input.readUTF();
+                if (!fingerprint.equals(BuildInputFingerprint.compute(directories, this.gradleUserHome, this.fileHashes))) {
+                    return Optional.absent();
+                }
+                return Optional.of(input.readObject());
+            } finally {
+                input.close();
+            }
+        } catch (Exception e) {
+            LOG.debug("Cannot read stored model {}.", file, e);
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * Stores the given model under the given key, replacing any previously stored model.
+     *
+     * @param cacheKey the key of the model
+     * @param model the model to store
+     */
+    void store(Class<?> cacheKey, Object model) {
+        try {
+            Collection<File> directories = BuildInputFingerprint.directoriesOf(this.projectDir, model);
+            store(cacheKey, model, BuildInputFingerprint.compute(directories, this.gradleUserHome, this.fileHashes));
+        } catch (IOException e) {
+            LOG.debug("Cannot fingerprint build inputs of model {}.", cacheKey.getName(), e);
+        }
+    }
+
+    /**
+     * Stores the given model under the given key together with the given fingerprint of its build inputs, replacing any previously stored model. The fingerprint must have
+     * been computed from the directories of the model, typically before the model was loaded such that changes made while loading it are noticed.
+     *
+     * @param cacheKey the key of the model
+     * @param model the model to store
+     * @param buildInputFingerprint the fingerprint of the build inputs the model was loaded from
+     */
+    void store(Class<?> cacheKey, Object model, String buildInputFingerprint) {
+        File file = fileFor(cacheKey);
+        File tempFile = new File(this.storeDir, file.getName() + ".tmp");
+        try {
+            Collection<File> directories = BuildInputFingerprint.directoriesOf(this.projectDir, model);
+
+            if (!this.storeDir.isDirectory() && !this.storeDir.mkdirs()) {
+                throw new IOException("Cannot create directory " + this.storeDir);
+            }
+            ObjectOutputStream output = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))));
+            try {
+                output.writeInt(FORMAT_VERSION);
+                writeDirectories(directories, output);
+                output.writeUTF(buildInputFingerprint);
+                output.writeObject(model);
+            } finally {
+                output.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            LOG.debug("Cannot store model {}.", file, e);
+            if (tempFile.exists() && !tempFile.delete()) {
+                LOG.debug("Cannot delete {}.", tempFile);
+            }
+        }
+    }
+
+    private File fileFor(Class<?> cacheKey) {
+        return new File(this.storeDir, cacheKey.getName() + FILE_EXTENSION);
+    }
+
+    private static void writeDirectories(Collection<File> directories, ObjectOutputStream output) throws IOException {
+        output.writeInt(directories.size());
+        for (File directory : directories) {
+            output.writeUTF(directory.getPath());
+        }
+    }
+
+    private static List<File> readDirectories(ObjectInputStream input) throws IOException {
+        int size = input.readInt();
+        List<File> directories = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            directories.add(new File(input.readUTF()));
+        }
+        return directories;
+    }
+
+    /**
+     * Creates the store for the build identified by the given request attributes. The store is located in a directory below the given base directory, or below the Gradle user
+     * home if no base directory is given.
+     *
+     * @param fixedRequestAttributes the attributes identifying the build
+     * @param baseDir the base directory of all stores, if any
+     * @return the new store
+     */
+    static PersistentModelStore create(FixedRequestAttributes fixedRequestAttributes, Optional<File> baseDir) {
+        File gradleUserHome = BuildInputFingerprint.gradleUserHomeOf(fixedRequestAttributes);
+        File storeBaseDir = baseDir.isPresent() ? baseDir.get() : new File(gradleUserHome, "caches/tooling-commons/models");
+        File storeDir = new File(storeBaseDir, keyOf(fixedRequestAttributes));
+        return new PersistentModelStore(storeDir, fixedRequestAttributes.getProjectDir(), gradleUserHome);
+    }
+
+    private static String keyOf(FixedRequestAttributes fixedRequestAttributes) {
+        List<Object> attributes = ImmutableList.<Object>of(
+                fixedRequestAttributes.getProjectDir(),
+                String.valueOf(fixedRequestAttributes.getGradleUserHome()),
+                fixedRequestAttributes.getGradleDistribution(),
+                String.valueOf(fixedRequestAttributes.getJavaHome()),
+                fixedRequestAttributes.getJvmArguments(),
+                fixedRequestAttributes.getArguments());
+        return Hashing.sha1().hashString(Joiner.on('\n').join(attributes), Charsets.UTF_8).toString();
+    }
+
+    static boolean isStoredClass(String className) {
+        // arrays are resolved through their component type, primitive types are always allowed
+        String componentName = className;
+        while (componentName.startsWith("[")) {
+            componentName = componentName.substring(1);
+        }
+        if (componentName.length() == 1 && !componentName.equals(className)) {
+            return true;
+        }
+        if (componentName.startsWith("L") && componentName.endsWith(";")) {
+            componentName = componentName.substring(1, componentName.length() - 1);
+        }
+
+        int lastDot = componentName.lastIndexOf('.');
+        String packageName = lastDot > 0 ? componentName.substring(0, lastDot) : "";
+        return MODEL_PACKAGES.contains(packageName) || LIBRARY_PACKAGES.contains(packageName) || JDK_CLASSES.contains(componentName);
+    }
+
+    /**
+     * Resolves the classes of stored models through the class loader of this bundle rather than through the class loader of the caller. Only the classes that make up the
+     * models are resolved, such that a stored file cannot instantiate arbitrary classes.
+     */
+    private static final class ModelInputStream extends ObjectInputStream {
+
+        private ModelInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            if (!isStoredClass(descriptor.getName())) {
+                throw new InvalidClassException(descriptor.getName(), "Class is not part of a stored model.");
+            }
+
+            try {
+                return Class.forName(descriptor.getName(), false, PersistentModelStore.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(descriptor);
+            }
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxy classes are not part of a stored model.");
+        }
+
+    }
+
+}
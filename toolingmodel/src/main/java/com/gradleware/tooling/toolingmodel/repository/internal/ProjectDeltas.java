@@ -0,0 +1,309 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.gradleware.tooling.toolingmodel.OmniAccessRule;
+import com.gradleware.tooling.toolingmodel.OmniClasspathAttribute;
+import com.gradleware.tooling.toolingmodel.OmniClasspathEntry;
+import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspathContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature;
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings;
+import com.gradleware.tooling.toolingmodel.OmniProjectTask;
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
+import com.gradleware.tooling.toolingmodel.repository.ProjectAspect;
+import com.gradleware.tooling.toolingmodel.repository.ProjectDelta;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the {@link ProjectDelta} between two loaded sets of {@code OmniEclipseProject} or {@code OmniGradleProject} models. The Omni models do not implement value equality,
+ * thus each aspect of a project is reduced to a signature made of plain values that are compared instead.
+ */
+final class ProjectDeltas {
+
+    private ProjectDeltas() {
+    }
+
+    /**
+     * Diffs the given Eclipse projects.
+     *
+     * @param previous the previously loaded projects, {@code null} if not known
+     * @param current the reloaded projects
+     * @return the delta, with all projects reported as added if the previously loaded projects are not known
+     */
+    static ProjectDelta<OmniEclipseProject> diffEclipseProjects(Collection<OmniEclipseProject> previous, Collection<OmniEclipseProject> current) {
+        return diff(previous, current, new EclipseProjectAspects());
+    }
+
+    /**
+     * Diffs the given Gradle projects.
+     *
+     * @param previous the previously loaded projects, {@code null} if not known
+     * @param current the reloaded projects
+     * @return the delta, with all projects reported as added if the previously loaded projects are not known
+     */
+    static ProjectDelta<OmniGradleProject> diffGradleProjects(Collection<OmniGradleProject> previous, Collection<OmniGradleProject> current) {
+        return diff(previous, current, new GradleProjectAspects());
+    }
+
+    private static <T> ProjectDelta<T> diff(Collection<T> previous, Collection<T> current, ProjectAspects<T> aspects) {
+        Map<List<Object>, T> previousByKey = index(previous != null ? previous : ImmutableList.<T>of(), aspects);
+        Map<List<Object>, T> currentByKey = index(current, aspects);
+
+        Set<T> added = Sets.newLinkedHashSet();
+        Set<T> removed = Sets.newLinkedHashSet();
+        Map<T, Set<ProjectAspect>> changed = Maps.newLinkedHashMap();
+        for (Map.Entry<List<Object>, T> entry : currentByKey.entrySet()) {
+            T previousProject = previousByKey.get(entry.getKey());
+            if (previousProject == null) {
+                added.add(entry.getValue());
+            } else {
+                Set<ProjectAspect> changedAspects = EnumSet.noneOf(ProjectAspect.class);
+                for (ProjectAspect aspect : ProjectAspect.values()) {
+                    if (!aspects.signature(previousProject, aspect).equals(aspects.signature(entry.getValue(), aspect))) {
+                        changedAspects.add(aspect);
+                    }
+                }
+                if (!changedAspects.isEmpty()) {
+                    changed.put(entry.getValue(), changedAspects);
+                }
+            }
+        }
+        for (Map.Entry<List<Object>, T> entry : previousByKey.entrySet()) {
+            if (!currentByKey.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+        return new ProjectDelta<T>(added, removed, changed);
+    }
+
+    private static <T> Map<List<Object>, T> index(Collection<T> projects, ProjectAspects<T> aspects) {
+        Map<List<Object>, T> projectsByKey = Maps.newLinkedHashMap();
+        for (T project : projects) {
+            projectsByKey.put(aspects.key(project), project);
+        }
+        return projectsByKey;
+    }
+
+    private static List<Object> key(ProjectIdentifier projectIdentifier, Object projectDirectory, Object path) {
+        // projects of a composite build are told apart by the root directory of their build,
+        // models loaded from older Gradle versions do not provide an identifier
+        if (projectIdentifier != null && projectIdentifier.getBuildIdentifier() != null) {
+            return Arrays.<Object>asList(projectIdentifier.getBuildIdentifier().getRootDir(), projectIdentifier.getProjectPath());
+        }
+        return Arrays.asList(projectDirectory, path);
+    }
+
+    private static List<Object> tasksSignature(OmniGradleProject project) {
+        ImmutableList.Builder<Object> signature = ImmutableList.builder();
+        for (OmniProjectTask task : project.getProjectTasks()) {
+            signature.add(Arrays.asList(task.getPath(), task.getName(), task.getDescription(), task.isPublic(), task.getGroup()));
+        }
+        for (OmniTaskSelector selector : project.getTaskSelectors()) {
+            signature.add(Arrays.asList(selector.getName(), selector.getDescription(), selector.getProjectPath(), selector.isPublic(), selector.getGroup(),
+                    ImmutableList.copyOf(selector.getSelectedTaskPaths())));
+        }
+        return signature.build();
+    }
+
+    private static List<Object> classpathEntrySignature(OmniClasspathEntry entry) {
+        List<Object> attributes = null;
+        if (entry.getClasspathAttributes().isPresent()) {
+            attributes = Lists.newArrayList();
+            for (OmniClasspathAttribute attribute : entry.getClasspathAttributes().get()) {
+                attributes.add(Arrays.asList(attribute.getName(), attribute.getValue()));
+            }
+        }
+        List<Object> accessRules = null;
+        if (entry.getAccessRules().isPresent()) {
+            accessRules = Lists.newArrayList();
+            for (OmniAccessRule accessRule : entry.getAccessRules().get()) {
+                accessRules.add(Arrays.<Object>asList(accessRule.getKind(), accessRule.getPattern()));
+            }
+        }
+        return Arrays.<Object>asList(attributes, accessRules);
+    }
+
+    private static List<Object> moduleVersionSignature(Maybe<OmniGradleModuleVersion> moduleVersion) {
+        if (!moduleVersion.isPresent() || moduleVersion.get() == null) {
+            return null;
+        }
+        return Arrays.<Object>asList(moduleVersion.get().getGroup(), moduleVersion.get().getName(), moduleVersion.get().getVersion());
+    }
+
+    private static List<Object> javaSourceSettingsSignature(Optional<OmniJavaSourceSettings> javaSourceSettings) {
+        if (!javaSourceSettings.isPresent()) {
+            return null;
+        }
+        OmniJavaSourceSettings settings = javaSourceSettings.get();
+        return Arrays.<Object>asList(settings.getSourceLanguageLevel().getName(), settings.getTargetBytecodeLevel().getName(),
+                settings.getTargetRuntime().getJavaVersion().getName(), settings.getTargetRuntime().getHomeDirectory());
+    }
+
+    /**
+     * Extracts the key and the aspect signatures of a project. Two projects with the same key are the same project, two signatures of the same aspect are equal iff the aspect
+     * has not changed.
+     *
+     * @param <T> the type of the projects
+     */
+    private interface ProjectAspects<T> {
+
+        List<Object> key(T project);
+
+        List<Object> signature(T project, ProjectAspect aspect);
+
+    }
+
+    /**
+     * Aspects of an {@code OmniEclipseProject}, the tasks are taken from its Gradle project.
+     */
+    private static final class EclipseProjectAspects implements ProjectAspects<OmniEclipseProject> {
+
+        @Override
+        public List<Object> key(OmniEclipseProject project) {
+            return ProjectDeltas.key(project.getProjectIdentifier(), project.getProjectDirectory(), project.getPath());
+        }
+
+        @Override
+        public List<Object> signature(OmniEclipseProject project, ProjectAspect aspect) {
+            switch (aspect) {
+                case CLASSPATH:
+                    return classpathSignature(project);
+                case SOURCE_DIRECTORIES:
+                    return sourceDirectoriesSignature(project);
+                case TASKS:
+                    return tasksSignature(project.getGradleProject());
+                case ATTRIBUTES:
+                    return attributesSignature(project);
+                default:
+                    throw new IllegalStateException("Unsupported project aspect: " + aspect);
+            }
+        }
+
+        private static List<Object> classpathSignature(OmniEclipseProject project) {
+            ImmutableList.Builder<Object> signature = ImmutableList.builder();
+            for (OmniEclipseProjectDependency dependency : project.getProjectDependencies()) {
+                signature.add(Arrays.<Object>asList(dependency.getPath(), dependency.isExported(), classpathEntrySignature(dependency)));
+            }
+            for (OmniExternalDependency dependency : project.getExternalDependencies()) {
+                signature.add(Arrays.<Object>asList(dependency.getFile(), dependency.getSource(), dependency.getJavadoc(),
+                        moduleVersionSignature(dependency.getGradleModuleVersion()), dependency.isExported(), classpathEntrySignature(dependency)));
+            }
+            if (project.getClasspathContainers().isPresent()) {
+                for (OmniEclipseClasspathContainer container : project.getClasspathContainers().get()) {
+                    signature.add(Arrays.<Object>asList(container.getPath(), container.isExported(), classpathEntrySignature(container)));
+                }
+            }
+            return signature
+                    .add(Arrays.asList(project.getOutputLocation().isPresent() ? project.getOutputLocation().get().getPath() : null))
+                    .add(Arrays.asList(javaSourceSettingsSignature(project.getJavaSourceSettings())))
+                    .build();
+        }
+
+        private static List<Object> sourceDirectoriesSignature(OmniEclipseProject project) {
+            ImmutableList.Builder<Object> signature = ImmutableList.builder();
+            for (OmniEclipseSourceDirectory sourceDirectory : project.getSourceDirectories()) {
+                signature.add(Arrays.<Object>asList(sourceDirectory.getPath(), sourceDirectory.getDirectory(), sourceDirectory.getExcludes(), sourceDirectory.getIncludes(),
+                        sourceDirectory.getOutput(), classpathEntrySignature(sourceDirectory)));
+            }
+            return signature.build();
+        }
+
+        private List<Object> attributesSignature(OmniEclipseProject project) {
+            List<Object> natures = null;
+            if (project.getProjectNatures().isPresent()) {
+                natures = Lists.newArrayList();
+                for (OmniEclipseProjectNature nature : project.getProjectNatures().get()) {
+                    natures.add(nature.getId());
+                }
+            }
+            List<Object> buildCommands = null;
+            if (project.getBuildCommands().isPresent()) {
+                buildCommands = Lists.newArrayList();
+                for (OmniEclipseBuildCommand buildCommand : project.getBuildCommands().get()) {
+                    buildCommands.add(Arrays.<Object>asList(buildCommand.getName(), buildCommand.getArguments()));
+                }
+            }
+            List<Object> linkedResources = Lists.newArrayList();
+            for (OmniEclipseLinkedResource linkedResource : project.getLinkedResources()) {
+                linkedResources.add(Arrays.asList(linkedResource.getName(), linkedResource.getType(), linkedResource.getLocation(), linkedResource.getLocationUri()));
+            }
+            OmniEclipseProject parent = project.getParent();
+            return Arrays.<Object>asList(project.getName(), project.getDescription(), project.getPath(), project.getProjectDirectory(), parent != null ? key(parent) : null,
+                    natures, buildCommands, linkedResources);
+        }
+
+    }
+
+    /**
+     * Aspects of an {@code OmniGradleProject}, which has neither a classpath nor source directories.
+     */
+    private static final class GradleProjectAspects implements ProjectAspects<OmniGradleProject> {
+
+        @Override
+        public List<Object> key(OmniGradleProject project) {
+            return ProjectDeltas.key(project.getProjectIdentifier(), project.getProjectDirectory(), project.getPath());
+        }
+
+        @Override
+        public List<Object> signature(OmniGradleProject project, ProjectAspect aspect) {
+            switch (aspect) {
+                case CLASSPATH:
+                case SOURCE_DIRECTORIES:
+                    return ImmutableList.of();
+                case TASKS:
+                    return tasksSignature(project);
+                case ATTRIBUTES:
+                    return attributesSignature(project);
+                default:
+                    throw new IllegalStateException("Unsupported project aspect: " + aspect);
+            }
+        }
+
+        private List<Object> attributesSignature(OmniGradleProject project) {
+            Maybe<File> buildScriptFile = project.getBuildScript().isPresent() && project.getBuildScript().get() != null
+                    ? Maybe.of(project.getBuildScript().get().getSourceFile()) : Maybe.<File>absent();
+            OmniGradleProject parent = project.getParent();
+            return Arrays.<Object>asList(project.getName(), project.getDescription(), project.getPath(), project.getProjectDirectory(), parent != null ? key(parent) : null,
+                    project.getBuildDirectory(), buildScriptFile);
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses concurrent reloads of the same model into reload epochs. A reload that is requested while no reload of the model is running starts a new epoch right away. A
+ * reload that is requested while a reload is running cannot use the result of the running epoch since that epoch might have started before the inputs of the reload
+ * changed. Instead, it joins the next epoch, which starts once the running epoch has finished. All reloads that join the same epoch share its result.
+ * <p/>
+ * Thus, per model, at most one reload is running and at most one reload is queued behind it, regardless of how many reloads are requested.
+ */
+final class ReloadEpochs {
+
+    private final Map<Object, Epochs> epochsByKey;
+
+    ReloadEpochs() {
+        this.epochsByKey = Maps.newHashMap();
+    }
+
+    /**
+     * Reloads the model with the given key, either by running the given reload or by joining the epoch of a reload requested concurrently.
+     *
+     * @param key the key of the model or group of models to reload
+     * @param reload the reload to run if this call starts a new epoch
+     * @param <T> the type of the reloaded model
+     * @return the reloaded model
+     */
+    <T> T reload(Object key, Supplier<T> reload) {
+        SettableFuture<Object> epoch;
+        SettableFuture<Object> runningEpoch = null;
+        boolean joined = false;
+        synchronized (this.epochsByKey) {
+            Epochs epochs = this.epochsByKey.get(key);
+            if (epochs == null) {
+                // no reload is running, this call starts the running epoch
+                epoch = SettableFuture.create();
+                this.epochsByKey.put(key, new Epochs(epoch));
+            } else if (epochs.next == null) {
+                // a reload is running, this call starts the next epoch once the running one has finished
+                epoch = SettableFuture.create();
+                runningEpoch = epochs.running;
+                epochs.next = epoch;
+            } else {
+                // a reload is running and another one is queued, this call joins the queued one
+                epoch = epochs.next;
+                joined = true;
+            }
+        }
+
+        if (joined) {
+            return getResult(epoch);
+        }
+
+        if (runningEpoch != null) {
+            awaitCompletion(runningEpoch);
+            synchronized (this.epochsByKey) {
+                Epochs epochs = this.epochsByKey.get(key);
+                epochs.running = epochs.next;
+                epochs.next = null;
+            }
+        }
+
+        return run(key, epoch, reload);
+    }
+
+    private <T> T run(Object key, SettableFuture<Object> epoch, Supplier<T> reload) {
+        T result;
+        try {
+            result = reload.get();
+        } catch (Throwable t) {
+            finish(key);
+            epoch.setException(t);
+            throw Throwables.propagate(t);
+        }
+        finish(key);
+        epoch.set(result);
+        return result;
+    }
+
+    private void finish(Object key) {
+        synchronized (this.epochsByKey) {
+            // if another epoch is queued, it is promoted to the running epoch by the caller that queued it
+            if (this.epochsByKey.get(key).next == null) {
+                this.epochsByKey.remove(key);
+            }
+        }
+    }
+
+    private static void awaitCompletion(SettableFuture<Object> epoch) {
+        try {
+            Uninterruptibles.getUninterruptibly(epoch);
+        } catch (ExecutionException ignore) {
+            // the next epoch runs regardless of the outcome of the previous epoch
+        }
+    }
+
+    private static <T> T getResult(SettableFuture<Object> epoch) {
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) Uninterruptibles.getUninterruptibly(epoch);
+            return result;
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * The running epoch of a model and the epoch queued behind it, if any.
+     */
+    private static final class Epochs {
+
+        private SettableFuture<Object> running;
+        private SettableFuture<Object> next;
+
+        private Epochs(SettableFuture<Object> running) {
+            this.running = running;
+        }
+
+    }
+
+}
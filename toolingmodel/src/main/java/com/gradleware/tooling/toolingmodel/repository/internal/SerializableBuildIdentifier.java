@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Objects;
+import org.gradle.tooling.model.BuildIdentifier;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * Serializable copy of a {@code BuildIdentifier} provided by the Tooling API.
+ */
+final class SerializableBuildIdentifier implements BuildIdentifier, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final File rootDir;
+
+    private SerializableBuildIdentifier(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    @Override
+    public File getRootDir() {
+        return this.rootDir;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        SerializableBuildIdentifier that = (SerializableBuildIdentifier) other;
+        return Objects.equal(this.rootDir, that.rootDir);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.rootDir);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("build %s", this.rootDir);
+    }
+
+    static SerializableBuildIdentifier from(BuildIdentifier buildIdentifier) {
+        if (buildIdentifier == null || buildIdentifier instanceof SerializableBuildIdentifier) {
+            return (SerializableBuildIdentifier) buildIdentifier;
+        }
+        return new SerializableBuildIdentifier(buildIdentifier.getRootDir());
+    }
+
+}
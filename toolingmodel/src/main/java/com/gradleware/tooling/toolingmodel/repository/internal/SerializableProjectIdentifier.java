@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Objects;
+import org.gradle.tooling.model.BuildIdentifier;
+import org.gradle.tooling.model.ProjectIdentifier;
+
+import java.io.Serializable;
+
+/**
+ * Serializable copy of a {@code ProjectIdentifier} provided by the Tooling API.
+ */
+final class SerializableProjectIdentifier implements ProjectIdentifier, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String projectPath;
+    private final SerializableBuildIdentifier buildIdentifier;
+
+    private SerializableProjectIdentifier(String projectPath, SerializableBuildIdentifier buildIdentifier) {
+        this.projectPath = projectPath;
+        this.buildIdentifier = buildIdentifier;
+    }
+
+    @Override
+    public String getProjectPath() {
+        return this.projectPath;
+    }
+
+    @Override
+    public BuildIdentifier getBuildIdentifier() {
+        return this.buildIdentifier;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        SerializableProjectIdentifier that = (SerializableProjectIdentifier) other;
+        return Objects.equal(this.projectPath, that.projectPath) && Objects.equal(this.buildIdentifier, that.buildIdentifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.projectPath, this.buildIdentifier);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("project %s in %s", this.projectPath, this.buildIdentifier);
+    }
+
+    static SerializableProjectIdentifier from(ProjectIdentifier projectIdentifier) {
+        if (projectIdentifier == null || projectIdentifier instanceof SerializableProjectIdentifier) {
+            return (SerializableProjectIdentifier) projectIdentifier;
+        }
+        return new SerializableProjectIdentifier(projectIdentifier.getProjectPath(), SerializableBuildIdentifier.from(projectIdentifier.getBuildIdentifier()));
+    }
+
+}
@@ -19,6 +19,10 @@ package com.gradleware.tooling.toolingmodel.util;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 /**
  * An immutable object that may contain a non-null or null reference to another object, or it may not contain any reference at all. This class is similar to the various {@code
  * Optional} implementations but differs in that it allows to store a {@code null} value. The motivation for this class is that there are scenarios where {@code null} is a valid,
@@ -28,7 +32,10 @@ import com.google.common.base.Optional;
  * @param <T> the type of the contained reference
  * @author Etienne Studer
  */
-public final class Maybe<T> {
+@SuppressWarnings("NonSerializableFieldInSerializableClass")
+public final class Maybe<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private static final Maybe<Object> ABSENT = new Maybe<Object>(Optional.absent());
     private static final Object NULL_REFERENCE = new Object();
@@ -126,4 +133,38 @@ public final class Maybe<T> {
         }
     }
 
+    /*
+     * the null reference is represented by a sentinel object that is compared by identity,
+     * thus instances are serialized through a proxy that holds the referenced value itself
+     */
+    private Object writeReplace() {
+        return new SerializedForm(this.optional.isPresent(), this.optional.isPresent() ? get() : null);
+    }
+
+    private void readObject(@SuppressWarnings("UnusedParameters") ObjectInputStream stream) throws InvalidObjectException {
+        throw new InvalidObjectException("Maybe instances must be deserialized through their serialized form.");
+    }
+
+    /**
+     * Serialized form of a {@code Maybe} instance.
+     */
+    @SuppressWarnings("NonSerializableFieldInSerializableClass")
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean present;
+        private final Object reference;
+
+        private SerializedForm(boolean present, Object reference) {
+            this.present = present;
+            this.reference = reference;
+        }
+
+        private Object readResolve() {
+            return this.present ? Maybe.of(this.reference) : Maybe.absent();
+        }
+
+    }
+
 }
@@ -20,6 +20,8 @@ import com.gradleware.tooling.toolingclient.ToolingClient
 import org.gradle.internal.Factory
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 class ModelRepositoryProviderFactoryTest extends Specification {
 
   def "create with single-args constructor"() {
@@ -59,4 +61,31 @@ class ModelRepositoryProviderFactoryTest extends Specification {
     modelRepositoryProvider != null
   }
 
+  def "create with three-args constructor"() {
+    setup:
+    def toolingClient = Mock(ToolingClient)
+    def factory = Mock(Factory)
+
+    when:
+    def modelRepositoryProvider = ModelRepositoryProviderFactory.create(toolingClient, factory, ModelCacheSpec.newBuilder().maximumWeight(1000).build())
+
+    then:
+    noExceptionThrown()
+    modelRepositoryProvider != null
+  }
+
+  def "create with four-args constructor"() {
+    setup:
+    def toolingClient = Mock(ToolingClient)
+    def factory = Mock(Factory)
+
+    when:
+    def modelRepositoryProvider = ModelRepositoryProviderFactory.create(toolingClient, factory, ModelCacheSpec.unbounded(),
+        ModelRepositoryEvictionSpec.of(100, 30, TimeUnit.MINUTES))
+
+    then:
+    noExceptionThrown()
+    modelRepositoryProvider != null
+  }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+class BuildInputWatcherTest extends Specification {
+
+  @Rule
+  TemporaryFolder tempFolder
+
+  def changes = new LinkedBlockingQueue<Set<Class<?>>>()
+  def watcher = new BuildInputWatcher(200, TimeUnit.MILLISECONDS, { changes.put(it) } as Consumer)
+
+  File rootDir
+  File subDir
+
+  def setup() {
+    rootDir = tempFolder.newFolder('root')
+    subDir = tempFolder.newFolder('root', 'sub')
+    new File(rootDir, 'settings.gradle').text = "include 'sub'"
+    new File(rootDir, 'gradle/wrapper').mkdirs()
+    new File(rootDir, 'gradle/wrapper/gradle-wrapper.properties').text = 'distributionUrl=gradle-3.2-bin.zip'
+    new File(subDir, 'build.gradle').text = ''
+  }
+
+  def "only the models whose build inputs have changed are reported"() {
+    given:
+    watcher.watch(OmniBuildEnvironment, [rootDir])
+    watcher.watch(OmniGradleProject, [rootDir, subDir])
+
+    when:
+    new File(subDir, 'build.gradle').text = 'apply plugin: "java"'
+
+    then:
+    changes.poll(10, TimeUnit.SECONDS) == [OmniGradleProject] as Set
+  }
+
+  def "changes to wrapper properties are detected"() {
+    given:
+    watcher.watch(OmniBuildEnvironment, [rootDir])
+
+    when:
+    new File(rootDir, 'gradle/wrapper/gradle-wrapper.properties').text = 'distributionUrl=gradle-4.0-bin.zip'
+
+    then:
+    changes.poll(10, TimeUnit.SECONDS) == [OmniBuildEnvironment] as Set
+  }
+
+  def "changes are coalesced until the build inputs are quiet"() {
+    given:
+    watcher.watch(OmniGradleProject, [rootDir, subDir])
+    watcher.watch(OmniEclipseProject, [subDir])
+
+    when:
+    new File(rootDir, 'settings.gradle').text = "include 'sub', 'other'"
+    new File(subDir, 'gradle.properties').text = 'org.gradle.jvmargs=-Xmx1g'
+
+    then:
+    changes.poll(10, TimeUnit.SECONDS) == [OmniGradleProject, OmniEclipseProject] as Set
+    changes.poll(1, TimeUnit.SECONDS) == null
+  }
+
+  def "changes to files that are not build inputs and to unwatched models are ignored"() {
+    given:
+    watcher.watch(OmniGradleProject, [rootDir, subDir])
+    watcher.watch(OmniEclipseProject, [subDir])
+    watcher.unwatch(OmniEclipseProject)
+
+    when:
+    new File(subDir, 'Main.java').text = 'class Main {}'
+
+    then:
+    changes.poll(2, TimeUnit.SECONDS) == null
+
+    when:
+    new File(subDir, 'build.gradle').text = 'apply plugin: "java"'
+
+    then:
+    changes.poll(10, TimeUnit.SECONDS) == [OmniGradleProject] as Set
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingmodel.Path
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class BuildInvocationsScalingTest extends Specification {
+
+  @Unroll
+  def "build invocations of #projectCount projects with fan out #fanOut request the tasks of each project once"() {
+    given:
+    def hierarchy = new SyntheticProjectHierarchy(projectCount, fanOut, 3)
+
+    when:
+    def container = DefaultOmniBuildInvocationsContainerBuilder.build(hierarchy.rootProject)
+
+    then:
+    hierarchy.taskRequests == projectCount
+    container.asMap().size() == projectCount
+    container.get(Path.from(':')).get().taskSelectors.collect { it.selectedTaskPaths.size() } == [projectCount] * 3
+
+    where:
+    projectCount | fanOut
+    100          | 10
+    1000         | 10
+    10000        | 10
+    1000         | 1
+  }
+
+  def "task selectors select the tasks of the project and all its child projects"() {
+    given:
+    def hierarchy = new SyntheticProjectHierarchy(13, 3, 2)
+
+    when:
+    def container = DefaultOmniBuildInvocationsContainerBuilder.build(hierarchy.rootProject)
+
+    then:
+    def root = container.get(Path.from(':')).get()
+    root.projectTasks*.name == ['task0', 'task1']
+    root.taskSelectors*.name == ['task0', 'task1']
+    root.taskSelectors[0].selectedTaskPaths*.path == [':task0'] + [1, 10, 11, 12, 2, 3, 4, 5, 6, 7, 8, 9].collect { ":project$it:task0" as String }
+    root.taskSelectors[0].projectPath.path == ':'
+    root.taskSelectors[0].isPublic()
+
+    def child = container.get(Path.from(':project1')).get()
+    child.projectTasks*.path.path == [':project1:task0', ':project1:task1']
+    child.taskSelectors*.name == ['task0', 'task1']
+    child.taskSelectors[1].selectedTaskPaths*.path == [':project1:task1', ':project4:task1', ':project5:task1', ':project6:task1']
+    child.taskSelectors[1].projectPath.path == ':project1'
+
+    def leaf = container.get(Path.from(':project12')).get()
+    leaf.taskSelectors[0].selectedTaskPaths*.path == [':project12:task0']
+  }
+
+}
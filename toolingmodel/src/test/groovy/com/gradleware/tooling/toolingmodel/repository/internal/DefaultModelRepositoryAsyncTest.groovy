@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Supplier
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.CancellationToken
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DefaultModelRepositoryAsyncTest extends Specification {
+
+  def repository = newRepository()
+  def cancellationToken = Stub(CancellationToken)
+  def transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.of(), ImmutableList.of(), cancellationToken)
+
+  def "model is loaded and converted off the calling thread"() {
+    given:
+    def loadingThread = null
+
+    when:
+    def future = fetchAsync(FetchStrategy.LOAD_IF_NOT_CACHED, { loadingThread = Thread.currentThread(); 'loaded' } as Supplier)
+
+    then:
+    future.get(5, TimeUnit.SECONDS) == 'loaded'
+    loadingThread != Thread.currentThread()
+    loadingThread.name.startsWith('model-repository-fetch-')
+  }
+
+  def "model that is only fetched from the cache is available immediately"() {
+    given:
+    fetchAsync(FetchStrategy.LOAD_IF_NOT_CACHED, { 'cached' } as Supplier).get(5, TimeUnit.SECONDS)
+
+    expect:
+    fetchAsync(FetchStrategy.FROM_CACHE_ONLY, null).done
+    fetchAsync(FetchStrategy.FROM_CACHE_ONLY, null).get() == 'cached'
+  }
+
+  def "in-flight load is shared between a synchronous and an asynchronous fetch"() {
+    given:
+    def loadReleased = new CountDownLatch(1)
+    def loadStarted = new CountDownLatch(1)
+    def loads = new AtomicInteger()
+    def operation = { loads.incrementAndGet(); loadStarted.countDown(); loadReleased.await(); 'loaded' } as Supplier
+
+    when:
+    def future = fetchAsync(FetchStrategy.LOAD_IF_NOT_CACHED, operation)
+    loadStarted.await(5, TimeUnit.SECONDS)
+    Thread.start { loadReleased.countDown() }
+    def model = fetch(FetchStrategy.LOAD_IF_NOT_CACHED, operation)
+
+    then:
+    model == 'loaded'
+    future.get(5, TimeUnit.SECONDS) == 'loaded'
+    loads.get() == 1
+  }
+
+  def "fetch is not started if it is cancelled before it starts"() {
+    given:
+    cancellationToken.isCancellationRequested() >> true
+    def loads = new AtomicInteger()
+
+    when:
+    fetchAsync(FetchStrategy.LOAD_IF_NOT_CACHED, { loads.incrementAndGet(); 'loaded' } as Supplier).get(5, TimeUnit.SECONDS)
+
+    then:
+    def e = thrown(ExecutionException)
+    e.cause instanceof BuildCancelledException
+    loads.get() == 0
+  }
+
+  def "failed load fails the future"() {
+    when:
+    fetchAsync(FetchStrategy.FORCE_RELOAD, { throw new IllegalStateException('build failed') } as Supplier).get(5, TimeUnit.SECONDS)
+
+    then:
+    def e = thrown(ExecutionException)
+    e.cause instanceof IllegalStateException
+    e.cause.message == 'build failed'
+  }
+
+  private DefaultModelRepository newRepository() {
+    def fixedRequestAttributes = new FixedRequestAttributes(new File('.'), null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    new DefaultModelRepository(fixedRequestAttributes, Stub(ToolingClient), new EventBus())
+  }
+
+  private def fetchAsync(FetchStrategy fetchStrategy, Supplier operation) {
+    repository.fetchAsync(transientRequestAttributes, fetchStrategy, { fetch(fetchStrategy, operation) } as Callable)
+  }
+
+  private Object fetch(FetchStrategy fetchStrategy, Supplier operation) {
+    repository.executeRequest((Supplier) operation, { } as Consumer, fetchStrategy, String, new BaseConverter<Object, Object>() {
+
+      @Override
+      Object apply(Object input) {
+        input
+      }
+    })
+  }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Supplier
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSet
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.OmniProjectTask
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectDeltaEvent
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheSpec
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class DefaultModelRepositoryCacheSpecTest extends Specification {
+
+  @Rule
+  TemporaryFolder tempFolder
+
+  def "models are evicted once the maximum weight is exceeded"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.newBuilder().maximumWeight(10).recordStats().build())
+
+    when:
+    fetch(repository, String, projectsWithTasks(2, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+    fetch(repository, Integer, projectsWithTasks(2, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    fetch(repository, String, null, FetchStrategy.FROM_CACHE_ONLY) == null
+    fetch(repository, Integer, null, FetchStrategy.FROM_CACHE_ONLY) != null
+    repository.cacheStats.evictionCount() == 1
+  }
+
+  def "build inputs of an evicted model are no longer watched"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.newBuilder().maximumWeight(10).watchBuildInputs(true).build(), tempFolder.root)
+
+    when:
+    fetch(repository, String, projectsWithTasks(2, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+    fetch(repository, Integer, projectsWithTasks(2, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    fetch(repository, String, null, FetchStrategy.FROM_CACHE_ONLY) == null
+    repository.buildInputWatcher.get().directoriesByKey.keySet() == [Integer] as Set
+    repository.lastAccessTimes.keySet() == [Integer] as Set
+
+    cleanup:
+    repository.dispose()
+  }
+
+  def "fetch strategies keep their semantics with a bounded cache"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.newBuilder().maximumWeight(100).recordStats().build())
+    def first = projectsWithTasks(1, 1)
+    def second = projectsWithTasks(1, 1)
+
+    expect:
+    fetch(repository, String, first, FetchStrategy.FROM_CACHE_ONLY) == null
+    fetch(repository, String, first, FetchStrategy.LOAD_IF_NOT_CACHED).is(first)
+    fetch(repository, String, second, FetchStrategy.LOAD_IF_NOT_CACHED).is(first)
+    fetch(repository, String, second, FetchStrategy.FORCE_RELOAD).is(second)
+    fetch(repository, String, first, FetchStrategy.FROM_CACHE_ONLY).is(second)
+    repository.cacheStats.hitCount() == 2
+    repository.cacheStats.missCount() == 2
+  }
+
+  def "statistics are not recorded unless requested"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.unbounded())
+
+    when:
+    fetch(repository, String, projectsWithTasks(1, 1), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    repository.cacheStats.requestCount() == 0
+  }
+
+  def "weight of a model is estimated from its projects, tasks, and classpath entries"() {
+    given:
+    def eclipseProject = Stub(OmniEclipseProject) {
+      getSourceDirectories() >> []
+      getProjectDependencies() >> []
+      getExternalDependencies() >> [Stub(OmniExternalDependency), Stub(OmniExternalDependency)]
+    }
+
+    expect:
+    ModelWeigher.INSTANCE.weigh(String, projectsWithTasks(3, 2)) == 1 + 3 * (1 + 2)
+    ModelWeigher.INSTANCE.weigh(String, ImmutableSet.of(eclipseProject)) == 1 + 1 + 2
+    ModelWeigher.INSTANCE.weigh(String, 'unknown model') == 1
+  }
+
+  def "retained size of the cached models is estimated per model type"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.unbounded())
+
+    when:
+    fetch(repository, String, projectsWithTasks(3, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+    fetch(repository, Integer, projectsWithTasks(1, 0), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    repository.retainedSizeEstimates == [(String): ModelWeigher.estimateRetainedBytes(projectsWithTasks(3, 2)),
+                                         (Integer): ModelWeigher.estimateRetainedBytes(projectsWithTasks(1, 0))]
+    repository.retainedSizeEstimates[String] > repository.retainedSizeEstimates[Integer]
+  }
+
+  def "cached models are released on memory pressure"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.newBuilder().releaseOnMemoryPressure(0.8).build())
+    fetch(repository, String, projectsWithTasks(3, 2), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    when:
+    MemoryPressureMonitor.instance.releaseModels()
+
+    then:
+    fetch(repository, String, null, FetchStrategy.FROM_CACHE_ONLY) == null
+    repository.retainedSizeEstimates.isEmpty()
+  }
+
+  def "model is removed from the cache once its build inputs change"() {
+    given:
+    def projectDir = tempFolder.root
+    new File(projectDir, 'build.gradle').text = ''
+    def repository = newRepository(ModelCacheSpec.newBuilder().watchBuildInputs(false).build(), projectDir)
+    fetch(repository, String, 'cached', FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    when:
+    new File(projectDir, 'build.gradle').text = 'apply plugin: "java"'
+
+    then:
+    new PollingConditions(timeout: 10).eventually {
+      assert fetch(repository, String, null, FetchStrategy.FROM_CACHE_ONLY) == null
+    }
+  }
+
+  def "model reloaded after its build inputs changed is diffed against the model removed from the cache"() {
+    given:
+    def projectDir = tempFolder.root
+    new File(projectDir, 'build.gradle').text = ''
+    def repository = newRepository(ModelCacheSpec.newBuilder().watchBuildInputs(false).build(), projectDir)
+    def deltas = []
+    repository.register(GradleProjectDeltaEvent, { deltas << it } as Consumer)
+    def root = gradleProject(':')
+    def removed = gradleProject(':removed')
+    def added = gradleProject(':added')
+    fetch(repository, OmniGradleProject, ImmutableSet.of(root, removed), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    when:
+    new File(projectDir, 'build.gradle').text = 'apply plugin: "java"'
+    new PollingConditions(timeout: 10).eventually {
+      assert fetch(repository, OmniGradleProject, null, FetchStrategy.FROM_CACHE_ONLY) == null
+    }
+    fetch(repository, OmniGradleProject, ImmutableSet.of(gradleProject(':'), added), FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    deltas.size() == 2
+    deltas[1].previousGeneration == deltas[0].generation
+    deltas[1].delta.added == [added] as Set
+    deltas[1].delta.removed == [removed] as Set
+    deltas[1].delta.changed.isEmpty()
+
+    cleanup:
+    repository.dispose()
+  }
+
+  def "cached model is only reloaded if its build inputs have changed"() {
+    given:
+    def projectDir = tempFolder.root
+    new File(projectDir, 'settings.gradle').text = ''
+    def repository = newRepository(ModelCacheSpec.unbounded(), projectDir)
+    fetch(repository, String, 'cached', FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    expect:
+    fetch(repository, String, 'reloaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'cached'
+
+    when:
+    new File(projectDir, 'settings.gradle').text = "rootProject.name = 'root'"
+
+    then:
+    fetch(repository, String, 'reloaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'reloaded'
+    fetch(repository, String, 'reloaded again', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'reloaded'
+  }
+
+  def "build inputs changed while the model is loading cause a reload on the next fetch"() {
+    given:
+    def projectDir = tempFolder.root
+    def settingsFile = new File(projectDir, 'settings.gradle')
+    settingsFile.text = ''
+    def repository = newRepository(ModelCacheSpec.unbounded(), projectDir)
+    def loading = { settingsFile.text = "rootProject.name = 'root'"; 'loaded while changing' } as Supplier
+
+    expect:
+    repository.executeRequest(loading, { } as Consumer, FetchStrategy.LOAD_IF_NOT_CACHED, String, identity()) == 'loaded while changing'
+    fetch(repository, String, 'reloaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'reloaded'
+    fetch(repository, String, 'reloaded again', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'reloaded'
+  }
+
+  def "build inputs revealed by the loaded model are fingerprinted"() {
+    given:
+    def projectDir = tempFolder.root
+    def subprojectDir = tempFolder.newFolder('sub')
+    new File(subprojectDir, 'build.gradle').text = ''
+    def repository = newRepository(ModelCacheSpec.unbounded(), projectDir)
+    def projects = ImmutableSet.of(Stub(OmniGradleProject) {
+      getProjectDirectory() >> Maybe.of(subprojectDir)
+      getBuildScript() >> Maybe.absent()
+    })
+    fetch(repository, String, projects, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    expect:
+    fetch(repository, String, 'reloaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED).is(projects)
+
+    when:
+    new File(subprojectDir, 'build.gradle').text = 'apply plugin: "java"'
+
+    then:
+    fetch(repository, String, 'reloaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'reloaded'
+  }
+
+  def "model that is not cached is loaded if its build inputs are to be checked"() {
+    given:
+    def repository = newRepository(ModelCacheSpec.unbounded(), tempFolder.root)
+
+    expect:
+    fetch(repository, String, 'loaded', FetchStrategy.RELOAD_IF_INPUTS_CHANGED) == 'loaded'
+  }
+
+  private Set<OmniGradleProject> projectsWithTasks(int projectCount, int taskCount) {
+    def projects = ImmutableSet.builder()
+    projectCount.times {
+      def tasks = (1..taskCount).collect { Stub(OmniProjectTask) }
+      projects.add(Stub(OmniGradleProject) {
+        getProjectTasks() >> tasks
+        getTaskSelectors() >> []
+        getProjectDirectory() >> Maybe.absent()
+        getBuildScript() >> Maybe.absent()
+      })
+    }
+    projects.build()
+  }
+
+  private OmniGradleProject gradleProject(String path) {
+    OmniGradleProject project = Stub(OmniGradleProject)
+    project.name >> path
+    project.path >> Path.from(path)
+    project.parent >> null
+    project.projectIdentifier >> null
+    project.projectDirectory >> Maybe.absent()
+    project.buildDirectory >> Maybe.absent()
+    project.buildScript >> Maybe.absent()
+    project.projectTasks >> []
+    project.taskSelectors >> []
+    project
+  }
+
+  private DefaultModelRepository newRepository(ModelCacheSpec cacheSpec, File projectDir = new File('.')) {
+    def fixedRequestAttributes = new FixedRequestAttributes(projectDir, null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    new DefaultModelRepository(fixedRequestAttributes, Mock(ToolingClient), new EventBus(), cacheSpec)
+  }
+
+  private static Object fetch(DefaultModelRepository repository, Class<?> cacheKey, Object model, FetchStrategy fetchStrategy) {
+    repository.executeRequest({ model } as Supplier, { } as Consumer, fetchStrategy, cacheKey, identity())
+  }
+
+  private static BaseConverter<Object, Object> identity() {
+    new BaseConverter<Object, Object>() {
+
+      @Override
+      Object apply(Object input) {
+        input
+      }
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Ticker
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheSpec
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryEvictionSpec
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.internal.Factory
+import org.gradle.tooling.GradleConnector
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class DefaultModelRepositoryProviderEvictionTest extends Specification {
+
+  long nanos = 0
+  def ticker = new Ticker() {
+
+    @Override
+    long read() {
+      nanos
+    }
+  }
+
+  def "concurrent requests for the same attributes get the same repository"() {
+    given:
+    def provider = newProvider(ModelRepositoryEvictionSpec.never())
+    def executor = Executors.newFixedThreadPool(8)
+
+    when:
+    def repositories = executor.invokeAll((1..32).collect { { -> provider.getModelRepository(attributes('a')) } as Callable }).collect { it.get() }
+
+    then:
+    repositories.unique(false) { System.identityHashCode(it) }.size() == 1
+
+    cleanup:
+    executor.shutdown()
+  }
+
+  def "least recently requested repository is evicted once the maximum number is exceeded"() {
+    given:
+    def provider = newProvider(ModelRepositoryEvictionSpec.of(2, 1, TimeUnit.HOURS))
+    def a = provider.getModelRepository(attributes('a'))
+    def b = provider.getModelRepository(attributes('b'))
+
+    when:
+    provider.getModelRepository(attributes('a'))
+    provider.getModelRepository(attributes('c'))
+
+    then:
+    provider.getModelRepository(attributes('a')).is(a)
+    !provider.getModelRepository(attributes('b')).is(b)
+  }
+
+  def "idle repository is evicted and releases its listeners"() {
+    given:
+    def eventBus = new EventBus()
+    def provider = new DefaultModelRepositoryProvider(Stub(ToolingClient), { eventBus } as Factory, ModelCacheSpec.unbounded(),
+        ModelRepositoryEvictionSpec.of(10, 10, TimeUnit.MINUTES), ticker)
+    def repository = provider.getModelRepository(attributes('a'))
+    def listener = new Object() {
+
+      @com.google.common.eventbus.Subscribe
+      void onEvent(String event) {
+      }
+    }
+    repository.register(listener)
+
+    when:
+    nanos += TimeUnit.MINUTES.toNanos(11)
+    def reloaded = provider.getModelRepository(attributes('a'))
+
+    then:
+    !reloaded.is(repository)
+
+    when:
+    eventBus.unregister(listener)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  def "cache statistics are aggregated across repositories, including evicted ones"() {
+    given:
+    def provider = newProvider(ModelRepositoryEvictionSpec.of(1, 1, TimeUnit.HOURS), ModelCacheSpec.newBuilder().recordStats().build())
+
+    when:
+    fetchFromCache(provider.getModelRepository(attributes('a')))
+    fetchFromCache(provider.getModelRepository(attributes('b')))
+    fetchFromCache(provider.getModelRepository(attributes('b')))
+
+    then:
+    provider.cacheStats.missCount() == 3
+  }
+
+  private DefaultModelRepositoryProvider newProvider(ModelRepositoryEvictionSpec evictionSpec, ModelCacheSpec cacheSpec = ModelCacheSpec.unbounded()) {
+    new DefaultModelRepositoryProvider(Stub(ToolingClient), { new EventBus() } as Factory, cacheSpec, evictionSpec, ticker)
+  }
+
+  private static FixedRequestAttributes attributes(String projectDir) {
+    new FixedRequestAttributes(new File(projectDir), null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+  }
+
+  private static OmniBuildEnvironment fetchFromCache(def repository) {
+    def transientAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.of(), ImmutableList.of(),
+        GradleConnector.newCancellationTokenSource().token())
+    repository.fetchBuildEnvironment(transientAttributes, FetchStrategy.FROM_CACHE_ONLY)
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Supplier
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import spock.lang.Specification
+import spock.util.concurrent.BlockingVariable
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DefaultModelRepositoryRefreshTest extends Specification {
+
+  def repository = newRepository()
+  def conditions = new PollingConditions(timeout: 5)
+
+  def "cached model is returned immediately and reloaded in the background"() {
+    given:
+    fetch(repository, { 'cached' } as Supplier, { }, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def reloadReleased = new CountDownLatch(1)
+    def reloadedModel = new BlockingVariable<Object>(5)
+
+    when:
+    def model = fetch(repository, { reloadReleased.await(); 'reloaded' } as Supplier, { reloadedModel.set(it.model) }, FetchStrategy.CACHED_THEN_REFRESH)
+
+    then:
+    model == 'cached'
+    fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'cached'
+
+    when:
+    reloadReleased.countDown()
+
+    then:
+    reloadedModel.get() == 'reloaded'
+    fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'reloaded'
+  }
+
+  def "model is loaded synchronously if it is not cached"() {
+    given:
+    def loadedModels = []
+
+    when:
+    def model = fetch(repository, { 'loaded' } as Supplier, { loadedModels << it.model }, FetchStrategy.CACHED_THEN_REFRESH)
+
+    then:
+    model == 'loaded'
+    loadedModels == ['loaded']
+    repository.refreshesInProgress.empty
+  }
+
+  def "cached model is kept if the reload fails"() {
+    given:
+    fetch(repository, { 'cached' } as Supplier, { }, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def loadedModels = []
+
+    when:
+    def model = fetch(repository, { throw new IllegalStateException('build failed') } as Supplier, { loadedModels << it.model }, FetchStrategy.CACHED_THEN_REFRESH)
+
+    then:
+    model == 'cached'
+    conditions.eventually {
+      assert repository.refreshesInProgress.empty
+    }
+    loadedModels.empty
+    fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'cached'
+  }
+
+  def "pending reload is not triggered again"() {
+    given:
+    fetch(repository, { 'cached' } as Supplier, { }, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def reloadReleased = new CountDownLatch(1)
+    def reloads = new AtomicInteger()
+    def operation = { reloads.incrementAndGet(); reloadReleased.await(); 'reloaded' } as Supplier
+
+    when:
+    3.times { fetch(repository, operation, { }, FetchStrategy.CACHED_THEN_REFRESH) }
+    reloadReleased.countDown()
+
+    then:
+    conditions.eventually {
+      assert fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'reloaded'
+      assert repository.refreshesInProgress.empty
+    }
+    reloads.get() == 1
+  }
+
+  def "cached model remains visible while it is force-reloaded"() {
+    given:
+    fetch(repository, { 'cached' } as Supplier, { }, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def reloadReleased = new CountDownLatch(1)
+    def reloadedModel = new BlockingVariable<Object>(5)
+
+    when:
+    Thread.start {
+      reloadedModel.set(fetch(repository, { reloadReleased.await(); 'reloaded' } as Supplier, { }, FetchStrategy.FORCE_RELOAD))
+    }
+
+    then:
+    fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'cached'
+    fetch(repository, { 'loaded' } as Supplier, { }, FetchStrategy.LOAD_IF_NOT_CACHED) == 'cached'
+
+    when:
+    reloadReleased.countDown()
+
+    then:
+    reloadedModel.get() == 'reloaded'
+    fetch(repository, null, { }, FetchStrategy.FROM_CACHE_ONLY) == 'reloaded'
+  }
+
+  def "each loaded model is broadcast with a higher generation"() {
+    given:
+    def generations = new LinkedBlockingQueue<Long>()
+    def newCacheEntryHandler = { generations.put(it.generation) }
+
+    when:
+    fetch(repository, { 'first' } as Supplier, newCacheEntryHandler, FetchStrategy.LOAD_IF_NOT_CACHED)
+    fetch(repository, { 'second' } as Supplier, newCacheEntryHandler, FetchStrategy.FORCE_RELOAD)
+    fetch(repository, { 'third' } as Supplier, newCacheEntryHandler, FetchStrategy.CACHED_THEN_REFRESH)
+
+    then:
+    [generations.poll(5, TimeUnit.SECONDS), generations.poll(5, TimeUnit.SECONDS), generations.poll(5, TimeUnit.SECONDS)] == [1L, 2L, 3L]
+  }
+
+  private DefaultModelRepository newRepository() {
+    def fixedRequestAttributes = new FixedRequestAttributes(new File('.'), null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    new DefaultModelRepository(fixedRequestAttributes, Stub(ToolingClient), new EventBus())
+  }
+
+  private static Object fetch(DefaultModelRepository repository, Supplier operation, Closure newCacheEntryHandler, FetchStrategy fetchStrategy) {
+    repository.executeRequest((Supplier) operation, newCacheEntryHandler as Consumer, fetchStrategy, String, new BaseConverter<Object, Object>() {
+
+      @Override
+      Object apply(Object input) {
+        input
+      }
+    })
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class FileContentHashesTest extends Specification {
+
+  @Rule
+  TemporaryFolder tempFolder
+
+  def hashes = new FileContentHashes()
+
+  def "file is hashed by its content"() {
+    given:
+    def file = tempFolder.newFile('build.gradle')
+    file.text = "apply plugin: 'java'"
+
+    expect:
+    hashes.hash(file) == Files.hash(file, Hashing.sha1())
+  }
+
+  def "hash is reused as long as modification time and length are unchanged"() {
+    given:
+    def file = tempFolder.newFile('build.gradle')
+    file.text = "apply plugin: 'java'"
+    def hash = hashes.hash(file)
+    def lastModified = file.lastModified()
+
+    when:
+    file.text = "apply plugin: 'jave'"
+    file.lastModified = lastModified
+
+    then:
+    hashes.hash(file) == hash
+
+    when:
+    file.lastModified = lastModified + 2000
+
+    then:
+    hashes.hash(file) != hash
+    hashes.hash(file) == Files.hash(file, Hashing.sha1())
+  }
+
+  def "file is hashed again once its length changes"() {
+    given:
+    def file = tempFolder.newFile('build.gradle')
+    file.text = "apply plugin: 'java'"
+    def hash = hashes.hash(file)
+    def lastModified = file.lastModified()
+
+    when:
+    file.text = "apply plugin: 'groovy'"
+    file.lastModified = lastModified
+
+    then:
+    hashes.hash(file) != hash
+  }
+
+  def "hashes of deleted and renamed files are removed"() {
+    given:
+    def buildFile = tempFolder.newFile('build.gradle')
+    def settingsFile = tempFolder.newFile('settings.gradle')
+    hashes.hash(buildFile)
+    hashes.hash(settingsFile)
+
+    when:
+    buildFile.delete()
+    settingsFile.renameTo(new File(tempFolder.root, 'settings.gradle.kts'))
+    hashes.removeDeletedFiles()
+
+    then:
+    hashes.hashesByFile.isEmpty()
+  }
+
+  def "fingerprinting build inputs removes the hashes of files that no longer exist"() {
+    given:
+    def projectDir = tempFolder.newFolder('project')
+    def buildFile = new File(projectDir, 'build.gradle')
+    buildFile.text = "apply plugin: 'java'"
+    BuildInputFingerprint.compute([projectDir], tempFolder.newFolder('gradle-user-home'), hashes)
+
+    when:
+    buildFile.renameTo(new File(projectDir, 'other.gradle'))
+    BuildInputFingerprint.compute([projectDir], new File(tempFolder.root, 'gradle-user-home'), hashes)
+
+    then:
+    hashes.hashesByFile.keySet() == [new File(projectDir, 'other.gradle')] as Set
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import org.gradle.util.GradleVersion
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class GradleVersionProbeTest extends Specification {
+
+  @Rule
+  TemporaryFolder tempFolder
+
+  def "version is taken from a distribution identified by its version"() {
+    expect:
+    new GradleVersionProbe(tempFolder.root, GradleDistribution.forVersion('3.5')).probe().get() == GradleVersion.version('3.5')
+  }
+
+  def "version is taken from the core library of a local installation"() {
+    given:
+    def installationDir = tempFolder.newFolder('gradle-4.6')
+    new File(installationDir, 'lib').mkdirs()
+    new File(installationDir, 'lib/gradle-core-api-4.6.jar').createNewFile()
+    new File(installationDir, 'lib/gradle-core-4.6.jar').createNewFile()
+
+    expect:
+    new GradleVersionProbe(tempFolder.root, GradleDistribution.forLocalInstallation(installationDir)).probe().get() == GradleVersion.version('4.6')
+  }
+
+  def "version is taken from the archive name of a remote distribution"() {
+    expect:
+    new GradleVersionProbe(tempFolder.root, GradleDistribution.forRemoteDistribution(new URI(uri))).probe().orNull() == (version ? GradleVersion.version(version) : null)
+
+    where:
+    uri                                                                   | version
+    'https://services.gradle.org/distributions/gradle-4.6-bin.zip'        | '4.6'
+    'https://services.gradle.org/distributions/gradle-3.3-all.zip'        | '3.3'
+    'https://example.com/gradle-4.7-20180228000024+0000-bin.zip'          | '4.7-20180228000024+0000'
+    'https://example.com/custom-distribution.zip'                         | null
+  }
+
+  def "version is taken from the wrapper properties and probed again once they change"() {
+    given:
+    def wrapperProperties = new File(tempFolder.root, 'gradle/wrapper/gradle-wrapper.properties')
+    wrapperProperties.parentFile.mkdirs()
+    wrapperProperties.text = 'distributionUrl=https\\://services.gradle.org/distributions/gradle-3.2-bin.zip\n'
+    def probe = new GradleVersionProbe(tempFolder.root, GradleDistribution.fromBuild())
+
+    expect:
+    probe.probe().get() == GradleVersion.version('3.2')
+
+    when:
+    wrapperProperties.text = 'distributionUrl=https\\://services.gradle.org/distributions/gradle-4.0-all.zip\n'
+    wrapperProperties.lastModified = wrapperProperties.lastModified() + 2000
+
+    then:
+    probe.probe().get() == GradleVersion.version('4.0')
+  }
+
+  def "version is absent if the build has no wrapper"() {
+    expect:
+    !new GradleVersionProbe(tempFolder.root, GradleDistribution.fromBuild()).probe().present
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import spock.lang.Specification
+
+class MemoryPressureMonitorTest extends Specification {
+
+  def monitor = new MemoryPressureMonitor()
+
+  def "models idle the longest are released first, the larger ones first, until half of the size is released"() {
+    given:
+    def now = System.nanoTime()
+    def first = new FakeCache(a: [size: 100, lastAccess: now - 10_000_000_000], b: [size: 1, lastAccess: now])
+    def second = new FakeCache(c: [size: 50, lastAccess: now], d: [size: 20, lastAccess: now - 10_000_000_000])
+    monitor.register(first, 0.8)
+    monitor.register(second, 0.9)
+
+    when:
+    def released = monitor.releaseModels()
+
+    then:
+    released == 1
+    first.released == ['a']
+    second.released.isEmpty()
+  }
+
+  def "models of several repositories are released until half of the size is released"() {
+    given:
+    def now = System.nanoTime()
+    def first = new FakeCache(a: [size: 10, lastAccess: now - 10_000_000_000])
+    def second = new FakeCache(b: [size: 10, lastAccess: now - 20_000_000_000], c: [size: 10, lastAccess: now])
+    def third = new FakeCache(d: [size: 10, lastAccess: now])
+    monitor.register(first, 0.8)
+    monitor.register(second, 0.8)
+    monitor.register(third, 0.8)
+
+    when:
+    monitor.releaseModels()
+
+    then:
+    first.released == ['a']
+    second.released == ['b']
+    third.released.isEmpty()
+  }
+
+  def "unregistered caches are not released"() {
+    given:
+    def cache = new FakeCache(a: [size: 10, lastAccess: System.nanoTime()])
+    monitor.register(cache, 0.8)
+    monitor.unregister(cache)
+
+    expect:
+    monitor.releaseModels() == 0
+    cache.released.isEmpty()
+  }
+
+  static class FakeCache implements MemoryPressureMonitor.ReleasableModelCache {
+
+    Map<String, Map<String, Long>> models
+    List<String> released = []
+
+    FakeCache(Map<String, Map<String, Long>> models) {
+      this.models = models
+    }
+
+    @Override
+    Collection<MemoryPressureMonitor.CachedModel> getCachedModels() {
+      models.collect { key, model -> new MemoryPressureMonitor.CachedModel(this, key, model.size, model.lastAccess) }
+    }
+
+    @Override
+    void release(Object cacheKey) {
+      released << cacheKey
+    }
+
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingmodel.repository.internal.ModelCapabilities.Capability
+import org.gradle.util.GradleVersion
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ModelCapabilitiesTest extends Specification {
+
+  @Unroll
+  def "capabilities of Gradle #version"() {
+    when:
+    def capabilities = ModelCapabilities.of(GradleVersion.version(version))
+
+    then:
+    Capability.values().findAll { capabilities.isSupported(it) } as Set == supported as Set
+
+    where:
+    version      | supported
+    '1.0'        | []
+    '1.12'       | [Capability.EXTERNAL_DEPENDENCY_MODULE_VERSION, Capability.GRADLE_PROJECT_BUILD_SCRIPT]
+    '2.5'        | [Capability.EXTERNAL_DEPENDENCY_MODULE_VERSION, Capability.GRADLE_PROJECT_BUILD_SCRIPT, Capability.GRADLE_PROJECT_BUILD_DIRECTORY, Capability.TASK_PUBLIC,
+                    Capability.GRADLE_PROJECT_PROJECT_DIRECTORY, Capability.TASK_GROUP, Capability.DEPENDENCY_EXPORTED]
+    '3.0-rc-1'   | Capability.values() as List
+    '3.5'        | Capability.values() as List
+  }
+
+  def "all accessors are supported if the target Gradle version is unknown"() {
+    expect:
+    Capability.values().every { ModelCapabilities.unknown().isSupported(it) }
+  }
+
+  def "converting the models of an old Gradle version with its capabilities calls no unsupported accessors"() {
+    given:
+    def probed = new SyntheticProjectHierarchy(100, 10, 3, 5)
+    def described = new SyntheticProjectHierarchy(100, 10, 3, 5)
+
+    when:
+    def probedProjects = DefaultOmniEclipseProject.from(probed.rootEclipseProject, ModelCapabilities.unknown()).all
+    def describedProjects = DefaultOmniEclipseProject.from(described.rootEclipseProject, ModelCapabilities.of(SyntheticProjectHierarchy.GRADLE_VERSION)).all
+
+    then:
+    probed.unsupportedMethodCalls > 0
+    described.unsupportedMethodCalls == 0
+
+    and:
+    [probedProjects, describedProjects].transpose().every { probedProject, describedProject -> sameModel(probedProject, describedProject) }
+  }
+
+  def "converting the models of an old Gradle version with its capabilities is faster than probing them"() {
+    given:
+    def probed = new SyntheticProjectHierarchy(2000, 10, 5, 20)
+    def described = new SyntheticProjectHierarchy(2000, 10, 5, 20)
+
+    when:
+    long probedStart = System.nanoTime()
+    DefaultOmniEclipseProject.from(probed.rootEclipseProject, ModelCapabilities.unknown())
+    long probedNanos = System.nanoTime() - probedStart
+
+    long describedStart = System.nanoTime()
+    DefaultOmniEclipseProject.from(described.rootEclipseProject, ModelCapabilities.of(SyntheticProjectHierarchy.GRADLE_VERSION))
+    long describedNanos = System.nanoTime() - describedStart
+
+    then:
+    // every project, task, and classpath entry throws at least once when its accessors are probed
+    probed.unsupportedMethodCalls >= 2000 * (5 + 20 + 2)
+    described.unsupportedMethodCalls == 0
+    describedNanos < probedNanos
+  }
+
+  private static boolean sameModel(DefaultOmniEclipseProject probed, DefaultOmniEclipseProject described) {
+    probed.path == described.path &&
+        probed.projectNatures == described.projectNatures &&
+        probed.buildCommands == described.buildCommands &&
+        probed.classpathContainers == described.classpathContainers &&
+        probed.outputLocation == described.outputLocation &&
+        probed.javaSourceSettings.present == described.javaSourceSettings.present &&
+        probed.externalDependencies.collect { [it.file, it.exported, it.gradleModuleVersion.present, it.classpathAttributes, it.accessRules] } ==
+            described.externalDependencies.collect { [it.file, it.exported, it.gradleModuleVersion.present, it.classpathAttributes, it.accessRules] } &&
+        probed.projectDependencies.collect { [it.path, it.exported, it.classpathAttributes] } ==
+            described.projectDependencies.collect { [it.path, it.exported, it.classpathAttributes] } &&
+        probed.sourceDirectories.collect { [it.path, it.excludes, it.includes, it.output.present] } ==
+            described.sourceDirectories.collect { [it.path, it.excludes, it.includes, it.output.present] } &&
+        probed.gradleProject.buildDirectory.present == described.gradleProject.buildDirectory.present &&
+        probed.gradleProject.projectDirectory.present == described.gradleProject.projectDirectory.present &&
+        probed.gradleProject.projectTasks.collect { [it.path, it.public, it.group.present] } ==
+            described.gradleProject.projectTasks.collect { [it.path, it.public, it.group.present] }
+  }
+
+}
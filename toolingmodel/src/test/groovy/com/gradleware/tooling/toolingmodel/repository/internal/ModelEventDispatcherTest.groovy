@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableMap
+import com.google.common.collect.ImmutableSet
+import com.google.common.eventbus.EventBus
+import com.google.common.eventbus.Subscribe
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingmodel.repository.EclipseProjectDeltaEvent
+import com.gradleware.tooling.toolingmodel.repository.EclipseProjectUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectDeltaEvent
+import com.gradleware.tooling.toolingmodel.repository.GradleProjectUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.ProjectDelta
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+class ModelEventDispatcherTest extends Specification {
+
+  def tasks = []
+  def executor = { Runnable task -> tasks << task } as Executor
+
+  def "undelivered update events of the same type are coalesced"() {
+    given:
+    def dispatcher = new ModelEventDispatcher(new EventBus(), executor)
+    def received = []
+    dispatcher.register(GradleProjectUpdateEvent, { received << it.generation } as Consumer)
+
+    when:
+    dispatcher.post(new GradleProjectUpdateEvent(ImmutableSet.of(), 1))
+    dispatcher.post(new GradleProjectUpdateEvent(ImmutableSet.of(), 2))
+    dispatcher.post('other')
+
+    then:
+    tasks.size() == 2
+    received.isEmpty()
+
+    when:
+    runTasks()
+
+    then:
+    received == [2]
+  }
+
+  def "update event with the highest generation is delivered regardless of the order in which the events are posted"() {
+    given:
+    def dispatcher = new ModelEventDispatcher(new EventBus(), executor)
+    def received = []
+    dispatcher.register(EclipseProjectUpdateEvent, { received << it.generation } as Consumer)
+
+    when:
+    dispatcher.post(new EclipseProjectUpdateEvent(ImmutableSet.of(), 3))
+    dispatcher.post(new EclipseProjectUpdateEvent(ImmutableSet.of(), 2))
+    runTasks()
+
+    then:
+    received == [3]
+
+    when:
+    dispatcher.post(new EclipseProjectUpdateEvent(ImmutableSet.of(), 1))
+    runTasks()
+    dispatcher.post(new EclipseProjectUpdateEvent(ImmutableSet.of(), 4))
+    runTasks()
+
+    then:
+    received == [3, 4]
+  }
+
+  def "delta events posted back to back are all delivered in order"() {
+    given:
+    def dispatcher = new ModelEventDispatcher(new EventBus(), executor)
+    def received = []
+    dispatcher.register(GradleProjectDeltaEvent, { received << it.generation } as Consumer)
+
+    when:
+    dispatcher.post(new GradleProjectDeltaEvent(emptyDelta(), 0, 1))
+    dispatcher.post(new GradleProjectDeltaEvent(emptyDelta(), 1, 2))
+    dispatcher.post(new GradleProjectDeltaEvent(emptyDelta(), 2, 3))
+
+    then:
+    tasks.size() == 1
+
+    when:
+    runTasks()
+
+    then:
+    received == [1, 2, 3]
+  }
+
+  def "events of a type without a generation are not coalesced"() {
+    given:
+    def dispatcher = new ModelEventDispatcher(new EventBus(), executor)
+    def received = []
+    dispatcher.register(String, { received << it } as Consumer)
+
+    when:
+    dispatcher.post('first')
+    dispatcher.post('second')
+    runTasks()
+
+    then:
+    received == ['first', 'second']
+  }
+
+  def "events posted after the delivery are delivered again"() {
+    given:
+    def dispatcher = new ModelEventDispatcher(new EventBus(), executor)
+    def received = []
+    dispatcher.register(String, { received << it } as Consumer)
+
+    when:
+    dispatcher.post('first')
+    runTasks()
+    dispatcher.post('second')
+    runTasks()
+
+    then:
+    received == ['first', 'second']
+  }
+
+  def "typed listeners and subscriber methods both receive the events"() {
+    given:
+    def dispatcher = ModelEventDispatcher.synchronous(new EventBus())
+    def typed = []
+    def subscriber = new RecordingSubscriber()
+    def typedListener = { typed << it } as Consumer
+    dispatcher.register(String, typedListener)
+    dispatcher.register(subscriber)
+
+    when:
+    dispatcher.post('event')
+
+    then:
+    typed == ['event']
+    subscriber.received == ['event']
+
+    when:
+    dispatcher.unregister(String, typedListener)
+    dispatcher.unregister(subscriber)
+    dispatcher.post('other')
+
+    then:
+    typed == ['event']
+    subscriber.received == ['event']
+  }
+
+  def "synchronous dispatcher delivers an event while another event of the same type is being delivered"() {
+    given:
+    def dispatcher = ModelEventDispatcher.synchronous(new EventBus())
+    def received = new CopyOnWriteArrayList()
+    def firstReceived = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    dispatcher.register(GradleProjectUpdateEvent, { GradleProjectUpdateEvent event ->
+      received << event.generation
+      if (event.generation == 1) {
+        firstReceived.countDown()
+        release.await(10, TimeUnit.SECONDS)
+      }
+    } as Consumer)
+    def first = Thread.start { dispatcher.post(new GradleProjectUpdateEvent(ImmutableSet.of(), 1)) }
+    firstReceived.await(10, TimeUnit.SECONDS)
+
+    when:
+    dispatcher.post(new GradleProjectUpdateEvent(ImmutableSet.of(), 2))
+
+    then:
+    received == [1, 2]
+
+    cleanup:
+    release.countDown()
+    first.join()
+  }
+
+  def "synchronous dispatcher delivers every delta event"() {
+    given:
+    def dispatcher = ModelEventDispatcher.synchronous(new EventBus())
+    def received = []
+    dispatcher.register(EclipseProjectDeltaEvent, { received << it.generation } as Consumer)
+
+    when:
+    dispatcher.post(new EclipseProjectDeltaEvent(emptyDelta(), 0, 1))
+    dispatcher.post(new EclipseProjectDeltaEvent(emptyDelta(), 1, 2))
+
+    then:
+    received == [1, 2]
+  }
+
+  def "failing listener does not prevent delivery to other listeners"() {
+    given:
+    def dispatcher = ModelEventDispatcher.synchronous(new EventBus())
+    def received = []
+    dispatcher.register(String, { throw new IllegalStateException() } as Consumer)
+    dispatcher.register(String, { received << it } as Consumer)
+
+    when:
+    dispatcher.post('event')
+
+    then:
+    received == ['event']
+  }
+
+  def "events posted by a listener are delivered after the current event"() {
+    given:
+    def dispatcher = ModelEventDispatcher.synchronous(new EventBus())
+    def received = []
+    dispatcher.register(String, { String event ->
+      received << event
+      if (event == 'first') {
+        dispatcher.post('second')
+      }
+    } as Consumer)
+
+    when:
+    dispatcher.post('first')
+
+    then:
+    received == ['first', 'second']
+  }
+
+  private static ProjectDelta emptyDelta() {
+    new ProjectDelta(ImmutableSet.of(), ImmutableSet.of(), ImmutableMap.of())
+  }
+
+  private void runTasks() {
+    def pending = new ArrayList(tasks)
+    tasks.clear()
+    pending.each { it.run() }
+  }
+
+  static class RecordingSubscriber {
+
+    def received = []
+
+    @Subscribe
+    void onEvent(String event) {
+      received << event
+    }
+
+  }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Charsets
+import com.google.common.base.Optional
+import com.google.common.base.Supplier
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSet
+import com.google.common.eventbus.EventBus
+import com.google.common.hash.Hashing
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheSpec
+import org.gradle.tooling.model.BuildIdentifier
+import org.gradle.tooling.model.DomainObjectSet
+import org.gradle.tooling.model.build.BuildEnvironment
+import org.gradle.tooling.model.build.GradleEnvironment
+import org.gradle.tooling.model.build.JavaEnvironment
+import org.gradle.tooling.model.gradle.BasicGradleProject
+import org.gradle.tooling.model.gradle.GradleBuild
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class PersistentModelStoreTest extends Specification {
+
+  // the shape of the stored classes for each format version, a new format version gets its own entry
+  private static final Map<Integer, String> PERSISTED_SHAPES = [
+      1: '12faa553ccda743779a738267259e54623874466'
+  ]
+
+  @Rule
+  TemporaryFolder tempFolder
+
+  File projectDir
+  File gradleUserHome
+
+  def setup() {
+    projectDir = tempFolder.newFolder('root')
+    gradleUserHome = tempFolder.newFolder('gradle-user-home')
+    new File(projectDir, 'settings.gradle') << "include 'sub'"
+    new File(projectDir, 'build.gradle') << "apply plugin: 'java'"
+    new File(projectDir, 'sub').mkdir()
+    new File(projectDir, 'sub/build.gradle') << "apply plugin: 'groovy'"
+  }
+
+  def "stored model is returned as long as the build inputs are unchanged"() {
+    given:
+    def store = newStore()
+    store.store(GradleBuild, DefaultOmniGradleBuild.from(gradleBuild()))
+
+    when:
+    def model = store.load(GradleBuild)
+
+    then:
+    model.present
+    OmniGradleBuild gradleBuild = (OmniGradleBuild) model.get()
+    gradleBuild.rootProject.name == 'root'
+    gradleBuild.rootProject.children*.name == ['sub']
+    gradleBuild.rootProject.children[0].parent.is(gradleBuild.rootProject)
+    gradleBuild.rootProject.children[0].projectDirectory.get() == new File(projectDir, 'sub')
+  }
+
+  def "identifiers provided by the Tooling API are stored as copies"() {
+    given:
+    def store = newStore()
+    def buildIdentifier = Stub(BuildIdentifier) {
+      getRootDir() >> projectDir
+    }
+    def buildEnvironment = Stub(BuildEnvironment) {
+      getGradle() >> Stub(GradleEnvironment) {
+        getGradleUserHome() >> gradleUserHome
+        getGradleVersion() >> '4.6'
+      }
+      getJava() >> Stub(JavaEnvironment) {
+        getJavaHome() >> projectDir
+        getJvmArguments() >> []
+      }
+      getBuildIdentifier() >> buildIdentifier
+    }
+    store.store(BuildEnvironment, DefaultOmniBuildEnvironment.from(buildEnvironment))
+
+    when:
+    OmniBuildEnvironment model = (OmniBuildEnvironment) store.load(BuildEnvironment).get()
+
+    then:
+    model.gradle.gradleVersion == '4.6'
+    model.buildIdentifier.rootDir == projectDir
+  }
+
+  def "stored model is discarded once a build input changes"() {
+    given:
+    def store = newStore()
+    store.store(GradleBuild, DefaultOmniGradleBuild.from(gradleBuild()))
+    assert store.load(GradleBuild).present
+
+    when:
+    change.call(this)
+
+    then:
+    !store.load(GradleBuild).present
+
+    where:
+    change << [
+        { it.projectDir.toPath().resolve('sub/build.gradle').toFile() << "\napply plugin: 'java'" },
+        { it.projectDir.toPath().resolve('settings.gradle').toFile().text = "include 'other'" },
+        { it.projectDir.toPath().resolve('gradle.properties').toFile() << 'org.gradle.parallel=true' },
+        { it.projectDir.toPath().resolve('sub/build.gradle').toFile().delete() },
+        { it.gradleUserHome.toPath().resolve('gradle.properties').toFile() << 'org.gradle.daemon=false' },
+        { it.projectDir.toPath().resolve('buildSrc/src/main/groovy').toFile().mkdirs(); it.projectDir.toPath().resolve('buildSrc/src/main/groovy/Plugin.groovy').toFile() << 'class Plugin {}' },
+    ]
+  }
+
+  def "model that cannot be serialized is not stored"() {
+    given:
+    def store = newStore()
+
+    when:
+    store.store(GradleBuild, new Object())
+
+    then:
+    !store.load(GradleBuild).present
+    store.storeDir.listFiles().findAll { it.name.endsWith('.tmp') }.empty
+  }
+
+  def "stored Eclipse and Gradle projects are read back"() {
+    given:
+    def store = newStore()
+    def hierarchy = new SyntheticProjectHierarchy(20, 3, 2, 2)
+    def eclipseProjects = ImmutableSet.copyOf(DefaultOmniEclipseProject.from(hierarchy.rootEclipseProject).all)
+    store.store(OmniEclipseProject, eclipseProjects)
+
+    when:
+    Set<OmniEclipseProject> model = (Set<OmniEclipseProject>) store.load(OmniEclipseProject).get()
+
+    then:
+    model*.path == eclipseProjects*.path
+    model*.externalDependencies*.file == eclipseProjects*.externalDependencies*.file
+    model*.gradleProject*.taskSelectors*.name == eclipseProjects*.gradleProject*.taskSelectors*.name
+  }
+
+  def "stored model that refers to a class outside of the models is not read"() {
+    given:
+    def store = newStore()
+    store.store(GradleBuild, new Date())
+
+    expect:
+    store.storeDir.listFiles().find { it.name.endsWith('.bin') }
+    !store.load(GradleBuild).present
+  }
+
+  def "only model classes and the library types they consist of are resolved from a stored model"() {
+    expect:
+    PersistentModelStore.isStoredClass(className) == stored
+
+    where:
+    className                                                                    | stored
+    'com.gradleware.tooling.toolingmodel.Path'                                   | true
+    'com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniGradleBuild' | true
+    'com.google.common.collect.ImmutableList$SerializedForm'                     | true
+    'java.util.ArrayList'                                                        | true
+    '[Ljava.lang.Object;'                                                        | true
+    '[I'                                                                         | true
+    'java.util.Date'                                                             | false
+    '[Ljava.util.Date;'                                                          | false
+    'com.gradleware.tooling.toolingmodel.buildaction.TripleBuildAction'          | false
+    'org.codehaus.groovy.runtime.MethodClosure'                                  | false
+  }
+
+  def "the serialized form of the stored classes is recorded for the current format version"() {
+    expect:
+    assert PERSISTED_SHAPES[PersistentModelStore.FORMAT_VERSION] == shapeOfStoredClasses(),
+        'The serialized form of the stored model classes has changed, increase PersistentModelStore.FORMAT_VERSION and record the new shape here.'
+  }
+
+  def "builds with different request attributes are stored separately"() {
+    given:
+    def baseDir = tempFolder.newFolder('store')
+    def attributes = new FixedRequestAttributes(projectDir, gradleUserHome, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    def otherAttributes = new FixedRequestAttributes(projectDir, gradleUserHome, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of('--offline'))
+
+    when:
+    PersistentModelStore.create(attributes, Optional.of(baseDir)).store(String, 'model')
+
+    then:
+    PersistentModelStore.create(attributes, Optional.of(baseDir)).load(String).get() == 'model'
+    !PersistentModelStore.create(otherAttributes, Optional.of(baseDir)).load(String).present
+  }
+
+  def "persisted model is used by a new repository instead of running the build"() {
+    given:
+    def cacheSpec = ModelCacheSpec.newBuilder().persistent(tempFolder.newFolder('store')).build()
+    def loads = 0
+    def operation = { loads++; ImmutableList.of('model') } as Supplier
+
+    when:
+    def firstModel = fetch(newRepository(cacheSpec), operation, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def secondModel = fetch(newRepository(cacheSpec), operation, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    firstModel == ['model']
+    secondModel == ['model']
+    loads == 1
+
+    when:
+    fetch(newRepository(cacheSpec), operation, FetchStrategy.FORCE_RELOAD)
+
+    then:
+    loads == 2
+  }
+
+  private static String shapeOfStoredClasses() {
+    // describes the serializable fields of every class in the model packages, in a stable order
+    // the packages are resolved against the output the store was loaded from, since the test output on the classpath shares them
+    def classLoader = PersistentModelStore.classLoader
+    def outputDirectory = new File(PersistentModelStore.protectionDomain.codeSource.location.toURI())
+    def shapes = PersistentModelStore.MODEL_PACKAGES.collectMany { String packageName ->
+      def directory = new File(outputDirectory, packageName.replace('.', File.separator))
+      directory.listFiles().findAll { it.name.endsWith('.class') }.collect { Class.forName("$packageName.${it.name - '.class'}", false, classLoader) }
+    }.findAll { Serializable.isAssignableFrom(it) && !it.interface }.collect { Class<?> type ->
+      def descriptor = ObjectStreamClass.lookup(type)
+      "$type.name:$descriptor.serialVersionUID:" + descriptor.fields.collect { "$it.name $it.typeCode$it.typeString" }.sort().join(',')
+    }.sort()
+    Hashing.sha1().hashString(shapes.join('\n'), Charsets.UTF_8).toString()
+  }
+
+  private PersistentModelStore newStore() {
+    new PersistentModelStore(new File(tempFolder.root, 'store'), projectDir, gradleUserHome)
+  }
+
+  private GradleBuild gradleBuild() {
+    def sub = project('sub', ':sub', new File(projectDir, 'sub'), [])
+    def root = project('root', ':', projectDir, [sub])
+    Stub(GradleBuild) {
+      getRootProject() >> root
+      getIncludedBuilds() >> domainObjectSet([])
+    }
+  }
+
+  private BasicGradleProject project(String name, String path, File projectDirectory, List<BasicGradleProject> children) {
+    def childSet = domainObjectSet(children)
+    Stub(BasicGradleProject) {
+      getName() >> name
+      getPath() >> path
+      getProjectDirectory() >> projectDirectory
+      getChildren() >> childSet
+    }
+  }
+
+  private DomainObjectSet domainObjectSet(List elements) {
+    Stub(DomainObjectSet) {
+      iterator() >> { elements.iterator() }
+    }
+  }
+
+  private DefaultModelRepository newRepository(ModelCacheSpec cacheSpec) {
+    def fixedRequestAttributes = new FixedRequestAttributes(projectDir, gradleUserHome, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    new DefaultModelRepository(fixedRequestAttributes, Mock(ToolingClient), new EventBus(), cacheSpec)
+  }
+
+  private static Object fetch(DefaultModelRepository repository, Supplier operation, FetchStrategy fetchStrategy) {
+    repository.executeRequest(operation, { } as Consumer, fetchStrategy, String, new BaseConverter<Object, Object>() {
+
+      @Override
+      Object apply(Object input) {
+        input
+      }
+    })
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.EventBus
+import com.google.common.eventbus.Subscribe
+import com.gradleware.tooling.spock.VerboseUnroll
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.repository.*
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ProgressListener
+
+@VerboseUnroll(formatter = GradleDistributionFormatter.class)
+class PrefetchModelRepositoryTest extends ModelRepositorySpec {
+
+    def "prefetch populates the cache with all models"(GradleDistribution distribution) {
+        given:
+        def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+        def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+        def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
+
+        def publishedEvents = []
+        repository.register(new Object() {
+
+            @SuppressWarnings("GroovyUnusedDeclaration")
+            @Subscribe
+            public void listen(Object event) {
+                publishedEvents << event
+            }
+        })
+
+        when:
+        repository.prefetch(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+        then:
+        def gradleBuild = repository.fetchGradleBuild(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+        gradleBuild.rootProject.name == 'my root project'
+        gradleBuild.rootProject.all*.name == ['my root project', 'sub1', 'sub2', 'subSub1']
+
+        def gradleProjects = repository.fetchGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+        gradleProjects*.name as Set == ['my root project', 'sub1', 'sub2', 'subSub1'] as Set
+
+        def eclipseProjects = repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+        eclipseProjects*.name as Set == ['my root project', 'sub1', 'sub2', 'subSub1'] as Set
+
+        publishedEvents.findAll { it instanceof GradleBuildUpdateEvent }*.gradleBuild == [gradleBuild]
+        publishedEvents.findAll { it instanceof GradleProjectUpdateEvent }*.gradleProjects == [gradleProjects]
+        publishedEvents.findAll { it instanceof EclipseProjectUpdateEvent }*.eclipseGradleBuild == [eclipseProjects]
+
+        where:
+        distribution << gradleDistributionRange(">=1.2")
+    }
+
+    def "prefetch does not reload cached models unless forced to"(GradleDistribution distribution) {
+        given:
+        def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+        def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+        def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
+        repository.prefetch(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+        def eclipseProjects = repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+        when:
+        repository.prefetch(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+        then:
+        repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY).is(eclipseProjects)
+
+        when:
+        repository.prefetch(transientRequestAttributes, FetchStrategy.FORCE_RELOAD)
+
+        then:
+        !repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY).is(eclipseProjects)
+
+        where:
+        distribution << gradleDistributionRange(">=1.8")
+    }
+
+    def "prefetch can handle composite builds"(GradleDistribution distribution) {
+        given:
+        def fixedRequestAttributes = new FixedRequestAttributes(directoryProviderCompositeBuild.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+        def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+        def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
+
+        when:
+        repository.prefetch(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+        then:
+        def eclipseProjects = repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+        eclipseProjects == repository.fetchEclipseGradleProjects(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+        eclipseProjects.findAll { it.parent == null }*.name as Set == ['root', 'included1', 'included2'] as Set
+
+        where:
+        distribution << gradleDistributionRange(">=4.0")
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ProjectConversionScalingTest extends Specification {
+
+  @Unroll
+  def "Eclipse conversion of #projectCount projects computes the build invocations once per build"() {
+    given:
+    def hierarchy = new SyntheticProjectHierarchy(projectCount, 10, 3)
+    DefaultOmniBuildInvocationsContainerBuilder.build(hierarchy.rootProject)
+    def taskRequestsOfSingleBuild = hierarchy.taskRequests
+    hierarchy.taskRequests = 0
+
+    when:
+    def eclipseProject = DefaultOmniEclipseProject.from(hierarchy.rootEclipseProject)
+
+    then:
+    eclipseProject.all.size() == projectCount
+    eclipseProject.all.collect { it.gradleProject }.unique(false) { System.identityHashCode(it) }.size() == projectCount
+    hierarchy.taskRequests == taskRequestsOfSingleBuild
+
+    where:
+    projectCount << [100, 1000, 10000]
+  }
+
+  def "converting a child project first still computes the build invocations once per build"() {
+    given:
+    def hierarchy = new SyntheticProjectHierarchy(111, 10, 3)
+    DefaultOmniBuildInvocationsContainerBuilder.build(hierarchy.rootProject)
+    def taskRequestsOfSingleBuild = hierarchy.taskRequests
+    hierarchy.taskRequests = 0
+    def knownProjects = [:]
+
+    when:
+    def child = DefaultOmniGradleProject.from(hierarchy.rootProject.children[0].children[0], knownProjects)
+    def root = DefaultOmniGradleProject.from(hierarchy.rootProject, knownProjects)
+
+    then:
+    child.root.is(root)
+    child.projectTasks.size() == 3
+    knownProjects.size() == 111
+    hierarchy.taskRequests == taskRequestsOfSingleBuild
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.OmniProjectTask
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.ProjectAspect
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import org.gradle.tooling.model.BuildIdentifier
+import org.gradle.tooling.model.ProjectIdentifier
+import spock.lang.Specification
+
+class ProjectDeltasTest extends Specification {
+
+  def "all projects are added if the previous projects are not known"() {
+    given:
+    def projects = [gradleProject(':'), gradleProject(':sub')] as Set
+
+    when:
+    def delta = ProjectDeltas.diffGradleProjects(null, projects)
+
+    then:
+    delta.added == projects
+    delta.removed.isEmpty()
+    delta.changed.isEmpty()
+  }
+
+  def "projects are matched by their project identifier"() {
+    given:
+    def root = gradleProject(':')
+    def removed = gradleProject(':removed')
+    def added = gradleProject(':added')
+
+    when:
+    def delta = ProjectDeltas.diffGradleProjects([root, removed], [gradleProject(':'), added])
+
+    then:
+    delta.added == [added] as Set
+    delta.removed == [removed] as Set
+    delta.changed.isEmpty()
+    !delta.isEmpty()
+  }
+
+  def "projects with the same path in different builds are different projects"() {
+    when:
+    def delta = ProjectDeltas.diffGradleProjects([gradleProject(':', 'build-a')], [gradleProject(':', 'build-b')])
+
+    then:
+    delta.added.size() == 1
+    delta.removed.size() == 1
+  }
+
+  def "changed tasks are reported"() {
+    given:
+    def current = gradleProject(':', 'build', ['build', 'test'])
+
+    when:
+    def delta = ProjectDeltas.diffGradleProjects([gradleProject(':', 'build', ['build'])], [current])
+
+    then:
+    delta.added.isEmpty()
+    delta.removed.isEmpty()
+    delta.changed == [(current): [ProjectAspect.TASKS] as Set]
+  }
+
+  def "unchanged eclipse projects yield an empty delta"() {
+    when:
+    def delta = ProjectDeltas.diffEclipseProjects([eclipseProject(['a.jar'], ['src/main/java'])], [eclipseProject(['a.jar'], ['src/main/java'])])
+
+    then:
+    delta.isEmpty()
+  }
+
+  def "changed classpath and source directories are reported"() {
+    given:
+    def classpathChanged = eclipseProject(['a.jar', 'b.jar'], ['src/main/java'])
+    def sourceDirectoriesChanged = eclipseProject(['a.jar'], ['src/main/java', 'src/test/java'])
+
+    expect:
+    ProjectDeltas.diffEclipseProjects([eclipseProject(['a.jar'], ['src/main/java'])], [classpathChanged]).changed ==
+        [(classpathChanged): [ProjectAspect.CLASSPATH] as Set]
+    ProjectDeltas.diffEclipseProjects([eclipseProject(['a.jar'], ['src/main/java'])], [sourceDirectoriesChanged]).changed ==
+        [(sourceDirectoriesChanged): [ProjectAspect.SOURCE_DIRECTORIES] as Set]
+  }
+
+  private OmniGradleProject gradleProject(String path, String build = 'build', List<String> taskNames = []) {
+    def tasks = taskNames.collect { String name ->
+      OmniProjectTask task = Stub(OmniProjectTask)
+      task.name >> name
+      task.path >> Path.from(":$name")
+      task.group >> Maybe.absent()
+      task
+    }
+    OmniGradleProject project = Stub(OmniGradleProject)
+    project.name >> path
+    project.path >> Path.from(path)
+    project.parent >> null
+    project.projectIdentifier >> projectIdentifier(build, path)
+    project.projectDirectory >> Maybe.of(new File(build, path))
+    project.buildDirectory >> Maybe.absent()
+    project.buildScript >> Maybe.absent()
+    project.projectTasks >> tasks
+    project.taskSelectors >> []
+    project
+  }
+
+  private OmniEclipseProject eclipseProject(List<String> jars, List<String> sourcePaths) {
+    def dependencies = jars.collect { String jar ->
+      OmniExternalDependency dependency = Stub(OmniExternalDependency)
+      dependency.file >> new File(jar)
+      dependency.source >> null
+      dependency.javadoc >> null
+      dependency.gradleModuleVersion >> Maybe.absent()
+      dependency.classpathAttributes >> Optional.absent()
+      dependency.accessRules >> Optional.absent()
+      dependency
+    }
+    def sourceDirectories = sourcePaths.collect { String sourcePath ->
+      OmniEclipseSourceDirectory sourceDirectory = Stub(OmniEclipseSourceDirectory)
+      sourceDirectory.path >> sourcePath
+      sourceDirectory.directory >> new File('build', sourcePath)
+      sourceDirectory.excludes >> Optional.absent()
+      sourceDirectory.includes >> Optional.absent()
+      sourceDirectory.output >> Maybe.absent()
+      sourceDirectory.classpathAttributes >> Optional.absent()
+      sourceDirectory.accessRules >> Optional.absent()
+      sourceDirectory
+    }
+    def gradleProject = gradleProject(':')
+    OmniEclipseProject project = Stub(OmniEclipseProject)
+    project.name >> 'root'
+    project.path >> Path.from(':')
+    project.parent >> null
+    project.projectIdentifier >> projectIdentifier('build', ':')
+    project.projectDirectory >> new File('build')
+    project.gradleProject >> gradleProject
+    project.projectDependencies >> []
+    project.externalDependencies >> dependencies
+    project.sourceDirectories >> sourceDirectories
+    project.linkedResources >> []
+    project.projectNatures >> Optional.absent()
+    project.buildCommands >> Optional.absent()
+    project.javaSourceSettings >> Optional.absent()
+    project.classpathContainers >> Optional.absent()
+    project.outputLocation >> Optional.absent()
+    project
+  }
+
+  private ProjectIdentifier projectIdentifier(String build, String path) {
+    BuildIdentifier buildIdentifier = Stub(BuildIdentifier)
+    buildIdentifier.rootDir >> new File(build)
+    ProjectIdentifier projectIdentifier = Stub(ProjectIdentifier)
+    projectIdentifier.buildIdentifier >> buildIdentifier
+    projectIdentifier.projectPath >> path
+    projectIdentifier
+  }
+
+}
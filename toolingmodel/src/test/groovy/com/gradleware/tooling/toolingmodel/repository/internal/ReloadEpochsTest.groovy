@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Supplier
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+class ReloadEpochsTest extends Specification {
+
+  def reloadEpochs = new ReloadEpochs()
+  def conditions = new PollingConditions(timeout: 5)
+
+  def "reloads requested while a reload is running share the next epoch"() {
+    given:
+    def runningReleased = new CountDownLatch(1)
+    def epochs = new AtomicInteger()
+    def reload = { runningReleased.await(); "epoch ${epochs.incrementAndGet()}".toString() } as Supplier
+    def results = Collections.synchronizedList([])
+
+    when:
+    def running = Thread.start { reloadEpochs.reload(String, reload) }
+    conditions.eventually {
+      assert running.state == Thread.State.WAITING
+    }
+    def queued = (1..5).collect { Thread.start { results << reloadEpochs.reload(String, reload) } }
+    conditions.eventually {
+      assert queued.every { it.state == Thread.State.WAITING }
+    }
+    runningReleased.countDown()
+    ([running] + queued)*.join()
+
+    then:
+    epochs.get() == 2
+    results == ['epoch 2'] * 5
+  }
+
+  def "reloads of different models do not share an epoch"() {
+    given:
+    def runningReleased = new CountDownLatch(1)
+
+    when:
+    def running = Thread.start { reloadEpochs.reload(String, { runningReleased.await(); 'string' } as Supplier) }
+    conditions.eventually {
+      assert running.state == Thread.State.WAITING
+    }
+    def result = reloadEpochs.reload(Integer, { 'integer' } as Supplier)
+    runningReleased.countDown()
+    running.join()
+
+    then:
+    result == 'integer'
+  }
+
+  def "reload that is requested after all epochs have finished starts a new epoch"() {
+    given:
+    def epochs = new AtomicInteger()
+    def reload = { epochs.incrementAndGet() } as Supplier
+
+    expect:
+    reloadEpochs.reload(String, reload) == 1
+    reloadEpochs.reload(String, reload) == 2
+    reloadEpochs.epochsByKey.isEmpty()
+  }
+
+  def "failure of an epoch is propagated to all reloads that joined it"() {
+    given:
+    def runningReleased = new CountDownLatch(1)
+    def failures = Collections.synchronizedList([])
+
+    when:
+    def running = Thread.start { reloadEpochs.reload(String, { runningReleased.await(); 'running' } as Supplier) }
+    conditions.eventually {
+      assert running.state == Thread.State.WAITING
+    }
+    def queued = (1..3).collect {
+      Thread.start {
+        try {
+          reloadEpochs.reload(String, { throw new IllegalStateException('reload failed') } as Supplier)
+        } catch (IllegalStateException e) {
+          failures << e.message
+        }
+      }
+    }
+    conditions.eventually {
+      assert queued.every { it.state == Thread.State.WAITING }
+    }
+    runningReleased.countDown()
+    ([running] + queued)*.join()
+
+    then:
+    failures == ['reload failed'] * 3
+    reloadEpochs.reload(String, { 'recovered' } as Supplier) == 'recovered'
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import org.gradle.tooling.model.BuildIdentifier
+import org.gradle.tooling.model.DomainObjectSet
+import org.gradle.tooling.model.GradleModuleVersion
+import org.gradle.tooling.model.GradleProject
+import org.gradle.tooling.model.GradleTask
+import org.gradle.tooling.model.ProjectIdentifier
+import org.gradle.tooling.model.UnsupportedMethodException
+import org.gradle.tooling.model.eclipse.EclipseExternalDependency
+import org.gradle.tooling.model.eclipse.EclipseProject
+import org.gradle.tooling.model.eclipse.EclipseProjectDependency
+import org.gradle.tooling.model.eclipse.EclipseSourceDirectory
+import org.gradle.util.GradleVersion
+
+/**
+ * Builds large Gradle and Eclipse project hierarchies without connecting to a build and counts how often the tasks of the projects are requested.
+ * <p/>
+ * The models behave like the models of the given {@link #GRADLE_VERSION}: the accessors that were added in later versions throw an {@link UnsupportedMethodException}
+ * and are counted as unsupported method calls.
+ */
+class SyntheticProjectHierarchy {
+
+  static final GradleVersion GRADLE_VERSION = GradleVersion.version('1.12')
+
+  final GradleProject rootProject
+  final EclipseProject rootEclipseProject
+  int taskRequests
+  int unsupportedMethodCalls
+
+  /**
+   * Creates a hierarchy of the given number of projects, where each project has up to the given number of child projects and the given number of tasks.
+   */
+  SyntheticProjectHierarchy(int projectCount, int fanOut, int tasksPerProject) {
+    this(projectCount, fanOut, tasksPerProject, 0)
+  }
+
+  /**
+   * Creates a hierarchy of the given number of projects, where each project additionally has the given number of external dependencies, one source directory, and a
+   * dependency on its parent project.
+   */
+  SyntheticProjectHierarchy(int projectCount, int fanOut, int tasksPerProject, int dependenciesPerProject) {
+    def rootDir = new File('synthetic')
+    def buildIdentifier = [getRootDir: { rootDir }] as BuildIdentifier
+    def gradleProjects = []
+    def eclipseProjects = []
+    def children = [:].withDefault { [] }
+    def eclipseChildren = [:].withDefault { [] }
+    (0..<projectCount).each { int index ->
+      def parentIndex = index == 0 ? null : (index - 1).intdiv(fanOut)
+      String path = index == 0 ? ':' : ":project$index"
+      def identifier = SerializableProjectIdentifier.from([getProjectPath: { path }, getBuildIdentifier: { buildIdentifier }] as ProjectIdentifier)
+      def tasks = new ListDomainObjectSet((0..<tasksPerProject).collect { int taskIndex -> task(path, "task$taskIndex") })
+      def externalDependencies = new ListDomainObjectSet((0..<dependenciesPerProject).collect { int dependencyIndex -> externalDependency("library$dependencyIndex") })
+      def sourceDirectories = new ListDomainObjectSet(dependenciesPerProject > 0 ? [sourceDirectory()] : [])
+      def projectDependencies = new ListDomainObjectSet(dependenciesPerProject > 0 && parentIndex != null ? [projectDependency(":project$parentIndex")] : [])
+      GradleProject gradleProject = [
+          getName: { "project$index" as String },
+          getDescription: { null },
+          getPath: { path },
+          getProjectIdentifier: { identifier },
+          getParent: { parentIndex != null ? gradleProjects[parentIndex] : null },
+          getChildren: { new ListDomainObjectSet(children[index]) },
+          getTasks: { taskRequests++; tasks },
+          getBuildScript: { null },
+          getBuildDirectory: { unsupported() },
+          getProjectDirectory: { unsupported() }
+      ] as GradleProject
+      EclipseProject eclipseProject = [
+          getName: { "project$index" as String },
+          getDescription: { null },
+          getProjectIdentifier: { identifier },
+          getProjectDirectory: { new File(rootDir, "project$index") },
+          getGradleProject: { gradleProject },
+          getParent: { parentIndex != null ? eclipseProjects[parentIndex] : null },
+          getChildren: { new ListDomainObjectSet(eclipseChildren[index]) },
+          getProjectDependencies: { projectDependencies },
+          getClasspath: { externalDependencies },
+          getLinkedResources: { new ListDomainObjectSet([]) },
+          getSourceDirectories: { sourceDirectories },
+          getProjectNatures: { unsupported() },
+          getBuildCommands: { unsupported() },
+          getJavaSourceSettings: { unsupported() },
+          getClasspathContainers: { unsupported() },
+          getOutputLocation: { unsupported() }
+      ] as EclipseProject
+      gradleProjects << gradleProject
+      eclipseProjects << eclipseProject
+      if (parentIndex != null) {
+        children[parentIndex] << gradleProject
+        eclipseChildren[parentIndex] << eclipseProject
+      }
+    }
+    rootProject = gradleProjects[0]
+    rootEclipseProject = eclipseProjects[0]
+  }
+
+  private GradleTask task(String projectPath, String name) {
+    String path = projectPath == ':' ? ":$name" : "$projectPath:$name"
+    [getName: { name }, getDescription: { null }, getPath: { path }, isPublic: { unsupported() }, getGroup: { unsupported() }] as GradleTask
+  }
+
+  private EclipseExternalDependency externalDependency(String name) {
+    [
+        getFile: { new File("$name-1.0.jar") },
+        getSource: { null },
+        getJavadoc: { null },
+        getGradleModuleVersion: { [getGroup: { 'org.example' }, getName: { name }, getVersion: { '1.0' }] as GradleModuleVersion },
+        isExported: { unsupported() },
+        getClasspathAttributes: { unsupported() },
+        getAccessRules: { unsupported() }
+    ] as EclipseExternalDependency
+  }
+
+  private EclipseProjectDependency projectDependency(String path) {
+    [
+        getPath: { path },
+        isExported: { unsupported() },
+        getClasspathAttributes: { unsupported() },
+        getAccessRules: { unsupported() }
+    ] as EclipseProjectDependency
+  }
+
+  private EclipseSourceDirectory sourceDirectory() {
+    [
+        getDirectory: { new File('src/main/java') },
+        getPath: { 'src/main/java' },
+        getExcludes: { unsupported() },
+        getIncludes: { unsupported() },
+        getOutput: { unsupported() },
+        getClasspathAttributes: { unsupported() },
+        getAccessRules: { unsupported() }
+    ] as EclipseSourceDirectory
+  }
+
+  private Object unsupported() {
+    unsupportedMethodCalls++
+    throw new UnsupportedMethodException("Unsupported method in Gradle $GRADLE_VERSION.version.")
+  }
+
+  static class ListDomainObjectSet<T> extends ArrayList<T> implements DomainObjectSet<T> {
+
+    ListDomainObjectSet(Collection<T> elements) {
+      super(elements)
+    }
+
+    @Override
+    List<T> getAll() {
+      this
+    }
+
+    @Override
+    T getAt(int index) {
+      get(index)
+    }
+
+  }
+
+}
@@ -70,4 +70,18 @@ class MaybeTest extends Specification {
       Maybe.absent() == Maybe.absent()
       Maybe.absent() != Maybe.of(null)
   }
+
+  def "null reference and absence survive serialization" () {
+      expect:
+      roundTrip(Maybe.of("Foo")) == Maybe.of("Foo")
+      roundTrip(Maybe.of(null)).isPresent()
+      roundTrip(Maybe.of(null)).get() == null
+      roundTrip(Maybe.absent()).is(Maybe.absent())
+  }
+
+  private static Maybe roundTrip(Maybe maybe) {
+      def bytes = new ByteArrayOutputStream()
+      new ObjectOutputStream(bytes).withStream { it.writeObject(maybe) }
+      new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).withStream { (Maybe) it.readObject() }
+  }
 }